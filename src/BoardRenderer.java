@@ -0,0 +1,191 @@
+import chess.ChessPiece;
+import chess.Color;
+import chess.PositionState;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Builds a whole screen in one reusable buffer and writes it with a single call. Every line and square
+// is placed with cursor-positioning escapes; in diff mode only the lines and squares that changed since
+// the previous frame are sent, otherwise the frame starts by clearing the screen.
+public class BoardRenderer {
+
+    private static final String CLEAR = "\033[H\033[2J";
+    private static final String CLEAR_LINE = "\033[K";
+    private static final String CLEAR_BELOW = "\033[J";
+    private static final int BOARD_WIDTH = 20;
+
+    private final boolean diff;
+    private final StringBuilder frame = new StringBuilder(8192);
+    private byte[] bytes = new byte[8192];
+
+    private final List<String> previousLines = new ArrayList<>();
+    private final List<int[]> previousCells = new ArrayList<>();
+    private final List<Integer> previousOrigins = new ArrayList<>();
+    private final List<String> lines = new ArrayList<>();
+    private int board;
+    private boolean started;
+    private boolean invalid = true;
+
+    public BoardRenderer(boolean diff) {
+        this.diff = diff;
+    }
+
+    public boolean isDiff() {
+        return diff;
+    }
+
+    public void invalidate() {
+        invalid = true;
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    public void begin() {
+        frame.setLength(0);
+        lines.clear();
+        board = 0;
+        started = true;
+        if (!diff || invalid) {
+            frame.append(CLEAR);
+            previousLines.clear();
+            previousCells.clear();
+            previousOrigins.clear();
+            invalid = false;
+        }
+    }
+
+    // One line of text without line breaks; ANSI colour codes are allowed.
+    public void text(String text) {
+        int line = lines.size();
+        lines.add(text);
+        if (line < previousLines.size() && text.equals(previousLines.get(line))) return;
+        moveTo(line + 1, 1);
+        frame.append(text).append(CLEAR_LINE);
+    }
+
+    public void board(ChessPiece[][] pieces, boolean[][] highlights) {
+        int top = lines.size() + 1;
+        for (int i = 0; i < pieces.length; i++) lines.add(null);
+        drawBoard(pieces, highlights, top, 1, true);
+        text("  a b c d e f g h");
+    }
+
+    // Boards laid out in a grid of perRow columns, each with a title line above it.
+    public void boards(List<ChessPiece[][]> boards, List<String> titles, int perRow) {
+        for (int first = 0; first < boards.size(); first += perRow) {
+            int last = Math.min(first + perRow, boards.size());
+            StringBuilder title = new StringBuilder();
+            for (int b = first; b < last; b++) {
+                String t = b < titles.size() ? titles.get(b) : "";
+                if (t.length() > BOARD_WIDTH - 1) t = t.substring(0, BOARD_WIDTH - 1);
+                title.append(t).append(" ".repeat(BOARD_WIDTH - t.length()));
+            }
+            text(title.toString());
+            int top = lines.size() + 1;
+            for (int i = 0; i < 8; i++) lines.add(null);
+            for (int b = first; b < last; b++) {
+                drawBoard(boards.get(b), null, top, 1 + (b - first) * BOARD_WIDTH, false);
+            }
+            text("  a b c d e f g h   ".repeat(last - first).stripTrailing());
+            text("");
+        }
+    }
+
+    public void end(PrintStream out) {
+        moveTo(lines.size() + 1, 1);
+        frame.append(CLEAR_BELOW);
+        previousLines.clear();
+        previousLines.addAll(lines);
+        started = false;
+
+        int length = frame.length();
+        if (bytes.length < length) bytes = new byte[Math.max(length, bytes.length * 2)];
+        for (int i = 0; i < length; i++) {
+            char c = frame.charAt(i);
+            bytes[i] = (byte) (c < 128 ? c : '?');
+        }
+        out.write(bytes, 0, length);
+        out.flush();
+    }
+
+    private void drawBoard(ChessPiece[][] pieces, boolean[][] highlights, int top, int left, boolean clearRest) {
+        int origin = top << 16 | left;
+        int[] cells;
+        boolean full;
+        if (board < previousCells.size()) {
+            cells = previousCells.get(board);
+            full = previousOrigins.get(board) != origin;
+            previousOrigins.set(board, origin);
+        } else {
+            cells = new int[64];
+            previousCells.add(cells);
+            previousOrigins.add(origin);
+            full = true;
+        }
+        board++;
+
+        for (int i = 0; i < 8; i++) {
+            if (full) {
+                moveTo(top + i, left);
+                frame.append(8 - i).append(' ');
+            }
+            boolean positioned = full;
+            for (int j = 0; j < 8; j++) {
+                boolean highlight = highlights != null && highlights[i][j];
+                int cell = PositionState.code(pieces[i][j]) | (highlight ? 16 : 0);
+                int square = i * 8 + j;
+                if (!full && cells[square] == cell) {
+                    positioned = false;
+                    continue;
+                }
+                cells[square] = cell;
+                if (!positioned) moveTo(top + i, left + 2 + 2 * j);
+                appendPiece(pieces[i][j], highlight);
+                positioned = true;
+            }
+            if (full && clearRest) frame.append(CLEAR_LINE);
+        }
+    }
+
+    private void appendPiece(ChessPiece piece, boolean background) {
+        appendPiece(frame, piece, background);
+    }
+
+    // The text of one square: the piece (or '-') in its color, then a space.
+    public static String piece(ChessPiece piece, boolean background) {
+        StringBuilder sb = new StringBuilder(24);
+        appendPiece(sb, piece, background);
+        return sb.toString();
+    }
+
+    // The captured pieces lines of a match screen.
+    public static List<String> capturedPieces(List<ChessPiece> capturedPieces) {
+        List<ChessPiece> white = capturedPieces.stream().filter(x -> x.getColor() == Color.WHITE).toList();
+        List<ChessPiece> black = capturedPieces.stream().filter(x -> x.getColor() == Color.BLACK).toList();
+        return List.of("Captured pieces:",
+                "White: " + UI.ANSI_WHITE + Arrays.toString(white.toArray()) + UI.ANSI_RESET,
+                UI.ANSI_YELLOW + "Black: " + Arrays.toString(black.toArray()) + UI.ANSI_RESET);
+    }
+
+    private static void appendPiece(StringBuilder sb, ChessPiece piece, boolean background) {
+        if (background) {
+            sb.append(UI.ANSI_CYAN_BACKGROUND);
+        }
+        if (piece == null) {
+            sb.append('-').append(UI.ANSI_RESET);
+        }
+        else {
+            sb.append(piece.getColor() == Color.WHITE ? UI.ANSI_WHITE : UI.ANSI_YELLOW).append(piece).append(UI.ANSI_RESET);
+        }
+        sb.append(' ');
+    }
+
+    private void moveTo(int line, int column) {
+        frame.append("\033[").append(line).append(';').append(column).append('H');
+    }
+}
@@ -2,6 +2,7 @@ import chess.ChessException;
 import chess.ChessMatch;
 import chess.ChessPiece;
 import chess.ChessPosition;
+import metrics.PrometheusFileExporter;
 
 import java.util.ArrayList;
 import java.util.InputMismatchException;
@@ -16,6 +17,7 @@ public class Main {
         Scanner sc = new Scanner(System.in);
         ChessMatch chessMatch = new ChessMatch();
         List<ChessPiece> capturedPieces = new ArrayList<>();
+        PrometheusFileExporter metricsExporter = PrometheusFileExporter.fromSystemProperties();
 
         while (!chessMatch.getCheckMate()) {
             try {
@@ -59,5 +61,6 @@ public class Main {
         System.out.println();
         UI.clearScreen();
         UI.printMatch(chessMatch, capturedPieces);
+        if (metricsExporter != null) metricsExporter.close();
     }
 }
\ No newline at end of file
@@ -1,9 +1,8 @@
 import chess.ChessMatch;
 import chess.ChessPiece;
 import chess.ChessPosition;
-import chess.Color;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.InputMismatchException;
 import java.util.List;
 import java.util.Scanner;
@@ -43,81 +42,57 @@ public class UI {
 
     }
 
+    private static final BoardRenderer RENDERER = new BoardRenderer(Boolean.getBoolean("xadrez.ui.diff"));
+
     public static void printMatch(ChessMatch chessMatch, List<ChessPiece> capturedPieces){
-        System.out.println();
-        printBoard(chessMatch.getPieces());
-        System.out.println();
-        printCapturedPieces(capturedPieces);
-        System.out.println();
-        System.out.println("Turn: " + chessMatch.getTurn());
+        if (!RENDERER.isStarted()) RENDERER.begin();
+        RENDERER.text("");
+        RENDERER.board(chessMatch.getPieces(), null);
+        RENDERER.text("");
+        for (String line : BoardRenderer.capturedPieces(capturedPieces)) RENDERER.text(line);
+        RENDERER.text("");
+        RENDERER.text("Turn: " + chessMatch.getTurn());
         if (!chessMatch.getCheckMate()){
-            System.out.println("Waiting player: " + chessMatch.getCurrentPlayer());
-            if (chessMatch.getCheck()) System.out.println("CHECK!");
+            RENDERER.text("Waiting player: " + chessMatch.getCurrentPlayer());
+            if (chessMatch.getCheck()) RENDERER.text("CHECK!");
         }
         else{
-            System.out.println("CHECKMATE!");
-            System.out.println("Winner: " + chessMatch.getCurrentPlayer());
+            RENDERER.text("CHECKMATE!");
+            RENDERER.text("Winner: " + chessMatch.getCurrentPlayer());
         }
-
+        RENDERER.end(System.out);
     }
 
     public static void printBoard(ChessPiece[][] pieces){
-        for(int i = 0; i < pieces.length; i++){
-            System.out.print((8 - i) + " ");
-            for(int j = 0; j < pieces.length; j++){
-                printPiece(pieces[i][j], false);
-            }
-            System.out.println();
-        }
-        System.out.println("  a b c d e f g h");
+        printBoard(pieces, null);
     }
 
+    // Keeps the board on the same screen lines as printMatch, so diff mode only redraws the highlights.
     public static void printBoard(ChessPiece[][] pieces, boolean[][] possibleMoves){
-        for(int i = 0; i < pieces.length; i++){
-            System.out.print((8 - i) + " ");
-            for(int j = 0; j < pieces.length; j++){
-                printPiece(pieces[i][j], possibleMoves[i][j]);
-            }
-            System.out.println();
-        }
-        System.out.println("  a b c d e f g h");
+        if (!RENDERER.isStarted()) RENDERER.begin();
+        RENDERER.text("");
+        RENDERER.board(pieces, possibleMoves);
+        RENDERER.end(System.out);
+    }
+
+    public static void printBoards(List<ChessMatch> matches, List<String> titles, int perRow){
+        List<ChessPiece[][]> boards = new ArrayList<>();
+        for (ChessMatch match : matches) boards.add(match.getPieces());
+        if (!RENDERER.isStarted()) RENDERER.begin();
+        RENDERER.boards(boards, titles, perRow);
+        RENDERER.end(System.out);
     }
 
     public static void printPiece(ChessPiece piece, boolean background){
-        if (background) {
-            System.out.print(ANSI_CYAN_BACKGROUND);
-        }
-        if (piece == null) {
-            System.out.print("-" + ANSI_RESET);
-        }
-        else {
-            if (piece.getColor() == Color.WHITE) {
-                System.out.print(ANSI_WHITE + piece + ANSI_RESET);
-            }
-            else {
-                System.out.print(ANSI_YELLOW + piece + ANSI_RESET);
-            }
-        }
-        System.out.print(" ");
+        System.out.print(BoardRenderer.piece(piece, background));
     }
 
     public static void printCapturedPieces(List<ChessPiece> capturedPieces){
-        List<ChessPiece> white = capturedPieces.stream().filter(x -> x.getColor() == Color.WHITE).toList();
-        List<ChessPiece> black = capturedPieces.stream().filter(x -> x.getColor() == Color.BLACK).toList();
-        System.out.println("Captured pieces:");
-        System.out.print("White: ");
-        System.out.print(ANSI_WHITE);
-        System.out.println(Arrays.toString(white.toArray()));
-        System.out.print(ANSI_RESET);
-        System.out.print(ANSI_YELLOW);
-        System.out.print("Black: ");
-        System.out.println(Arrays.toString(black.toArray()));
-        System.out.print(ANSI_RESET);
+        for (String line : BoardRenderer.capturedPieces(capturedPieces)) System.out.println(line);
     }
 
-    // https://stackoverflow.com/questions/2979383/java-clear-the-console
+    // Starts a new frame; the screen is cleared (or diffed) when the frame is written.
     public static void clearScreen() {
-        System.out.print("\033[H\033[2J");
-        System.out.flush();
+        RENDERER.begin();
     }
 }
@@ -0,0 +1,48 @@
+package analysis;
+
+import engine.SearchLimits;
+
+// One position to analyse for a tenant. Higher priorities are served first; a request that has not
+// finished within its timeout completes with the last finished iteration, or fails if there is none.
+public class AnalysisRequest {
+
+    private final String tenant;
+    private final String fen;
+    private final SearchLimits limits;
+    private final int priority;
+    private final long timeoutMillis;
+
+    public AnalysisRequest(String tenant, String fen, SearchLimits limits, int priority, long timeoutMillis) {
+        if (timeoutMillis <= 0) throw new IllegalArgumentException("The timeout must be positive");
+        this.tenant = tenant;
+        this.fen = fen;
+        this.limits = limits;
+        this.priority = priority;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    public String getFen() {
+        return fen;
+    }
+
+    public SearchLimits getLimits() {
+        return limits;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    @Override
+    public String toString() {
+        return tenant + " [" + fen + "] " + limits + ", priority " + priority;
+    }
+}
@@ -0,0 +1,337 @@
+package analysis;
+
+import chess.ChessMatch;
+import chess.Fen;
+import chess.PositionState;
+import chess.Zobrist;
+import engine.Evaluator;
+import engine.Search;
+import engine.SearchLimits;
+import engine.SearchResult;
+import engine.TranspositionTable;
+import metrics.Counter;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Runs analysis requests on a fixed pool of workers, each with its own search and transposition table.
+// Requests for the same position and limits share one job while it is queued or running. The next job
+// is the highest priority one queued by any tenant; among tenants with work at that priority the one
+// with the least virtual time goes first. A tenant's virtual time advances by the run time of its jobs
+// divided by its weight, so tenants with work queued share the workers in proportion to their weights.
+public class AnalysisScheduler implements AutoCloseable {
+
+    public static final LatencyHistogram QUEUE_DEPTH = Metrics.valueHistogram("xadrez_analysis_queue_depth", "Jobs queued when an analysis request arrives");
+    public static final LatencyHistogram WAIT = Metrics.histogram("xadrez_analysis_wait_seconds", "Time analysis jobs spend queued");
+    public static final LatencyHistogram RUN = Metrics.histogram("xadrez_analysis_run_seconds", "Time analysis jobs spend searching");
+    public static final Counter REQUESTS = Metrics.counter("xadrez_analysis_requests_total", "Analysis requests submitted");
+    public static final Counter COALESCED = Metrics.counter("xadrez_analysis_coalesced_total", "Analysis requests that joined a queued or running job");
+    public static final Counter EXPIRED = Metrics.counter("xadrez_analysis_expired_total", "Analysis requests that reached their timeout");
+    public static final Counter ABANDONED = Metrics.counter("xadrez_analysis_abandoned_total", "Analysis jobs dropped or stopped because no request was waiting for them");
+
+    // Charged when a job starts, before its real cost is known; corrected when it finishes.
+    private static final long INITIAL_ESTIMATE = 1_000_000;
+
+    private static final Comparator<Job> ORDER = Comparator.comparingInt((Job job) -> -job.priority).thenComparingLong(job -> job.sequence);
+
+    private final List<Thread> workers = new ArrayList<>();
+    private final ScheduledThreadPoolExecutor timer;
+    private final Map<String, Tenant> tenants = new HashMap<>();
+    private final Map<Key, Job> jobs = new HashMap<>();
+    private int queued;
+    private long sequence;
+    private double virtualTime;
+    private boolean closed;
+
+    public AnalysisScheduler(int threads, Supplier<Evaluator> evaluator, int hashMegabytes) {
+        if (threads < 1) throw new IllegalArgumentException("Threads cannot be less than 1");
+        timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "analysis-timeouts");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        for (int t = 0; t < threads; t++) {
+            Search search = new Search(evaluator.get(), new TranspositionTable(hashMegabytes));
+            Thread worker = new Thread(() -> work(search), "analysis-" + t);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    // A tenant's share of the workers while it has work queued, relative to the other tenants; 1 by default.
+    public synchronized void setWeight(String tenant, double weight) {
+        if (!(weight > 0)) throw new IllegalArgumentException("The weight must be positive");
+        tenant(tenant).weight = weight;
+    }
+
+    // Throws ChessException for an invalid FEN. The future completes with the search result; at the
+    // request's timeout, with the last iteration finished so far or a TimeoutException. Cancelling the
+    // future withdraws the request, and a job nobody is waiting for any more is dropped or stopped.
+    public CompletableFuture<SearchResult> submit(AnalysisRequest request) {
+        PositionState state = Fen.parse(request.getFen());
+        Key key = new Key(Zobrist.fenHash(state), request.getLimits());
+        Ticket ticket;
+        synchronized (this) {
+            if (closed) throw new IllegalStateException("The scheduler is closed");
+            if (Metrics.ENABLED) {
+                REQUESTS.increment();
+                QUEUE_DEPTH.record(queued);
+            }
+            Job job = jobs.get(key);
+            if (job == null) {
+                job = new Job(key, tenant(request.getTenant()), state, request.getLimits(), request.getPriority());
+                jobs.put(key, job);
+                enqueue(job);
+            } else {
+                if (Metrics.ENABLED) COALESCED.increment();
+                // The job stays with the tenant that asked first; a more urgent duplicate moves it up.
+                if (request.getPriority() > job.priority && job.tenant.queue.remove(job)) {
+                    job.priority = request.getPriority();
+                    job.tenant.queue.add(job);
+                }
+            }
+            ticket = new Ticket(job);
+            job.tickets.add(ticket);
+        }
+        ticket.expiry = timer.schedule(() -> expire(ticket), request.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+        ticket.future.whenComplete((result, error) -> {
+            ticket.expiry.cancel(false);
+            detach(ticket);
+        });
+        return ticket.future;
+    }
+
+    public synchronized int getQueued() {
+        return queued;
+    }
+
+    // Search time spent on jobs the tenant queued, including jobs shared with other tenants.
+    public synchronized long getRunNanos(String tenant) {
+        Tenant t = tenants.get(tenant);
+        return t == null ? 0 : t.runNanos;
+    }
+
+    public synchronized long getCompleted(String tenant) {
+        Tenant t = tenants.get(tenant);
+        return t == null ? 0 : t.completed;
+    }
+
+    private Tenant tenant(String name) {
+        return tenants.computeIfAbsent(name, Tenant::new);
+    }
+
+    private void enqueue(Job job) {
+        Tenant tenant = job.tenant;
+        // A tenant that had nothing queued cannot bank credit for the time it was idle.
+        if (tenant.queue.isEmpty()) tenant.virtualTime = Math.max(tenant.virtualTime, virtualTime);
+        job.sequence = sequence++;
+        job.enqueued = System.nanoTime();
+        tenant.queue.add(job);
+        queued++;
+        notify();
+    }
+
+    // Returns null once the scheduler is closed.
+    private synchronized Job take(Search search) throws InterruptedException {
+        while (!closed && queued == 0) wait();
+        if (closed) return null;
+        Tenant next = null;
+        for (Tenant tenant : tenants.values()) {
+            Job head = tenant.queue.peek();
+            if (head == null) continue;
+            int priority = next == null ? Integer.MIN_VALUE : next.queue.peek().priority;
+            if (head.priority > priority || head.priority == priority && tenant.virtualTime < next.virtualTime) next = tenant;
+        }
+        Job job = next.queue.poll();
+        queued--;
+        virtualTime = Math.max(virtualTime, next.virtualTime);
+        job.charged = next.estimate;
+        next.virtualTime += next.estimate / next.weight;
+        job.search = search;
+        return job;
+    }
+
+    private void work(Search search) {
+        while (true) {
+            Job job;
+            try {
+                job = take(search);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (job == null) return;
+            run(search, job);
+        }
+    }
+
+    private void run(Search search, Job job) {
+        long start = System.nanoTime();
+        if (Metrics.ENABLED) WAIT.record(start - job.enqueued);
+        // A stop that arrives before the search has started is lost, so the listener repeats it.
+        search.setListener(result -> {
+            job.latest = result;
+            if (job.abandoned) search.stop();
+        });
+        SearchResult result = null;
+        RuntimeException error = null;
+        if (!job.abandoned) {
+            try {
+                result = search.search(new ChessMatch(job.state), job.limits);
+            } catch (RuntimeException e) {
+                error = e;
+            }
+        }
+        search.setListener(null);
+        long nanos = System.nanoTime() - start;
+        if (Metrics.ENABLED) RUN.record(nanos);
+
+        List<Ticket> tickets;
+        synchronized (this) {
+            jobs.remove(job.key, job);
+            Tenant tenant = job.tenant;
+            tenant.virtualTime += (nanos - job.charged) / tenant.weight;
+            tenant.estimate = (3 * tenant.estimate + nanos) / 4;
+            tenant.runNanos += nanos;
+            tenant.completed++;
+            tickets = new ArrayList<>(job.tickets);
+        }
+        for (Ticket ticket : tickets) {
+            if (error != null) ticket.future.completeExceptionally(error);
+            else ticket.future.complete(result);
+        }
+    }
+
+    private void expire(Ticket ticket) {
+        SearchResult latest = ticket.job.latest;
+        boolean expired = latest != null ? ticket.future.complete(latest)
+                : ticket.future.completeExceptionally(new TimeoutException("Analysis timed out before its first iteration"));
+        if (expired && Metrics.ENABLED) EXPIRED.increment();
+    }
+
+    private synchronized void detach(Ticket ticket) {
+        Job job = ticket.job;
+        job.tickets.remove(ticket);
+        if (!job.tickets.isEmpty() || jobs.get(job.key) != job) return;
+        jobs.remove(job.key);
+        job.abandoned = true;
+        if (Metrics.ENABLED) ABANDONED.increment();
+        if (job.search != null) job.search.stop();
+        else if (job.tenant.queue.remove(job)) queued--;
+    }
+
+    // Cancels queued requests, stops running searches so their requests get the last finished iteration,
+    // and waits for the workers to exit; an interrupt stops the wait and is kept on the calling thread.
+    @Override
+    public void close() {
+        List<Ticket> cancelled = new ArrayList<>();
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            for (Job job : jobs.values()) {
+                if (job.search != null) job.search.stop();
+                else cancelled.addAll(job.tickets);
+            }
+            notifyAll();
+        }
+        for (Ticket ticket : cancelled) ticket.future.cancel(false);
+        try {
+            for (Thread worker : workers) worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            timer.shutdownNow();
+        }
+    }
+
+    private static final class Tenant {
+
+        final String name;
+        final PriorityQueue<Job> queue = new PriorityQueue<>(ORDER);
+        double weight = 1;
+        double virtualTime;
+        long estimate = INITIAL_ESTIMATE;
+        long runNanos;
+        long completed;
+
+        Tenant(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class Job {
+
+        final Key key;
+        final Tenant tenant;
+        final PositionState state;
+        final SearchLimits limits;
+        final List<Ticket> tickets = new ArrayList<>(1);
+        int priority;
+        long sequence;
+        long enqueued;
+        long charged;
+        Search search;
+        volatile SearchResult latest;
+        volatile boolean abandoned;
+
+        Job(Key key, Tenant tenant, PositionState state, SearchLimits limits, int priority) {
+            this.key = key;
+            this.tenant = tenant;
+            this.state = state;
+            this.limits = limits;
+            this.priority = priority;
+        }
+    }
+
+    // One request waiting for a job.
+    private static final class Ticket {
+
+        final Job job;
+        final CompletableFuture<SearchResult> future = new CompletableFuture<>();
+        volatile ScheduledFuture<?> expiry;
+
+        Ticket(Job job) {
+            this.job = job;
+        }
+    }
+
+    private static final class Key {
+
+        final long hash;
+        final int depth;
+        final long nodes;
+        final long timeMillis;
+
+        Key(long hash, SearchLimits limits) {
+            this.hash = hash;
+            this.depth = limits.getDepth();
+            this.nodes = limits.getNodes();
+            this.timeMillis = limits.getTimeMillis();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return hash == other.hash && depth == other.depth && nodes == other.nodes && timeMillis == other.timeMillis;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash * 31 + depth) ^ Long.hashCode(nodes * 31 + timeMillis);
+        }
+    }
+}
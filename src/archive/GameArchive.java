@@ -0,0 +1,53 @@
+package archive;
+
+import chess.Fen;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Plain-text game archive, one game per line: id, result, starting FEN ("startpos" for the standard
+// position) and space-separated UCI moves, separated by tabs.
+public class GameArchive {
+
+    private static final String START = "startpos";
+
+    private GameArchive() {
+    }
+
+    public static void write(Writer writer, GameRecord game) throws IOException {
+        writer.append(Long.toString(game.getId())).append('\t')
+                .append(game.getResult()).append('\t')
+                .append(game.isStandardStart() ? START : game.getStartFen()).append('\t')
+                .append(String.join(" ", game.getMoves())).append('\n');
+    }
+
+    public static GameRecord parse(String line) {
+        String[] fields = line.split("\t", -1);
+        if (fields.length != 4) throw new IllegalArgumentException("Expected 4 tab-separated fields: " + line);
+        List<String> moves = fields[3].isEmpty() ? List.of() : Arrays.asList(fields[3].split(" "));
+        return new GameRecord(Long.parseLong(fields[0]), fields[1], fields[2].equals(START) ? Fen.START : fields[2], moves);
+    }
+
+    // Streams the games of an archive in file order; blank lines are skipped.
+    public static long read(Path file, Consumer<GameRecord> consumer) {
+        long games = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                consumer.accept(parse(line));
+                games++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return games;
+    }
+}
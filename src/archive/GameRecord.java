@@ -0,0 +1,41 @@
+package archive;
+
+import chess.Fen;
+
+import java.util.List;
+
+// One archived game: an id, the result in PGN notation, the starting FEN and the moves in UCI notation.
+public class GameRecord {
+
+    private final long id;
+    private final String result;
+    private final String startFen;
+    private final List<String> moves;
+
+    public GameRecord(long id, String result, String startFen, List<String> moves) {
+        this.id = id;
+        this.result = result;
+        this.startFen = startFen;
+        this.moves = moves;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getResult() {
+        return result;
+    }
+
+    public String getStartFen() {
+        return startFen;
+    }
+
+    public boolean isStandardStart() {
+        return startFen.equals(Fen.START);
+    }
+
+    public List<String> getMoves() {
+        return moves;
+    }
+}
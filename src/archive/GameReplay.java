@@ -0,0 +1,47 @@
+package archive;
+
+import chess.ChessMatch;
+import chess.Fen;
+import chess.LegalMoveCache;
+import chess.Move;
+import chess.PieceLists;
+import chess.PositionState;
+import chess.Zobrist;
+
+// Replays archived games through ChessMatch.performChessMove, so an archive is only indexed or mined
+// under the same rules live games are played by.
+public class GameReplay {
+
+    // Replay needs no cross-game cache; a small private one avoids contention between replay threads.
+    private final LegalMoveCache moveCache = new LegalMoveCache(64);
+    private final PositionState state = new PositionState();
+
+    // Fills hashes with Zobrist.fenHash of the starting position and of the position after every ply and
+    // returns how many were written. Throws ChessException on an illegal move.
+    public int positionHashes(GameRecord game, long[] hashes) {
+        ChessMatch match = start(game);
+        match.saveState(state);
+        hashes[0] = Zobrist.fenHash(state);
+        int count = 1;
+        for (String uci : game.getMoves()) {
+            play(match, Move.fromUci(uci));
+            match.saveState(state);
+            hashes[count++] = Zobrist.fenHash(state);
+        }
+        return count;
+    }
+
+    public ChessMatch start(GameRecord game) {
+        ChessMatch match = game.isStandardStart() ? new ChessMatch() : new ChessMatch(Fen.parse(game.getStartFen()));
+        match.setMoveCache(moveCache);
+        return match;
+    }
+
+    public static void play(ChessMatch match, int move) {
+        match.performChessMove(Move.position(Move.source(move)), Move.position(Move.target(move)));
+        byte promotion = Move.promotion(move);
+        if (promotion != 0 && promotion != PieceLists.QUEEN) {
+            match.replacePromotedPiece(String.valueOf(PositionState.TYPES.charAt(promotion - 1)));
+        }
+    }
+}
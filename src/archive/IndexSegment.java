@@ -0,0 +1,124 @@
+package archive;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// One immutable, memory-mapped index file. After a 32-byte header (magic, version, key count, posting
+// count, posting bytes) come the sorted position hashes, one offset per hash into the posting area plus
+// a final end offset, and the posting lists: a varint count followed by varint deltas of ascending game ids.
+// Each region is mapped separately and must stay under 2 GB, which the writer guarantees.
+class IndexSegment implements AutoCloseable {
+
+    static final int MAGIC = 0x50494458;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final LongBuffer hashes;
+    private final LongBuffer offsets;
+    private final ByteBuffer postings;
+    private final long keys;
+    private final long pairs;
+
+    IndexSegment(Path file) {
+        this.file = file;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) throw new IllegalStateException("Not a position index segment: " + file);
+            keys = header.getLong();
+            pairs = header.getLong();
+            long postingBytes = header.getLong();
+            long hashesStart = HEADER_BYTES;
+            long offsetsStart = hashesStart + keys * Long.BYTES;
+            long postingsStart = offsetsStart + (keys + 1) * Long.BYTES;
+            if (channel.size() != postingsStart + postingBytes) throw new IllegalStateException("Truncated index segment: " + file);
+            hashes = map(hashesStart, keys * Long.BYTES).asLongBuffer();
+            offsets = map(offsetsStart, (keys + 1) * Long.BYTES).asLongBuffer();
+            postings = map(postingsStart, postingBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private MappedByteBuffer map(long position, long size) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    long getKeys() {
+        return keys;
+    }
+
+    long getPairs() {
+        return pairs;
+    }
+
+    // Index of hash in the key array, or -1.
+    int find(long hash) {
+        int low = 0;
+        int high = (int) keys - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long key = hashes.get(mid);
+            if (key < hash) low = mid + 1;
+            else if (key > hash) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    long hash(int index) {
+        return hashes.get(index);
+    }
+
+    // Decodes the posting list of key index into ids, growing it as needed; returns the (possibly new)
+    // array and stores the number of ids in count[0].
+    long[] postings(int index, long[] ids, int[] count) {
+        int[] position = {(int) offsets.get(index)};
+        int size = (int) varint(position);
+        if (ids.length < size) ids = new long[Math.max(size, ids.length * 2)];
+        long id = 0;
+        for (int i = 0; i < size; i++) {
+            id += varint(position);
+            ids[i] = id;
+        }
+        count[0] = size;
+        return ids;
+    }
+
+    private long varint(int[] position) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = postings.get(position[0]++);
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+            shift += 7;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package archive;
+
+import chess.Fen;
+import chess.Move;
+import chess.PositionState;
+import chess.SanCodec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+// Streams games as PGN to a channel. ChessMatch keeps no move list, so games come from what played them:
+// a GameRecord, or a start position and the Move ints of a match. Movetext is formatted by one SanCodec
+// into a reused StringBuilder and copied as ASCII into one buffer, which goes to the channel whenever it
+// fills; no game is held in memory as a whole. Not thread-safe.
+public class PgnWriter implements Closeable {
+
+    private static final PositionState START = Fen.parse(Fen.START);
+    // Export format lines stay under 80 characters.
+    private static final int LINE_LENGTH = 79;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final SanCodec codec = new SanCodec();
+    private final StringBuilder token = new StringBuilder(16);
+    private int column;
+    private int moveNumber;
+    private boolean firstMove;
+    private long games;
+
+    public PgnWriter(WritableByteChannel channel) {
+        this(channel, 64 * 1024);
+    }
+
+    public PgnWriter(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    // Throws ChessException at the first illegal move; what was written of the game stays written.
+    public void write(GameRecord game) throws IOException {
+        PositionState start = game.isStandardStart() ? START : Fen.parse(game.getStartFen());
+        writeTags(Long.toString(game.getId()), game.isStandardStart() ? null : game.getStartFen(), game.getResult());
+        startMovetext(start);
+        for (String uci : game.getMoves()) writeMove(Move.fromUci(uci));
+        endGame(game.getResult());
+    }
+
+    public void write(PositionState start, int[] moves, int count, String result) throws IOException {
+        String fen = Fen.format(start);
+        writeTags("?", fen.equals(Fen.START) ? null : fen, result);
+        startMovetext(start);
+        for (int i = 0; i < count; i++) writeMove(moves[i]);
+        endGame(result);
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    private void writeTags(String round, String fen, String result) throws IOException {
+        writeTag("Event", "?");
+        writeTag("Site", "?");
+        writeTag("Date", "????.??.??");
+        writeTag("Round", round);
+        writeTag("White", "?");
+        writeTag("Black", "?");
+        writeTag("Result", result);
+        if (fen != null) {
+            writeTag("SetUp", "1");
+            writeTag("FEN", fen);
+        }
+        put('\n');
+    }
+
+    private void writeTag(String name, String value) throws IOException {
+        put('[');
+        put(name);
+        put(' ');
+        put('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') put('\\');
+            put(c);
+        }
+        put('"');
+        put(']');
+        put('\n');
+    }
+
+    private void startMovetext(PositionState start) {
+        codec.load(start);
+        column = 0;
+        firstMove = true;
+        // PositionState.turn counts plies from 1.
+        moveNumber = (start.getTurn() + 1) / 2;
+    }
+
+    // The move number precedes every white move and, as "n...", a game's first move when black starts.
+    private void writeMove(int move) throws IOException {
+        boolean white = codec.getPosition().isWhiteToMove();
+        if (white || firstMove) {
+            token.setLength(0);
+            token.append(moveNumber).append(white ? "." : "...");
+            writeToken();
+        }
+        firstMove = false;
+        token.setLength(0);
+        codec.append(move, token);
+        writeToken();
+        codec.play(move);
+        if (!white) moveNumber++;
+    }
+
+    private void endGame(String result) throws IOException {
+        token.setLength(0);
+        token.append(result);
+        writeToken();
+        put('\n');
+        put('\n');
+        games++;
+    }
+
+    // Writes the token, starting a new line first when it would not fit on this one.
+    private void writeToken() throws IOException {
+        if (column > 0 && column + 1 + token.length() > LINE_LENGTH) {
+            put('\n');
+            column = 0;
+        }
+        if (column > 0) {
+            put(' ');
+            column++;
+        }
+        for (int i = 0; i < token.length(); i++) put(token.charAt(i));
+        column += token.length();
+    }
+
+    private void put(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) put(s.charAt(i));
+    }
+
+    private void put(char c) throws IOException {
+        if (!buffer.hasRemaining()) drain();
+        buffer.put((byte) c);
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    // Writes out buffered games.
+    public void flush() throws IOException {
+        drain();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
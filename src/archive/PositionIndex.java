@@ -0,0 +1,108 @@
+package archive;
+
+import chess.Fen;
+import chess.Zobrist;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Read side of the position index: every segment-N.pidx file in a directory, memory mapped. A lookup
+// binary-searches each segment for the hash and merges their posting lists into ascending game ids.
+public class PositionIndex implements AutoCloseable {
+
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".pidx";
+
+    private final List<IndexSegment> segments = new ArrayList<>();
+
+    private PositionIndex(Path directory) {
+        for (Path file : segmentFiles(directory)) {
+            segments.add(new IndexSegment(file));
+        }
+    }
+
+    public static PositionIndex open(Path directory) {
+        return new PositionIndex(directory);
+    }
+
+    public long[] lookup(String fen) {
+        return lookup(Zobrist.fenHash(Fen.parse(fen)));
+    }
+
+    public long[] lookup(long fenHash) {
+        long[] result = new long[0];
+        int size = 0;
+        long[] ids = new long[16];
+        int[] count = new int[1];
+        for (IndexSegment segment : segments) {
+            int index = segment.find(fenHash);
+            if (index < 0) continue;
+            ids = segment.postings(index, ids, count);
+            result = Arrays.copyOf(result, size + count[0]);
+            System.arraycopy(ids, 0, result, size, count[0]);
+            size += count[0];
+        }
+        // Segments normally hold disjoint games, but a game indexed twice is reported once.
+        Arrays.sort(result);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || result[distinct - 1] != result[i]) result[distinct++] = result[i];
+        }
+        return Arrays.copyOf(result, distinct);
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    public long getKeyCount() {
+        long keys = 0;
+        for (IndexSegment segment : segments) keys += segment.getKeys();
+        return keys;
+    }
+
+    // (position, game) pairs across all segments, which is the number of distinct positions per game summed.
+    public long getPostingCount() {
+        long pairs = 0;
+        for (IndexSegment segment : segments) pairs += segment.getPairs();
+        return pairs;
+    }
+
+    @Override
+    public void close() {
+        for (IndexSegment segment : segments) segment.close();
+    }
+
+    static List<Path> segmentFiles(Path directory) {
+        if (!Files.isDirectory(directory)) return List.of();
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> sequence(f) >= 0)
+                    .sorted((x, y) -> Long.compare(sequence(x), sequence(y)))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static Path nextSegmentFile(Path directory) {
+        List<Path> files = segmentFiles(directory);
+        long next = files.isEmpty() ? 1 : sequence(files.get(files.size() - 1)) + 1;
+        return directory.resolve(String.format("%s%08d%s", PREFIX, next, SUFFIX));
+    }
+
+    private static long sequence(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) return -1;
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package archive;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Buffers (position hash, game id) pairs in two primitive arrays and writes them as a new sorted segment
+// whenever the buffer fills and on close, so adding games never rewrites existing segments. compact()
+// merges segments into one with a streaming k-way merge to keep lookups to a few binary searches.
+public class PositionIndexWriter implements AutoCloseable {
+
+    // Keeps the hash and offset regions of a segment under 2 GB each.
+    static final long MAX_SEGMENT_KEYS = 1L << 27;
+
+    private final Path directory;
+    private final int bufferPairs;
+    private long[] hashes;
+    private long[] ids;
+    private int size;
+
+    public PositionIndexWriter(Path directory, int bufferPairs) {
+        this.directory = directory;
+        this.bufferPairs = bufferPairs;
+        hashes = new long[bufferPairs];
+        ids = new long[bufferPairs];
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public synchronized void add(long gameId, long[] positionHashes, int count) {
+        if (gameId < 0) throw new IllegalArgumentException("Game ids cannot be negative");
+        for (int i = 0; i < count; i++) {
+            if (size == bufferPairs) flush();
+            hashes[size] = positionHashes[i];
+            ids[size++] = gameId;
+        }
+    }
+
+    public synchronized void flush() {
+        if (size == 0) return;
+        sort(hashes, ids, 0, size - 1);
+        try (SegmentOutput out = new SegmentOutput(directory)) {
+            int i = 0;
+            long[] group = new long[16];
+            while (i < size) {
+                long hash = hashes[i];
+                int n = 0;
+                for (; i < size && hashes[i] == hash; i++) {
+                    if (n > 0 && group[n - 1] == ids[i]) continue;
+                    if (n == group.length) group = Arrays.copyOf(group, n * 2);
+                    group[n++] = ids[i];
+                }
+                out.add(hash, group, n);
+            }
+            out.commit();
+        }
+        size = 0;
+    }
+
+    // Merges all segments into as few as MAX_SEGMENT_KEYS allows, oldest first.
+    public synchronized void compact() {
+        flush();
+        List<Path> files = PositionIndex.segmentFiles(directory);
+        int from = 0;
+        while (files.size() - from > 1) {
+            List<IndexSegment> inputs = new ArrayList<>();
+            long keys = 0;
+            while (from < files.size()) {
+                IndexSegment segment = new IndexSegment(files.get(from));
+                if (!inputs.isEmpty() && keys + segment.getKeys() > MAX_SEGMENT_KEYS) {
+                    segment.close();
+                    break;
+                }
+                inputs.add(segment);
+                keys += segment.getKeys();
+                from++;
+            }
+            if (inputs.size() > 1) merge(inputs);
+            for (IndexSegment segment : inputs) segment.close();
+            if (inputs.size() > 1) {
+                for (IndexSegment segment : inputs) delete(segment.getFile());
+            }
+        }
+    }
+
+    private void merge(List<IndexSegment> inputs) {
+        int k = inputs.size();
+        int[] cursor = new int[k];
+        long[][] lists = new long[k][16];
+        int[] count = new int[1];
+        long[] merged = new long[16];
+        try (SegmentOutput out = new SegmentOutput(directory)) {
+            while (true) {
+                long hash = Long.MAX_VALUE;
+                boolean any = false;
+                for (int s = 0; s < k; s++) {
+                    if (cursor[s] < inputs.get(s).getKeys()) {
+                        long h = inputs.get(s).hash(cursor[s]);
+                        if (!any || h < hash) hash = h;
+                        any = true;
+                    }
+                }
+                if (!any) break;
+                int n = 0;
+                for (int s = 0; s < k; s++) {
+                    IndexSegment segment = inputs.get(s);
+                    if (cursor[s] >= segment.getKeys() || segment.hash(cursor[s]) != hash) continue;
+                    lists[s] = segment.postings(cursor[s]++, lists[s], count);
+                    if (merged.length < n + count[0]) merged = Arrays.copyOf(merged, Math.max(n + count[0], merged.length * 2));
+                    System.arraycopy(lists[s], 0, merged, n, count[0]);
+                    n += count[0];
+                }
+                Arrays.sort(merged, 0, n);
+                int distinct = 0;
+                for (int i = 0; i < n; i++) {
+                    if (distinct == 0 || merged[distinct - 1] != merged[i]) merged[distinct++] = merged[i];
+                }
+                out.add(hash, merged, distinct);
+            }
+            out.commit();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        flush();
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Quicksort of the pairs by hash, then game id, without boxing.
+    static void sort(long[] keys, long[] values, int low, int high) {
+        while (high - low > 16) {
+            int mid = (low + high) >>> 1;
+            long pivotKey = keys[mid];
+            long pivotValue = values[mid];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (compare(keys[i], values[i], pivotKey, pivotValue) < 0) i++;
+                while (compare(keys[j], values[j], pivotKey, pivotValue) > 0) j--;
+                if (i <= j) swap(keys, values, i++, j--);
+            }
+            // Recurse into the smaller side to bound the stack depth.
+            if (j - low < high - i) {
+                sort(keys, values, low, j);
+                low = i;
+            } else {
+                sort(keys, values, i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && compare(keys[j], values[j], keys[j - 1], values[j - 1]) < 0; j--) {
+                swap(keys, values, j, j - 1);
+            }
+        }
+    }
+
+    private static int compare(long key, long value, long otherKey, long otherValue) {
+        int c = Long.compare(key, otherKey);
+        return c != 0 ? c : Long.compare(value, otherValue);
+    }
+
+    private static void swap(long[] keys, long[] values, int i, int j) {
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        long value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+
+    // Writes a segment: hashes and offsets go to their own temporary files while postings stream into the
+    // segment body, then everything is concatenated and moved into place atomically.
+    private static class SegmentOutput implements AutoCloseable {
+
+        private final Path directory;
+        private final Path postingsFile;
+        private final Path keysFile;
+        private final Path offsetsFile;
+        private final OutputStream postings;
+        private final OutputStream keys;
+        private final OutputStream offsets;
+        private final ByteBuffer scratch = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private long keyCount;
+        private long pairCount;
+        private long postingBytes;
+        private boolean committed;
+
+        SegmentOutput(Path directory) {
+            this.directory = directory;
+            try {
+                postingsFile = Files.createTempFile(directory, "postings", ".tmp");
+                keysFile = Files.createTempFile(directory, "keys", ".tmp");
+                offsetsFile = Files.createTempFile(directory, "offsets", ".tmp");
+                postings = new BufferedOutputStream(Files.newOutputStream(postingsFile), 1 << 16);
+                keys = new BufferedOutputStream(Files.newOutputStream(keysFile), 1 << 16);
+                offsets = new BufferedOutputStream(Files.newOutputStream(offsetsFile), 1 << 16);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void add(long hash, long[] sortedIds, int count) {
+            if (keyCount == MAX_SEGMENT_KEYS) throw new IllegalStateException("Segment is full");
+            try {
+                writeLong(keys, hash);
+                writeLong(offsets, postingBytes);
+                varint(count);
+                long previous = 0;
+                for (int i = 0; i < count; i++) {
+                    varint(sortedIds[i] - previous);
+                    previous = sortedIds[i];
+                }
+                if (postingBytes > Integer.MAX_VALUE) throw new IllegalStateException("Segment postings exceed 2 GB");
+                keyCount++;
+                pairCount += count;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void varint(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                postings.write((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+                postingBytes++;
+            }
+            postings.write((int) value);
+            postingBytes++;
+        }
+
+        private void writeLong(OutputStream out, long value) throws IOException {
+            scratch.clear();
+            scratch.putLong(value);
+            out.write(scratch.array());
+        }
+
+        void commit() {
+            try {
+                writeLong(offsets, postingBytes);
+                postings.close();
+                keys.close();
+                offsets.close();
+                Path tmp = Files.createTempFile(directory, "segment", ".tmp");
+                try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                    ByteBuffer header = ByteBuffer.allocate(IndexSegment.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                    header.putInt(IndexSegment.MAGIC).putInt(IndexSegment.VERSION).putLong(keyCount).putLong(pairCount).putLong(postingBytes);
+                    header.flip();
+                    out.write(header);
+                    for (Path part : List.of(keysFile, offsetsFile, postingsFile)) {
+                        try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                            long position = 0;
+                            while (position < in.size()) position += in.transferTo(position, in.size() - position, out);
+                        }
+                    }
+                    out.force(true);
+                }
+                Files.move(tmp, PositionIndex.nextSegmentFile(directory), StandardCopyOption.ATOMIC_MOVE);
+                committed = true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (!committed) {
+                    postings.close();
+                    keys.close();
+                    offsets.close();
+                }
+                Files.deleteIfExists(postingsFile);
+                Files.deleteIfExists(keysFile);
+                Files.deleteIfExists(offsetsFile);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
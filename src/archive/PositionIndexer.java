@@ -0,0 +1,112 @@
+package archive;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Command line front end of the position index:
+//   index <archive> <index dir> [threads]   replays the archive and appends its positions as new segments
+//   compact <index dir>                      merges segments
+//   lookup <index dir> <fen>                 prints the ids of the games that reached the position
+public class PositionIndexer {
+
+    private static final int BUFFER_PAIRS = 1 << 24;
+    private static final GameRecord END = new GameRecord(-1, "", "", List.of());
+
+    // Replays games on several threads while one thread reads the archive; games with illegal moves are skipped.
+    public static long[] index(Path archive, PositionIndexWriter writer, int threads) throws InterruptedException {
+        BlockingQueue<GameRecord> queue = new ArrayBlockingQueue<>(1024);
+        AtomicLong positions = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                GameReplay replay = new GameReplay();
+                long[] hashes = new long[1024];
+                try {
+                    GameRecord game;
+                    while ((game = queue.take()) != END) {
+                        if (hashes.length < game.getMoves().size() + 1) hashes = new long[game.getMoves().size() + 1];
+                        int count;
+                        try {
+                            count = replay.positionHashes(game, hashes);
+                        } catch (RuntimeException e) {
+                            // An illegal move, bad FEN or bad UCI token rejects the game, not the worker.
+                            rejected.incrementAndGet();
+                            continue;
+                        }
+                        writer.add(game.getId(), hashes, count);
+                        positions.addAndGet(count);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "indexer-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        long games;
+        try {
+            games = GameArchive.read(archive, game -> {
+                try {
+                    queue.put(game);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+            });
+        } finally {
+            // Stop the workers even when reading fails, or they wait on the queue forever.
+            for (int t = 0; t < threads; t++) queue.put(END);
+            for (Thread worker : workers) worker.join();
+        }
+        writer.flush();
+        return new long[]{games, positions.get(), rejected.get()};
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 2) {
+            System.out.println("usage: index <archive> <dir> [threads] | compact <dir> | lookup <dir> <fen>");
+            return;
+        }
+        switch (args[0]) {
+            case "index": {
+                int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+                long start = System.nanoTime();
+                long[] counts;
+                try (PositionIndexWriter writer = new PositionIndexWriter(Path.of(args[2]), BUFFER_PAIRS)) {
+                    counts = index(Path.of(args[1]), writer, threads);
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("indexed %d games (%d rejected), %d positions in %.1f s (%.0f positions/s)%n",
+                        counts[0], counts[2], counts[1], seconds, counts[1] / seconds);
+                break;
+            }
+            case "compact": {
+                long start = System.nanoTime();
+                try (PositionIndexWriter writer = new PositionIndexWriter(Path.of(args[1]), 1)) {
+                    writer.compact();
+                }
+                System.out.printf("compacted in %.1f s%n", (System.nanoTime() - start) / 1e9);
+                break;
+            }
+            case "lookup": {
+                try (PositionIndex index = PositionIndex.open(Path.of(args[1]))) {
+                    String fen = String.join(" ", Arrays.copyOfRange(args, 2, args.length));
+                    long start = System.nanoTime();
+                    long[] ids = index.lookup(fen);
+                    System.out.printf("%d games in %.3f ms (%d segments, %d positions)%n", ids.length,
+                            (System.nanoTime() - start) / 1e6, index.getSegmentCount(), index.getKeyCount());
+                    for (int i = 0; i < Math.min(ids.length, 100); i++) System.out.println(ids[i]);
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown command: " + args[0]);
+        }
+    }
+}
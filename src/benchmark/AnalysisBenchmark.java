@@ -0,0 +1,78 @@
+package benchmark;
+
+import archive.GameReplay;
+import chess.ChessMatch;
+import chess.Fen;
+import chess.LegalMoveCache;
+import chess.Move;
+import engine.ClassicalEvaluator;
+import engine.Ponderer;
+import engine.Search;
+import engine.SearchLimits;
+import engine.SearchResult;
+import engine.TranspositionTable;
+import tournament.Tournament;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+// Times multi-PV analysis against a single line, then plays games in which one engine ponders on the
+// other's time and reports its ponder hits and the search time they saved.
+public class AnalysisBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 300;
+        List<String> openings = Tournament.loadOpenings(Path.of("openings/balanced.fen"));
+
+        Search analysis = new Search(new ClassicalEvaluator(), new TranspositionTable(16));
+        for (int lines : new int[]{1, 3, 5}) {
+            long start = System.nanoTime();
+            List<SearchResult> last = null;
+            for (String fen : openings) {
+                analysis.getTable().clear();
+                last = analysis.searchMultiPv(new ChessMatch(Fen.parse(fen)), SearchLimits.depth(4), lines);
+            }
+            System.out.printf("multi-pv %d: %.1f ms per position at depth 4%n", lines, (System.nanoTime() - start) / 1e6 / openings.size());
+            for (SearchResult result : last) System.out.println("  " + result);
+        }
+
+        LegalMoveCache moveCache = new LegalMoveCache(4096);
+        Search opponent = new Search(new ClassicalEvaluator(), new TranspositionTable(16));
+        long searchNanos = 0;
+        int searches = 0;
+        try (Ponderer ponderer = new Ponderer(new Search(new ClassicalEvaluator(), new TranspositionTable(16)))) {
+            for (int game = 0; game < games; game++) {
+                ChessMatch match = new ChessMatch(Fen.parse(openings.get(game % openings.size())));
+                match.setMoveCache(moveCache);
+                ponderer.getSearch().getTable().clear();
+                opponent.getTable().clear();
+                long[] hashes = new long[121];
+                hashes[0] = match.getPositionHash();
+                SearchLimits limits = SearchLimits.time(millis);
+                for (int ply = 0; ply < 120 && !match.getCheckMate(); ply++) {
+                    boolean pondering = ply % 2 == 0;
+                    SearchResult result;
+                    if (pondering) {
+                        result = ponderer.search(match, limits, hashes, ply);
+                        searchNanos += result.getNanos();
+                        searches++;
+                    } else {
+                        opponent.setGameHistory(hashes, ply);
+                        result = opponent.search(match, limits);
+                    }
+                    if (result.getBestMove() == Move.NONE) break;
+                    GameReplay.play(match, result.getBestMove());
+                    hashes[ply + 1] = match.getPositionHash();
+                    int[] pv = result.getPv();
+                    if (pondering && pv.length > 1 && !match.getCheckMate()) ponderer.start(match, pv[1], hashes, ply + 2);
+                }
+                ponderer.stop();
+            }
+            System.out.printf("%d games at %d ms per move: %s%n", games, millis, ponderer);
+            System.out.printf("saved %.1f%% of %d searches totalling %.1f s%n",
+                    100.0 * ponderer.getSavedNanos() / searchNanos, searches, searchNanos / 1e9);
+        }
+    }
+}
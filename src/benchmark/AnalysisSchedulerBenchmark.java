@@ -0,0 +1,116 @@
+package benchmark;
+
+import analysis.AnalysisRequest;
+import analysis.AnalysisScheduler;
+import archive.GameReplay;
+import chess.ChessMatch;
+import chess.Fen;
+import engine.ClassicalEvaluator;
+import engine.Search;
+import engine.SearchLimits;
+import engine.SearchResult;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+import tournament.Tournament;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+// Floods the analysis scheduler from two tenants weighted 3:1 and reports their share of the workers,
+// how long an urgent request waits behind the backlog, how many duplicate requests share a job, and how
+// close to their deadline over-long searches return. Run with -Dxadrez.metrics=true for the histograms.
+public class AnalysisSchedulerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        long window = args.length > 1 ? Long.parseLong(args[1]) : 5000;
+        List<String> positions = positions(Tournament.loadOpenings(Path.of("openings/balanced.fen")), 400);
+
+        try (AnalysisScheduler scheduler = new AnalysisScheduler(threads, ClassicalEvaluator::new, 16)) {
+            scheduler.setWeight("interactive", 3);
+            scheduler.setWeight("batch", 1);
+            List<CompletableFuture<SearchResult>> backlog = new ArrayList<>();
+            for (int i = 0; i < positions.size(); i += 2) {
+                backlog.add(scheduler.submit(new AnalysisRequest("batch", positions.get(i), SearchLimits.depth(3), 0, 600_000)));
+                backlog.add(scheduler.submit(new AnalysisRequest("interactive", positions.get(i + 1), SearchLimits.depth(3), 0, 600_000)));
+            }
+            Thread.sleep(window / 2);
+            long start = System.nanoTime();
+            scheduler.submit(new AnalysisRequest("batch", Fen.START, SearchLimits.depth(3), 10, 600_000)).get();
+            long urgent = System.nanoTime() - start;
+            Thread.sleep(window / 2);
+            long interactive = scheduler.getRunNanos("interactive");
+            long batch = scheduler.getRunNanos("batch");
+            System.out.printf("fair share over %d ms with %d queued: interactive %d jobs %.1f%%, batch %d jobs %.1f%% (weights 3:1)%n",
+                    window, scheduler.getQueued(), scheduler.getCompleted("interactive"), 100.0 * interactive / (interactive + batch),
+                    scheduler.getCompleted("batch"), 100.0 * batch / (interactive + batch));
+            System.out.printf("urgent request behind the backlog answered in %.1f ms%n", urgent / 1e6);
+            for (CompletableFuture<SearchResult> future : backlog) future.cancel(false);
+
+            long coalescedBefore = AnalysisScheduler.COALESCED.get();
+            List<CompletableFuture<SearchResult>> duplicates = new ArrayList<>();
+            for (int i = 0; i < 60; i++) {
+                String tenant = i % 3 == 0 ? "interactive" : "batch";
+                duplicates.add(scheduler.submit(new AnalysisRequest(tenant, positions.get(i % 5), SearchLimits.depth(3), 0, 600_000)));
+            }
+            CompletableFuture.allOf(duplicates.toArray(new CompletableFuture<?>[0])).get();
+            if (Metrics.ENABLED) {
+                System.out.printf("60 requests for 5 positions: %d joined a queued or running job%n", AnalysisScheduler.COALESCED.get() - coalescedBefore);
+            }
+
+            int partial = 0;
+            int depths = 0;
+            long lateness = 0;
+            List<CompletableFuture<SearchResult>> deep = new ArrayList<>();
+            long submitted = System.nanoTime();
+            for (int i = 0; i < threads; i++) {
+                deep.add(scheduler.submit(new AnalysisRequest("interactive", positions.get(100 + i), SearchLimits.depth(20), 0, 300)));
+            }
+            for (CompletableFuture<SearchResult> future : deep) {
+                try {
+                    SearchResult result = future.get();
+                    lateness = Math.max(lateness, System.nanoTime() - submitted - 300_000_000L);
+                    partial++;
+                    depths += result.getDepth();
+                } catch (ExecutionException e) {
+                    System.out.println("no result: " + e.getCause().getMessage());
+                }
+            }
+            System.out.printf("%d depth-20 requests with a 300 ms timeout: %d returned depth %.1f on average, at most %.1f ms late%n",
+                    deep.size(), partial, (double) depths / Math.max(1, partial), lateness / 1e6);
+        }
+
+        if (!Metrics.ENABLED) return;
+        System.out.printf("requests %d, coalesced %d, expired %d, abandoned %d%n", AnalysisScheduler.REQUESTS.get(),
+                AnalysisScheduler.COALESCED.get(), AnalysisScheduler.EXPIRED.get(), AnalysisScheduler.ABANDONED.get());
+        LatencyHistogram.Snapshot depth = AnalysisScheduler.QUEUE_DEPTH.snapshot();
+        System.out.printf("queue depth p50 %d p99 %d max %d%n", depth.percentile(50), depth.percentile(99), depth.getMax());
+        for (LatencyHistogram histogram : new LatencyHistogram[]{AnalysisScheduler.WAIT, AnalysisScheduler.RUN}) {
+            LatencyHistogram.Snapshot s = histogram.snapshot();
+            System.out.printf("%s: count %d p50 %.1f ms p99 %.1f ms max %.1f ms%n", s.getName(), s.getCount(),
+                    s.percentile(50) / 1e6, s.percentile(99) / 1e6, s.getMax() / 1e6);
+        }
+    }
+
+    // Distinct positions a few random moves away from the openings.
+    private static List<String> positions(List<String> openings, int count) {
+        Random random = new Random(7);
+        List<String> positions = new ArrayList<>();
+        int[] moves = new int[256];
+        while (positions.size() < count) {
+            ChessMatch match = new ChessMatch(Fen.parse(openings.get(positions.size() % openings.size())));
+            for (int ply = 2 + random.nextInt(6); ply > 0; ply--) {
+                int legal = Search.legalMoves(match, moves);
+                if (legal == 0) break;
+                GameReplay.play(match, moves[random.nextInt(legal)]);
+            }
+            String fen = Fen.format(match.getState());
+            if (!positions.contains(fen)) positions.add(fen);
+        }
+        return positions;
+    }
+}
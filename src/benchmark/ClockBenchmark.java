@@ -0,0 +1,75 @@
+package benchmark;
+
+import chess.Color;
+import server.ChessClock;
+import server.ClockService;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ClockBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int clocks = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        ClockService service = new ClockService();
+        LongAdder flags = new LongAdder();
+        AtomicLong maxLateness = new AtomicLong();
+        long[] deadlines = new long[clocks];
+        service.setFlagListener((id, player) -> {
+            flags.increment();
+            maxLateness.accumulateAndGet(System.nanoTime() - deadlines[(int) (long) id], Math::max);
+        });
+
+        // A tenth of the clocks flag during the run; the rest keep moving every few seconds.
+        SplittableRandom random = new SplittableRandom(36);
+        long start = System.nanoTime();
+        for (int id = 0; id < clocks; id++) {
+            long initial = id % 10 == 0 ? 1_000 + random.nextInt(seconds * 500) : 600_000;
+            service.start(id, new ChessClock(ChessClock.Mode.INCREMENT, initial, 2_000, TimeUnit.MILLISECONDS), Color.WHITE);
+            deadlines[id] = service.getClock(id).getFlagDeadline();
+        }
+        System.out.printf("started %d clocks in %.1f ms%n", clocks, (System.nanoTime() - start) / 1e6);
+
+        long wheelCpu = threads.getThreadCpuTime(service.getWheel().getThread().getId());
+        long presses = 0;
+        long pressNanos = 0;
+        Color[] toMove = new Color[clocks];
+        Arrays.fill(toMove, Color.WHITE);
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        while (System.nanoTime() < end) {
+            for (int i = 0; i < 10_000; i++) {
+                int id = 1 + random.nextInt(clocks - 1);
+                if (id % 10 == 0) continue;
+                long t = System.nanoTime();
+                service.press(id, toMove[id]);
+                pressNanos += System.nanoTime() - t;
+                toMove[id] = toMove[id] == Color.WHITE ? Color.BLACK : Color.WHITE;
+                presses++;
+            }
+            Thread.sleep(100);
+        }
+        long busyCpu = threads.getThreadCpuTime(service.getWheel().getThread().getId()) - wheelCpu;
+        System.out.printf("%d presses (%.0f ns each), %d flags of %d expected, max flag lateness %.2f ms%n",
+                presses, (double) pressNanos / presses, flags.sum(), clocks / 10, maxLateness.get() / 1e6);
+        System.out.printf("wheel thread CPU with %d running clocks: %.1f%% of one core%n",
+                service.getClockCount(), 100.0 * busyCpu / (System.nanoTime() - start));
+
+        for (int id = 0; id < clocks; id++) service.stop(id);
+        Thread.sleep(200);
+        long idleCpu = threads.getThreadCpuTime(service.getWheel().getThread().getId());
+        long idleStart = System.nanoTime();
+        Thread.sleep(2_000);
+        idleCpu = threads.getThreadCpuTime(service.getWheel().getThread().getId()) - idleCpu;
+        System.out.printf("pending timeouts after stop: %d, idle wheel CPU: %.3f%% of one core%n",
+                service.getPendingTimeouts(), 100.0 * idleCpu / (System.nanoTime() - idleStart));
+        service.close();
+    }
+}
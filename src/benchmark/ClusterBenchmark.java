@@ -0,0 +1,90 @@
+package benchmark;
+
+import archive.GameArchive;
+import archive.GameRecord;
+import cluster.Coordinator;
+import cluster.GameValidation;
+import engine.SearchLimits;
+import engine.SearchResult;
+import tournament.Tournament;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Starts a coordinator and worker processes on localhost, validates an archive and analyses the
+// openings through them, and optionally kills one worker (fault=kill) or freezes it with SIGSTOP
+// (fault=stop) while jobs are in flight, so the dropped connection or the missed heartbeats make the
+// coordinator dispatch its jobs again. Arguments are key=value pairs: workers, threads (per worker),
+// archive, depth, rounds (passes over the openings) and fault.
+public class ClusterBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Expected key=value: " + arg);
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        int workerCount = Integer.parseInt(options.getOrDefault("workers", "3"));
+        String threads = options.getOrDefault("threads", "1");
+        int depth = Integer.parseInt(options.getOrDefault("depth", "3"));
+        int rounds = Integer.parseInt(options.getOrDefault("rounds", "2"));
+        String fault = options.getOrDefault("fault", "none");
+        List<String> openings = Tournament.loadOpenings(Path.of("openings/balanced.fen"));
+
+        List<Process> workers = new ArrayList<>();
+        try (Coordinator coordinator = new Coordinator(0, 200, 1000)) {
+            String java = ProcessHandle.current().info().command().orElse("java");
+            for (int i = 0; i < workerCount; i++) {
+                workers.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "cluster.ClusterWorker",
+                        "localhost", String.valueOf(coordinator.getPort()), "threads=" + threads).inheritIO().start());
+            }
+            if (!coordinator.awaitWorkers(workerCount, 30_000)) throw new IllegalStateException("Workers did not connect");
+
+            long start = System.nanoTime();
+            List<CompletableFuture<GameValidation>> validations = new ArrayList<>();
+            if (options.containsKey("archive")) {
+                GameArchive.read(Path.of(options.get("archive")), game -> validations.add(coordinator.validate(game)));
+            }
+            List<CompletableFuture<SearchResult>> analyses = new ArrayList<>();
+            for (int round = 0; round < rounds; round++) {
+                for (String fen : openings) analyses.add(coordinator.analyze(fen, SearchLimits.depth(depth + round)));
+            }
+
+            if (!fault.equals("none")) {
+                Thread.sleep(1000);
+                Process victim = workers.get(0);
+                System.out.println("fault: " + fault + " worker " + victim.pid());
+                if (fault.equals("kill")) victim.destroyForcibly();
+                else new ProcessBuilder("kill", "-STOP", String.valueOf(victim.pid())).start().waitFor();
+            }
+
+            int invalid = 0;
+            long plies = 0;
+            for (CompletableFuture<GameValidation> future : validations) {
+                GameValidation validation = future.get();
+                plies += validation.getPlies();
+                if (!validation.isValid()) {
+                    invalid++;
+                    System.out.println(validation);
+                }
+            }
+            long nodes = 0;
+            for (CompletableFuture<SearchResult> future : analyses) nodes += future.get().getNodes();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("%d games validated (%d invalid, %d plies), %d positions analysed (%d nodes) in %.1f s%n",
+                    validations.size(), invalid, plies, analyses.size(), nodes, seconds);
+            System.out.println(coordinator);
+        } finally {
+            for (Process worker : workers) {
+                if (fault.equals("stop")) new ProcessBuilder("kill", "-CONT", String.valueOf(worker.pid())).start().waitFor();
+                worker.waitFor();
+            }
+        }
+    }
+}
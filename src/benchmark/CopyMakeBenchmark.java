@@ -0,0 +1,123 @@
+package benchmark;
+
+import boardgame.Piece;
+import boardgame.Position;
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.PositionState;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CopyMakeBenchmark {
+
+    private static final int WARMUP = 200_000;
+    private static final int ITERATIONS = 1_000_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        ChessMatch chessMatch = new ChessMatch();
+        PositionState root = chessMatch.getState();
+        PositionState scratch = new PositionState();
+        // Two siblings of the root, for copies that change a few squares as copies between siblings do.
+        ChessMatch[] siblings = {new ChessMatch(), new ChessMatch()};
+        siblings[0].performChessMove(new ChessPosition('e', 2), new ChessPosition('e', 4));
+        siblings[1].performChessMove(new ChessPosition('d', 2), new ChessPosition('d', 4));
+        PositionState[] siblingStates = {siblings[0].getState(), siblings[1].getState()};
+        ChessMatch sibling = new ChessMatch();
+
+        for (int i = 0; i < WARMUP; i++) {
+            scratch.copyFrom(root);
+            makeUnmake(chessMatch);
+            sibling.copyFrom(siblings[i & 1]);
+            sibling.loadState(siblingStates[i & 1]);
+        }
+        for (int i = 0; i < WARMUP / 10; i++) {
+            new ChessMatch(root);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            scratch.copyFrom(root);
+        }
+        report("state copy (arraycopy)", start, ITERATIONS);
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            makeUnmake(chessMatch);
+        }
+        report("makeMove + undoMove", start, ITERATIONS);
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS / 10; i++) {
+            new ChessMatch(root);
+        }
+        report("ChessMatch from state", start, ITERATIONS / 10);
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS / 10; i++) {
+            chessMatch.getState();
+        }
+        report("ChessMatch to state", start, ITERATIONS / 10);
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sibling.copyFrom(siblings[i & 1]);
+        }
+        report("copyFrom sibling", start, ITERATIONS);
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sibling.loadState(siblingStates[i & 1]);
+        }
+        report("loadState sibling", start, ITERATIONS);
+
+        exploreSiblings(root);
+    }
+
+    private static void makeUnmake(ChessMatch chessMatch) {
+        Position source = new Position(6, 4);
+        Position target = new Position(4, 4);
+        Piece captured = chessMatch.makeMove(source, target);
+        chessMatch.undoMove(source, target, (ChessPiece) captured);
+    }
+
+    // Each thread keeps one ChessMatch and loads the shared, never-mutated root state into it per child.
+    private static void exploreSiblings(PositionState root) throws InterruptedException {
+        char[] columns = {'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h'};
+        List<Thread> threads = new ArrayList<>();
+        long[] nanos = new long[columns.length];
+        long start = System.nanoTime();
+        for (int t = 0; t < columns.length; t++) {
+            int index = t;
+            Thread thread = new Thread(() -> {
+                ChessMatch child = new ChessMatch(root);
+                long threadStart = System.nanoTime();
+                for (int i = 0; i < ITERATIONS / 100; i++) {
+                    child.loadState(root);
+                    child.performChessMove(new ChessPosition(columns[index], 2), new ChessPosition(columns[index], 4));
+                }
+                nanos[index] = System.nanoTime() - threadStart;
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long total = System.nanoTime() - start;
+        System.out.printf("%-28s %d threads, %.1f ms wall, %.0f ns/child per thread%n", "sibling copy-make",
+                columns.length, total / 1e6, average(nanos) / (ITERATIONS / 100.0));
+    }
+
+    private static double average(long[] values) {
+        long sum = 0;
+        for (long v : values) sum += v;
+        return (double) sum / values.length;
+    }
+
+    private static void report(String name, long start, int iterations) {
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-28s %.1f ns/op%n", name, (double) elapsed / iterations);
+    }
+}
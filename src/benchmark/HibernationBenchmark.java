@@ -0,0 +1,102 @@
+package benchmark;
+
+import chess.ChessMatch;
+import chess.Move;
+import chess.PositionState;
+import chess.Zobrist;
+import engine.Search;
+import server.GameServer;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Hosts matches a few random moves into their games, then measures the heap they hold live and
+// hibernated, checks that every match wakes to the same position, and times a move on a hibernated
+// match, which includes rebuilding it. Run with -Dxadrez.moveCache.capacity=64 so the shared legal move
+// cache does not dominate the heap measurement.
+public class HibernationBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int plies = args.length > 1 ? Integer.parseInt(args[1]) : 12;
+        Random random = new Random(1);
+
+        long[] ids = new long[count];
+        long[] hashes = new long[count];
+        // Loads and initialises everything a match touches, so the baseline only leaves out the matches.
+        GameServer warmup = new GameServer();
+        long first = warmup.createMatch();
+        play(warmup, first, random);
+        warmup.hibernateIdle(0, TimeUnit.NANOSECONDS);
+        play(warmup, first, random);
+        long baseline = usedHeap();
+        GameServer server = new GameServer();
+        for (int i = 0; i < count; i++) {
+            ids[i] = server.createMatch();
+            for (int ply = 0; ply < plies; ply++) play(server, ids[i], random);
+        }
+        long live = usedHeap() - baseline;
+
+        for (int i = 0; i < count; i++) hashes[i] = Zobrist.hash(server.getState(ids[i]));
+        long start = System.nanoTime();
+        int hibernated = server.hibernateIdle(0, TimeUnit.NANOSECONDS);
+        long hibernateNanos = System.nanoTime() - start;
+        long asleep = usedHeap() - baseline;
+
+        System.out.printf("%d matches %d plies in: %d bytes each live, %d bytes each hibernated (%d compact), %.1fx more matches per GB%n",
+                count, plies, live / count, asleep / count, server.getHibernatedBytes() / hibernated, (double) live / asleep);
+        System.out.printf("hibernated %d matches in %.1f ms (%.2f us each)%n", hibernated, hibernateNanos / 1e6, hibernateNanos / 1e3 / hibernated);
+
+        start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            if (server.getMatch(ids[i]).getPositionHash() != hashes[i]) throw new IllegalStateException("Match " + ids[i] + " woke to a different position");
+        }
+        long wakeNanos = System.nanoTime() - start;
+        int[] moves = new int[count];
+        for (int i = 0; i < count; i++) moves[i] = randomMove(server.getState(ids[i]), random);
+        server.hibernateIdle(0, TimeUnit.NANOSECONDS);
+        long hibernatedMove = timeMoves(server, ids, moves);
+        for (int i = 0; i < count; i++) moves[i] = randomMove(server.getState(ids[i]), random);
+        long liveMove = timeMoves(server, ids, moves);
+        System.out.printf("woke %d matches to identical positions in %.2f us each; a move takes %.2f us on a hibernated match, %.2f us on a live one%n",
+                count, wakeNanos / 1e3 / count, hibernatedMove / 1e3 / count, liveMove / 1e3 / count);
+    }
+
+    private static long timeMoves(GameServer server, long[] ids, int[] moves) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ids.length; i++) {
+            if (moves[i] != Move.NONE) play(server, ids[i], moves[i]);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void play(GameServer server, long id, Random random) {
+        int move = randomMove(server.getState(id), random);
+        if (move != Move.NONE) play(server, id, move);
+    }
+
+    private static void play(GameServer server, long id, int move) {
+        server.move(id, Move.position(Move.source(move)), Move.position(Move.target(move)));
+    }
+
+    // Promotions are left out: the server asks for the piece in a separate call.
+    private static int randomMove(PositionState state, Random random) {
+        if (state.getCheckMate()) return Move.NONE;
+        int[] moves = new int[256];
+        int count = Search.legalMoves(new ChessMatch(state), moves);
+        int quiet = 0;
+        for (int i = 0; i < count; i++) {
+            if (Move.promotion(moves[i]) == 0) moves[quiet++] = moves[i];
+        }
+        return quiet == 0 ? Move.NONE : moves[random.nextInt(quiet)];
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
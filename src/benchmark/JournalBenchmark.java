@@ -0,0 +1,93 @@
+package benchmark;
+
+import chess.ChessPosition;
+import server.GameServer;
+import server.MatchJournal;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class JournalBenchmark {
+
+    private static final String[][] SHUFFLE = {{"g1", "f3"}, {"g8", "f6"}, {"f3", "g1"}, {"f6", "g8"}};
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int matches = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int movesPerMatch = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        Path directory = Files.createTempDirectory("journal-benchmark");
+
+        rawAppends(directory.resolve("raw"), threads, 1_000_000);
+
+        GameServer server = GameServer.open(directory.resolve("server"));
+        long[] ids = new long[matches];
+        for (int i = 0; i < matches; i++) ids[i] = server.createMatch();
+
+        long start = System.nanoTime();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            Thread worker = new Thread(() -> {
+                for (int ply = 0; ply < movesPerMatch; ply++) {
+                    String[] move = SHUFFLE[ply % SHUFFLE.length];
+                    for (int i = first; i < ids.length; i += threads) {
+                        server.move(ids[i], position(move[0]), position(move[1]));
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) worker.join();
+        long elapsed = System.nanoTime() - start;
+        long moves = (long) matches * movesPerMatch;
+        System.out.printf("server moves: %d in %.2f s, %.0f moves/s with %d threads%n", moves, elapsed / 1e9, moves / (elapsed / 1e9), threads);
+        server.close();
+
+        MatchJournal.Recovery recovery = MatchJournal.recover(directory.resolve("server"));
+        System.out.printf("recovery from journal: %d matches, %d records in %.1f ms, %.2f s per million moves%n",
+                recovery.getMatches().size(), recovery.getRecords(), recovery.getNanos() / 1e6,
+                recovery.getNanos() / 1e9 / recovery.getRecords() * 1e6);
+
+        // Reopening snapshots the recovered matches, so the next recovery only loads the snapshot.
+        GameServer.open(directory.resolve("server")).close();
+        recovery = MatchJournal.recover(directory.resolve("server"));
+        System.out.printf("recovery from snapshot: %d matches, %d records replayed in %.1f ms%n",
+                recovery.getMatches().size(), recovery.getRecords(), recovery.getNanos() / 1e6);
+    }
+
+    private static void rawAppends(Path directory, int threads, int records) throws InterruptedException {
+        MatchJournal journal = new MatchJournal(directory, 0);
+        long start = System.nanoTime();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            Thread worker = new Thread(() -> {
+                List<CompletableFuture<Void>> window = new ArrayList<>();
+                for (int i = 0; i < records / threads; i++) {
+                    window.add(journal.append(id, MatchJournal.MOVE, 12, 28, 0));
+                    if (window.size() == 64) {
+                        window.forEach(CompletableFuture::join);
+                        window.clear();
+                    }
+                }
+                window.forEach(CompletableFuture::join);
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) worker.join();
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("raw journal: %d records in %.2f s, %.0f records/s, %.1f records per fsync%n",
+                journal.getRecords(), elapsed / 1e9, journal.getRecords() / (elapsed / 1e9),
+                (double) journal.getRecords() / journal.getBatches());
+        journal.close();
+    }
+
+    private static ChessPosition position(String square) {
+        return new ChessPosition(square.charAt(0), square.charAt(1) - '0');
+    }
+}
@@ -0,0 +1,131 @@
+package benchmark;
+
+import chess.ChessMatch;
+import chess.Fen;
+import chess.LegalMoveCache;
+import chess.PositionState;
+import engine.ClassicalEvaluator;
+import engine.Evaluator;
+import engine.NnueEvaluator;
+import engine.NnueNetwork;
+import engine.Search;
+import engine.SearchLimits;
+import engine.TranspositionTable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Compares the NNUE evaluator with the classical one: agreement of the classical-equivalent network,
+// evaluations per second with up-to-date accumulators, the cost of keeping accumulators in step during
+// make/undo, and search speed. Pass a network file to measure that network instead. Run with
+// --add-modules jdk.incubator.vector for the vector kernel, adding -Dxadrez.nnue.scalar=true to compare.
+public class NnueBenchmark {
+
+    private static final int POSITIONS = 2_000;
+
+    // Keeps the JIT from discarding evaluations whose result is otherwise unused.
+    static long sink;
+
+    public static void main(String[] args) throws IOException {
+        ClassicalEvaluator classical = new ClassicalEvaluator();
+        Path file;
+        if (args.length > 0) {
+            file = Path.of(args[0]);
+        } else {
+            file = Files.createTempFile("classical", ".nnue");
+            file.toFile().deleteOnExit();
+            NnueNetwork.fromClassical(classical, 256).write(file);
+        }
+        long start = System.nanoTime();
+        NnueNetwork network = NnueNetwork.load(file);
+        System.out.printf("loaded %s (%d hidden, %d KB) in %.1f ms, %s kernel%n", file.getFileName(), network.getHidden(),
+                Files.size(file) / 1024, (System.nanoTime() - start) / 1e6, NnueEvaluator.getKernelName());
+
+        List<PositionState> positions = randomPositions(new SplittableRandom(42));
+        List<ChessMatch> matches = new ArrayList<>();
+        List<NnueEvaluator> evaluators = new ArrayList<>();
+        int differing = 0;
+        int maxDifference = 0;
+        for (PositionState state : positions) {
+            ChessMatch match = new ChessMatch(state);
+            NnueEvaluator nnue = new NnueEvaluator(network);
+            int difference = Math.abs(nnue.evaluate(match) - classical.evaluate(match));
+            if (difference != 0) differing++;
+            maxDifference = Math.max(maxDifference, difference);
+            matches.add(match);
+            evaluators.add(nnue);
+        }
+        System.out.printf("%d positions: %d differ from the classical score, by at most %d cp (endgame king table)%n",
+                positions.size(), differing, maxDifference);
+
+        for (int round = 0; round < 3; round++) {
+            int rounds = 50;
+            start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                for (ChessMatch match : matches) sink += classical.evaluate(match);
+            }
+            double classicalRate = rounds * matches.size() / ((System.nanoTime() - start) / 1e9);
+            start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                for (int i = 0; i < matches.size(); i++) sink += evaluators.get(i).evaluate(matches.get(i));
+            }
+            double nnueRate = rounds * matches.size() / ((System.nanoTime() - start) / 1e9);
+            System.out.printf("evaluate: classical %.0f/s, nnue %.0f/s%n", classicalRate, nnueRate);
+        }
+
+        for (int round = 0; round < 2; round++) {
+            double none = walk(null, 20_000);
+            double withClassical = walk(classical, 20_000);
+            double withNnue = walk(new NnueEvaluator(network), 20_000);
+            System.out.printf("make + evaluate + undo: none %.2f us, classical %.2f us, nnue %.2f us%n", none, withClassical, withNnue);
+        }
+
+        for (Evaluator evaluator : new Evaluator[]{classical, new NnueEvaluator(network)}) {
+            Search search = new Search(evaluator, new TranspositionTable(16));
+            long nodes = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < 10; i++) {
+                search.getTable().clear();
+                nodes += search.search(new ChessMatch(positions.get(i * 97)), SearchLimits.depth(4)).getNodes();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("search depth 4, %s: %.0f nodes/s%n", evaluator.getClass().getSimpleName(), nodes / seconds);
+        }
+    }
+
+    // Microseconds per random move made, evaluated (when an evaluator is given) and undone.
+    private static double walk(Evaluator evaluator, int steps) {
+        SplittableRandom random = new SplittableRandom(7);
+        ChessMatch match = new ChessMatch(Fen.parse(Fen.START));
+        match.setMoveCache(new LegalMoveCache(64));
+        int[] moves = new int[256];
+        long start = System.nanoTime();
+        for (int i = 0; i < steps; i++) {
+            int count = match.generateMoves(moves);
+            int move = moves[random.nextInt(count)];
+            if (!match.makeSearchMove(move)) continue;
+            if (evaluator != null) sink += evaluator.evaluate(match);
+            match.undoSearchMove();
+        }
+        return (System.nanoTime() - start) / 1e3 / steps;
+    }
+
+    private static List<PositionState> randomPositions(SplittableRandom random) {
+        List<PositionState> positions = new ArrayList<>();
+        int[] moves = new int[256];
+        while (positions.size() < POSITIONS) {
+            ChessMatch match = new ChessMatch(Fen.parse(Fen.START));
+            for (int ply = 0; ply < 80 && positions.size() < POSITIONS; ply++) {
+                int count = match.generateLegalMoves(moves);
+                if (count == 0) break;
+                match.makeSearchMove(moves[random.nextInt(count)]);
+                positions.add(match.getState());
+            }
+        }
+        return positions;
+    }
+}
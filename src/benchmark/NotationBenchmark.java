@@ -0,0 +1,134 @@
+package benchmark;
+
+import archive.GameArchive;
+import archive.GameRecord;
+import archive.GameReplay;
+import archive.PgnWriter;
+import chess.ChessMatch;
+import chess.Fen;
+import chess.Move;
+import chess.PositionState;
+import chess.San;
+import chess.SanCodec;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Measures notation throughput over the games of an archive: UCI formatting and parsing, SAN formatting
+// and parsing through a SanCodec that follows each game, the same through the San facade on a ChessMatch
+// replaying the game, and PGN export through PgnWriter, with bytes allocated per move where it matters.
+// Arguments are key=value pairs: archive, rounds (passes over the archive) and out (a PGN file to write;
+// by default the PGN is discarded).
+public class NotationBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Expected key=value: " + arg);
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        int rounds = Integer.parseInt(options.getOrDefault("rounds", "5"));
+        List<GameRecord> games = new ArrayList<>();
+        GameArchive.read(Path.of(options.getOrDefault("archive", "games.txt")), games::add);
+        long moves = 0;
+        for (GameRecord game : games) moves += game.getMoves().size();
+        PositionState[] starts = new PositionState[games.size()];
+        for (int i = 0; i < starts.length; i++) starts[i] = Fen.parse(games.get(i).getStartFen());
+
+        // Warm-up, and a check that the codec and the facade agree on every move.
+        SanCodec codec = new SanCodec();
+        GameReplay replay = new GameReplay();
+        StringBuilder sb = new StringBuilder(16);
+        for (int i = 0; i < games.size(); i++) {
+            codec.load(starts[i]);
+            ChessMatch match = replay.start(games.get(i));
+            for (String uci : games.get(i).getMoves()) {
+                int move = Move.fromUci(uci);
+                sb.setLength(0);
+                codec.append(move, sb);
+                String san = San.format(match, move);
+                if (!san.contentEquals(sb) || codec.parse(san) != move) throw new IllegalStateException("SAN differs at " + uci + ": " + san + " / " + sb);
+                codec.play(move);
+                GameReplay.play(match, move);
+            }
+        }
+
+        long uciChecksum = 0;
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (GameRecord game : games) {
+                for (String uci : game.getMoves()) {
+                    sb.setLength(0);
+                    Move.appendUci(Move.fromUci(uci), sb);
+                    uciChecksum += sb.length();
+                }
+            }
+        }
+        report("UCI parse+format", moves * rounds, System.nanoTime() - start, allocatedBytes() - allocated);
+
+        long sanChecksum = 0;
+        allocated = allocatedBytes();
+        start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < games.size(); i++) {
+                codec.load(starts[i]);
+                for (String uci : games.get(i).getMoves()) {
+                    int move = Move.fromUci(uci);
+                    sb.setLength(0);
+                    codec.append(move, sb);
+                    sanChecksum += codec.parse(sb) ^ sb.length();
+                    codec.play(move);
+                }
+            }
+        }
+        report("SanCodec format+parse+play", moves * rounds, System.nanoTime() - start, allocatedBytes() - allocated);
+
+        allocated = allocatedBytes();
+        start = System.nanoTime();
+        for (int i = 0; i < games.size(); i++) {
+            ChessMatch match = replay.start(games.get(i));
+            for (String uci : games.get(i).getMoves()) {
+                int move = Move.fromUci(uci);
+                sanChecksum += San.parse(match, San.format(match, move));
+                GameReplay.play(match, move);
+            }
+        }
+        report("San on a replayed ChessMatch", moves, System.nanoTime() - start, allocatedBytes() - allocated);
+
+        String out = options.get("out");
+        WritableByteChannel channel = out == null ? Channels.newChannel(OutputStream.nullOutputStream())
+                : FileChannel.open(Path.of(out), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        allocated = allocatedBytes();
+        start = System.nanoTime();
+        try (PgnWriter writer = new PgnWriter(channel)) {
+            for (int round = 0; round < rounds; round++) {
+                for (GameRecord game : games) writer.write(game);
+            }
+            long nanos = System.nanoTime() - start;
+            report("PGN export", moves * rounds, nanos, allocatedBytes() - allocated);
+            System.out.printf("PGN export: %.0f games/s%n", writer.getGames() / (nanos / 1e9));
+        }
+        System.out.println("checksums " + uciChecksum + " " + sanChecksum);
+    }
+
+    private static void report(String name, long moves, long nanos, long allocated) {
+        System.out.printf("%s: %d moves, %.0f moves/s, %.1f bytes allocated per move%n", name, moves, moves / (nanos / 1e9), (double) allocated / moves);
+    }
+
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
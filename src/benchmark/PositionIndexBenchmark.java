@@ -0,0 +1,112 @@
+package benchmark;
+
+import archive.GameArchive;
+import archive.GameRecord;
+import archive.GameReplay;
+import archive.PositionIndex;
+import archive.PositionIndexWriter;
+import archive.PositionIndexer;
+import chess.ChessMatch;
+import chess.Fen;
+import chess.LegalMoveCache;
+import chess.Move;
+import chess.PositionState;
+import chess.Zobrist;
+import engine.Search;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+// Builds an index from random games, appends a second batch as new segments, compacts, and times lookups.
+public class PositionIndexBenchmark {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Path directory = Files.createTempDirectory("position-index");
+        Path first = directory.resolve("first.txt");
+        Path second = directory.resolve("second.txt");
+        Path index = directory.resolve("index");
+        List<long[]> probes = new ArrayList<>();
+        randomGames(first, 0, games / 2, probes);
+        randomGames(second, games / 2, games - games / 2, probes);
+
+        try (PositionIndexWriter writer = new PositionIndexWriter(index, 1 << 20)) {
+            report("first batch", first, writer, threads);
+            report("appended batch", second, writer, threads);
+            try (PositionIndex reader = PositionIndex.open(index)) {
+                lookups("before compaction", reader, probes);
+            }
+            long start = System.nanoTime();
+            writer.compact();
+            System.out.printf("compaction: %.1f ms%n", (System.nanoTime() - start) / 1e6);
+        }
+        try (PositionIndex reader = PositionIndex.open(index)) {
+            lookups("after compaction", reader, probes);
+            System.out.printf("start position is in %d games%n", reader.lookup(Fen.START).length);
+        }
+        long bytes = 0;
+        try (Stream<Path> files = Files.walk(index)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) bytes += Files.size(file);
+        }
+        System.out.printf("index size: %.1f KB%n", bytes / 1024.0);
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private static void report(String label, Path archive, PositionIndexWriter writer, int threads) throws InterruptedException {
+        long start = System.nanoTime();
+        long[] counts = PositionIndexer.index(archive, writer, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s: %d games, %d positions in %.2f s (%.0f positions/s on %d threads)%n",
+                label, counts[0], counts[1], seconds, counts[1] / seconds, threads);
+    }
+
+    // Each probe is a position hash and the id of a game known to contain it.
+    private static void lookups(String label, PositionIndex reader, List<long[]> probes) {
+        long start = System.nanoTime();
+        int missing = 0;
+        for (long[] probe : probes) {
+            long[] ids = reader.lookup(probe[0]);
+            if (Arrays.binarySearch(ids, probe[1]) < 0) missing++;
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%s: %d segments, %d lookups, %.1f us each, %d missing%n",
+                label, reader.getSegmentCount(), probes.size(), nanos / 1e3 / probes.size(), missing);
+    }
+
+    private static void randomGames(Path file, int firstId, int count, List<long[]> probes) throws IOException {
+        SplittableRandom random = new SplittableRandom(firstId + 38);
+        int[] moves = new int[256];
+        PositionState state = new PositionState();
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            for (int id = firstId; id < firstId + count; id++) {
+                ChessMatch match = new ChessMatch();
+                match.setMoveCache(new LegalMoveCache(16));
+                List<String> played = new ArrayList<>();
+                int plies = 20 + random.nextInt(100);
+                for (int ply = 0; ply < plies && !match.getCheckMate(); ply++) {
+                    int n = Search.legalMoves(match, moves);
+                    if (n == 0) break;
+                    int move = moves[random.nextInt(n)];
+                    GameReplay.play(match, move);
+                    played.add(Move.toUci(move));
+                    if (random.nextInt(50) == 0) {
+                        match.saveState(state);
+                        probes.add(new long[]{Zobrist.fenHash(state), id});
+                    }
+                }
+                GameArchive.write(writer, new GameRecord(id, "*", Fen.START, played));
+            }
+        }
+    }
+}
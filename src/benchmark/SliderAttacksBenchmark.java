@@ -0,0 +1,50 @@
+package benchmark;
+
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.pieces.SliderAttacks;
+
+public class SliderAttacksBenchmark {
+
+    private static final int ITERATIONS = 2_000_000;
+
+    public static void main(String[] args) {
+        long start = System.nanoTime();
+        SliderAttacks.rook(0, 0L);
+        long load = System.nanoTime() - start;
+        System.out.printf("tables generated in %.2f ms (class load %.2f ms), %.1f KB%n",
+                SliderAttacks.getGenerationNanos() / 1e6, load / 1e6, SliderAttacks.getTableBytes() / 1024.0);
+
+        ChessMatch chessMatch = new ChessMatch();
+        chessMatch.performChessMove(new ChessPosition('e', 2), new ChessPosition('e', 4));
+        chessMatch.performChessMove(new ChessPosition('e', 7), new ChessPosition('e', 5));
+        chessMatch.performChessMove(new ChessPosition('d', 1), new ChessPosition('h', 5));
+        ChessPiece queen = chessMatch.getPieces()[3][7];
+
+        long sink = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += SliderAttacks.queen(i & 63, i * 0x9E3779B97F4A7C15L);
+        }
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += SliderAttacks.queen(i & 63, i * 0x9E3779B97F4A7C15L);
+        }
+        report("queen attack lookup", start, ITERATIONS);
+
+        for (int i = 0; i < ITERATIONS / 10; i++) {
+            sink += queen.possibleMoves().length;
+        }
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += queen.possibleMoves().length;
+        }
+        report("Queen.possibleMoves", start, ITERATIONS);
+        if (sink == 42) System.out.println();
+    }
+
+    private static void report(String name, long start, int iterations) {
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-28s %.1f ns/op%n", name, (double) elapsed / iterations);
+    }
+}
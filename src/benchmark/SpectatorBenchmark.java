@@ -0,0 +1,66 @@
+package benchmark;
+
+import chess.ChessPosition;
+import chess.PositionState;
+import server.GameServer;
+import server.Spectator;
+import server.SpectatorDispatcher;
+import server.SpectatorFeed;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+public class SpectatorBenchmark {
+
+    private static final String[][] SHUFFLE = {{"g1", "f3"}, {"g8", "f6"}, {"f3", "g1"}, {"f6", "g8"}};
+
+    public static void main(String[] args) throws InterruptedException {
+        int spectators = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int moves = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        GameServer server = new GameServer();
+        long id = server.createMatch();
+        LongAdder deltas = new LongAdder();
+        LongAdder snapshots = new LongAdder();
+        Spectator counting = new Spectator() {
+            @Override
+            public void onMoves(long[] batch, int offset, int count) {
+                deltas.add(count);
+            }
+
+            @Override
+            public void onSnapshot(PositionState state) {
+                snapshots.increment();
+            }
+        };
+
+        SpectatorDispatcher dispatcher = new SpectatorDispatcher(threads);
+        List<SpectatorFeed.Subscription> subscriptions = new ArrayList<>();
+        for (int i = 0; i < spectators; i++) {
+            SpectatorFeed.Subscription subscription = server.spectate(id, counting);
+            subscriptions.add(subscription);
+            dispatcher.add(subscription);
+        }
+
+        long start = System.nanoTime();
+        for (int ply = 0; ply < moves; ply++) {
+            String[] move = SHUFFLE[ply % SHUFFLE.length];
+            server.move(id, position(move[0]), position(move[1]));
+        }
+        long gameNanos = System.nanoTime() - start;
+        Thread.sleep(500);
+        dispatcher.close();
+
+        long skipped = 0;
+        for (SpectatorFeed.Subscription subscription : subscriptions) skipped += subscription.getSkipped();
+        System.out.printf("%d spectators, %d moves in %.2f s (%.1f us/move incl. publish)%n", spectators, moves, gameNanos / 1e9, gameNanos / 1e3 / moves);
+        System.out.printf("delivered %d deltas (%.0f/s), %d snapshots, %d deltas skipped by lagging spectators%n",
+                deltas.sum(), deltas.sum() / (gameNanos / 1e9), snapshots.sum(), skipped);
+    }
+
+    private static ChessPosition position(String square) {
+        return new ChessPosition(square.charAt(0), square.charAt(1) - '0');
+    }
+}
@@ -0,0 +1,88 @@
+package benchmark;
+
+import chess.ChessMatch;
+import chess.ChessPosition;
+import chess.Fen;
+import chess.Move;
+import chess.PositionState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Checks static exchange evaluation against exact exchange outcomes, then measures its cost over every
+// capture of positions reached by random play from the initial position.
+public class StaticExchangeBenchmark {
+
+    private static final int POSITIONS = 5_000;
+
+    // fen, source (or "-" for the least valuable attacker), target, exact net material for the side to move
+    private static final String[][] CASES = {
+            {"4k3/8/8/3n4/4P3/8/8/4K3 w - - 0 1", "e4", "d5", "300"},
+            {"4k3/8/4p3/3n4/4P3/8/8/4K3 w - - 0 1", "e4", "d5", "200"},
+            {"4k3/8/4p3/3r4/4P3/8/8/4K3 w - - 0 1", "e4", "d5", "400"},
+            // the rook on d1 wins the recapturing pawn back, so black gains nothing by recapturing
+            {"4k3/8/4p3/3r4/4P3/8/8/3RK3 w - - 0 1", "e4", "d5", "500"},
+            {"4k3/8/4p3/3n4/8/1B6/8/4K3 w - - 0 1", "b3", "d5", "0"},
+            {"4k3/8/4p3/3p4/8/4N3/8/4K3 w - - 0 1", "e3", "d5", "-200"},
+            {"4k3/8/4p3/3p4/8/4N3/8/4K3 w - - 0 1", "-", "d5", "-200"},
+            // two rooks against rook and queen behind it: the second white rook is lost to the queen
+            {"3qk3/3r4/8/3p4/8/8/3R4/3RK3 w - - 0 1", "d2", "d5", "-400"},
+            {"4k3/8/8/3p4/4N3/5P2/8/4K3 b - - 0 1", "d5", "e4", "200"},
+            {"4k3/8/4p3/3n4/4K3/8/8/8 w - - 0 1", "e4", "d5", "-20000"},
+            {"4k3/8/4p3/3n4/4K3/8/8/8 w - - 0 1", "-", "d5", "0"},
+    };
+
+    // Keeps the JIT from discarding evaluations whose result is otherwise unused.
+    static long sink;
+
+    public static void main(String[] args) {
+        for (String[] c : CASES) {
+            ChessMatch match = new ChessMatch(Fen.parse(c[0]));
+            ChessPosition target = position(c[2]);
+            int value = c[1].equals("-") ? match.staticExchangeEvaluation(target) : match.staticExchangeEvaluation(position(c[1]), target);
+            if (value != Integer.parseInt(c[3])) {
+                throw new IllegalStateException("SEE of " + c[1] + "x" + c[2] + " in " + c[0] + " is " + value + ", expected " + c[3]);
+            }
+        }
+        System.out.printf("%d exchanges evaluate to their exact outcome%n", CASES.length);
+
+        List<ChessMatch> matches = new ArrayList<>();
+        List<int[]> captures = new ArrayList<>();
+        SplittableRandom random = new SplittableRandom(42);
+        int[] moves = new int[256];
+        long total = 0;
+        while (matches.size() < POSITIONS) {
+            ChessMatch walk = new ChessMatch(Fen.parse(Fen.START));
+            for (int ply = 0; ply < 80 && matches.size() < POSITIONS; ply++) {
+                int count = walk.generateLegalMoves(moves);
+                if (count == 0) break;
+                ChessMatch match = new ChessMatch(walk.getState());
+                int[] found = new int[count];
+                int n = 0;
+                for (int i = 0; i < count; i++) {
+                    if (match.getPieceCode(Move.target(moves[i])) != PositionState.EMPTY) found[n++] = moves[i];
+                }
+                matches.add(match);
+                captures.add(Arrays.copyOf(found, n));
+                total += n;
+                walk.makeSearchMove(moves[random.nextInt(count)]);
+            }
+        }
+
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < matches.size(); i++) {
+                ChessMatch match = matches.get(i);
+                for (int move : captures.get(i)) sink += match.staticExchangeEvaluation(Move.source(move), Move.target(move));
+            }
+            System.out.printf("%d captures in %d positions: %.1f ns per evaluation%n", total, matches.size(),
+                    (double) (System.nanoTime() - start) / Math.max(1, total));
+        }
+    }
+
+    private static ChessPosition position(String square) {
+        return new ChessPosition(square.charAt(0), square.charAt(1) - '0');
+    }
+}
@@ -1,10 +1,14 @@
 package boardgame;
 
+import metrics.Metrics;
+
 public class Board {
 
     private int rows;
     private int columns;
     private Piece[][] pieces;
+    private long occupancy;
+    private BoardListener listener;
 
     public Board(int rows, int columns) {
         if(rows < 1 || columns < 1) throw new BoardException("Rows and Columns cannot be less than 1");
@@ -29,6 +33,20 @@ public class Board {
         this.rows = rows;
     }
 
+    public BoardListener getListener() {
+        return listener;
+    }
+
+    public void setListener(BoardListener listener) {
+        this.listener = listener;
+    }
+
+    // One bit per occupied square (row * columns + column); only available on boards of up to 64 squares.
+    public long getOccupancy() {
+        if (rows * columns > 64) throw new BoardException("Occupancy bitboard needs a board of at most 64 squares");
+        return occupancy;
+    }
+
     public Piece piece (int row, int column) {
         if (!positionExists(row, column)) throw new BoardException("Position not on the board");
         return pieces[row][column];
@@ -40,20 +58,31 @@ public class Board {
     }
 
     public void placePiece(Piece piece, Position position){
+        if (Metrics.ENABLED) Metrics.PLACE_PIECE.increment();
         if(thereIsAPiece(position)) throw new BoardException("There is already a piece on position " + position);
         pieces[position.getRow()][position.getColumn()] = piece;
+        occupancy |= squareBit(position);
         piece.position = position;
+        if (listener != null) listener.piecePlaced(piece, position);
     }
 
     public Piece removePiece(Position position){
+        if (Metrics.ENABLED) Metrics.REMOVE_PIECE.increment();
         if(!positionExists(position)) throw new BoardException("Position not on the board");
         if(piece(position) == null) return null;
         Piece aux = piece(position);
         aux.position = null;
         pieces[position.getRow()][position.getColumn()] = null;
+        occupancy &= ~squareBit(position);
+        if (listener != null) listener.pieceRemoved(aux, position);
         return aux;
     }
 
+    private long squareBit(Position position) {
+        int square = position.getRow() * columns + position.getColumn();
+        return square < 64 ? 1L << square : 0;
+    }
+
     public boolean positionExists(int row, int column){
         return row >= 0 && row < rows && column >= 0 && column < columns;
     }
@@ -0,0 +1,10 @@
+package boardgame;
+
+// Told about every piece placed on or removed from a Board, so state derived from the placement can be
+// kept up to date move by move instead of being recomputed from the whole board.
+public interface BoardListener {
+
+    void piecePlaced(Piece piece, Position position);
+
+    void pieceRemoved(Piece piece, Position position);
+}
@@ -1,13 +1,16 @@
 package chess;
 
 import boardgame.Board;
+import boardgame.BoardListener;
 import boardgame.Piece;
 import boardgame.Position;
 import chess.pieces.*;
+import metrics.ChessMoveEvent;
+import metrics.Metrics;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class ChessMatch {
 
@@ -19,14 +22,204 @@ public class ChessMatch {
     private ChessPiece enPassantVulnerable;
     private ChessPiece promoted;
 
-    private List<Piece> piecesOnTheBoard = new ArrayList<>();
+    private PieceLists piecesOnTheBoard = new PieceLists();
     private List<Piece> capturedPieces = new ArrayList<>();
+    private LegalMoveCache moveCache = LegalMoveCache.shared();
+    private StaticExchange staticExchange;
+
+    // Undo stack of makeSearchMove, allocated on first use.
+    private static final int MAX_SEARCH_PLY = 512;
+    private int[] searchMoves;
+    private ChessPiece[] searchCaptured;
+    private ChessPiece[] searchEnPassant;
+    private ChessPiece[] searchPromoted;
+    private ChessPiece[] searchPawns;
+    private boolean[] searchCheck;
+    private int searchPly;
+
+    // Pieces kept for reuse by copyFrom and loadState, by PositionState code, and one Position per square;
+    // allocated on first use.
+    private ChessPiece[][] spares;
+    private int[] spareCounts;
+    private Position[] squarePositions;
+
+    // Time in testCheck and its calls, counted only under Metrics.PROFILE.
+    private long testCheckNanos;
+    private long testCheckCalls;
 
     public ChessMatch() {
         board = new Board(8, 8);
+        staticExchange = new StaticExchange(board);
         initialSetup();
     }
 
+    public ChessMatch(PositionState state) {
+        board = new Board(8, 8);
+        staticExchange = new StaticExchange(board);
+        for (int square = 0; square < PositionState.SQUARES; square++) {
+            byte code = state.squares[square];
+            if (code == PositionState.EMPTY) continue;
+            ChessPiece piece = newPiece(String.valueOf(PositionState.type(code)), PositionState.color(code));
+            piece.moveCount = state.moveCounts[square];
+            board.placePiece(piece, new Position(square / 8, square % 8));
+            piecesOnTheBoard.add(piece);
+        }
+        turn = state.turn;
+        currentPlayer = state.currentPlayer;
+        check = state.check;
+        checkMate = state.checkMate;
+        enPassantVulnerable = pieceAt(state.enPassantSquare);
+        promoted = pieceAt(state.promotedSquare);
+    }
+
+    public LegalMoveCache getMoveCache() {
+        return moveCache;
+    }
+
+    public void setMoveCache(LegalMoveCache moveCache) {
+        this.moveCache = moveCache;
+    }
+
+    // Listener of the underlying board, told of every piece placed and removed, including the trial
+    // moves of move generation and mate detection. Not carried over by copy().
+    public BoardListener getBoardListener() {
+        return board.getListener();
+    }
+
+    public void setBoardListener(BoardListener listener) {
+        board.setListener(listener);
+    }
+
+    // A new, independent match; allocates a board and all its pieces. To explore many siblings, keep one
+    // match per thread and overwrite it with copyFrom or loadState instead.
+    public ChessMatch copy() {
+        return new ChessMatch(getState());
+    }
+
+    // Overwrites this match with the position of other. Only squares whose piece differs are touched, and
+    // pieces taken off are kept for reuse, so a sibling a few moves away costs a few board updates and,
+    // once the spares cover the material, allocates nothing. other must not change meanwhile. Captured
+    // pieces, the search undo stack and the board listener are not carried over; the listener hears the
+    // pieces replaced.
+    public void copyFrom(ChessMatch other) {
+        prepareLoad();
+        long differing = 0;
+        long ours = board.getOccupancy();
+        long theirs = other.board.getOccupancy();
+        for (long occupied = ours | theirs; occupied != 0; occupied &= occupied - 1) {
+            int square = Long.numberOfTrailingZeros(occupied);
+            ChessPiece piece = (theirs & 1L << square) == 0 ? null : other.pieceAt(square);
+            if (keepOrRemove(square, ours, PositionState.code(piece), piece == null ? 0 : piece.moveCount)) differing |= 1L << square;
+        }
+        for (; differing != 0; differing &= differing - 1) {
+            int square = Long.numberOfTrailingZeros(differing);
+            ChessPiece piece = other.pieceAt(square);
+            if (piece != null) placeSpare(piece.code, piece.moveCount, square);
+        }
+        turn = other.turn;
+        currentPlayer = other.currentPlayer;
+        check = other.check;
+        checkMate = other.checkMate;
+        enPassantVulnerable = pieceAt(squareOf(other.enPassantVulnerable));
+        promoted = pieceAt(squareOf(other.promoted));
+    }
+
+    // Like copyFrom, from a PositionState: threads can share one root state and each load it into its own
+    // match.
+    public void loadState(PositionState state) {
+        prepareLoad();
+        long differing = 0;
+        long ours = board.getOccupancy();
+        for (int square = 0; square < PositionState.SQUARES; square++) {
+            if (keepOrRemove(square, ours, state.squares[square], state.moveCounts[square])) differing |= 1L << square;
+        }
+        for (; differing != 0; differing &= differing - 1) {
+            int square = Long.numberOfTrailingZeros(differing);
+            byte code = state.squares[square];
+            if (code != PositionState.EMPTY) placeSpare(code, state.moveCounts[square], square);
+        }
+        turn = state.turn;
+        currentPlayer = state.currentPlayer;
+        check = state.check;
+        checkMate = state.checkMate;
+        enPassantVulnerable = pieceAt(state.enPassantSquare);
+        promoted = pieceAt(state.promotedSquare);
+    }
+
+    private void prepareLoad() {
+        if (spares == null) {
+            spares = new ChessPiece[13][16];
+            spareCounts = new int[13];
+            squarePositions = new Position[PositionState.SQUARES];
+            for (int square = 0; square < PositionState.SQUARES; square++) squarePositions[square] = new Position(square / 8, square % 8);
+        }
+        for (int i = 0; i < capturedPieces.size(); i++) keepSpare((ChessPiece) capturedPieces.get(i));
+        capturedPieces.clear();
+        searchPly = 0;
+    }
+
+    // Keeps the piece on square (occupied by this board's occupancy) when it already has the code wanted
+    // there, giving it moveCount, and otherwise takes it off into the spares. Returns whether the square
+    // still needs a piece placed.
+    private boolean keepOrRemove(int square, long occupied, byte code, int moveCount) {
+        if ((occupied & 1L << square) != 0) {
+            ChessPiece piece = pieceAt(square);
+            if (piece.code == code) {
+                piece.moveCount = moveCount;
+                return false;
+            }
+            board.removePiece(squarePositions[square]);
+            piecesOnTheBoard.remove(piece);
+            keepSpare(piece);
+        }
+        return code != PositionState.EMPTY;
+    }
+
+    private void keepSpare(ChessPiece piece) {
+        int code = piece.code;
+        if (spareCounts[code] == spares[code].length) spares[code] = Arrays.copyOf(spares[code], spareCounts[code] * 2);
+        spares[code][spareCounts[code]++] = piece;
+    }
+
+    private void placeSpare(byte code, int moveCount, int square) {
+        ChessPiece piece = spareCounts[code] > 0 ? spares[code][--spareCounts[code]]
+                : newPiece(String.valueOf(PositionState.type(code)), PositionState.color(code));
+        piece.moveCount = moveCount;
+        board.placePiece(piece, squarePositions[square]);
+        piecesOnTheBoard.add(piece);
+    }
+
+    public PositionState getState() {
+        PositionState state = new PositionState();
+        saveState(state);
+        return state;
+    }
+
+    public void saveState(PositionState state) {
+        for (int i = 0; i < board.getRows(); i++) {
+            for (int j = 0; j < board.getColumns(); j++) {
+                ChessPiece piece = (ChessPiece) board.piece(i, j);
+                int square = PositionState.square(i, j);
+                state.squares[square] = PositionState.code(piece);
+                state.moveCounts[square] = piece == null ? 0 : piece.getMoveCount();
+            }
+        }
+        state.turn = turn;
+        state.currentPlayer = currentPlayer;
+        state.check = check;
+        state.checkMate = checkMate;
+        state.enPassantSquare = squareOf(enPassantVulnerable);
+        state.promotedSquare = squareOf(promoted);
+    }
+
+    private ChessPiece pieceAt(int square) {
+        return square < 0 ? null : (ChessPiece) board.piece(square / 8, square % 8);
+    }
+
+    private int squareOf(ChessPiece piece) {
+        return piece == null ? -1 : piece.square();
+    }
+
     public int getTurn() {
         return turn;
     }
@@ -62,49 +255,79 @@ public class ChessMatch {
     }
 
     public ChessPiece performChessMove(ChessPosition positionSource, ChessPosition positionTarget) {
-        Position source = positionSource.toPosition();
-        Position target = positionTarget.toPosition();
-        validateSourcePosition(source);
-        validadeTargetPosition(source, target);
-        Piece capturedPiece = makeMove(source, target);
-
-        ChessPiece movedPiece = (ChessPiece)board.piece(target);
-
-        if (testCheck(currentPlayer)){
-            undoMove(source, target, (ChessPiece)capturedPiece);
-            throw new ChessException("You can't put yourself in check");
+        ChessMoveEvent event = new ChessMoveEvent();
+        if (event.isEnabled()) {
+            // only cheap fields here: most events fall under the recording threshold and are dropped
+            event.positionHash = getPositionHash();
+            event.begin();
         }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        try {
+            Position source = positionSource.toPosition();
+            Position target = positionTarget.toPosition();
+            // one hash and one cache lookup for both validations
+            long[] masks = possibleMovesMasks();
+            validateSourcePosition(source, masks);
+            validateTargetPosition(source, target, masks);
+            Piece capturedPiece = makeMove(source, target);
+
+            ChessPiece movedPiece = (ChessPiece)board.piece(target);
+
+            if (testCheck(currentPlayer)){
+                undoMove(source, target, (ChessPiece)capturedPiece);
+                throw new ChessException("You can't put yourself in check");
+            }
 
-        // #specialmove promotion
-        promoted = null;
-        if (movedPiece instanceof Pawn){
-            if (movedPiece.getColor() == Color.WHITE && target.getRow() == 0 || movedPiece.getColor() == Color.BLACK && target.getRow() == 7){
-                promoted = (ChessPiece) board.piece(target);
-                promoted = replacePromotedPiece("Q");
+            // #specialmove promotion
+            promoted = null;
+            if (movedPiece instanceof Pawn){
+                if (movedPiece.getColor() == Color.WHITE && target.getRow() == 0 || movedPiece.getColor() == Color.BLACK && target.getRow() == 7){
+                    promoted = (ChessPiece) board.piece(target);
+                    promoted = swapPromotedPiece("Q");
+                }
             }
-        }
 
-        check = (testCheck(opponent(currentPlayer)));
+            // before the mate test: capturing en passant can be the only answer to a check by a double step
+            updateEnPassant(movedPiece, source, target);
+            check = (testCheck(opponent(currentPlayer)));
 
-        if(testCheckMate(opponent(currentPlayer))) checkMate = true;
-        else changeTurn();
+            event.legal = true;
+            event.checkDetection = true;
+            event.mateDetection = check;
 
-        // #specialmove en passant
-        if (movedPiece instanceof Pawn && target.getRow() == source.getRow() - 2 || target.getRow() == source.getRow() + 2){
+            if(testCheckMate(opponent(currentPlayer))) checkMate = true;
+            else changeTurn();
+
+            event.check = check;
+            event.checkMate = checkMate;
+
+            return (ChessPiece)capturedPiece;
+        } finally {
+            if (Metrics.ENABLED) Metrics.PERFORM_CHESS_MOVE.recordSince(start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.fen = Fen.format(getState());
+                event.move = positionSource.toString() + positionTarget;
+                event.commit();
+            }
+        }
+    }
+
+    // #specialmove en passant
+    private void updateEnPassant(ChessPiece movedPiece, Position source, Position target) {
+        if (movedPiece instanceof Pawn && (target.getRow() == source.getRow() - 2 || target.getRow() == source.getRow() + 2)){
             enPassantVulnerable = movedPiece;
         } else enPassantVulnerable = null;
-
-        return (ChessPiece)capturedPiece;
     }
 
-    private Piece makeMove(Position source, Position target) {
+    public Piece makeMove(Position source, Position target) {
         ChessPiece piece = (ChessPiece) board.removePiece(source);
         piece.increaseMoveCount();
         Piece capturedPiece = board.removePiece(target);
         board.placePiece(piece, target);
 
         if (capturedPiece != null){
-            piecesOnTheBoard.remove(capturedPiece);
+            piecesOnTheBoard.remove((ChessPiece) capturedPiece);
             capturedPieces.add(capturedPiece);
         }
 
@@ -134,7 +357,7 @@ public class ChessMatch {
                 else pawnPosition = new Position(target.getRow() - 1, target.getColumn());
                 capturedPiece = board.removePiece(pawnPosition);
                 capturedPieces.add(capturedPiece);
-                piecesOnTheBoard.remove(capturedPiece);
+                piecesOnTheBoard.remove((ChessPiece) capturedPiece);
             }
         }
 
@@ -183,19 +406,231 @@ public class ChessMatch {
     }
 
     public boolean[][] possibleMoves(ChessPosition sourcePosition) {
-        Position position = sourcePosition.toPosition();
-        validateSourcePosition(position);
-        return board.piece(position).possibleMoves();
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        try {
+            Position position = sourcePosition.toPosition();
+            long[] masks = possibleMovesMasks();
+            validateSourcePosition(position, masks);
+            long mask = masks[PositionState.square(position.getRow(), position.getColumn())];
+            boolean[][] mat = new boolean[board.getRows()][board.getColumns()];
+            for (int i = 0; i < board.getRows(); i++) {
+                for (int j = 0; j < board.getColumns(); j++) {
+                    mat[i][j] = (mask & (1L << PositionState.square(i, j))) != 0;
+                }
+            }
+            return mat;
+        } finally {
+            if (Metrics.ENABLED) Metrics.POSSIBLE_MOVES.recordSince(start);
+        }
     }
 
-    private void validateSourcePosition(Position source) {
+    private void validateSourcePosition(Position source, long[] masks) {
         if (!board.thereIsAPiece(source)) throw new ChessException("There is no piece on source position");
         if (((ChessPiece)board.piece(source)).getColor() != currentPlayer) throw new ChessException("The chosen piece is not yours");
-        if (!board.piece(source).isThereAnyPossibleMove()) throw new ChessException("There is no possible moves for the chosen piece");
+        if (masks[PositionState.square(source.getRow(), source.getColumn())] == 0) throw new ChessException("There is no possible moves for the chosen piece");
     }
 
     public void validadeTargetPosition(Position source, Position target) {
-        if (!board.piece(source).possibleMove(target)) throw new ChessException("The chosen piece can't move to target position");
+        validateTargetPosition(source, target, possibleMovesMasks());
+    }
+
+    private void validateTargetPosition(Position source, Position target, long[] masks) {
+        long mask = masks[PositionState.square(source.getRow(), source.getColumn())];
+        if ((mask & (1L << PositionState.square(target.getRow(), target.getColumn()))) == 0) throw new ChessException("The chosen piece can't move to target position");
+    }
+
+    // Possible moves of every piece of the current player, shared with other matches through the move cache.
+    private long[] possibleMovesMasks() {
+        long hash = getPositionHash();
+        long[] masks = moveCache.get(hash);
+        if (masks == null) {
+            masks = new long[PositionState.SQUARES];
+            for (byte type = PieceLists.PAWN; type <= PieceLists.KING; type++) {
+                PieceList list = piecesOnTheBoard.get(currentPlayer, type);
+                for (int k = 0; k < list.size(); k++) {
+                    ChessPiece p = list.get(k);
+                    masks[p.square()] = movesMask(p);
+                }
+            }
+            moveCache.put(hash, masks);
+        }
+        return masks;
+    }
+
+    private long movesMask(ChessPiece piece) {
+        boolean[][] mat = piece.possibleMoves();
+        long mask = 0;
+        for (int i = 0; i < board.getRows(); i++) {
+            for (int j = 0; j < board.getColumns(); j++) {
+                if (mat[i][j]) mask |= 1L << PositionState.square(i, j);
+            }
+        }
+        return mask;
+    }
+
+    // Possible moves of the current player as Move ints, without the move cache and without testing for
+    // self-check; a pawn reaching the last row yields one move per promotion piece. Returns the count.
+    public int generateMoves(int[] moves) {
+        int count = 0;
+        for (byte type = PieceLists.PAWN; type <= PieceLists.KING; type++) {
+            PieceList list = piecesOnTheBoard.get(currentPlayer, type);
+            for (int k = 0; k < list.size(); k++) {
+                ChessPiece p = list.get(k);
+                int source = p.square();
+                long mask = movesMask(p);
+                while (mask != 0) {
+                    int target = Long.numberOfTrailingZeros(mask);
+                    mask &= mask - 1;
+                    if (type == PieceLists.PAWN && (target < 8 || target >= 56)) {
+                        for (byte promotion = PieceLists.QUEEN; promotion >= PieceLists.KNIGHT; promotion--) {
+                            moves[count++] = Move.of(source, target, promotion);
+                        }
+                    } else {
+                        moves[count++] = Move.of(source, target);
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    // Moves of the current player that do not leave the own king in check; the match is left unchanged.
+    public int generateLegalMoves(int[] moves) {
+        int[] pseudo = new int[256];
+        int total = generateMoves(pseudo);
+        int count = 0;
+        for (int i = 0; i < total; i++) {
+            if (makeSearchMove(pseudo[i])) {
+                undoSearchMove();
+                moves[count++] = pseudo[i];
+            }
+        }
+        return count;
+    }
+
+    // Plays a move for search: like performChessMove it rejects moves into check (returning false and leaving
+    // the match unchanged), promotes, sets check and en passant and changes turn, but it does not validate
+    // the move against possibleMoves and does not detect mate, which the search finds as a lack of legal
+    // replies. Every successful call must be matched by undoSearchMove.
+    public boolean makeSearchMove(int move) {
+        if (searchMoves == null) {
+            searchMoves = new int[MAX_SEARCH_PLY];
+            searchCaptured = new ChessPiece[MAX_SEARCH_PLY];
+            searchEnPassant = new ChessPiece[MAX_SEARCH_PLY];
+            searchPromoted = new ChessPiece[MAX_SEARCH_PLY];
+            searchPawns = new ChessPiece[MAX_SEARCH_PLY];
+            searchCheck = new boolean[MAX_SEARCH_PLY];
+        }
+        int sourceSquare = Move.source(move);
+        int targetSquare = Move.target(move);
+        Position source = new Position(sourceSquare / 8, sourceSquare % 8);
+        Position target = new Position(targetSquare / 8, targetSquare % 8);
+        ChessPiece movedPiece = pieceAt(sourceSquare);
+        if (movedPiece == null || movedPiece.getColor() != currentPlayer) throw new ChessException("The chosen piece is not yours");
+
+        ChessPiece capturedPiece = (ChessPiece) makeMove(source, target);
+        if (testCheck(currentPlayer)) {
+            undoMove(source, target, capturedPiece);
+            return false;
+        }
+        int ply = searchPly++;
+        searchMoves[ply] = move;
+        searchCaptured[ply] = capturedPiece;
+        searchEnPassant[ply] = enPassantVulnerable;
+        searchPromoted[ply] = promoted;
+        searchCheck[ply] = check;
+        searchPawns[ply] = null;
+
+        // #specialmove promotion
+        promoted = null;
+        if (movedPiece instanceof Pawn && (targetSquare < 8 || targetSquare >= 56)) {
+            byte type = Move.promotion(move) == 0 ? PieceLists.QUEEN : Move.promotion(move);
+            board.removePiece(target);
+            piecesOnTheBoard.remove(movedPiece);
+            promoted = newPiece(String.valueOf(PositionState.TYPES.charAt(type - 1)), currentPlayer);
+            promoted.moveCount = movedPiece.moveCount;
+            board.placePiece(promoted, target);
+            piecesOnTheBoard.add(promoted);
+            searchPawns[ply] = movedPiece;
+        }
+
+        check = testCheck(opponent(currentPlayer));
+        changeTurn();
+        updateEnPassant(movedPiece, source, target);
+        return true;
+    }
+
+    public void undoSearchMove() {
+        if (searchPly == 0) throw new IllegalStateException("There is no search move to undo");
+        int ply = --searchPly;
+        int move = searchMoves[ply];
+        int sourceSquare = Move.source(move);
+        int targetSquare = Move.target(move);
+        Position source = new Position(sourceSquare / 8, sourceSquare % 8);
+        Position target = new Position(targetSquare / 8, targetSquare % 8);
+
+        turn--;
+        currentPlayer = opponent(currentPlayer);
+        check = searchCheck[ply];
+        enPassantVulnerable = searchEnPassant[ply];
+        ChessPiece pawn = searchPawns[ply];
+        if (pawn != null) {
+            ChessPiece piece = (ChessPiece) board.removePiece(target);
+            piecesOnTheBoard.remove(piece);
+            board.placePiece(pawn, target);
+            piecesOnTheBoard.add(pawn);
+            searchPawns[ply] = null;
+        }
+        promoted = searchPromoted[ply];
+        undoMove(source, target, searchCaptured[ply]);
+        searchCaptured[ply] = null;
+        searchEnPassant[ply] = null;
+        searchPromoted[ply] = null;
+    }
+
+    public int getSearchPly() {
+        return searchPly;
+    }
+
+    // PositionState code of the piece on a square, 0 when empty.
+    public byte getPieceCode(int square) {
+        return PositionState.code(pieceAt(square));
+    }
+
+    public long getPositionHash() {
+        long hash = 0;
+        // over the piece lists rather than the 64 squares of the board
+        for (int code = 1; code <= 12; code++) {
+            PieceList list = piecesOnTheBoard.get(code);
+            for (int k = 0; k < list.size(); k++) {
+                ChessPiece piece = list.get(k);
+                int square = piece.square();
+                hash ^= Zobrist.piece(piece.code, square);
+                if (piece.getMoveCount() == 0) hash ^= Zobrist.unmoved(square);
+            }
+        }
+        if (currentPlayer == Color.BLACK) hash ^= Zobrist.blackToMove();
+        if (check) hash ^= Zobrist.check();
+        int enPassantSquare = squareOf(enPassantVulnerable);
+        if (enPassantSquare >= 0) hash ^= Zobrist.enPassant(enPassantSquare);
+        return hash;
+    }
+
+    public int staticExchangeEvaluation(ChessPosition target) {
+        Position position = target.toPosition();
+        return staticExchangeEvaluation(-1, PositionState.square(position.getRow(), position.getColumn()));
+    }
+
+    public int staticExchangeEvaluation(ChessPosition source, ChessPosition target) {
+        Position from = source.toPosition();
+        Position to = target.toPosition();
+        return staticExchangeEvaluation(PositionState.square(from.getRow(), from.getColumn()), PositionState.square(to.getRow(), to.getColumn()));
+    }
+
+    // Material the current player nets by capturing on targetSquare, in centipawns; sourceSquare < 0 starts with the least valuable attacker.
+    // 0 when there is no such capture; a large negative value (minus a king) for a king capturing on a defended square.
+    public int staticExchangeEvaluation(int sourceSquare, int targetSquare) {
+        return staticExchange.evaluate(currentPlayer, sourceSquare, targetSquare);
     }
 
     public void changeTurn() {
@@ -213,45 +648,94 @@ public class ChessMatch {
     }
 
     private ChessPiece king(Color color){
-        return (ChessPiece)piecesOnTheBoard.stream()
-                .filter(x -> x instanceof King && ((ChessPiece)x).getColor() == color)
-                .findFirst()
-                .orElseThrow(() -> new IllegalStateException("There is no " + color + " king on the board"));
+        ChessPiece king = piecesOnTheBoard.king(color);
+        if (king == null) throw new IllegalStateException("There is no " + color + " king on the board");
+        return king;
+    }
+
+    public PieceLists getPiecesOnTheBoard() {
+        return piecesOnTheBoard;
+    }
+
+    boolean testCheck(Color color){
+        long start = Metrics.ENABLED || Metrics.PROFILE ? System.nanoTime() : 0;
+        try {
+            Position kingPosition = king(color).getChessPosition().toPosition();
+            Color opponent = opponent(color);
+            for (byte type = PieceLists.PAWN; type <= PieceLists.KING; type++) {
+                PieceList list = piecesOnTheBoard.get(opponent, type);
+                for (int k = 0; k < list.size(); k++) {
+                    if (list.get(k).possibleMove(kingPosition)) return true;
+                }
+            }
+            return false;
+        } finally {
+            if (Metrics.ENABLED) Metrics.TEST_CHECK.recordSince(start);
+            if (Metrics.PROFILE) {
+                testCheckNanos += System.nanoTime() - start;
+                testCheckCalls++;
+            }
+        }
+    }
+
+    public long getTestCheckNanos() {
+        return testCheckNanos;
     }
 
-    private boolean testCheck(Color color){
-        Position kingPosition = king(color).getChessPosition().toPosition();
-        return piecesOnTheBoard.stream()
-                .filter(x -> ((ChessPiece)x).getColor() == opponent(color))
-                .anyMatch(x -> x.possibleMove(kingPosition));
+    public long getTestCheckCalls() {
+        return testCheckCalls;
     }
 
     private boolean testCheckMate(Color color){
-        if (!testCheck(color)) return false;
-
-        List<Piece> list = piecesOnTheBoard.stream()
-                .filter(x -> ((ChessPiece)x).getColor() == color)
-                .collect(Collectors.toList());
-
-        for (Piece p : list){
-            boolean[][] mat = p.possibleMoves();
-            for (int i = 0; i < board.getRows(); i++){
-                for (int j = 0; j < board.getColumns(); j++){
-                    if (mat[i][j]){
-                        Position source = ((ChessPiece)p).getChessPosition().toPosition();
-                        Position target = new Position(i, j);
-                        Piece capturedPiece = makeMove(source, target);
-                        boolean testCheck = testCheck(color);
-                        undoMove(source, target, (ChessPiece)capturedPiece);
-                        if (!testCheck) return false;
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        try {
+            if (!testCheck(color)) return false;
+
+            for (byte type = PieceLists.PAWN; type <= PieceLists.KING; type++) {
+                PieceList list = piecesOnTheBoard.get(color, type);
+                for (int k = 0; k < list.size(); k++) {
+                    ChessPiece p = list.get(k);
+                    boolean[][] mat = p.possibleMoves();
+                    for (int i = 0; i < board.getRows(); i++){
+                        for (int j = 0; j < board.getColumns(); j++){
+                            if (mat[i][j]){
+                                Position source = p.getChessPosition().toPosition();
+                                Position target = new Position(i, j);
+                                Piece capturedPiece = makeMove(source, target);
+                                boolean testCheck = testCheck(color);
+                                undoMove(source, target, (ChessPiece)capturedPiece);
+                                if (!testCheck) return false;
+                            }
+                        }
                     }
                 }
             }
+            return true;
+        } finally {
+            if (Metrics.ENABLED) Metrics.TEST_CHECK_MATE.recordSince(start);
         }
-        return true;
     }
 
+    // Replaces the queen a pawn was promoted to by the piece chosen, and re-evaluates check and mate for
+    // that piece: performChessMove decided them with the queen, and an underpromotion can lift or give mate.
     public ChessPiece replacePromotedPiece(String type) {
+        ChessPiece p = swapPromotedPiece(type);
+        if (p == promoted) return p;
+        promoted = p;
+        Color mover = p.getColor();
+        boolean queenMated = checkMate;
+        check = testCheck(opponent(mover));
+        checkMate = testCheckMate(opponent(mover));
+        if (queenMated && !checkMate) {
+            changeTurn();
+        } else if (!queenMated && checkMate) {
+            turn--;
+            currentPlayer = mover;
+        }
+        return p;
+    }
+
+    private ChessPiece swapPromotedPiece(String type) {
         if (promoted == null) throw new IllegalStateException("There is no piece to be promoted");
         if (!type.equals("B") && !type.equals("R") && !type.equals("Q") && !type.equals("N")) return promoted;
 
@@ -260,6 +744,8 @@ public class ChessMatch {
         piecesOnTheBoard.remove(promoted);
 
         ChessPiece p = newPiece(type, promoted.getColor());
+        // the promoted piece has moved: it must not hash (or castle) as unmoved on its square
+        p.moveCount = promoted.moveCount;
         board.placePiece(p, pos);
         piecesOnTheBoard.add(p);
         return p;
@@ -269,6 +755,8 @@ public class ChessMatch {
         if (type.equals("R")) return new Rook(board, color);
         if (type.equals("B")) return new Bishop(board, color);
         if (type.equals("N")) return new Knight(board, color);
+        if (type.equals("K")) return new King(board, color, this);
+        if (type.equals("P")) return new Pawn(board, color, this);
         return new Queen(board, color);
     }
 
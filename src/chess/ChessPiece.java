@@ -8,10 +8,14 @@ public abstract class ChessPiece extends Piece {
 
     private Color color;
     protected int moveCount;
+    int listIndex = -1;
+    // PositionState code, fixed by the concrete class and the color.
+    final byte code;
 
     public ChessPiece(Board board, Color color) {
         super(board);
         this.color = color;
+        code = PositionState.codeOf(this);
     }
 
     public Color getColor() {
@@ -34,6 +38,21 @@ public abstract class ChessPiece extends Piece {
         return ChessPosition.fromPosition(position);
     }
 
+    // PositionState square index, or -1 when the piece is not on the board.
+    public int square() {
+        return position == null ? -1 : PositionState.square(position.getRow(), position.getColumn());
+    }
+
+    // Marks every attacked square that is empty or holds an opponent piece.
+    protected void markAttacks(boolean[][] moves, long attacks) {
+        while (attacks != 0) {
+            int square = Long.numberOfTrailingZeros(attacks);
+            attacks &= attacks - 1;
+            ChessPiece p = (ChessPiece) getBoard().piece(square / 8, square % 8);
+            if (p == null || p.getColor() != color) moves[square / 8][square % 8] = true;
+        }
+    }
+
     public boolean isThereOpponentPiece(Position position) {
         ChessPiece p = (ChessPiece) getBoard().piece(position);
         return p != null && p.getColor() != color;
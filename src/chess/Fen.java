@@ -0,0 +1,140 @@
+package chess;
+
+// Forsyth-Edwards Notation for a PositionState. The halfmove clock is not tracked by ChessMatch and is written as 0.
+public class Fen {
+
+    public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    // Pieces on their initial squares, which ChessMatch marks as unmoved.
+    private static final String INITIAL = "rnbqkbnrpppppppp" + " ".repeat(32) + "PPPPPPPPRNBQKBNR";
+
+    private Fen() {
+    }
+
+    public static String format(PositionState state) {
+        StringBuilder sb = new StringBuilder(90);
+        for (int row = 0; row < 8; row++) {
+            int empty = 0;
+            for (int column = 0; column < 8; column++) {
+                byte code = state.squares[PositionState.square(row, column)];
+                if (code == PositionState.EMPTY) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) sb.append(empty);
+                empty = 0;
+                char type = PositionState.type(code);
+                sb.append(PositionState.color(code) == Color.WHITE ? type : Character.toLowerCase(type));
+            }
+            if (empty > 0) sb.append(empty);
+            if (row < 7) sb.append('/');
+        }
+        sb.append(state.currentPlayer == Color.WHITE ? " w " : " b ");
+
+        int length = sb.length();
+        if (canCastle(state, 7, 7)) sb.append('K');
+        if (canCastle(state, 7, 0)) sb.append('Q');
+        if (canCastle(state, 0, 7)) sb.append('k');
+        if (canCastle(state, 0, 0)) sb.append('q');
+        if (sb.length() == length) sb.append('-');
+
+        sb.append(' ');
+        int enPassant = enPassantTarget(state);
+        if (enPassant < 0) sb.append('-');
+        else sb.append((char) ('a' + enPassant % 8)).append(8 - enPassant / 8);
+
+        sb.append(" 0 ").append((state.turn + 1) / 2);
+        return sb.toString();
+    }
+
+    // Move counts are not part of FEN: a piece on its initial square counts as unmoved unless it is a king
+    // or rook without the matching castling right, every other piece as moved once. The halfmove clock is ignored.
+    public static PositionState parse(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 2) throw new ChessException("Invalid FEN: " + fen);
+        PositionState state = new PositionState();
+        int row = 0;
+        int column = 0;
+        for (char c : fields[0].toCharArray()) {
+            if (c == '/') {
+                if (column != 8) throw new ChessException("Invalid FEN rank: " + fen);
+                row++;
+                column = 0;
+            } else if (c >= '1' && c <= '8') {
+                column += c - '0';
+            } else {
+                int type = PositionState.TYPES.indexOf(Character.toUpperCase(c));
+                if (type < 0 || row > 7 || column > 7) throw new ChessException("Invalid FEN piece placement: " + fen);
+                int square = PositionState.square(row, column++);
+                state.squares[square] = (byte) (Character.isUpperCase(c) ? type + 1 : type + 7);
+                state.moveCounts[square] = INITIAL.charAt(square) == c ? 0 : 1;
+            }
+        }
+        if (row != 7 || column != 8) throw new ChessException("Invalid FEN piece placement: " + fen);
+
+        if (!fields[1].equals("w") && !fields[1].equals("b")) throw new ChessException("Invalid FEN side to move: " + fen);
+        state.currentPlayer = fields[1].equals("w") ? Color.WHITE : Color.BLACK;
+
+        String castling = fields.length > 2 ? fields[2] : "-";
+        revokeCastling(state, castling, 'K', 7, 7);
+        revokeCastling(state, castling, 'Q', 7, 0);
+        revokeCastling(state, castling, 'k', 0, 7);
+        revokeCastling(state, castling, 'q', 0, 0);
+
+        String enPassant = fields.length > 3 ? fields[3] : "-";
+        if (!enPassant.equals("-")) {
+            if (enPassant.length() != 2) throw new ChessException("Invalid FEN en passant square: " + fen);
+            int target = Move.square(new ChessPosition(enPassant.charAt(0), enPassant.charAt(1) - '0'));
+            state.enPassantSquare = state.currentPlayer == Color.WHITE ? target + 8 : target - 8;
+        }
+
+        if (fields.length > 4) moveNumber(fields[4], 0, "halfmove clock", fen);
+        int fullMove = fields.length > 5 ? moveNumber(fields[5], 1, "fullmove number", fen) : 1;
+        state.turn = 2 * fullMove - (state.currentPlayer == Color.WHITE ? 1 : 0);
+        int[] counts = new int[13];
+        for (byte code : state.squares) counts[code]++;
+        // testCheck needs the king of each side
+        if (counts[6] != 1 || counts[12] != 1) throw new ChessException("Invalid FEN, each side needs one king: " + fen);
+        for (int code = 1; code <= 12; code++) {
+            if (counts[code] > PieceList.CAPACITY) throw new ChessException("Invalid FEN, more than " + PieceList.CAPACITY + " pieces of one kind: " + fen);
+        }
+        state.check = new ChessMatch(state).testCheck(state.currentPlayer);
+        return state;
+    }
+
+    private static int moveNumber(String field, int min, String name, String fen) {
+        try {
+            int value = Integer.parseInt(field);
+            if (value >= min) return value;
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new ChessException("Invalid FEN " + name + ": " + fen);
+    }
+
+    private static void revokeCastling(PositionState state, String castling, char right, int row, int rookColumn) {
+        if (castling.indexOf(right) >= 0) return;
+        int king = PositionState.square(row, 4);
+        int rook = PositionState.square(row, rookColumn);
+        if (state.squares[rook] != PositionState.EMPTY) state.moveCounts[rook] = Math.max(1, state.moveCounts[rook]);
+        // The king keeps its castling status while the other side's right remains.
+        boolean otherSide = castling.indexOf(row == 7 ? (right == 'K' ? 'Q' : 'K') : (right == 'k' ? 'q' : 'k')) >= 0;
+        if (!otherSide && state.squares[king] != PositionState.EMPTY) state.moveCounts[king] = Math.max(1, state.moveCounts[king]);
+    }
+
+    static boolean canCastle(PositionState state, int row, int rookColumn) {
+        int king = PositionState.square(row, 4);
+        int rook = PositionState.square(row, rookColumn);
+        byte kingCode = (byte) (row == 7 ? 6 : 12);
+        byte rookCode = (byte) (row == 7 ? 4 : 10);
+        return state.squares[king] == kingCode && state.moveCounts[king] == 0
+                && state.squares[rook] == rookCode && state.moveCounts[rook] == 0;
+    }
+
+    // The square behind the pawn that just advanced two squares, or -1.
+    static int enPassantTarget(PositionState state) {
+        int square = state.enPassantSquare;
+        if (square < 0 || state.squares[square] == PositionState.EMPTY || PositionState.type(state.squares[square]) != 'P') return -1;
+        return PositionState.color(state.squares[square]) == Color.WHITE ? square + 8 : square - 8;
+    }
+}
@@ -0,0 +1,143 @@
+package chess;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded cache of the possible moves of the side to move, keyed by Zobrist hash. Open addressing over a
+// long[] key table split into buckets of WAYS slots: a position can only live in the bucket its hash picks,
+// and within a full bucket the slot to reuse is chosen with CLOCK (second chance). Buckets are guarded by
+// a fixed set of lock stripes, so matches whose positions fall on different stripes never contend, and a
+// lookup holds its stripe for WAYS key compares. Each entry holds one move bitmask per source square
+// (bit = row * 8 + column); cached arrays are never mutated.
+public class LegalMoveCache {
+
+    private static final int WAYS = 4;
+    private static final int STRIPES = 64;
+
+    private static final LegalMoveCache SHARED = new LegalMoveCache(Integer.getInteger("xadrez.moveCache.capacity", 1 << 14));
+
+    private final int capacity;
+    private final int bucketMask;
+    private final long[] keys;
+    private final long[][] masks;
+    private final boolean[] referenced;
+    private final byte[] hands;
+    private final Object[] locks = new Object[STRIPES];
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // capacity is rounded up to a power of two of at least WAYS slots.
+    public LegalMoveCache(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity cannot be less than 1");
+        this.capacity = Math.max(WAYS, Integer.highestOneBit(capacity - 1) << 1);
+        bucketMask = this.capacity / WAYS - 1;
+        keys = new long[this.capacity];
+        masks = new long[this.capacity][];
+        referenced = new boolean[this.capacity];
+        hands = new byte[this.capacity / WAYS];
+        for (int i = 0; i < STRIPES; i++) locks[i] = new Object();
+    }
+
+    public static LegalMoveCache shared() {
+        return SHARED;
+    }
+
+    public long[] get(long hash) {
+        int bucket = bucket(hash);
+        long[] found = null;
+        synchronized (locks[bucket & (STRIPES - 1)]) {
+            for (int slot = bucket * WAYS; slot < bucket * WAYS + WAYS; slot++) {
+                if (masks[slot] != null && keys[slot] == hash) {
+                    referenced[slot] = true;
+                    found = masks[slot];
+                    break;
+                }
+            }
+        }
+        if (found == null) misses.increment();
+        else hits.increment();
+        return found;
+    }
+
+    public void put(long hash, long[] moves) {
+        int bucket = bucket(hash);
+        int base = bucket * WAYS;
+        synchronized (locks[bucket & (STRIPES - 1)]) {
+            int free = -1;
+            for (int slot = base; slot < base + WAYS; slot++) {
+                if (masks[slot] == null) {
+                    if (free < 0) free = slot;
+                } else if (keys[slot] == hash) {
+                    masks[slot] = moves;
+                    referenced[slot] = true;
+                    return;
+                }
+            }
+            if (free >= 0) {
+                size.incrementAndGet();
+            } else {
+                int hand = hands[bucket];
+                while (referenced[base + hand]) {
+                    referenced[base + hand] = false;
+                    hand = (hand + 1) % WAYS;
+                }
+                free = base + hand;
+                hands[bucket] = (byte) ((hand + 1) % WAYS);
+            }
+            keys[free] = hash;
+            masks[free] = moves;
+            referenced[free] = false;
+        }
+    }
+
+    private int bucket(long hash) {
+        return (int) (hash ^ hash >>> 32) & bucketMask;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    public void clear() {
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            synchronized (locks[stripe]) {
+                for (int bucket = stripe; bucket <= bucketMask; bucket += STRIPES) {
+                    for (int slot = bucket * WAYS; slot < bucket * WAYS + WAYS; slot++) {
+                        if (masks[slot] != null) size.decrementAndGet();
+                        masks[slot] = null;
+                        referenced[slot] = false;
+                    }
+                    hands[bucket] = 0;
+                }
+            }
+        }
+        hits.reset();
+        misses.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LegalMoveCache[size=%d, capacity=%d, hits=%d, misses=%d, hitRate=%.3f]",
+                size(), capacity, getHits(), getMisses(), getHitRate());
+    }
+}
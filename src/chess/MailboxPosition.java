@@ -0,0 +1,485 @@
+package chess;
+
+import java.util.Arrays;
+
+// A position as 64 PositionState codes, for notation and other code that needs legal moves and check
+// detection without ChessMatch's board and piece objects. The rules are ChessMatch's: an unmoved king may
+// castle with an unmoved rook when it is not in check and the squares between them are empty, only the
+// square it lands on being tested for attack; an unmoved pawn may advance two squares; a pawn reaching the
+// last row promotes, to a queen when the move names no piece. Not thread-safe; reuse one per thread.
+public class MailboxPosition {
+
+    private static final int[][] KNIGHT_TARGETS = new int[PositionState.SQUARES][];
+    private static final int[][] KING_TARGETS = new int[PositionState.SQUARES][];
+    // Squares along each direction from a square, nearest first: 0..3 orthogonal, 4..7 diagonal.
+    private static final int[][][] RAYS = new int[PositionState.SQUARES][8][];
+    private static final int[] ROW_STEPS = {-1, 1, 0, 0, -1, -1, 1, 1};
+    private static final int[] COLUMN_STEPS = {0, 0, -1, 1, -1, 1, -1, 1};
+
+    static {
+        int[][] knight = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+        for (int square = 0; square < PositionState.SQUARES; square++) {
+            int row = square / 8;
+            int column = square % 8;
+            KNIGHT_TARGETS[square] = targets(row, column, knight);
+            int[][] king = new int[8][];
+            for (int direction = 0; direction < 8; direction++) {
+                king[direction] = new int[] {ROW_STEPS[direction], COLUMN_STEPS[direction]};
+                int length = 0;
+                int[] ray = new int[7];
+                for (int r = row + ROW_STEPS[direction], c = column + COLUMN_STEPS[direction]; onBoard(r, c); r += ROW_STEPS[direction], c += COLUMN_STEPS[direction]) {
+                    ray[length++] = PositionState.square(r, c);
+                }
+                RAYS[square][direction] = Arrays.copyOf(ray, length);
+            }
+            KING_TARGETS[square] = targets(row, column, king);
+        }
+    }
+
+    private final byte[] squares = new byte[PositionState.SQUARES];
+    private final PositionState state = new PositionState();
+    private long unmoved;
+    private boolean white;
+    private boolean check;
+    private int enPassantSquare = -1;
+    private int whiteKing = -1;
+    private int blackKing = -1;
+    private int turn;
+    private MailboxPosition reply;
+    private int[] replies;
+
+    public void load(ChessMatch match) {
+        match.saveState(state);
+        load(state);
+    }
+
+    // A checkmated state keeps the mating side to move, as ChessMatch leaves it; callers test getCheckMate first.
+    public void load(PositionState position) {
+        unmoved = 0;
+        whiteKing = -1;
+        blackKing = -1;
+        for (int square = 0; square < PositionState.SQUARES; square++) {
+            byte code = position.squares[square];
+            squares[square] = code;
+            if (code != PositionState.EMPTY && position.moveCounts[square] == 0) unmoved |= 1L << square;
+            if (code == PieceLists.KING) whiteKing = square;
+            else if (code == PieceLists.KING + 6) blackKing = square;
+        }
+        white = position.currentPlayer == Color.WHITE;
+        enPassantSquare = position.enPassantSquare;
+        turn = position.turn;
+        check = isAttacked(king(white), !white);
+    }
+
+    // Writes the position back as a PositionState; a moved piece gets a move count of 1.
+    public void saveState(PositionState position) {
+        for (int square = 0; square < PositionState.SQUARES; square++) {
+            position.squares[square] = squares[square];
+            position.moveCounts[square] = squares[square] == PositionState.EMPTY || isUnmoved(square) ? 0 : 1;
+        }
+        position.turn = turn;
+        position.currentPlayer = white ? Color.WHITE : Color.BLACK;
+        position.check = check;
+        position.checkMate = false;
+        position.enPassantSquare = enPassantSquare;
+        position.promotedSquare = -1;
+    }
+
+    // Zobrist.hash of the position, the key ChessMatch.getPositionHash gives for the same position.
+    public long hash() {
+        long hash = 0;
+        for (int square = 0; square < PositionState.SQUARES; square++) {
+            byte code = squares[square];
+            if (code == PositionState.EMPTY) continue;
+            hash ^= Zobrist.piece(code, square);
+            if (isUnmoved(square)) hash ^= Zobrist.unmoved(square);
+        }
+        if (!white) hash ^= Zobrist.blackToMove();
+        if (check) hash ^= Zobrist.check();
+        if (enPassantSquare >= 0) hash ^= Zobrist.enPassant(enPassantSquare);
+        return hash;
+    }
+
+    public void copyFrom(MailboxPosition other) {
+        System.arraycopy(other.squares, 0, squares, 0, PositionState.SQUARES);
+        unmoved = other.unmoved;
+        white = other.white;
+        check = other.check;
+        enPassantSquare = other.enPassantSquare;
+        whiteKing = other.whiteKing;
+        blackKing = other.blackKing;
+        turn = other.turn;
+    }
+
+    public byte getPieceCode(int square) {
+        return squares[square];
+    }
+
+    public boolean isWhiteToMove() {
+        return white;
+    }
+
+    public boolean getCheck() {
+        return check;
+    }
+
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    // The square of the side's king, -1 when it has none.
+    public int getKingSquare(boolean whiteKing) {
+        return king(whiteKing);
+    }
+
+    public boolean isUnmoved(int square) {
+        return (unmoved & 1L << square) != 0;
+    }
+
+    // Moves of the side to move that do not leave its king attacked, in the Move encoding of
+    // ChessMatch.generateMoves (one move per promotion piece); returns the count.
+    public int generateLegalMoves(int[] moves) {
+        int count = generateMoves(moves);
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            if (isLegal(moves[i])) moves[legal++] = moves[i];
+        }
+        return legal;
+    }
+
+    // Moves of the side to move without testing for self-check; returns the count.
+    public int generateMoves(int[] moves) {
+        int count = 0;
+        for (int square = 0; square < PositionState.SQUARES; square++) {
+            byte code = squares[square];
+            if (code == PositionState.EMPTY || isWhite(code) != white) continue;
+            int type = white ? code : code - 6;
+            switch (type) {
+                case PieceLists.PAWN -> count = pawnMoves(square, moves, count);
+                case PieceLists.KNIGHT -> count = stepMoves(square, KNIGHT_TARGETS[square], moves, count);
+                case PieceLists.BISHOP -> count = slideMoves(square, 4, 8, moves, count);
+                case PieceLists.ROOK -> count = slideMoves(square, 0, 4, moves, count);
+                case PieceLists.QUEEN -> count = slideMoves(square, 0, 8, moves, count);
+                default -> count = kingMoves(square, moves, count);
+            }
+        }
+        return count;
+    }
+
+    private int pawnMoves(int square, int[] moves, int count) {
+        int step = white ? -8 : 8;
+        int column = square % 8;
+        int one = square + step;
+        if (one < 0 || one >= PositionState.SQUARES) return count;
+        if (squares[one] == PositionState.EMPTY) {
+            count = pawnMove(square, one, moves, count);
+            int two = one + step;
+            if (isUnmoved(square) && two >= 0 && two < PositionState.SQUARES && squares[two] == PositionState.EMPTY) {
+                count = pawnMove(square, two, moves, count);
+            }
+        }
+        if (column > 0 && isOpponent(squares[one - 1])) count = pawnMove(square, one - 1, moves, count);
+        if (column < 7 && isOpponent(squares[one + 1])) count = pawnMove(square, one + 1, moves, count);
+        // #specialmove en passant: the target is only added when it was not already a capture
+        if (square / 8 == (white ? 3 : 4) && enPassantSquare >= 0) {
+            if (column > 0 && enPassantSquare == square - 1 && isOpponent(squares[square - 1]) && !isOpponent(squares[one - 1])) {
+                count = pawnMove(square, one - 1, moves, count);
+            }
+            if (column < 7 && enPassantSquare == square + 1 && isOpponent(squares[square + 1]) && !isOpponent(squares[one + 1])) {
+                count = pawnMove(square, one + 1, moves, count);
+            }
+        }
+        return count;
+    }
+
+    private static int pawnMove(int source, int target, int[] moves, int count) {
+        if (target < 8 || target >= 56) {
+            for (byte promotion = PieceLists.QUEEN; promotion >= PieceLists.KNIGHT; promotion--) {
+                moves[count++] = Move.of(source, target, promotion);
+            }
+        } else {
+            moves[count++] = Move.of(source, target);
+        }
+        return count;
+    }
+
+    private int stepMoves(int square, int[] targets, int[] moves, int count) {
+        for (int target : targets) {
+            if (squares[target] == PositionState.EMPTY || isOpponent(squares[target])) moves[count++] = Move.of(square, target);
+        }
+        return count;
+    }
+
+    private int slideMoves(int square, int fromDirection, int toDirection, int[] moves, int count) {
+        for (int direction = fromDirection; direction < toDirection; direction++) {
+            for (int target : RAYS[square][direction]) {
+                byte code = squares[target];
+                if (code == PositionState.EMPTY) {
+                    moves[count++] = Move.of(square, target);
+                    continue;
+                }
+                if (isOpponent(code)) moves[count++] = Move.of(square, target);
+                break;
+            }
+        }
+        return count;
+    }
+
+    private int kingMoves(int square, int[] moves, int count) {
+        count = stepMoves(square, KING_TARGETS[square], moves, count);
+        // #specialmove castling
+        if (!isUnmoved(square) || check) return count;
+        int column = square % 8;
+        byte rook = white ? PieceLists.ROOK : PieceLists.ROOK + 6;
+        if (column + 3 < 8 && squares[square + 3] == rook && isUnmoved(square + 3)
+                && squares[square + 1] == PositionState.EMPTY && squares[square + 2] == PositionState.EMPTY) {
+            moves[count++] = Move.of(square, square + 2);
+        }
+        if (column - 4 >= 0 && squares[square - 4] == rook && isUnmoved(square - 4) && squares[square - 1] == PositionState.EMPTY
+                && squares[square - 2] == PositionState.EMPTY && squares[square - 3] == PositionState.EMPTY) {
+            moves[count++] = Move.of(square, square - 2);
+        }
+        return count;
+    }
+
+    // Whether a generated move leaves the mover's king safe. The move is applied to the squares and taken
+    // back again; only the king's attackers are looked at.
+    public boolean isLegal(int move) {
+        int source = Move.source(move);
+        int target = Move.target(move);
+        byte piece = squares[source];
+        byte captured = squares[target];
+        int capturedSquare = capturedSquare(piece, source, target);
+        byte enPassant = capturedSquare == target ? PositionState.EMPTY : squares[capturedSquare];
+        int rookSource = rookSource(piece, source, target);
+        int rookTarget = (source + target) / 2;
+
+        squares[target] = piece;
+        squares[source] = PositionState.EMPTY;
+        if (capturedSquare != target) squares[capturedSquare] = PositionState.EMPTY;
+        if (rookSource >= 0) {
+            squares[rookTarget] = squares[rookSource];
+            squares[rookSource] = PositionState.EMPTY;
+        }
+        int king = isKing(piece) ? target : king(white);
+        boolean safe = !isAttacked(king, !white);
+        if (rookSource >= 0) {
+            squares[rookSource] = squares[rookTarget];
+            squares[rookTarget] = PositionState.EMPTY;
+        }
+        if (capturedSquare != target) squares[capturedSquare] = enPassant;
+        squares[source] = piece;
+        squares[target] = captured;
+        return safe;
+    }
+
+    // Whether a legal move checks the opponent's king, found from the squares the move empties and fills
+    // without playing it: a direct check by the piece that lands (or the castling rook), or a discovered
+    // check along a line through an emptied square.
+    public boolean givesCheck(int move) {
+        int king = king(!white);
+        if (king < 0) return false;
+        int source = Move.source(move);
+        int target = Move.target(move);
+        byte piece = squares[source];
+        int capturedSquare = capturedSquare(piece, source, target);
+        int rookSource = rookSource(piece, source, target);
+        int rookTarget = (source + target) / 2;
+        int emptied = capturedSquare == target ? -1 : capturedSquare;
+
+        if (rookSource >= 0) {
+            return attacksAfter(white ? PieceLists.ROOK : PieceLists.ROOK + 6, rookTarget, king, source, rookSource, emptied, target, rookTarget)
+                    || discovers(source, king, source, rookSource, emptied, target, rookTarget)
+                    || discovers(rookSource, king, source, rookSource, emptied, target, rookTarget);
+        }
+        byte landed = piece;
+        if (isPawn(piece) && (target < 8 || target >= 56)) {
+            byte promotion = Move.promotion(move) == 0 ? PieceLists.QUEEN : Move.promotion(move);
+            landed = (byte) (white ? promotion : promotion + 6);
+        }
+        return attacksAfter(landed, target, king, source, -1, emptied, target, -1)
+                || discovers(source, king, source, -1, emptied, target, -1)
+                || emptied >= 0 && discovers(emptied, king, source, -1, emptied, target, -1);
+    }
+
+    // Whether the mover's piece standing on square attacks king once the move has emptied and filled the given squares.
+    private boolean attacksAfter(byte piece, int square, int king, int emptied1, int emptied2, int emptied3, int filled1, int filled2) {
+        int type = white ? piece : piece - 6;
+        int rowDelta = king / 8 - square / 8;
+        int columnDelta = king % 8 - square % 8;
+        return switch (type) {
+            case PieceLists.PAWN -> rowDelta == (white ? -1 : 1) && Math.abs(columnDelta) == 1;
+            case PieceLists.KNIGHT -> Math.abs(rowDelta * columnDelta) == 2;
+            case PieceLists.KING -> Math.max(Math.abs(rowDelta), Math.abs(columnDelta)) == 1;
+            default -> slides(type, square, king, emptied1, emptied2, emptied3, filled1, filled2);
+        };
+    }
+
+    private boolean slides(int type, int square, int king, int emptied1, int emptied2, int emptied3, int filled1, int filled2) {
+        int direction = direction(square, king);
+        if (direction < 0 || type == PieceLists.BISHOP && direction < 4 || type == PieceLists.ROOK && direction >= 4) return false;
+        for (int between : RAYS[square][direction]) {
+            if (between == king) return true;
+            if (isOccupiedAfter(between, emptied1, emptied2, emptied3, filled1, filled2)) return false;
+        }
+        return false;
+    }
+
+    // Whether emptying square opens a line from one of the mover's sliders to king.
+    private boolean discovers(int square, int king, int emptied1, int emptied2, int emptied3, int filled1, int filled2) {
+        int direction = direction(king, square);
+        if (direction < 0) return false;
+        for (int along : RAYS[king][direction]) {
+            if (!isOccupiedAfter(along, emptied1, emptied2, emptied3, filled1, filled2)) continue;
+            // a piece landing on the line blocks it; a direct check from there is found by attacksAfter
+            if (along == filled1 || along == filled2) return false;
+            byte code = squares[along];
+            if (isWhite(code) != white) return false;
+            int type = white ? code : code - 6;
+            return type == PieceLists.QUEEN || type == (direction < 4 ? PieceLists.ROOK : PieceLists.BISHOP);
+        }
+        return false;
+    }
+
+    private boolean isOccupiedAfter(int square, int emptied1, int emptied2, int emptied3, int filled1, int filled2) {
+        if (square == filled1 || square == filled2) return true;
+        if (square == emptied1 || square == emptied2 || square == emptied3) return false;
+        return squares[square] != PositionState.EMPTY;
+    }
+
+    // The direction index of the line from one square to another, or -1 when they share no line.
+    private static int direction(int from, int to) {
+        int rowDelta = to / 8 - from / 8;
+        int columnDelta = to % 8 - from % 8;
+        if (from == to || rowDelta != 0 && columnDelta != 0 && Math.abs(rowDelta) != Math.abs(columnDelta)) return -1;
+        int rowStep = Integer.signum(rowDelta);
+        int columnStep = Integer.signum(columnDelta);
+        for (int direction = 0; direction < 8; direction++) {
+            if (ROW_STEPS[direction] == rowStep && COLUMN_STEPS[direction] == columnStep) return direction;
+        }
+        return -1;
+    }
+
+    // Whether a legal move mates: it checks and leaves the opponent no legal reply, looked for on a copy.
+    public boolean givesMate(int move) {
+        if (!givesCheck(move)) return false;
+        if (reply == null) {
+            reply = new MailboxPosition();
+            replies = new int[256];
+        }
+        reply.copyFrom(this);
+        reply.play(move);
+        return reply.generateLegalMoves(replies) == 0;
+    }
+
+    // Plays a legal move as ChessMatch.performChessMove does and passes the turn, also after a mate.
+    public void play(int move) {
+        int source = Move.source(move);
+        int target = Move.target(move);
+        byte piece = squares[source];
+        int capturedSquare = capturedSquare(piece, source, target);
+        int rookSource = rookSource(piece, source, target);
+
+        squares[target] = piece;
+        squares[source] = PositionState.EMPTY;
+        unmoved &= ~(1L << source | 1L << target);
+        if (capturedSquare != target) squares[capturedSquare] = PositionState.EMPTY;
+        if (rookSource >= 0) {
+            int rookTarget = (source + target) / 2;
+            squares[rookTarget] = squares[rookSource];
+            squares[rookSource] = PositionState.EMPTY;
+            unmoved &= ~(1L << rookSource);
+        }
+        if (isKing(piece)) {
+            if (white) whiteKing = target;
+            else blackKing = target;
+        }
+        // #specialmove promotion
+        if (isPawn(piece) && (target < 8 || target >= 56)) {
+            byte promotion = Move.promotion(move) == 0 ? PieceLists.QUEEN : Move.promotion(move);
+            squares[target] = (byte) (white ? promotion : promotion + 6);
+        }
+        enPassantSquare = isPawn(piece) && Math.abs(target - source) == 16 ? target : -1;
+        white = !white;
+        turn++;
+        check = isAttacked(king(white), !white);
+    }
+
+    // Whether a piece of the given side attacks square.
+    public boolean isAttacked(int square, boolean byWhite) {
+        if (square < 0) return false;
+        int offset = byWhite ? 0 : 6;
+        int row = square / 8;
+        int column = square % 8;
+        int pawnRow = byWhite ? row + 1 : row - 1;
+        if (pawnRow >= 0 && pawnRow < 8) {
+            byte pawn = (byte) (PieceLists.PAWN + offset);
+            if (column > 0 && squares[PositionState.square(pawnRow, column - 1)] == pawn) return true;
+            if (column < 7 && squares[PositionState.square(pawnRow, column + 1)] == pawn) return true;
+        }
+        byte knight = (byte) (PieceLists.KNIGHT + offset);
+        for (int from : KNIGHT_TARGETS[square]) {
+            if (squares[from] == knight) return true;
+        }
+        byte king = (byte) (PieceLists.KING + offset);
+        for (int from : KING_TARGETS[square]) {
+            if (squares[from] == king) return true;
+        }
+        byte queen = (byte) (PieceLists.QUEEN + offset);
+        for (int direction = 0; direction < 8; direction++) {
+            byte slider = (byte) ((direction < 4 ? PieceLists.ROOK : PieceLists.BISHOP) + offset);
+            for (int from : RAYS[square][direction]) {
+                byte code = squares[from];
+                if (code == PositionState.EMPTY) continue;
+                if (code == slider || code == queen) return true;
+                break;
+            }
+        }
+        return false;
+    }
+
+    // The square of the piece a move takes: behind the target for en passant, otherwise the target.
+    private int capturedSquare(byte piece, int source, int target) {
+        if (!isPawn(piece) || source % 8 == target % 8 || squares[target] != PositionState.EMPTY) return target;
+        return isWhite(piece) ? target + 8 : target - 8;
+    }
+
+    // The rook's square for a castling move, otherwise -1.
+    private static int rookSource(byte piece, int source, int target) {
+        if (!isKing(piece) || Math.abs(target - source) != 2) return -1;
+        return target > source ? source + 3 : source - 4;
+    }
+
+    private int king(boolean whiteKing) {
+        return whiteKing ? this.whiteKing : blackKing;
+    }
+
+    private boolean isOpponent(byte code) {
+        return code != PositionState.EMPTY && isWhite(code) != white;
+    }
+
+    private static boolean isWhite(byte code) {
+        return code <= 6;
+    }
+
+    private static boolean isPawn(byte code) {
+        return code == PieceLists.PAWN || code == PieceLists.PAWN + 6;
+    }
+
+    private static boolean isKing(byte code) {
+        return code == PieceLists.KING || code == PieceLists.KING + 6;
+    }
+
+    private static int[] targets(int row, int column, int[][] steps) {
+        int[] targets = new int[steps.length];
+        int count = 0;
+        for (int[] step : steps) {
+            if (onBoard(row + step[0], column + step[1])) targets[count++] = PositionState.square(row + step[0], column + step[1]);
+        }
+        return Arrays.copyOf(targets, count);
+    }
+
+    private static boolean onBoard(int row, int column) {
+        return row >= 0 && row < 8 && column >= 0 && column < 8;
+    }
+}
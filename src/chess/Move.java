@@ -0,0 +1,81 @@
+package chess;
+
+// A move packed in an int: source square in bits 0-5, target square in bits 6-11 and, for promotions,
+// the piece type (PieceLists.KNIGHT..QUEEN) in bits 12-14. Squares are PositionState indexes; 0 is no move.
+public class Move {
+
+    public static final int NONE = 0;
+
+    private Move() {
+    }
+
+    public static int of(int source, int target) {
+        return source | target << 6;
+    }
+
+    public static int of(int source, int target, byte promotion) {
+        return source | target << 6 | promotion << 12;
+    }
+
+    public static int source(int move) {
+        return move & 63;
+    }
+
+    public static int target(int move) {
+        return move >>> 6 & 63;
+    }
+
+    public static byte promotion(int move) {
+        return (byte) (move >>> 12 & 7);
+    }
+
+    public static ChessPosition position(int square) {
+        return new ChessPosition((char) ('a' + square % 8), 8 - square / 8);
+    }
+
+    public static int square(ChessPosition position) {
+        return PositionState.square(8 - position.getRow(), position.getColumn() - 'a');
+    }
+
+    public static String squareName(int square) {
+        return "" + (char) ('a' + square % 8) + (8 - square / 8);
+    }
+
+    public static void appendSquare(int square, StringBuilder sb) {
+        sb.append((char) ('a' + square % 8)).append((char) ('8' - square / 8));
+    }
+
+    public static String toUci(int move) {
+        StringBuilder sb = new StringBuilder(5);
+        appendUci(move, sb);
+        return sb.toString();
+    }
+
+    public static void appendUci(int move, StringBuilder sb) {
+        if (move == NONE) {
+            sb.append("0000");
+            return;
+        }
+        appendSquare(source(move), sb);
+        appendSquare(target(move), sb);
+        byte promotion = promotion(move);
+        if (promotion != 0) sb.append(Character.toLowerCase(PositionState.TYPES.charAt(promotion - 1)));
+    }
+
+    // Reads the characters in place, so a move can be parsed from a line or buffer without a substring.
+    public static int fromUci(CharSequence uci) {
+        if (uci.length() < 4 || uci.length() > 5) throw new ChessException("Invalid UCI move: " + uci);
+        int source = square(uci.charAt(0), uci.charAt(1));
+        int target = square(uci.charAt(2), uci.charAt(3));
+        if (uci.length() == 4) return of(source, target);
+        int type = "nbrq".indexOf(uci.charAt(4));
+        if (type < 0) throw new ChessException("Invalid promotion in UCI move: " + uci);
+        return of(source, target, (byte) (PieceLists.KNIGHT + type));
+    }
+
+    // The square named by a file letter and a rank digit.
+    static int square(char file, char rank) {
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') throw new ChessException("Invalid square: " + file + rank);
+        return PositionState.square('8' - rank, file - 'a');
+    }
+}
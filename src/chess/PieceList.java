@@ -0,0 +1,36 @@
+package chess;
+
+// Fixed-capacity list of the pieces of one colour and type. Each piece remembers its slot,
+// so add and remove are O(1) and iteration is a plain array walk.
+public class PieceList {
+
+    // Two pieces of a kind plus eight promoted pawns.
+    public static final int CAPACITY = 10;
+
+    private final ChessPiece[] pieces = new ChessPiece[CAPACITY];
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public ChessPiece get(int index) {
+        return pieces[index];
+    }
+
+    void add(ChessPiece piece) {
+        if (size == CAPACITY) throw new IllegalStateException("Too many pieces of type " + piece);
+        piece.listIndex = size;
+        pieces[size++] = piece;
+    }
+
+    void remove(ChessPiece piece) {
+        int index = piece.listIndex;
+        if (index < 0 || index >= size || pieces[index] != piece) throw new IllegalStateException("Piece is not in the list");
+        ChessPiece last = pieces[--size];
+        pieces[index] = last;
+        last.listIndex = index;
+        pieces[size] = null;
+        piece.listIndex = -1;
+    }
+}
@@ -0,0 +1,46 @@
+package chess;
+
+// Pieces on the board, indexed by PositionState piece code (colour and type).
+public class PieceLists {
+
+    public static final byte PAWN = 1;
+    public static final byte KNIGHT = 2;
+    public static final byte BISHOP = 3;
+    public static final byte ROOK = 4;
+    public static final byte QUEEN = 5;
+    public static final byte KING = 6;
+
+    private final PieceList[] lists = new PieceList[13];
+
+    public PieceLists() {
+        for (int code = 1; code < lists.length; code++) {
+            lists[code] = new PieceList();
+        }
+    }
+
+    public static byte code(Color color, byte type) {
+        return (byte) (color == Color.WHITE ? type : type + 6);
+    }
+
+    public PieceList get(Color color, byte type) {
+        return lists[code(color, type)];
+    }
+
+    // The list of a PositionState piece code, 1 to 12.
+    PieceList get(int code) {
+        return lists[code];
+    }
+
+    public ChessPiece king(Color color) {
+        PieceList list = get(color, KING);
+        return list.size() == 0 ? null : list.get(0);
+    }
+
+    void add(ChessPiece piece) {
+        lists[PositionState.code(piece)].add(piece);
+    }
+
+    void remove(ChessPiece piece) {
+        lists[PositionState.code(piece)].remove(piece);
+    }
+}
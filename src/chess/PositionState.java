@@ -0,0 +1,201 @@
+package chess;
+
+import chess.pieces.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Flat primitive snapshot of a ChessMatch: a few hundred bytes that copy with System.arraycopy,
+// so sibling positions can be explored on independent matches without sharing piece objects.
+public class PositionState {
+
+    public static final int SQUARES = 64;
+    // Serialized size used by writeTo/readFrom.
+    public static final int BYTES = SQUARES + SQUARES * Integer.BYTES + Integer.BYTES + 4;
+    private static final int MAX_COMPACT_BYTES = Long.BYTES + SQUARES / 2 + (SQUARES + 1) * 5 + 3;
+
+    public static final byte EMPTY = 0;
+    public static final String TYPES = "PNBRQK";
+
+    // 0 = empty, 1..6 = white P N B R Q K, 7..12 = black P N B R Q K; index = row * 8 + column
+    final byte[] squares = new byte[SQUARES];
+    final int[] moveCounts = new int[SQUARES];
+
+    int turn;
+    Color currentPlayer;
+    boolean check;
+    boolean checkMate;
+    int enPassantSquare = -1;
+    int promotedSquare = -1;
+
+    public PositionState copy() {
+        PositionState state = new PositionState();
+        state.copyFrom(this);
+        return state;
+    }
+
+    public void copyFrom(PositionState other) {
+        System.arraycopy(other.squares, 0, squares, 0, SQUARES);
+        System.arraycopy(other.moveCounts, 0, moveCounts, 0, SQUARES);
+        turn = other.turn;
+        currentPlayer = other.currentPlayer;
+        check = other.check;
+        checkMate = other.checkMate;
+        enPassantSquare = other.enPassantSquare;
+        promotedSquare = other.promotedSquare;
+    }
+
+    public void writeTo(ByteBuffer buffer) {
+        buffer.put(squares);
+        for (int moveCount : moveCounts) buffer.putInt(moveCount);
+        buffer.putInt(turn);
+        buffer.put((byte) currentPlayer.ordinal());
+        buffer.put((byte) ((check ? 1 : 0) | (checkMate ? 2 : 0)));
+        buffer.put((byte) enPassantSquare);
+        buffer.put((byte) promotedSquare);
+    }
+
+    public static PositionState readFrom(ByteBuffer buffer) {
+        PositionState state = new PositionState();
+        buffer.get(state.squares);
+        for (int i = 0; i < SQUARES; i++) state.moveCounts[i] = buffer.getInt();
+        state.turn = buffer.getInt();
+        state.currentPlayer = Color.values()[buffer.get()];
+        byte flags = buffer.get();
+        state.check = (flags & 1) != 0;
+        state.checkMate = (flags & 2) != 0;
+        state.enPassantSquare = buffer.get();
+        state.promotedSquare = buffer.get();
+        return state;
+    }
+
+    // Variable-length form for holding many idle positions: an occupancy bitboard, a nibble per piece
+    // code, a varint move count per piece, then the turn and flags; typically 50 to 70 bytes.
+    public byte[] toCompactBytes() {
+        byte[] bytes = new byte[MAX_COMPACT_BYTES];
+        long occupancy = 0;
+        for (int square = 0; square < SQUARES; square++) {
+            if (squares[square] != EMPTY) occupancy |= 1L << square;
+        }
+        int p = 0;
+        for (int i = 0; i < Long.BYTES; i++) bytes[p++] = (byte) (occupancy >>> (8 * i));
+        int pieces = 0;
+        for (int square = 0; square < SQUARES; square++) {
+            if (squares[square] == EMPTY) continue;
+            if ((pieces++ & 1) == 0) bytes[p] = squares[square];
+            else bytes[p++] |= (byte) (squares[square] << 4);
+        }
+        if ((pieces & 1) != 0) p++;
+        for (int square = 0; square < SQUARES; square++) {
+            if (squares[square] != EMPTY) p = putVarint(bytes, p, moveCounts[square]);
+        }
+        p = putVarint(bytes, p, turn);
+        bytes[p++] = (byte) (currentPlayer.ordinal() | (check ? 2 : 0) | (checkMate ? 4 : 0));
+        bytes[p++] = (byte) enPassantSquare;
+        bytes[p++] = (byte) promotedSquare;
+        return Arrays.copyOf(bytes, p);
+    }
+
+    public static PositionState fromCompactBytes(byte[] bytes) {
+        PositionState state = new PositionState();
+        long occupancy = 0;
+        for (int i = 0; i < Long.BYTES; i++) occupancy |= (bytes[i] & 0xFFL) << (8 * i);
+        int p = Long.BYTES;
+        int pieces = 0;
+        for (long o = occupancy; o != 0; o &= o - 1) {
+            int square = Long.numberOfTrailingZeros(o);
+            state.squares[square] = (byte) ((pieces++ & 1) == 0 ? bytes[p] & 0x0F : (bytes[p++] >> 4) & 0x0F);
+        }
+        if ((pieces & 1) != 0) p++;
+        int[] position = {p};
+        for (long o = occupancy; o != 0; o &= o - 1) {
+            state.moveCounts[Long.numberOfTrailingZeros(o)] = getVarint(bytes, position);
+        }
+        state.turn = getVarint(bytes, position);
+        p = position[0];
+        byte flags = bytes[p++];
+        state.currentPlayer = Color.values()[flags & 1];
+        state.check = (flags & 2) != 0;
+        state.checkMate = (flags & 4) != 0;
+        state.enPassantSquare = bytes[p++];
+        state.promotedSquare = bytes[p];
+        return state;
+    }
+
+    private static int putVarint(byte[] bytes, int p, int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[p++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        bytes[p++] = (byte) value;
+        return p;
+    }
+
+    private static int getVarint(byte[] bytes, int[] position) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = bytes[position[0]++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    public byte getSquare(int square) {
+        return squares[square];
+    }
+
+    public int getMoveCount(int square) {
+        return moveCounts[square];
+    }
+
+    public int getTurn() {
+        return turn;
+    }
+
+    public Color getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    public boolean getCheck() {
+        return check;
+    }
+
+    public boolean getCheckMate() {
+        return checkMate;
+    }
+
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public int getPromotedSquare() {
+        return promotedSquare;
+    }
+
+    public static byte code(ChessPiece piece) {
+        return piece == null ? EMPTY : piece.code;
+    }
+
+    static byte codeOf(ChessPiece piece) {
+        int type;
+        if (piece instanceof Pawn) type = 1;
+        else if (piece instanceof Knight) type = 2;
+        else if (piece instanceof Bishop) type = 3;
+        else if (piece instanceof Rook) type = 4;
+        else if (piece instanceof Queen) type = 5;
+        else type = 6;
+        return (byte) (piece.getColor() == Color.WHITE ? type : type + 6);
+    }
+
+    public static Color color(byte code) {
+        return code <= 6 ? Color.WHITE : Color.BLACK;
+    }
+
+    public static char type(byte code) {
+        return TYPES.charAt((code - 1) % 6);
+    }
+
+    public static int square(int row, int column) {
+        return row * 8 + column;
+    }
+}
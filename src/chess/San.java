@@ -0,0 +1,24 @@
+package chess;
+
+// Standard Algebraic Notation for Move ints, resolved against the legal moves of a ChessMatch through a
+// SanCodec per thread; code that formats or parses whole games should keep its own SanCodec instead.
+public class San {
+
+    private static final ThreadLocal<SanCodec> CODECS = ThreadLocal.withInitial(SanCodec::new);
+
+    private San() {
+    }
+
+    public static String format(ChessMatch match, int move) {
+        SanCodec codec = CODECS.get();
+        codec.load(match);
+        return codec.format(move);
+    }
+
+    // Accepts check, mate and annotation suffixes, optional capture marks and "0-0" castling.
+    public static int parse(ChessMatch match, String san) {
+        SanCodec codec = CODECS.get();
+        codec.load(match);
+        return codec.parse(san);
+    }
+}
@@ -0,0 +1,180 @@
+package chess;
+
+// Standard Algebraic Notation for the moves of one game, formatted and parsed against the legal moves of a
+// MailboxPosition that the codec keeps and advances. Disambiguation comes from the legal move list, check
+// from MailboxPosition.givesCheck and mate from a search for replies on a copy, so no ChessMatch move is
+// made or taken back; nothing is allocated per move. Not thread-safe; reuse one per thread.
+public class SanCodec {
+
+    private final MailboxPosition position = new MailboxPosition();
+    private final int[] legal = new int[256];
+    private int count = -1;
+    private final char[] wanted = new char[16];
+
+    public void load(ChessMatch match) {
+        position.load(match);
+        count = -1;
+    }
+
+    public void load(PositionState state) {
+        position.load(state);
+        count = -1;
+    }
+
+    public MailboxPosition getPosition() {
+        return position;
+    }
+
+    // Plays a legal move, or throws ChessException; the turn passes also after a mate.
+    public void play(int move) {
+        requireLegal(move);
+        position.play(move);
+        count = -1;
+    }
+
+    public String format(int move) {
+        StringBuilder sb = new StringBuilder(8);
+        append(move, sb);
+        return sb.toString();
+    }
+
+    // Appends the SAN of a legal move, with its + or # suffix; throws ChessException for any other move.
+    public void append(int move, StringBuilder sb) {
+        requireLegal(move);
+        int source = Move.source(move);
+        int target = Move.target(move);
+        byte piece = position.getPieceCode(source);
+        char type = PositionState.type(piece);
+        boolean capture = position.getPieceCode(target) != PositionState.EMPTY || type == 'P' && source % 8 != target % 8;
+
+        if (type == 'K' && Math.abs(source - target) == 2) {
+            sb.append(target > source ? "O-O" : "O-O-O");
+        } else {
+            if (type == 'P') {
+                if (capture) sb.append((char) ('a' + source % 8));
+            } else {
+                sb.append(type);
+                appendDisambiguation(move, piece, sb);
+            }
+            if (capture) sb.append('x');
+            Move.appendSquare(target, sb);
+            byte promotion = Move.promotion(move);
+            if (promotion != 0) sb.append('=').append(PositionState.TYPES.charAt(promotion - 1));
+        }
+        if (position.givesCheck(move)) sb.append(position.givesMate(move) ? '#' : '+');
+    }
+
+    // File, else rank, else square of the source when another piece of the same kind can reach the target.
+    private void appendDisambiguation(int move, byte piece, StringBuilder sb) {
+        int source = Move.source(move);
+        int target = Move.target(move);
+        boolean ambiguous = false;
+        boolean sameFile = false;
+        boolean sameRank = false;
+        for (int i = 0; i < count; i++) {
+            int other = legal[i];
+            if (Move.target(other) != target || Move.source(other) == source) continue;
+            if (position.getPieceCode(Move.source(other)) != piece) continue;
+            ambiguous = true;
+            if (Move.source(other) % 8 == source % 8) sameFile = true;
+            if (Move.source(other) / 8 == source / 8) sameRank = true;
+        }
+        if (!ambiguous) return;
+        if (!sameFile) sb.append((char) ('a' + source % 8));
+        else if (!sameRank) sb.append((char) ('8' - source / 8));
+        else Move.appendSquare(source, sb);
+    }
+
+    // Accepts check, mate and annotation suffixes, optional capture marks, "0-0" castling and needlessly
+    // disambiguated piece moves such as Ngf3 or Ng1f3; a piece move that names too little is ambiguous.
+    public int parse(CharSequence san) {
+        int length = 0;
+        for (int i = 0; i < san.length(); i++) {
+            char c = san.charAt(i);
+            if (c == '+' || c == '#' || c == '!' || c == '?' || c == 'x' || c == '=' || c == ':') continue;
+            if (length == wanted.length) throw new ChessException("No legal move matches " + san);
+            wanted[length++] = c == '0' ? 'O' : c;
+        }
+        legalMoves();
+        if (isCastling(length, 3) || isCastling(length, 5)) return find(san, PieceLists.KING, -1, -1, -1, (byte) 0, length == 3 ? 1 : -1);
+        if (length < 2) throw new ChessException("No legal move matches " + san);
+
+        int end = length;
+        byte type = PieceLists.PAWN;
+        int start = 0;
+        int kind = PositionState.TYPES.indexOf(wanted[0]);
+        if (kind > 0) {
+            type = (byte) (kind + 1);
+            start = 1;
+        }
+        byte promotion = 0;
+        int promoted = PositionState.TYPES.indexOf(wanted[end - 1]);
+        if (type == PieceLists.PAWN && promoted >= PieceLists.KNIGHT - 1 && promoted <= PieceLists.QUEEN - 1) {
+            promotion = (byte) (promoted + 1);
+            end--;
+        }
+        if (end - start < 2 || end - start > 4) throw new ChessException("No legal move matches " + san);
+        int target = square(wanted[end - 2], wanted[end - 1], san);
+        int file = -1;
+        int rank = -1;
+        for (int i = start; i < end - 2; i++) {
+            char c = wanted[i];
+            if (c >= 'a' && c <= 'h' && file < 0 && rank < 0) file = c - 'a';
+            else if (c >= '1' && c <= '8' && rank < 0) rank = '8' - c;
+            else throw new ChessException("No legal move matches " + san);
+        }
+        if (type == PieceLists.PAWN) {
+            // a pawn move names its file only when it captures, and then never its rank
+            if (rank >= 0 || file == target % 8) throw new ChessException("No legal move matches " + san);
+            if (file < 0) file = target % 8;
+        }
+        return find(san, type, target, file, rank, promotion, 0);
+    }
+
+    private boolean isCastling(int length, int wantedLength) {
+        if (length != wantedLength) return false;
+        for (int i = 0; i < length; i++) {
+            if (wanted[i] != (i % 2 == 0 ? 'O' : '-')) return false;
+        }
+        return true;
+    }
+
+    // castling: 1 kingside, -1 queenside, 0 for any other move, which must match target, file, rank and promotion.
+    private int find(CharSequence san, byte type, int target, int file, int rank, byte promotion, int castling) {
+        byte piece = (byte) (position.isWhiteToMove() ? type : type + 6);
+        int found = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            int move = legal[i];
+            int source = Move.source(move);
+            if (position.getPieceCode(source) != piece) continue;
+            int step = type == PieceLists.KING ? Move.target(move) - source : 0;
+            if (castling != 0) {
+                if (step != 2 * castling) continue;
+            } else {
+                if (Move.target(move) != target || Math.abs(step) == 2 || Move.promotion(move) != promotion) continue;
+                if (file >= 0 && source % 8 != file || rank >= 0 && source / 8 != rank) continue;
+            }
+            if (found != Move.NONE) throw new ChessException("Ambiguous SAN move: " + san);
+            found = move;
+        }
+        if (found == Move.NONE) throw new ChessException("No legal move matches " + san);
+        return found;
+    }
+
+    private static int square(char file, char rank, CharSequence san) {
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') throw new ChessException("No legal move matches " + san);
+        return PositionState.square('8' - rank, file - 'a');
+    }
+
+    private void legalMoves() {
+        if (count < 0) count = position.generateLegalMoves(legal);
+    }
+
+    private void requireLegal(int move) {
+        legalMoves();
+        for (int i = 0; i < count; i++) {
+            if (legal[i] == move) return;
+        }
+        throw new ChessException("Illegal move: " + Move.toUci(move));
+    }
+}
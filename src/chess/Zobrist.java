@@ -0,0 +1,91 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+// Zobrist keys for hashing a position; the seed is fixed so hashes are stable across runs and processes.
+public class Zobrist {
+
+    private static final long[][] PIECES = new long[13][PositionState.SQUARES];
+    private static final long[] UNMOVED = new long[PositionState.SQUARES];
+    private static final long[] EN_PASSANT = new long[PositionState.SQUARES];
+    private static final long BLACK_TO_MOVE;
+    private static final long CHECK;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EEDC0FFEEL);
+        for (int code = 1; code < PIECES.length; code++) {
+            for (int square = 0; square < PositionState.SQUARES; square++) {
+                PIECES[code][square] = random.nextLong();
+            }
+        }
+        for (int square = 0; square < PositionState.SQUARES; square++) {
+            UNMOVED[square] = random.nextLong();
+            EN_PASSANT[square] = random.nextLong();
+        }
+        BLACK_TO_MOVE = random.nextLong();
+        CHECK = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    public static long piece(byte code, int square) {
+        return PIECES[code][square];
+    }
+
+    public static long unmoved(int square) {
+        return UNMOVED[square];
+    }
+
+    public static long enPassant(int square) {
+        return EN_PASSANT[square];
+    }
+
+    public static long blackToMove() {
+        return BLACK_TO_MOVE;
+    }
+
+    public static long check() {
+        return CHECK;
+    }
+
+    // Hash of exactly what a FEN records: placement, side to move, castling rights and an en passant
+    // square that a pawn could actually capture on. Positions reached by different move orders, or
+    // typed in as FEN, hash alike regardless of which other pieces have moved before.
+    public static long fenHash(PositionState state) {
+        long hash = 0;
+        for (int square = 0; square < PositionState.SQUARES; square++) {
+            byte code = state.squares[square];
+            if (code != PositionState.EMPTY) hash ^= PIECES[code][square];
+        }
+        if (state.currentPlayer == Color.BLACK) hash ^= BLACK_TO_MOVE;
+        if (Fen.canCastle(state, 7, 7)) hash ^= UNMOVED[PositionState.square(7, 7)];
+        if (Fen.canCastle(state, 7, 0)) hash ^= UNMOVED[PositionState.square(7, 0)];
+        if (Fen.canCastle(state, 0, 7)) hash ^= UNMOVED[PositionState.square(0, 7)];
+        if (Fen.canCastle(state, 0, 0)) hash ^= UNMOVED[PositionState.square(0, 0)];
+        int target = Fen.enPassantTarget(state);
+        if (target >= 0 && canCaptureEnPassant(state)) hash ^= EN_PASSANT[target];
+        return hash;
+    }
+
+    private static boolean canCaptureEnPassant(PositionState state) {
+        int pawn = state.enPassantSquare;
+        byte capturer = (byte) (PositionState.color(state.squares[pawn]) == Color.WHITE ? 7 : 1);
+        return pawn % 8 > 0 && state.squares[pawn - 1] == capturer || pawn % 8 < 7 && state.squares[pawn + 1] == capturer;
+    }
+
+    // Unmoved flags are hashed because castling and the pawn double step depend on them.
+    public static long hash(PositionState state) {
+        long hash = 0;
+        for (int square = 0; square < PositionState.SQUARES; square++) {
+            byte code = state.squares[square];
+            if (code == PositionState.EMPTY) continue;
+            hash ^= PIECES[code][square];
+            if (state.moveCounts[square] == 0) hash ^= UNMOVED[square];
+        }
+        if (state.currentPlayer == Color.BLACK) hash ^= BLACK_TO_MOVE;
+        if (state.check) hash ^= CHECK;
+        if (state.enPassantSquare >= 0) hash ^= EN_PASSANT[state.enPassantSquare];
+        return hash;
+    }
+}
@@ -0,0 +1,185 @@
+package chess.pieces;
+
+import java.util.SplittableRandom;
+
+// Magic bitboard attack tables for rooks and bishops on an 8x8 board (square = row * 8 + column).
+// The relevant occupancy of a slider is multiplied by a per-square magic number and shifted down to
+// an index into a precomputed table, so a full attack set is a single load. The tables are filled once
+// at class initialization from the magics below; a magic that does not fit is searched again from a fixed seed.
+public final class SliderAttacks {
+
+    private static final int[][] ROOK_DIRECTIONS = {{-1, 0}, {0, -1}, {0, 1}, {1, 0}};
+    private static final int[][] BISHOP_DIRECTIONS = {{-1, -1}, {-1, 1}, {1, 1}, {1, -1}};
+
+    private static final long[] ROOK_MAGICS = {
+            0x5080054001203180L, 0x0040400020001000L, 0x4180200180300019L, 0x8100210004081000L,
+            0xC600080420100200L, 0x0200241200032830L, 0x1480800081000200L, 0x0100110003408822L,
+            0x8004800020884001L, 0x0000802000400088L, 0x6002001604804020L, 0x0802000C10420020L,
+            0x0202800400080281L, 0x4002800200800400L, 0x2240808001000200L, 0x0002002080440102L,
+            0x01C0808000204006L, 0x2010004020004000L, 0x0830010100200040L, 0x0040220040100A00L,
+            0x2468004040040200L, 0x40A2008080040002L, 0x0005410100020004L, 0x0011820001008044L,
+            0xC640400080009020L, 0x0040500840002000L, 0x0022008200201040L, 0x0105002100100108L,
+            0x0000080080040081L, 0x0440040080020080L, 0x0402320400111088L, 0x180480218002C100L,
+            0x0120804000800020L, 0x6142010386004220L, 0x0612008042001020L, 0x0080200A02004010L,
+            0x0001001005000800L, 0x0018040080800200L, 0x0000D10A0C004810L, 0x0000889442002104L,
+            0x4100408102020022L, 0x0022028102260040L, 0x02A1004020010010L, 0x8840100008008080L,
+            0x4000080004008080L, 0x9024000402008080L, 0xA424040200010100L, 0x8480074424860011L,
+            0x2100800020401880L, 0x2900400080200080L, 0x2000188200402200L, 0x4D00100080080080L,
+            0x2004080080040080L, 0x2208800400020080L, 0x440100220014B100L, 0x250020A400410200L,
+            0x204A102100800041L, 0x0022023320830042L, 0x5008402001001409L, 0x0080100005002009L,
+            0x000A006004081006L, 0x4411000204000801L, 0x0000061088104504L, 0x840C010024004092L
+    };
+
+    private static final long[] BISHOP_MAGICS = {
+            0x1820025001010010L, 0x03049000A2108000L, 0x0804790212000000L, 0x8008060440040002L,
+            0x0484042044830004L, 0x0002280440000428L, 0x0040880158600060L, 0x0008402208600400L,
+            0x4104401002408120L, 0x0000440C04A20204L, 0x0420102102082401L, 0xC028044100200004L,
+            0x4002041520010008L, 0x0000410120100050L, 0x0400008084104210L, 0x0230825402091010L,
+            0x0808044202080230L, 0x0008001130010050L, 0x0001046802002204L, 0x0000802802014000L,
+            0x208A002420210242L, 0x0048228202100200L, 0x0064000051241032L, 0x004509020100A200L,
+            0x00888830A1202100L, 0x0408080024A10800L, 0x0021280830048024L, 0x0014080024021082L,
+            0x0401001059004002L, 0x830080200202100AL, 0x800100C0021E1058L, 0x4000948481040080L,
+            0x0608020801102100L, 0x08888A1000493001L, 0x4000140410020802L, 0x8000440109040100L,
+            0x0024008200040050L, 0x0110060200109048L, 0x0008049C88040204L, 0xC830C08600090100L,
+            0x0408010410202060L, 0x8000411010000820L, 0x0080084050080804L, 0x80000442008C0801L,
+            0x8102081102420C00L, 0x4040428802810440L, 0x4004500086000110L, 0x0021280891000880L,
+            0x0080880108213600L, 0x4800410808020200L, 0x0400211080900600L, 0x0004A10084042800L,
+            0x4A011040050100A2L, 0x4211051002820080L, 0x0008020802140000L, 0x00200A088205808AL,
+            0x4842002101109001L, 0x00202A0084110901L, 0x20004A0820841048L, 0x00000042808C0C22L,
+            0x202080052004240AL, 0x3001004008014100L, 0x2088208252580100L, 0x2088108088010020L
+    };
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final long[] ROOK_TABLE;
+
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] BISHOP_TABLE;
+
+    private static final long GENERATION_NANOS;
+
+    static {
+        long start = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(0x6D61676963L);
+        ROOK_TABLE = generate(ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_OFFSETS, random);
+        BISHOP_TABLE = generate(BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_OFFSETS, random);
+        GENERATION_NANOS = System.nanoTime() - start;
+    }
+
+    private SliderAttacks() {
+    }
+
+    public static long rook(int square, long occupancy) {
+        int index = (int) (((occupancy & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square]);
+        return ROOK_TABLE[ROOK_OFFSETS[square] + index];
+    }
+
+    public static long bishop(int square, long occupancy) {
+        int index = (int) (((occupancy & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square]);
+        return BISHOP_TABLE[BISHOP_OFFSETS[square] + index];
+    }
+
+    public static long queen(int square, long occupancy) {
+        return rook(square, occupancy) | bishop(square, occupancy);
+    }
+
+    public static long getGenerationNanos() {
+        return GENERATION_NANOS;
+    }
+
+    public static long getTableBytes() {
+        long entries = ROOK_TABLE.length + BISHOP_TABLE.length;
+        long perSquare = 64L * (2 * Long.BYTES + 2 * Integer.BYTES);
+        return entries * Long.BYTES + perSquare;
+    }
+
+    private static long[] generate(int[][] directions, long[] masks, long[] magics, int[] shifts, int[] offsets, SplittableRandom random) {
+        int total = 0;
+        for (int square = 0; square < 64; square++) {
+            masks[square] = relevantMask(square, directions);
+            int bits = Long.bitCount(masks[square]);
+            shifts[square] = 64 - bits;
+            offsets[square] = total;
+            total += 1 << bits;
+        }
+
+        long[] table = new long[total];
+        for (int square = 0; square < 64; square++) {
+            int size = 1 << (64 - shifts[square]);
+            long[] occupancies = new long[size];
+            long[] attacks = new long[size];
+            long subset = 0;
+            int n = 0;
+            do {
+                occupancies[n] = subset;
+                attacks[n] = slowAttacks(square, subset, directions);
+                n++;
+                subset = (subset - masks[square]) & masks[square];
+            } while (subset != 0);
+
+            long[] entries = new long[size];
+            int[] epochs = new int[size];
+            long magic = magics[square];
+            for (int epoch = 1; !fill(magic, shifts[square], occupancies, attacks, entries, epochs, epoch); epoch++) {
+                do {
+                    magic = random.nextLong() & random.nextLong() & random.nextLong();
+                } while (Long.bitCount((masks[square] * magic) & 0xFF00000000000000L) < 6);
+            }
+            magics[square] = magic;
+            System.arraycopy(entries, 0, table, offsets[square], size);
+        }
+        return table;
+    }
+
+    // Fills the entries of one square, failing on two occupancies with different attacks sharing an index.
+    private static boolean fill(long magic, int shift, long[] occupancies, long[] attacks, long[] entries, int[] epochs, int epoch) {
+        for (int i = 0; i < occupancies.length; i++) {
+            int index = (int) ((occupancies[i] * magic) >>> shift);
+            if (epochs[index] != epoch) {
+                epochs[index] = epoch;
+                entries[index] = attacks[i];
+            } else if (entries[index] != attacks[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Squares whose occupancy can block the slider; the last square of each ray never matters.
+    private static long relevantMask(int square, int[][] directions) {
+        long mask = 0;
+        int row = square / 8;
+        int column = square % 8;
+        for (int[] d : directions) {
+            int r = row + d[0];
+            int c = column + d[1];
+            while (r + d[0] >= 0 && r + d[0] < 8 && c + d[1] >= 0 && c + d[1] < 8) {
+                mask |= 1L << (r * 8 + c);
+                r += d[0];
+                c += d[1];
+            }
+        }
+        return mask;
+    }
+
+    private static long slowAttacks(int square, long occupancy, int[][] directions) {
+        long attacks = 0;
+        int row = square / 8;
+        int column = square % 8;
+        for (int[] d : directions) {
+            int r = row + d[0];
+            int c = column + d[1];
+            while (r >= 0 && r < 8 && c >= 0 && c < 8) {
+                long bit = 1L << (r * 8 + c);
+                attacks |= bit;
+                if ((occupancy & bit) != 0) break;
+                r += d[0];
+                c += d[1];
+            }
+        }
+        return attacks;
+    }
+}
@@ -0,0 +1,168 @@
+package cluster;
+
+import archive.GameReplay;
+import chess.ChessMatch;
+import chess.Fen;
+import engine.ClassicalEvaluator;
+import engine.Search;
+import engine.SearchLimits;
+import engine.SearchResult;
+import engine.TranspositionTable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+// A worker process: connects to a coordinator, runs the jobs it is sent on its own threads, each with a
+// private search and transposition table, and sends a heartbeat at the interval the coordinator asks for.
+// Exits when the coordinator shuts it down or the connection is lost.
+public class ClusterWorker {
+
+    private static final byte[] STOP = new byte[0];
+
+    private final String host;
+    private final int port;
+    private final int threads;
+    private final int hashMegabytes;
+    private final BlockingQueue<byte[]> jobs = new LinkedBlockingQueue<>();
+    private OutputStream out;
+    private volatile boolean running = true;
+
+    public ClusterWorker(String host, int port, int threads, int hashMegabytes) {
+        this.host = host;
+        this.port = port;
+        this.threads = threads;
+        this.hashMegabytes = hashMegabytes;
+    }
+
+    public void run() throws IOException, InterruptedException {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(host, port));
+            socket.setTcpNoDelay(true);
+            out = new BufferedOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+            Protocol.Frame hello = new Protocol.Frame(Protocol.HELLO);
+            hello.out.writeInt(Protocol.MAGIC);
+            hello.out.writeInt(threads);
+            hello.out.writeUTF(ProcessHandle.current().pid() + "@" + socket.getLocalAddress().getHostName());
+            send(hello.bytes());
+            DataInputStream welcome = Protocol.read(in);
+            if (welcome.readByte() != Protocol.WELCOME) throw new IOException("Expected WELCOME from the coordinator");
+            long heartbeatMillis = welcome.readLong();
+
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread worker = new Thread(this::work, "cluster-worker-" + t);
+                workers.add(worker);
+                worker.start();
+            }
+            Thread heartbeat = new Thread(() -> heartbeat(heartbeatMillis), "cluster-heartbeat");
+            heartbeat.setDaemon(true);
+            heartbeat.start();
+
+            try {
+                while (running) {
+                    byte[] message = Protocol.readBody(in);
+                    if (message[0] == Protocol.SHUTDOWN) break;
+                    if (message[0] != Protocol.ANALYZE && message[0] != Protocol.VALIDATE) throw new IOException("Unexpected message " + message[0]);
+                    jobs.add(message);
+                }
+            } catch (IOException e) {
+                System.err.println("Lost the coordinator: " + (e instanceof EOFException ? "connection closed" : e.getMessage()));
+            } finally {
+                running = false;
+                jobs.clear();
+                for (int t = 0; t < threads; t++) jobs.add(STOP);
+                for (Thread worker : workers) worker.join();
+            }
+        }
+    }
+
+    private void work() {
+        Search search = new Search(new ClassicalEvaluator(), new TranspositionTable(hashMegabytes));
+        GameReplay replay = new GameReplay();
+        try {
+            while (true) {
+                byte[] job = jobs.take();
+                if (job == STOP) return;
+                send(execute(job, search, replay));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            running = false;
+        }
+    }
+
+    private static byte[] execute(byte[] job, Search search, GameReplay replay) throws IOException {
+        DataInputStream in = Protocol.body(job);
+        byte type = in.readByte();
+        long id = in.readLong();
+        Protocol.Frame result = new Protocol.Frame(Protocol.RESULT);
+        result.out.writeLong(id);
+        try {
+            if (type == Protocol.ANALYZE) {
+                String fen = in.readUTF();
+                SearchLimits limits = Protocol.readLimits(in);
+                SearchResult searched = search.search(new ChessMatch(Fen.parse(fen)), limits);
+                Protocol.writeResult(result.out, searched);
+            } else {
+                Protocol.writeValidation(result.out, GameValidation.of(replay, Protocol.readGame(in)));
+            }
+            return result.bytes();
+        } catch (RuntimeException e) {
+            Protocol.Frame failed = new Protocol.Frame(Protocol.FAILED);
+            failed.out.writeLong(id);
+            failed.out.writeUTF(String.valueOf(e.getMessage()));
+            return failed.bytes();
+        }
+    }
+
+    private void heartbeat(long millis) {
+        byte[] heartbeat = Protocol.frame(Protocol.HEARTBEAT);
+        try {
+            while (running) {
+                send(heartbeat);
+                Thread.sleep(millis);
+            }
+        } catch (IOException | InterruptedException e) {
+            running = false;
+        }
+    }
+
+    private void send(byte[] frame) throws IOException {
+        synchronized (out) {
+            out.write(frame);
+            out.flush();
+        }
+    }
+
+    // Arguments: host port and key=value options threads (default: all cores) and hash (MB per thread).
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: ClusterWorker <host> <port> [threads=N] [hash=MB]");
+            System.exit(2);
+        }
+        Map<String, String> options = new HashMap<>();
+        for (int i = 2; i < args.length; i++) {
+            int eq = args[i].indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Expected key=value: " + args[i]);
+            options.put(args[i].substring(0, eq), args[i].substring(eq + 1));
+        }
+        int threads = Integer.parseInt(options.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int hash = Integer.parseInt(options.getOrDefault("hash", "16"));
+        new ClusterWorker(args[0], Integer.parseInt(args[1]), threads, hash).run();
+    }
+}
@@ -0,0 +1,392 @@
+package cluster;
+
+import archive.GameRecord;
+import chess.ChessException;
+import chess.Fen;
+import chess.Zobrist;
+import engine.SearchLimits;
+import engine.SearchResult;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Shards analysis and game validation jobs over the worker processes connected to it. A job goes to the
+// queue of the worker picked by its position hash or game id, so repeated work meets a warm transposition
+// table. Each worker has at most two jobs per thread in flight and, once its own queue is empty, steals
+// from the tail of the longest one. A worker that drops its connection or sends nothing for the timeout
+// is removed, and its queued and in-flight jobs are dispatched again; a job that was in flight on three
+// workers that died fails instead, in case it is what killed them.
+public class Coordinator implements AutoCloseable {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int PREFETCH = 2;
+
+    private final ServerSocket server;
+    private final long heartbeatMillis;
+    private final long timeoutNanos;
+    private final ScheduledExecutorService monitor;
+    private final List<Member> members = new ArrayList<>();
+    private final Deque<Job<?>> unassigned = new ArrayDeque<>();
+    private long nextId;
+    private long stolen;
+    private long redispatched;
+    private long lost;
+    private volatile boolean closed;
+
+    // Port 0 picks a free port. Workers are asked for a heartbeat every heartbeatMillis.
+    public Coordinator(int port, long heartbeatMillis, long timeoutMillis) throws IOException {
+        if (timeoutMillis <= heartbeatMillis) throw new IllegalArgumentException("The timeout must be longer than the heartbeat interval");
+        this.heartbeatMillis = heartbeatMillis;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        server = new ServerSocket(port);
+        Thread acceptor = new Thread(this::accept, "cluster-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        monitor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cluster-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        monitor.scheduleAtFixedRate(this::checkHeartbeats, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    // Throws ChessException for an invalid FEN; the future fails with ChessException when the worker
+    // cannot search the position.
+    public CompletableFuture<SearchResult> analyze(String fen, SearchLimits limits) {
+        long key = Zobrist.fenHash(Fen.parse(fen));
+        return submit(key, Protocol.ANALYZE, Protocol::readResult, frame -> {
+            frame.out.writeUTF(fen);
+            Protocol.writeLimits(frame.out, limits);
+        });
+    }
+
+    public CompletableFuture<GameValidation> validate(GameRecord game) {
+        return submit(game.getId(), Protocol.VALIDATE, Protocol::readValidation, frame -> Protocol.writeGame(frame.out, game));
+    }
+
+    // Waits until at least count workers are connected.
+    public synchronized boolean awaitWorkers(int count, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (members.size() < count) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) return false;
+            wait(remaining);
+        }
+        return true;
+    }
+
+    public synchronized int getWorkers() {
+        return members.size();
+    }
+
+    public synchronized long getStolen() {
+        return stolen;
+    }
+
+    public synchronized long getRedispatched() {
+        return redispatched;
+    }
+
+    // Workers removed after a lost connection or missed heartbeats.
+    public synchronized long getLost() {
+        return lost;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Member member : members) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(member.name).append(": ").append(member.completed).append(" jobs");
+        }
+        return members.size() + " workers (" + sb + "), " + stolen + " stolen, " + redispatched + " re-dispatched, " + lost + " lost";
+    }
+
+    private <T> CompletableFuture<T> submit(long key, byte type, Decoder<T> decoder, Encoder encoder) {
+        if (closed) throw new IllegalStateException("The coordinator is closed");
+        Job<T> job;
+        synchronized (this) {
+            job = new Job<>(nextId++, key, decoder);
+        }
+        Protocol.Frame frame = new Protocol.Frame(type);
+        try {
+            frame.out.writeLong(job.id);
+            encoder.encode(frame);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot encode job: " + e.getMessage(), e);
+        }
+        job.frame = frame.bytes();
+        synchronized (this) {
+            assign(job);
+        }
+        pumpAll();
+        return job.future;
+    }
+
+    private void assign(Job<?> job) {
+        if (members.isEmpty()) {
+            unassigned.add(job);
+            return;
+        }
+        int shard = (int) ((job.key * 0x9E3779B97F4A7C15L) >>> 33) % members.size();
+        members.get(shard).queue.add(job);
+    }
+
+    // Sends the member jobs from its own queue, or stolen ones, until its window is full.
+    private void pump(Member member) {
+        List<Job<?>> batch = new ArrayList<>();
+        synchronized (this) {
+            if (!member.alive) return;
+            while (member.inFlight.size() < member.slots * PREFETCH) {
+                Job<?> job = member.queue.pollFirst();
+                if (job == null) job = steal(member);
+                if (job == null) break;
+                member.inFlight.put(job.id, job);
+                batch.add(job);
+            }
+        }
+        try {
+            for (Job<?> job : batch) member.send(job.frame);
+        } catch (IOException e) {
+            leave(member, e.getMessage());
+        }
+    }
+
+    private void pumpAll() {
+        List<Member> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(members);
+        }
+        for (Member member : snapshot) pump(member);
+    }
+
+    private Job<?> steal(Member thief) {
+        Member victim = null;
+        for (Member member : members) {
+            if (member != thief && !member.queue.isEmpty() && (victim == null || member.queue.size() > victim.queue.size())) victim = member;
+        }
+        if (victim == null) return null;
+        stolen++;
+        return victim.queue.pollLast();
+    }
+
+    private void accept() {
+        while (!closed) {
+            try {
+                Socket socket = server.accept();
+                Thread reader = new Thread(() -> serve(socket), "cluster-member-" + socket.getPort());
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (!closed) System.err.println("Cluster accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        Member member = null;
+        try {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataInputStream hello = Protocol.read(in);
+            if (hello.readByte() != Protocol.HELLO || hello.readInt() != Protocol.MAGIC) throw new IOException("Not a cluster worker");
+            member = new Member(socket, hello.readInt(), hello.readUTF());
+            Protocol.Frame welcome = new Protocol.Frame(Protocol.WELCOME);
+            welcome.out.writeLong(heartbeatMillis);
+            member.send(welcome.bytes());
+            join(member);
+            while (true) {
+                DataInputStream message = Protocol.read(in);
+                member.lastSeen = System.nanoTime();
+                byte type = message.readByte();
+                if (type == Protocol.HEARTBEAT) continue;
+                if (type != Protocol.RESULT && type != Protocol.FAILED) throw new IOException("Unexpected message " + type);
+                finish(member, message.readLong(), type == Protocol.RESULT, message);
+            }
+        } catch (IOException e) {
+            if (member != null) leave(member, e instanceof EOFException ? "connection closed" : e.getMessage());
+            else closeQuietly(socket);
+        }
+    }
+
+    private void join(Member member) {
+        synchronized (this) {
+            if (closed) return;
+            members.add(member);
+            while (!unassigned.isEmpty()) assign(unassigned.poll());
+            notifyAll();
+        }
+        pumpAll();
+    }
+
+    private void finish(Member member, long id, boolean succeeded, DataInputStream message) throws IOException {
+        Job<?> job;
+        synchronized (this) {
+            job = member.inFlight.remove(id);
+            if (job != null) member.completed++;
+        }
+        if (job != null) {
+            if (succeeded) job.complete(message);
+            else job.future.completeExceptionally(new ChessException(message.readUTF()));
+        }
+        pump(member);
+    }
+
+    private void checkHeartbeats() {
+        long now = System.nanoTime();
+        List<Member> silent = new ArrayList<>();
+        synchronized (this) {
+            for (Member member : members) {
+                if (now - member.lastSeen > timeoutNanos) silent.add(member);
+            }
+        }
+        for (Member member : silent) leave(member, "no heartbeat for " + TimeUnit.NANOSECONDS.toMillis(now - member.lastSeen) + " ms");
+    }
+
+    private void leave(Member member, String reason) {
+        List<Job<?>> failed = new ArrayList<>();
+        int orphans;
+        synchronized (this) {
+            if (!member.alive) return;
+            member.alive = false;
+            members.remove(member);
+            if (closed) return;
+            lost++;
+            // Only jobs the worker was running count against their attempts; its queue was never started.
+            for (Job<?> job : member.inFlight.values()) {
+                if (++job.attempts >= MAX_ATTEMPTS) failed.add(job);
+                else assign(job);
+            }
+            for (Job<?> job : member.queue) assign(job);
+            orphans = member.inFlight.size() + member.queue.size() - failed.size();
+            redispatched += orphans;
+            member.inFlight.clear();
+            member.queue.clear();
+        }
+        closeQuietly(member.socket);
+        System.err.println("Worker " + member.name + " left (" + reason + "); re-dispatched " + orphans + " jobs");
+        for (Job<?> job : failed) {
+            job.future.completeExceptionally(new ChessException("Job " + job.id + " was in flight on " + MAX_ATTEMPTS + " workers that died"));
+        }
+        pumpAll();
+    }
+
+    // Shuts the workers down and cancels every job that has no result yet.
+    @Override
+    public void close() throws IOException {
+        List<Job<?>> cancelled = new ArrayList<>();
+        List<Member> shutdown;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            shutdown = new ArrayList<>(members);
+            cancelled.addAll(unassigned);
+            for (Member member : members) {
+                cancelled.addAll(member.inFlight.values());
+                cancelled.addAll(member.queue);
+            }
+            notifyAll();
+        }
+        monitor.shutdownNow();
+        server.close();
+        byte[] frame = Protocol.frame(Protocol.SHUTDOWN);
+        for (Member member : shutdown) {
+            try {
+                member.send(frame);
+            } catch (IOException e) {
+                // The worker is gone already.
+            }
+            closeQuietly(member.socket);
+        }
+        for (Job<?> job : cancelled) job.future.cancel(false);
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nothing left to release.
+        }
+    }
+
+    private interface Encoder {
+        void encode(Protocol.Frame frame) throws IOException;
+    }
+
+    private interface Decoder<T> {
+        T decode(DataInputStream in) throws IOException;
+    }
+
+    private static final class Job<T> {
+
+        final long id;
+        final long key;
+        final Decoder<T> decoder;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        byte[] frame;
+        int attempts;
+
+        Job(long id, long key, Decoder<T> decoder) {
+            this.id = id;
+            this.key = key;
+            this.decoder = decoder;
+        }
+
+        void complete(DataInputStream in) throws IOException {
+            try {
+                future.complete(decoder.decode(in));
+            } catch (IOException e) {
+                future.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    private static final class Member {
+
+        final Socket socket;
+        final OutputStream out;
+        final int slots;
+        final String name;
+        final Deque<Job<?>> queue = new ArrayDeque<>();
+        final Map<Long, Job<?>> inFlight = new HashMap<>();
+        volatile long lastSeen = System.nanoTime();
+        boolean alive = true;
+        long completed;
+
+        Member(Socket socket, int slots, String name) throws IOException {
+            if (slots < 1) throw new IOException("Worker " + name + " has no threads");
+            this.socket = socket;
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+            this.slots = slots;
+            this.name = name;
+        }
+
+        void send(byte[] frame) throws IOException {
+            synchronized (out) {
+                out.write(frame);
+                out.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package cluster;
+
+import archive.GameRecord;
+import archive.GameReplay;
+import boardgame.BoardException;
+import chess.ChessMatch;
+import chess.Move;
+
+// Whether an archived game replays under ChessMatch rules: the number of plies that were legal and,
+// for a game that does not replay, why the next one is not.
+public class GameValidation {
+
+    private final long gameId;
+    private final int plies;
+    private final String error;
+
+    public GameValidation(long gameId, int plies, String error) {
+        this.gameId = gameId;
+        this.plies = plies;
+        this.error = error;
+    }
+
+    public static GameValidation of(GameReplay replay, GameRecord game) {
+        int plies = 0;
+        try {
+            ChessMatch match = replay.start(game);
+            for (String uci : game.getMoves()) {
+                if (match.getCheckMate()) return new GameValidation(game.getId(), plies, "Move after checkmate: " + uci);
+                GameReplay.play(match, Move.fromUci(uci));
+                plies++;
+            }
+            return new GameValidation(game.getId(), plies, null);
+        } catch (BoardException | IllegalArgumentException e) {
+            String move = plies < game.getMoves().size() ? game.getMoves().get(plies) : "";
+            return new GameValidation(game.getId(), plies, "Ply " + (plies + 1) + " " + move + ": " + e.getMessage());
+        }
+    }
+
+    public long getGameId() {
+        return gameId;
+    }
+
+    public int getPlies() {
+        return plies;
+    }
+
+    // null for a valid game.
+    public String getError() {
+        return error;
+    }
+
+    public boolean isValid() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return "game " + gameId + ": " + (error == null ? plies + " plies ok" : error);
+    }
+}
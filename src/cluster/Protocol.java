@@ -0,0 +1,150 @@
+package cluster;
+
+import archive.GameRecord;
+import engine.SearchLimits;
+import engine.SearchResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Messages between the coordinator and its workers. Every message is a frame of a 4-byte length and a
+// body that starts with the message type, so a receiver can skip a message it no longer cares about.
+final class Protocol {
+
+    static final int MAGIC = 0x58434C31;
+    static final int MAX_FRAME = 1 << 24;
+
+    // Worker to coordinator. HELLO: magic, slots, name. RESULT: job id and the job's result.
+    // FAILED: job id and an error the job would hit on any worker.
+    static final byte HELLO = 1;
+    static final byte HEARTBEAT = 2;
+    static final byte RESULT = 3;
+    static final byte FAILED = 4;
+
+    // Coordinator to worker. WELCOME: heartbeat interval in ms. ANALYZE: job id, FEN and limits.
+    // VALIDATE: job id and a game record.
+    static final byte WELCOME = 10;
+    static final byte ANALYZE = 11;
+    static final byte VALIDATE = 12;
+    static final byte SHUTDOWN = 13;
+
+    private Protocol() {
+    }
+
+    // Writers fill the body of one message; Frame.bytes() turns it into a frame ready to send.
+    static final class Frame {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        final DataOutputStream out = new DataOutputStream(bytes);
+
+        Frame(byte type) {
+            try {
+                out.writeInt(0);
+                out.writeByte(type);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        byte[] bytes() {
+            byte[] frame = bytes.toByteArray();
+            int length = frame.length - 4;
+            frame[0] = (byte) (length >>> 24);
+            frame[1] = (byte) (length >>> 16);
+            frame[2] = (byte) (length >>> 8);
+            frame[3] = (byte) length;
+            return frame;
+        }
+    }
+
+    static byte[] frame(byte type) {
+        return new Frame(type).bytes();
+    }
+
+    // The body of the next frame, type first.
+    static byte[] readBody(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 1 || length > MAX_FRAME) throw new IOException("Invalid frame length " + length);
+        byte[] body = new byte[length];
+        in.readFully(body);
+        return body;
+    }
+
+    static DataInputStream read(DataInputStream in) throws IOException {
+        return body(readBody(in));
+    }
+
+    static DataInputStream body(byte[] body) {
+        return new DataInputStream(new ByteArrayInputStream(body));
+    }
+
+    static void writeLimits(DataOutputStream out, SearchLimits limits) throws IOException {
+        out.writeInt(limits.getDepth());
+        out.writeLong(limits.getNodes());
+        out.writeLong(limits.getTimeMillis());
+    }
+
+    static SearchLimits readLimits(DataInputStream in) throws IOException {
+        return new SearchLimits(in.readInt(), in.readLong(), in.readLong());
+    }
+
+    static void writeResult(DataOutputStream out, SearchResult result) throws IOException {
+        out.writeInt(result.getBestMove());
+        out.writeInt(result.getScore());
+        out.writeInt(result.getDepth());
+        out.writeLong(result.getNodes());
+        out.writeLong(result.getNanos());
+        int[] pv = result.getPv();
+        out.writeShort(pv.length);
+        for (int move : pv) out.writeInt(move);
+    }
+
+    static SearchResult readResult(DataInputStream in) throws IOException {
+        int bestMove = in.readInt();
+        int score = in.readInt();
+        int depth = in.readInt();
+        long nodes = in.readLong();
+        long nanos = in.readLong();
+        int[] pv = new int[in.readUnsignedShort()];
+        for (int i = 0; i < pv.length; i++) pv[i] = in.readInt();
+        return new SearchResult(bestMove, score, depth, nodes, nanos, pv);
+    }
+
+    static void writeGame(DataOutputStream out, GameRecord game) throws IOException {
+        out.writeLong(game.getId());
+        out.writeUTF(game.getResult());
+        out.writeUTF(game.getStartFen());
+        out.writeInt(game.getMoves().size());
+        for (String move : game.getMoves()) out.writeUTF(move);
+    }
+
+    static GameRecord readGame(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        String result = in.readUTF();
+        String startFen = in.readUTF();
+        int count = in.readInt();
+        List<String> moves = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) moves.add(in.readUTF());
+        return new GameRecord(id, result, startFen, moves);
+    }
+
+    static void writeValidation(DataOutputStream out, GameValidation validation) throws IOException {
+        out.writeLong(validation.getGameId());
+        out.writeInt(validation.getPlies());
+        out.writeBoolean(validation.getError() != null);
+        if (validation.getError() != null) out.writeUTF(validation.getError());
+    }
+
+    static GameValidation readValidation(DataInputStream in) throws IOException {
+        long gameId = in.readLong();
+        int plies = in.readInt();
+        String error = in.readBoolean() ? in.readUTF() : null;
+        return new GameValidation(gameId, plies, error);
+    }
+}
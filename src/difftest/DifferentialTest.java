@@ -0,0 +1,182 @@
+package difftest;
+
+import archive.GameArchive;
+import archive.GameRecord;
+import archive.GameReplay;
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Fen;
+import chess.Move;
+import chess.PositionState;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Differential test of the move rules: random walks compare ChessMatch with MailboxPosition on every
+// position they pass (see RulesComparison) and play a random legal move through both. Walks start in
+// turn from the initial position, from a position of an archived game, and from a random position
+// (RandomPositions); a walk ends at mate, at a position without moves, after plies moves or at the first
+// mismatch. Every mismatch is shrunk to a small FEN that still shows it, and each distinct one is printed
+// and written to out. Arguments are key=value pairs: threads, moves (compared moves to stop at, 1e9 by
+// default), seconds (0 for no limit), plies, seed, failures (distinct mismatches to stop at), archive
+// (optional) and out.
+public class DifferentialTest {
+
+    private static final long PROGRESS_MILLIS = 10_000;
+
+    private final List<PositionState> archivePositions;
+    private final PositionState initial = new PositionState();
+    private final int plies;
+    private final int failures;
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder positions = new LongAdder();
+    private final LongAdder walks = new LongAdder();
+    private final Map<String, Mismatch> mismatches = new ConcurrentHashMap<>();
+    private final PrintWriter out;
+
+    private DifferentialTest(List<PositionState> archivePositions, int plies, int failures, PrintWriter out) {
+        this.archivePositions = archivePositions;
+        this.plies = plies;
+        this.failures = failures;
+        this.out = out;
+        new ChessMatch().saveState(initial);
+    }
+
+    private void work(long seed, long moveLimit, long deadline) {
+        RulesComparison comparison = new RulesComparison();
+        Shrinker shrinker = new Shrinker(comparison);
+        SplittableRandom random = new SplittableRandom(seed);
+        long reported = 0;
+        for (long walk = 0; !isDone(moveLimit, deadline); walk++) {
+            PositionState start = start(walk, random, shrinker);
+            Mismatch mismatch = walk(comparison, comparison.newMatch(start), random);
+            if (mismatch != null) record(mismatch, shrinker);
+            walks.increment();
+            moves.add(comparison.getMoves() - reported);
+            reported = comparison.getMoves();
+        }
+    }
+
+    private boolean isDone(long moveLimit, long deadline) {
+        return moves.sum() >= moveLimit || System.currentTimeMillis() >= deadline || mismatches.size() >= failures;
+    }
+
+    private PositionState start(long walk, SplittableRandom random, Shrinker shrinker) {
+        int source = (int) (walk % 3);
+        if (source == 1 && !archivePositions.isEmpty()) return archivePositions.get(random.nextInt(archivePositions.size()));
+        if (source == 2) {
+            while (true) {
+                PositionState state = Fen.parse(RandomPositions.next(random));
+                if (shrinker.isLegalPosition(state)) return state;
+            }
+        }
+        return initial;
+    }
+
+    private Mismatch walk(RulesComparison comparison, ChessMatch match, SplittableRandom random) {
+        for (int ply = 0; ply <= plies; ply++) {
+            Mismatch mismatch = comparison.compare(match);
+            positions.increment();
+            if (mismatch != null) return mismatch;
+            int count = comparison.getLegalMoveCount();
+            if (count == 0 || ply == plies) return null;
+            mismatch = comparison.play(match, comparison.getLegalMove(random.nextInt(count)));
+            if (mismatch != null || match.getCheckMate()) return mismatch;
+        }
+        return null;
+    }
+
+    private void record(Mismatch mismatch, Shrinker shrinker) {
+        Mismatch shrunk = shrinker.shrink(mismatch);
+        Mismatch reported = shrunk != null ? shrunk : mismatch;
+        String key = reported.getKind() + " " + reported.getFen() + " " + reported.getMove();
+        if (mismatches.putIfAbsent(key, reported) != null) return;
+        synchronized (out) {
+            out.println(reported);
+            if (shrunk == null) out.println("  (does not reproduce from FEN; move counts matter)");
+            else if (!shrunk.getFen().equals(mismatch.getFen())) out.println("  shrunk from " + mismatch.getFen());
+            out.flush();
+        }
+        System.out.println("MISMATCH " + reported);
+    }
+
+    private void printProgress(long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        long compared = moves.sum();
+        double rate = compared / Math.max(seconds, 1e-9);
+        System.out.printf(Locale.ROOT, "%.0fs: %d moves in %d positions, %d walks, %.0f moves/s, 1e9 moves in %.1f h, %d mismatches%n",
+                seconds, compared, positions.sum(), walks.sum(), rate, rate == 0 ? 0 : 1e9 / rate / 3600, mismatches.size());
+    }
+
+    // Every position of every game of the archive, with the move counts replay gives it.
+    private static List<PositionState> archivePositions(Path archive) throws IOException {
+        List<PositionState> positions = new ArrayList<>();
+        GameReplay replay = new GameReplay();
+        GameArchive.read(archive, game -> collect(replay, game, positions));
+        return positions;
+    }
+
+    private static void collect(GameReplay replay, GameRecord game, List<PositionState> positions) {
+        try {
+            ChessMatch match = replay.start(game);
+            for (String uci : game.getMoves()) {
+                PositionState state = new PositionState();
+                match.saveState(state);
+                positions.add(state);
+                GameReplay.play(match, Move.fromUci(uci));
+            }
+        } catch (ChessException e) {
+            System.err.println("skipping the rest of game " + game.getId() + ": " + e.getMessage());
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Expected key=value: " + arg);
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        int threads = Integer.parseInt(options.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        long moveLimit = (long) Double.parseDouble(options.getOrDefault("moves", "1e9"));
+        long seconds = Long.parseLong(options.getOrDefault("seconds", "0"));
+        long deadline = seconds > 0 ? System.currentTimeMillis() + seconds * 1000 : Long.MAX_VALUE;
+        long seed = Long.parseLong(options.getOrDefault("seed", String.valueOf(System.nanoTime())));
+        String archive = options.get("archive");
+        List<PositionState> archivePositions = archive == null ? List.of() : archivePositions(Path.of(archive));
+        Path outPath = Path.of(options.getOrDefault("out", "mismatches.txt"));
+        System.out.printf("seed %d, %d threads, %d archive positions%n", seed, threads, archivePositions.size());
+
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(outPath))) {
+            DifferentialTest test = new DifferentialTest(archivePositions, Integer.parseInt(options.getOrDefault("plies", "60")),
+                    Integer.parseInt(options.getOrDefault("failures", "20")), out);
+            long startNanos = System.nanoTime();
+            List<Thread> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                long workerSeed = seed + i;
+                Thread worker = new Thread(() -> test.work(workerSeed, moveLimit, deadline), "difftest-" + i);
+                worker.setDaemon(true);
+                worker.start();
+                workers.add(worker);
+            }
+            for (Thread worker : workers) {
+                while (worker.isAlive()) {
+                    worker.join(PROGRESS_MILLIS);
+                    if (worker.isAlive()) test.printProgress(startNanos);
+                }
+            }
+            test.printProgress(startNanos);
+            System.out.printf("%d distinct mismatches written to %s%n", test.mismatches.size(), outPath);
+        }
+    }
+}
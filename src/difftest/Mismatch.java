@@ -0,0 +1,54 @@
+package difftest;
+
+import chess.Move;
+
+// One disagreement between ChessMatch and MailboxPosition: what differed, the position (as FEN) it
+// differed in and, for a disagreement about one move, that move.
+public class Mismatch {
+
+    public enum Kind {
+        // ChessMatch threw where MailboxPosition did not.
+        ERROR,
+        // The side to move is in check for one and not the other.
+        CHECK,
+        LEGAL_MOVES,
+        // Position after a move: pieces, unmoved flags, side to move, check and en passant.
+        MOVE_STATE,
+        // Whether a move mates.
+        MATE
+    }
+
+    private final Kind kind;
+    private final String fen;
+    private final int move;
+    private final String detail;
+
+    public Mismatch(Kind kind, String fen, int move, String detail) {
+        this.kind = kind;
+        this.fen = fen;
+        this.move = move;
+        this.detail = detail;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getFen() {
+        return fen;
+    }
+
+    // Move.NONE when the mismatch is about the position rather than one move.
+    public int getMove() {
+        return move;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + fen + (move == Move.NONE ? "" : " move " + Move.toUci(move)) + ": " + detail;
+    }
+}
@@ -0,0 +1,69 @@
+package difftest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Random legal-looking positions as FEN, to reach what games rarely do: lone pieces, pawns about to
+// promote, kings and rooks on their initial squares with every castling right, and en passant squares.
+// Positions whose side not to move is in check are left for the caller to reject.
+final class RandomPositions {
+
+    private static final String PIECES = "PNBRQ";
+
+    private RandomPositions() {
+    }
+
+    static String next(SplittableRandom random) {
+        char[] board = new char[64];
+        Arrays.fill(board, ' ');
+        if (random.nextInt(3) == 0) {
+            // castling material on its initial squares
+            board[60] = 'K';
+            board[4] = 'k';
+            if (random.nextBoolean()) board[56] = 'R';
+            if (random.nextBoolean()) board[63] = 'R';
+            if (random.nextBoolean()) board[0] = 'r';
+            if (random.nextBoolean()) board[7] = 'r';
+        } else {
+            int white = random.nextInt(64);
+            int black;
+            do {
+                black = random.nextInt(64);
+            } while (Math.abs(black / 8 - white / 8) <= 1 && Math.abs(black % 8 - white % 8) <= 1);
+            board[white] = 'K';
+            board[black] = 'k';
+        }
+        int pieces = random.nextInt(16);
+        for (int i = 0; i < pieces; i++) {
+            int square = random.nextInt(64);
+            if (board[square] != ' ') continue;
+            char piece = PIECES.charAt(random.nextInt(PIECES.length()));
+            // pawns on the first and last rows cannot occur
+            if (piece == 'P' && (square < 8 || square >= 56)) continue;
+            board[square] = random.nextBoolean() ? piece : Character.toLowerCase(piece);
+        }
+        boolean whiteToMove = random.nextBoolean();
+        return Shrinker.fen(board, whiteToMove ? "w" : "b", "KQkq", enPassant(board, whiteToMove, random));
+    }
+
+    // The square behind an opponent pawn that could just have advanced two squares next to a pawn of the
+    // side to move, or "-"; chosen half of the time when there is one.
+    private static String enPassant(char[] board, boolean whiteToMove, SplittableRandom random) {
+        int row = whiteToMove ? 3 : 4;
+        char pawn = whiteToMove ? 'p' : 'P';
+        char capturer = whiteToMove ? 'P' : 'p';
+        int behind = whiteToMove ? -8 : 8;
+        List<Integer> targets = new ArrayList<>();
+        for (int column = 0; column < 8; column++) {
+            int square = row * 8 + column;
+            if (board[square] != pawn || board[square + behind] != ' ' || board[square + 2 * behind] != ' ') continue;
+            boolean adjacent = column > 0 && board[square - 1] == capturer || column < 7 && board[square + 1] == capturer;
+            if (adjacent) targets.add(square + behind);
+        }
+        if (targets.isEmpty() || random.nextBoolean()) return "-";
+        int target = targets.get(random.nextInt(targets.size()));
+        return "" + (char) ('a' + target % 8) + (8 - target / 8);
+    }
+}
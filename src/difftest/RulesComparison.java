@@ -0,0 +1,139 @@
+package difftest;
+
+import archive.GameReplay;
+import chess.ChessMatch;
+import chess.Fen;
+import chess.LegalMoveCache;
+import chess.MailboxPosition;
+import chess.Move;
+import chess.PositionState;
+
+import java.util.Arrays;
+
+// Compares the object-based rules (ChessMatch with the chess.pieces move rules) with MailboxPosition on
+// one position: check, the legal move set, and for every legal move the position it leads to and, for a
+// checking move, whether it mates. Mates are taken from performChessMove, the rule live games use; the
+// position after a move from makeSearchMove, which the search uses and which can be taken back.
+// Reusable and not thread-safe: one per thread.
+public class RulesComparison {
+
+    private final LegalMoveCache moveCache = new LegalMoveCache(64);
+    private final PositionState state = new PositionState();
+    private final MailboxPosition fast = new MailboxPosition();
+    private final MailboxPosition after = new MailboxPosition();
+    private final int[] legacyMoves = new int[256];
+    private final int[] fastMoves = new int[256];
+    private final int[] replies = new int[256];
+    private int legalCount;
+    private long moves;
+
+    // Moves compared so far, counting every legal move of every compared position.
+    public long getMoves() {
+        return moves;
+    }
+
+    // The legal moves of the position last compared without a mismatch, in ascending order.
+    public int getLegalMoveCount() {
+        return legalCount;
+    }
+
+    public int getLegalMove(int index) {
+        return legacyMoves[index];
+    }
+
+    public ChessMatch newMatch(PositionState position) {
+        ChessMatch match = new ChessMatch(position);
+        match.setMoveCache(moveCache);
+        return match;
+    }
+
+    // The first disagreement found in the position of match, or null. The match is left unchanged.
+    public Mismatch compare(ChessMatch match) {
+        match.saveState(state);
+        legalCount = 0;
+        try {
+            fast.load(state);
+            if (fast.getCheck() != match.getCheck()) {
+                return mismatch(Mismatch.Kind.CHECK, Move.NONE, "legacy check " + match.getCheck() + ", fast " + fast.getCheck());
+            }
+            int legacyCount = match.generateLegalMoves(legacyMoves);
+            int fastCount = fast.generateLegalMoves(fastMoves);
+            Arrays.sort(legacyMoves, 0, legacyCount);
+            Arrays.sort(fastMoves, 0, fastCount);
+            if (!Arrays.equals(legacyMoves, 0, legacyCount, fastMoves, 0, fastCount)) {
+                return mismatch(Mismatch.Kind.LEGAL_MOVES, Move.NONE, "only legacy " + difference(legacyMoves, legacyCount, fastMoves, fastCount)
+                        + ", only fast " + difference(fastMoves, fastCount, legacyMoves, legacyCount));
+            }
+            for (int i = 0; i < legacyCount; i++) {
+                int move = legacyMoves[i];
+                match.makeSearchMove(move);
+                long legacyHash = match.getPositionHash();
+                match.undoSearchMove();
+                after.copyFrom(fast);
+                after.play(move);
+                moves++;
+                if (legacyHash != after.hash()) return mismatch(Mismatch.Kind.MOVE_STATE, move, afterMove(match, move));
+                if (after.getCheck()) {
+                    boolean fastMate = after.generateLegalMoves(replies) == 0;
+                    ChessMatch copy = newMatch(state);
+                    GameReplay.play(copy, move);
+                    if (copy.getCheckMate() != fastMate) {
+                        return mismatch(Mismatch.Kind.MATE, move, "legacy mate " + copy.getCheckMate() + ", fast " + fastMate);
+                    }
+                }
+            }
+            legalCount = legacyCount;
+            return null;
+        } catch (RuntimeException e) {
+            return mismatch(Mismatch.Kind.ERROR, Move.NONE, e.toString());
+        }
+    }
+
+    // Plays a legal move on match with performChessMove and compares the result with MailboxPosition
+    // playing it: the mate flag, and the position unless it is mate (ChessMatch then keeps the turn).
+    public Mismatch play(ChessMatch match, int move) {
+        match.saveState(state);
+        try {
+            fast.load(state);
+            GameReplay.play(match, move);
+            fast.play(move);
+            boolean fastMate = fast.getCheck() && fast.generateLegalMoves(replies) == 0;
+            if (match.getCheckMate() != fastMate) {
+                return mismatch(Mismatch.Kind.MATE, move, "legacy mate " + match.getCheckMate() + ", fast " + fastMate);
+            }
+            if (!fastMate && match.getPositionHash() != fast.hash()) {
+                return mismatch(Mismatch.Kind.MOVE_STATE, move, "legacy " + Fen.format(match.getState()) + ", fast " + fastFen(fast));
+            }
+            return null;
+        } catch (RuntimeException e) {
+            return mismatch(Mismatch.Kind.ERROR, move, e.toString());
+        }
+    }
+
+    private String afterMove(ChessMatch match, int move) {
+        match.makeSearchMove(move);
+        String legacy = Fen.format(match.getState());
+        match.undoSearchMove();
+        return "legacy " + legacy + ", fast " + fastFen(after);
+    }
+
+    private static String fastFen(MailboxPosition position) {
+        PositionState state = new PositionState();
+        position.saveState(state);
+        return Fen.format(state);
+    }
+
+    private Mismatch mismatch(Mismatch.Kind kind, int move, String detail) {
+        return new Mismatch(kind, Fen.format(state), move, detail);
+    }
+
+    private static String difference(int[] moves, int count, int[] other, int otherCount) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (Arrays.binarySearch(other, 0, otherCount, moves[i]) >= 0) continue;
+            if (sb.length() > 1) sb.append(' ');
+            Move.appendUci(moves[i], sb);
+        }
+        return sb.append(']').toString();
+    }
+}
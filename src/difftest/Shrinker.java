@@ -0,0 +1,143 @@
+package difftest;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Fen;
+import chess.MailboxPosition;
+import chess.Move;
+import chess.PositionState;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Shrinks a mismatch to a small position that still shows it: greedily removes pieces other than the
+// kings, castling rights and the en passant square, and keeps each removal after which the same kind of
+// mismatch (about the same move, for a move mismatch) still appears, until none does. Candidates are
+// legal positions only: two kings and the side not to move not in check.
+final class Shrinker {
+
+    private final RulesComparison comparison;
+    private final MailboxPosition position = new MailboxPosition();
+    private final int[] moves = new int[256];
+
+    Shrinker(RulesComparison comparison) {
+        this.comparison = comparison;
+    }
+
+    // The smallest reproduction found, or null when the mismatch does not reproduce from its FEN, which
+    // leaves out move counts (a piece back on its initial square counts as unmoved there).
+    Mismatch shrink(Mismatch mismatch) {
+        Mismatch current = reproduce(mismatch.getFen(), mismatch.getMove(), mismatch.getKind());
+        if (current == null) return null;
+        boolean shrunk = true;
+        while (shrunk) {
+            shrunk = false;
+            for (String candidate : candidates(current.getFen())) {
+                Mismatch smaller = reproduce(candidate, mismatch.getMove(), mismatch.getKind());
+                if (smaller != null) {
+                    current = smaller;
+                    shrunk = true;
+                    break;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Mismatch reproduce(String fen, int move, Mismatch.Kind kind) {
+        PositionState state;
+        try {
+            state = Fen.parse(fen);
+        } catch (ChessException | IllegalStateException e) {
+            return null;
+        }
+        if (!isLegalPosition(state)) return null;
+        ChessMatch match = comparison.newMatch(state);
+        Mismatch found;
+        if (move == Move.NONE) {
+            found = comparison.compare(match);
+        } else {
+            if (!isLegalMove(move)) return null;
+            found = comparison.play(match, move);
+            if (found == null || found.getKind() != kind) found = comparison.compare(comparison.newMatch(state));
+        }
+        if (found == null || found.getKind() != kind || found.getMove() != move) return null;
+        return found;
+    }
+
+    boolean isLegalPosition(PositionState state) {
+        int kings = 0;
+        for (int square = 0; square < PositionState.SQUARES; square++) {
+            byte code = state.getSquare(square);
+            if (code != PositionState.EMPTY && PositionState.type(code) == 'K') kings++;
+        }
+        position.load(state);
+        boolean white = position.isWhiteToMove();
+        int opponentKing = position.getKingSquare(!white);
+        return kings == 2 && position.getKingSquare(white) >= 0 && opponentKing >= 0 && !position.isAttacked(opponentKing, white);
+    }
+
+    // Whether move is legal in the position last checked by isLegalPosition.
+    private boolean isLegalMove(int move) {
+        int count = position.generateLegalMoves(moves);
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) return true;
+        }
+        return false;
+    }
+
+    private static List<String> candidates(String fen) {
+        String[] fields = fen.split(" ");
+        List<String> candidates = new ArrayList<>();
+        char[] board = expand(fields[0]);
+        for (int square = 0; square < board.length; square++) {
+            if (board[square] == ' ' || Character.toUpperCase(board[square]) == 'K') continue;
+            char piece = board[square];
+            board[square] = ' ';
+            candidates.add(fen(board, fields[1], fields[2], fields[3]));
+            board[square] = piece;
+        }
+        if (!fields[2].equals("-")) {
+            for (int i = 0; i < fields[2].length(); i++) {
+                String rights = fields[2].substring(0, i) + fields[2].substring(i + 1);
+                candidates.add(fen(board, fields[1], rights.isEmpty() ? "-" : rights, fields[3]));
+            }
+        }
+        if (!fields[3].equals("-")) candidates.add(fen(board, fields[1], fields[2], "-"));
+        return candidates;
+    }
+
+    private static char[] expand(String placement) {
+        char[] board = new char[PositionState.SQUARES];
+        int square = 0;
+        for (char c : placement.toCharArray()) {
+            if (c == '/') continue;
+            if (c >= '1' && c <= '8') {
+                for (int i = 0; i < c - '0'; i++) board[square++] = ' ';
+            } else {
+                board[square++] = c;
+            }
+        }
+        return board;
+    }
+
+    static String fen(char[] board, String side, String castling, String enPassant) {
+        StringBuilder sb = new StringBuilder(90);
+        for (int row = 0; row < 8; row++) {
+            int empty = 0;
+            for (int column = 0; column < 8; column++) {
+                char c = board[PositionState.square(row, column)];
+                if (c == ' ') {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) sb.append(empty);
+                empty = 0;
+                sb.append(c);
+            }
+            if (empty > 0) sb.append(empty);
+            if (row < 7) sb.append('/');
+        }
+        return sb.append(' ').append(side).append(' ').append(castling).append(' ').append(enPassant).append(" 0 1").toString();
+    }
+}
@@ -0,0 +1,204 @@
+package engine;
+
+import chess.ChessMatch;
+import chess.Color;
+import chess.PieceList;
+import chess.PieceLists;
+import chess.PositionState;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Material plus piece-square tables, with the king table blended from middlegame to endgame by the
+// remaining non-pawn material. All terms live in one weight vector so they can be tuned as a whole.
+// Tables are written from white's point of view with a8 first, the same order as PositionState squares.
+public class ClassicalEvaluator implements Evaluator {
+
+    // Weight layout: material by piece type, one 64-square table per piece type, then the endgame king table.
+    public static final int MATERIAL = 0;
+    public static final int PIECE_SQUARE = MATERIAL + 6;
+    public static final int KING_ENDGAME = PIECE_SQUARE + 6 * 64;
+    public static final int WEIGHTS = KING_ENDGAME + 64;
+
+    // Knights and bishops count 1, rooks 2 and queens 4 towards the middlegame phase.
+    public static final int MAX_PHASE = 24;
+
+    private static final int[] DEFAULT_MATERIAL = {100, 320, 330, 500, 900, 0};
+
+    private static final int[][] DEFAULT_TABLES = {
+            {
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    50, 50, 50, 50, 50, 50, 50, 50,
+                    10, 10, 20, 30, 30, 20, 10, 10,
+                    5, 5, 10, 25, 25, 10, 5, 5,
+                    0, 0, 0, 20, 20, 0, 0, 0,
+                    5, -5, -10, 0, 0, -10, -5, 5,
+                    5, 10, 10, -20, -20, 10, 10, 5,
+                    0, 0, 0, 0, 0, 0, 0, 0
+            },
+            {
+                    -50, -40, -30, -30, -30, -30, -40, -50,
+                    -40, -20, 0, 0, 0, 0, -20, -40,
+                    -30, 0, 10, 15, 15, 10, 0, -30,
+                    -30, 5, 15, 20, 20, 15, 5, -30,
+                    -30, 0, 15, 20, 20, 15, 0, -30,
+                    -30, 5, 10, 15, 15, 10, 5, -30,
+                    -40, -20, 0, 5, 5, 0, -20, -40,
+                    -50, -40, -30, -30, -30, -30, -40, -50
+            },
+            {
+                    -20, -10, -10, -10, -10, -10, -10, -20,
+                    -10, 0, 0, 0, 0, 0, 0, -10,
+                    -10, 0, 5, 10, 10, 5, 0, -10,
+                    -10, 5, 5, 10, 10, 5, 5, -10,
+                    -10, 0, 10, 10, 10, 10, 0, -10,
+                    -10, 10, 10, 10, 10, 10, 10, -10,
+                    -10, 5, 0, 0, 0, 0, 5, -10,
+                    -20, -10, -10, -10, -10, -10, -10, -20
+            },
+            {
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    5, 10, 10, 10, 10, 10, 10, 5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    0, 0, 0, 5, 5, 0, 0, 0
+            },
+            {
+                    -20, -10, -10, -5, -5, -10, -10, -20,
+                    -10, 0, 0, 0, 0, 0, 0, -10,
+                    -10, 0, 5, 5, 5, 5, 0, -10,
+                    -5, 0, 5, 5, 5, 5, 0, -5,
+                    0, 0, 5, 5, 5, 5, 0, -5,
+                    -10, 5, 5, 5, 5, 5, 0, -10,
+                    -10, 0, 5, 0, 0, 0, 0, -10,
+                    -20, -10, -10, -5, -5, -10, -10, -20
+            },
+            {
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -20, -30, -30, -40, -40, -30, -30, -20,
+                    -10, -20, -20, -20, -20, -20, -20, -10,
+                    20, 20, 0, 0, 0, 0, 20, 20,
+                    20, 30, 10, 0, 0, 10, 30, 20
+            }
+    };
+
+    private static final int[] DEFAULT_KING_ENDGAME = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10, 0, 0, -10, -20, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -30, 0, 0, 0, 0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50
+    };
+
+    private final int[] weights;
+
+    public ClassicalEvaluator() {
+        this(defaultWeights());
+    }
+
+    public ClassicalEvaluator(int[] weights) {
+        if (weights.length != WEIGHTS) throw new IllegalArgumentException("Expected " + WEIGHTS + " weights");
+        this.weights = weights.clone();
+    }
+
+    public static int[] defaultWeights() {
+        int[] weights = new int[WEIGHTS];
+        System.arraycopy(DEFAULT_MATERIAL, 0, weights, MATERIAL, 6);
+        for (int type = 0; type < 6; type++) {
+            System.arraycopy(DEFAULT_TABLES[type], 0, weights, PIECE_SQUARE + type * 64, 64);
+        }
+        System.arraycopy(DEFAULT_KING_ENDGAME, 0, weights, KING_ENDGAME, 64);
+        return weights;
+    }
+
+    public int[] getWeights() {
+        return weights.clone();
+    }
+
+    // Weights as whitespace-separated integers in layout order; text after # on a line is a comment.
+    public static int[] readWeights(Path file) throws IOException {
+        int[] weights = new int[WEIGHTS];
+        int count = 0;
+        for (String line : Files.readAllLines(file)) {
+            int comment = line.indexOf('#');
+            if (comment >= 0) line = line.substring(0, comment);
+            for (String token : line.trim().split("\\s+")) {
+                if (token.isEmpty()) continue;
+                if (count == WEIGHTS) throw new IOException("More than " + WEIGHTS + " weights in " + file);
+                weights[count++] = Integer.parseInt(token);
+            }
+        }
+        if (count != WEIGHTS) throw new IOException("Expected " + WEIGHTS + " weights in " + file + ", found " + count);
+        return weights;
+    }
+
+    // One line per block of the layout: material, the six piece-square tables and the endgame king table.
+    public static void writeWeights(Path file, int[] weights) throws IOException {
+        StringBuilder sb = new StringBuilder("# material\n");
+        append(sb, weights, MATERIAL, 6);
+        for (int type = 0; type < 6; type++) {
+            sb.append("# ").append(PositionState.TYPES.charAt(type)).append(" piece-square\n");
+            append(sb, weights, PIECE_SQUARE + type * 64, 64);
+        }
+        sb.append("# K endgame\n");
+        append(sb, weights, KING_ENDGAME, 64);
+        Files.writeString(file, sb);
+    }
+
+    private static void append(StringBuilder sb, int[] weights, int from, int count) {
+        for (int i = 0; i < count; i++) sb.append(weights[from + i]).append(i % 8 == 7 || i == count - 1 ? '\n' : ' ');
+    }
+
+    // Square index into the tables for a piece of the given colour: black squares are mirrored vertically.
+    public static int relativeSquare(Color color, int square) {
+        return color == Color.WHITE ? square : square ^ 56;
+    }
+
+    @Override
+    public int evaluate(ChessMatch match) {
+        PieceLists pieces = match.getPiecesOnTheBoard();
+        int phase = phase(pieces);
+        int white = side(pieces, Color.WHITE, phase);
+        int black = side(pieces, Color.BLACK, phase);
+        return match.getCurrentPlayer() == Color.WHITE ? white - black : black - white;
+    }
+
+    public static int phase(PieceLists pieces) {
+        int phase = 0;
+        for (Color color : Color.values()) {
+            phase += pieces.get(color, PieceLists.KNIGHT).size() + pieces.get(color, PieceLists.BISHOP).size()
+                    + 2 * pieces.get(color, PieceLists.ROOK).size() + 4 * pieces.get(color, PieceLists.QUEEN).size();
+        }
+        return Math.min(phase, MAX_PHASE);
+    }
+
+    private int side(PieceLists pieces, Color color, int phase) {
+        int score = 0;
+        for (byte type = PieceLists.PAWN; type < PieceLists.KING; type++) {
+            PieceList list = pieces.get(color, type);
+            int table = PIECE_SQUARE + (type - 1) * 64;
+            score += list.size() * weights[MATERIAL + type - 1];
+            for (int k = 0; k < list.size(); k++) {
+                score += weights[table + relativeSquare(color, list.get(k).square())];
+            }
+        }
+        PieceList kings = pieces.get(color, PieceLists.KING);
+        if (kings.size() > 0) {
+            int square = relativeSquare(color, kings.get(0).square());
+            int middlegame = weights[PIECE_SQUARE + 5 * 64 + square];
+            int endgame = weights[KING_ENDGAME + square];
+            score += (middlegame * phase + endgame * (MAX_PHASE - phase)) / MAX_PHASE;
+        }
+        return score;
+    }
+}
@@ -0,0 +1,9 @@
+package engine;
+
+import chess.ChessMatch;
+
+public interface Evaluator {
+
+    // Static score of the position for the side to move, in centipawns.
+    int evaluate(ChessMatch match);
+}
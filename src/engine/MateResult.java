@@ -0,0 +1,80 @@
+package engine;
+
+import chess.Move;
+
+public class MateResult {
+
+    public enum Status {
+        MATE, NO_MATE, UNKNOWN
+    }
+
+    private final Status status;
+    private final int mateIn;
+    private final int[] pv;
+    private final long nodes;
+    private final long nanos;
+    private final long memoryBytes;
+    private final int hashfull;
+
+    public MateResult(Status status, int mateIn, int[] pv, long nodes, long nanos, long memoryBytes, int hashfull) {
+        this.status = status;
+        this.mateIn = mateIn;
+        this.pv = pv;
+        this.nodes = nodes;
+        this.nanos = nanos;
+        this.memoryBytes = memoryBytes;
+        this.hashfull = hashfull;
+    }
+
+    // NO_MATE means no forced mate within the requested number of moves; UNKNOWN that the node limit
+    // or stop() ended the search first.
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isMate() {
+        return status == Status.MATE;
+    }
+
+    // Moves to mate when isMate(), otherwise 0.
+    public int getMateIn() {
+        return mateIn;
+    }
+
+    public int getBestMove() {
+        return pv.length == 0 ? Move.NONE : pv[0];
+    }
+
+    public int[] getPv() {
+        return pv.clone();
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    // Proof table plus the per-thread move and hash stacks.
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    public int getHashfull() {
+        return hashfull;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int move : pv) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(Move.toUci(move));
+        }
+        String value = status == Status.MATE ? "mate " + mateIn : status.name().toLowerCase().replace('_', ' ');
+        return String.format("%s nodes %d time %d memory %d KB hashfull %d pv %s",
+                value, nodes, nanos / 1_000_000, memoryBytes / 1024, hashfull, sb);
+    }
+}
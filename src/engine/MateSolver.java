@@ -0,0 +1,350 @@
+package engine;
+
+import chess.ChessMatch;
+import chess.Fen;
+import chess.Move;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Finds forced mates with depth-limited df-pn (depth-first proof-number search). The side to move is the
+// attacker: a node is proven when it mates within the remaining plies and disproven when it cannot.
+// Proof and disproof numbers live in a ProofTable keyed by position hash and remaining plies, and the
+// mate distance is deepened one move at a time so the first mate found is the shortest. Moves are played
+// with makeSearchMove, so castling, en passant and every promotion piece are covered.
+// With several threads each one works on a different promising root move against the shared table.
+public class MateSolver {
+
+    public static final int MAX_MOVES = 32;
+
+    static final int INFINITY = 1 << 30;
+
+    private static final int MAX_PLIES = MAX_MOVES * 2;
+    private static final int MAX_BRANCHES = 256;
+    private static final int FLUSH_INTERVAL = 255;
+    private static final long[] REMAINING = new long[MAX_PLIES];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0xDF9EL);
+        for (int i = 0; i < REMAINING.length; i++) REMAINING[i] = random.nextLong();
+    }
+
+    private final ProofTable table;
+    private final int threads;
+    private final AtomicLong nodes = new AtomicLong();
+    private long nodeLimit;
+    private volatile boolean stopped;
+    private volatile boolean cancelled;
+
+    public MateSolver(ProofTable table, int threads) {
+        if (threads < 1) throw new IllegalArgumentException("Threads cannot be less than 1");
+        this.table = table;
+        this.threads = threads;
+    }
+
+    public ProofTable getTable() {
+        return table;
+    }
+
+    // Safe to call from any thread; solve() then returns UNKNOWN unless a mate was already proven.
+    public void stop() {
+        cancelled = true;
+        stopped = true;
+    }
+
+    // Searches for a mate in at most maxMoves moves by the side to move; nodeLimit 0 means no limit.
+    // The match is back in its original position when this returns.
+    public MateResult solve(ChessMatch match, int maxMoves, long nodeLimit) {
+        if (maxMoves < 1 || maxMoves > MAX_MOVES) throw new IllegalArgumentException("Moves must be between 1 and " + MAX_MOVES);
+        long start = System.nanoTime();
+        this.nodeLimit = nodeLimit > 0 ? nodeLimit : Long.MAX_VALUE;
+        nodes.set(0);
+        cancelled = false;
+        stopped = false;
+        long hash = match.getPositionHash();
+        Prover main = new Prover(match);
+        List<Prover> helpers = new ArrayList<>();
+        for (int t = 1; t < threads; t++) helpers.add(new Prover(match.copy()));
+
+        MateResult.Status status = MateResult.Status.NO_MATE;
+        int mateIn = 0;
+        for (int moves = 1; moves <= maxMoves; moves++) {
+            int remaining = moves * 2 - 1;
+            solveRoot(main, helpers, remaining, hash);
+            long data = table.probe(key(hash, remaining));
+            if (data != 0 && ProofTable.proof(data) == 0) {
+                status = MateResult.Status.MATE;
+                mateIn = moves;
+                break;
+            }
+            if (data == 0 || ProofTable.disproof(data) != 0) {
+                status = MateResult.Status.UNKNOWN;
+                break;
+            }
+        }
+        int[] pv = status == MateResult.Status.MATE ? main.principalVariation(mateIn * 2 - 1) : new int[0];
+        long memory = table.getBytes() + (long) threads * Prover.BYTES;
+        return new MateResult(status, mateIn, pv, nodes.get(), System.nanoTime() - start, memory, table.hashfull());
+    }
+
+    private void solveRoot(Prover main, List<Prover> helpers, int remaining, long hash) {
+        int count = main.expand(0, remaining);
+        long key = key(hash, remaining);
+        if (count == 0) {
+            main.storeLeaf(key, true);
+            return;
+        }
+        Root root = new Root(main.moves[0], main.hashes[0], count, remaining, key);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < helpers.size(); t++) {
+            Prover helper = helpers.get(t);
+            Thread worker = new Thread(() -> helper.solveRoot(root), "mate-" + (t + 1));
+            workers.add(worker);
+            worker.start();
+        }
+        main.solveRoot(root);
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelled = true;
+            }
+        }
+        stopped = cancelled || nodes.get() >= nodeLimit;
+    }
+
+    // Root moves of one iteration. Each thread repeatedly takes the move with the smallest proof number
+    // among those the fewest threads are working on and searches it until its proof number passes the
+    // next best one, as single-threaded df-pn would at the root.
+    private class Root {
+
+        final int[] moves;
+        final long[] hashes;
+        final int count;
+        final int remaining;
+        final long key;
+        final int[] workers;
+        boolean solved;
+
+        Root(int[] moves, long[] hashes, int count, int remaining, long key) {
+            this.moves = moves.clone();
+            this.hashes = hashes.clone();
+            this.count = count;
+            this.remaining = remaining;
+            this.key = key;
+            workers = new int[count];
+        }
+
+        // Index of the next move to search with its disproof threshold packed in the high bits, or -1
+        // once the root is solved or the search stopped.
+        synchronized long take() {
+            if (solved || stopped) return -1;
+            int best = -1;
+            int bestProof = INFINITY;
+            int open = 0;
+            for (int i = 0; i < count; i++) {
+                long data = table.probe(key(hashes[i], remaining - 1));
+                int proof = data == 0 ? 1 : ProofTable.proof(data);
+                int disproof = data == 0 ? 1 : ProofTable.disproof(data);
+                if (proof == 0) return finish(true);
+                if (disproof == 0) continue;
+                open++;
+                if (best < 0 || workers[i] < workers[best] || workers[i] == workers[best] && proof < bestProof) {
+                    best = i;
+                    bestProof = proof;
+                }
+            }
+            if (open == 0) return finish(false);
+            int next = INFINITY;
+            for (int i = 0; i < count; i++) {
+                if (i == best || workers[i] > 0) continue;
+                long data = table.probe(key(hashes[i], remaining - 1));
+                int proof = data == 0 ? 1 : ProofTable.proof(data);
+                if (data == 0 || ProofTable.disproof(data) != 0) next = Math.min(next, proof);
+            }
+            workers[best]++;
+            return best | Math.min(INFINITY, next + 1L) << 32;
+        }
+
+        synchronized void release(int index) {
+            workers[index]--;
+        }
+
+        private long finish(boolean proven) {
+            solved = true;
+            // Threads still inside a subtree abandon it; solveRoot resets the flag afterwards.
+            stopped = true;
+            if (proven) table.store(key, 0, INFINITY);
+            else table.store(key, INFINITY, 0);
+            return -1;
+        }
+    }
+
+    static long key(long hash, int remaining) {
+        return hash ^ REMAINING[remaining];
+    }
+
+    // Search state of one thread: its own match and the move and child hash stacks.
+    private class Prover {
+
+        static final long BYTES = (long) MAX_PLIES * MAX_BRANCHES * (Integer.BYTES + Long.BYTES);
+
+        final ChessMatch match;
+        final int[][] moves = new int[MAX_PLIES][MAX_BRANCHES];
+        final long[][] hashes = new long[MAX_PLIES][MAX_BRANCHES];
+        private final int[] pseudo = new int[MAX_BRANCHES];
+        private long localNodes;
+
+        Prover(ChessMatch match) {
+            this.match = match;
+        }
+
+        void solveRoot(Root root) {
+            long next;
+            while ((next = root.take()) >= 0) {
+                int index = (int) next;
+                match.makeSearchMove(root.moves[index]);
+                mid(1, root.remaining - 1, root.hashes[index], INFINITY, (int) (next >>> 32));
+                match.undoSearchMove();
+                root.release(index);
+            }
+            flush();
+        }
+
+        // Legal moves at this ply into moves[ply] with the hash of each resulting position, returning the
+        // count. A defender out of plies only needs to know whether it has a move at all, and attacker moves
+        // that leave the defender out of plies without check are disproven on the spot.
+        int expand(int ply, int remaining) {
+            boolean attacker = (remaining & 1) == 1;
+            int total = match.generateMoves(pseudo);
+            int count = 0;
+            for (int i = 0; i < total; i++) {
+                if (!match.makeSearchMove(pseudo[i])) continue;
+                if (!attacker && remaining == 0) {
+                    match.undoSearchMove();
+                    return 1;
+                }
+                long child = match.getPositionHash();
+                if (attacker && remaining == 1 && !match.getCheck()) table.store(key(child, 0), INFINITY, 0);
+                match.undoSearchMove();
+                moves[ply][count] = pseudo[i];
+                hashes[ply][count++] = child;
+            }
+            return count;
+        }
+
+        void storeLeaf(long key, boolean attacker) {
+            // No legal move: mate when the defender is in check, a failed attack in every other case.
+            if (!attacker && match.getCheck()) table.store(key, 0, INFINITY);
+            else table.store(key, INFINITY, 0);
+        }
+
+        // One df-pn node. phi and delta are the proof and disproof numbers from the point of view of the
+        // side to move (pn and dn for the attacker, dn and pn for the defender); the node is expanded until
+        // phi reaches thPhi or delta reaches thDelta, and the result is left in the table.
+        void mid(int ply, int remaining, long hash, int thPhi, int thDelta) {
+            boolean attacker = (remaining & 1) == 1;
+            long key = key(hash, remaining);
+            if (++localNodes > FLUSH_INTERVAL) flush();
+            int count = expand(ply, remaining);
+            if (count == 0) {
+                storeLeaf(key, attacker);
+                return;
+            }
+            if (remaining == 0) {
+                table.store(key, INFINITY, 0);
+                return;
+            }
+            long[] children = hashes[ply];
+            while (true) {
+                int phi = INFINITY;
+                long delta = 0;
+                int best = 0;
+                int bestPhi = 0;
+                int delta2 = INFINITY;
+                for (int i = 0; i < count; i++) {
+                    long data = table.probe(key(children[i], remaining - 1));
+                    int proof = data == 0 ? 1 : ProofTable.proof(data);
+                    int disproof = data == 0 ? 1 : ProofTable.disproof(data);
+                    int childPhi = attacker ? disproof : proof;
+                    int childDelta = attacker ? proof : disproof;
+                    if (childDelta < phi) {
+                        delta2 = phi;
+                        phi = childDelta;
+                        best = i;
+                        bestPhi = childPhi;
+                    } else if (childDelta < delta2) {
+                        delta2 = childDelta;
+                    }
+                    delta = childPhi == INFINITY || delta == INFINITY ? INFINITY : Math.min(INFINITY - 1, delta + childPhi);
+                }
+                if (phi >= thPhi || delta >= thDelta || stopped) {
+                    if (attacker) table.store(key, phi, (int) delta);
+                    else table.store(key, (int) delta, phi);
+                    return;
+                }
+                int childThPhi = (int) Math.min(INFINITY, (long) thDelta + bestPhi - delta);
+                int childThDelta = (int) Math.min(thPhi, delta2 + 1L);
+                match.makeSearchMove(moves[ply][best]);
+                mid(ply + 1, remaining - 1, children[best], childThPhi, childThDelta);
+                match.undoSearchMove();
+            }
+        }
+
+        void flush() {
+            if (nodes.addAndGet(localNodes) >= nodeLimit) stopped = true;
+            localNodes = 0;
+        }
+
+        // Follows proven entries from the root: a proven attacker move at each attacker node and the first
+        // defence at each defender node, stopping early if an entry on the way has been replaced.
+        int[] principalVariation(int remaining) {
+            int[] line = new int[remaining];
+            int length = 0;
+            for (; remaining > 0; remaining--) {
+                int count = expand(length, remaining);
+                int chosen = -1;
+                for (int i = 0; i < count && chosen < 0; i++) {
+                    long data = table.probe(key(hashes[length][i], remaining - 1));
+                    if (data != 0 && ProofTable.proof(data) == 0) chosen = i;
+                }
+                if (chosen < 0) break;
+                line[length] = moves[length][chosen];
+                match.makeSearchMove(line[length++]);
+            }
+            for (int i = 0; i < length; i++) match.undoSearchMove();
+            return Arrays.copyOf(line, length);
+        }
+    }
+
+    // Arguments: <fen> then key=value options: moves (maximum mate distance), threads, hash (MB) and nodes.
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("usage: MateSolver \"<fen>\" [moves=5] [threads=1] [hash=64] [nodes=0]");
+            return;
+        }
+        int maxMoves = 5;
+        int threads = 1;
+        int hash = 64;
+        long nodeLimit = 0;
+        for (int i = 1; i < args.length; i++) {
+            String[] option = args[i].split("=", 2);
+            if (option.length != 2) throw new IllegalArgumentException("Expected key=value: " + args[i]);
+            switch (option[0]) {
+                case "moves" -> maxMoves = Integer.parseInt(option[1]);
+                case "threads" -> threads = Integer.parseInt(option[1]);
+                case "hash" -> hash = Integer.parseInt(option[1]);
+                case "nodes" -> nodeLimit = Long.parseLong(option[1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + option[0]);
+            }
+        }
+        ChessMatch match = new ChessMatch(Fen.parse(args[0]));
+        MateResult result = new MateSolver(new ProofTable(hash), threads).solve(match, maxMoves, nodeLimit);
+        System.out.println(result);
+        if (result.isMate()) System.out.println("bestmove " + Move.toUci(result.getBestMove()));
+    }
+}
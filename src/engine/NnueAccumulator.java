@@ -0,0 +1,61 @@
+package engine;
+
+import boardgame.BoardListener;
+import boardgame.Piece;
+import boardgame.Position;
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.Color;
+import chess.PositionState;
+
+// First-layer sums of an NnueNetwork for both perspectives, kept in step with a ChessMatch by listening
+// to its board: every piece placed adds its feature rows and every piece removed subtracts them, so
+// makeMove, undoMove, promotions and search moves cost a few row additions instead of a refresh.
+// The row additions run on NnueKernel.INSTANCE, vectorized when the Vector API is available.
+class NnueAccumulator implements BoardListener {
+
+    private final NnueNetwork network;
+    private final NnueKernel kernel = NnueKernel.INSTANCE;
+    final short[] white;
+    final short[] black;
+
+    NnueAccumulator(NnueNetwork network) {
+        this.network = network;
+        white = new short[network.hidden];
+        black = new short[network.hidden];
+    }
+
+    // Recomputes both perspectives from the pieces on the board.
+    void refresh(ChessMatch match) {
+        System.arraycopy(network.featureBiases, 0, white, 0, white.length);
+        System.arraycopy(network.featureBiases, 0, black, 0, black.length);
+        for (int square = 0; square < PositionState.SQUARES; square++) {
+            byte code = match.getPieceCode(square);
+            if (code != PositionState.EMPTY) update(code, square, 1);
+        }
+    }
+
+    @Override
+    public void piecePlaced(Piece piece, Position position) {
+        update(PositionState.code((ChessPiece) piece), PositionState.square(position.getRow(), position.getColumn()), 1);
+    }
+
+    @Override
+    public void pieceRemoved(Piece piece, Position position) {
+        update(PositionState.code((ChessPiece) piece), PositionState.square(position.getRow(), position.getColumn()), -1);
+    }
+
+    private void update(byte code, int square, int sign) {
+        int hidden = network.hidden;
+        short[] weights = network.featureWeights;
+        int whiteRow = NnueNetwork.feature(Color.WHITE, code, square) * hidden;
+        int blackRow = NnueNetwork.feature(Color.BLACK, code, square) * hidden;
+        if (sign > 0) {
+            kernel.add(white, weights, whiteRow);
+            kernel.add(black, weights, blackRow);
+        } else {
+            kernel.subtract(white, weights, whiteRow);
+            kernel.subtract(black, weights, blackRow);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package engine;
+
+import chess.ChessMatch;
+import chess.Color;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+// Evaluates with an NnueNetwork. The evaluator attaches its accumulator to the board of the match it is
+// asked about and refreshes it once; from then on the accumulator follows every move made on that match,
+// so evaluate() only runs the output layer. Like the Search that owns it, one instance serves one thread.
+// Both layers run on NnueKernel.INSTANCE: the Vector API when the JVM is started with
+// --add-modules jdk.incubator.vector, plain loops otherwise.
+public class NnueEvaluator implements Evaluator {
+
+    private final NnueNetwork network;
+    private final NnueAccumulator accumulator;
+    private final NnueKernel kernel = NnueKernel.INSTANCE;
+    private ChessMatch attached;
+
+    public NnueEvaluator(NnueNetwork network) {
+        this.network = network;
+        accumulator = new NnueAccumulator(network);
+    }
+
+    public static NnueEvaluator load(Path file) throws IOException {
+        return new NnueEvaluator(NnueNetwork.load(file));
+    }
+
+    public NnueNetwork getNetwork() {
+        return network;
+    }
+
+    // The loops in use, "scalar" or "vector" with the vector width.
+    public static String getKernelName() {
+        return NnueKernel.INSTANCE.getName();
+    }
+
+    @Override
+    public int evaluate(ChessMatch match) {
+        if (match != attached || match.getBoardListener() != accumulator) attach(match);
+        boolean white = match.getCurrentPlayer() == Color.WHITE;
+        short[] us = white ? accumulator.white : accumulator.black;
+        short[] them = white ? accumulator.black : accumulator.white;
+        int clip = network.clip;
+        short[] weights = network.outputWeights;
+        int sum = kernel.clippedDot(us, clip, weights, 0) + kernel.clippedDot(them, clip, weights, network.hidden);
+        return (int) ((long) (sum + network.outputBias) * network.scale / network.divisor);
+    }
+
+    private void attach(ChessMatch match) {
+        if (attached != null && attached.getBoardListener() == accumulator) attached.setBoardListener(null);
+        match.setBoardListener(accumulator);
+        accumulator.refresh(match);
+        attached = match;
+    }
+}
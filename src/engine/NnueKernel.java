@@ -0,0 +1,32 @@
+package engine;
+
+// The inner loops of NNUE inference over rows of shorts. INSTANCE is VectorNnueKernel when the
+// jdk.incubator.vector module is in the boot layer (java --add-modules jdk.incubator.vector) and
+// ScalarNnueKernel otherwise; the vector class is loaded reflectively, so without the module it is never
+// linked. -Dxadrez.nnue.scalar=true keeps the scalar loops even with the module, for comparison.
+interface NnueKernel {
+
+    NnueKernel INSTANCE = load();
+
+    // accumulator[i] += weights[offset + i] for every i of accumulator.
+    void add(short[] accumulator, short[] weights, int offset);
+
+    // accumulator[i] -= weights[offset + i] for every i of accumulator.
+    void subtract(short[] accumulator, short[] weights, int offset);
+
+    // Sum of min(max(values[i], 0), clip) * weights[offset + i] over every i of values.
+    int clippedDot(short[] values, int clip, short[] weights, int offset);
+
+    String getName();
+
+    private static NnueKernel load() {
+        if (!Boolean.getBoolean("xadrez.nnue.scalar") && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (NnueKernel) Class.forName("engine.VectorNnueKernel").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // the scalar loops below
+            }
+        }
+        return new ScalarNnueKernel();
+    }
+}
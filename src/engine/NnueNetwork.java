@@ -0,0 +1,135 @@
+package engine;
+
+import chess.Color;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Weights of an NNUE-style network: 768 piece-square inputs seen from each side's perspective feed one
+// hidden layer per perspective (the accumulators), and the clipped hidden values of the side to move and
+// of its opponent feed a single output. The score is (output + outputBias) * scale / divisor centipawns.
+//
+// File layout, little-endian: magic, version, hidden, clip, scale, divisor (ints), then feature weights
+// (768 x hidden shorts, feature-major), feature biases (hidden shorts), output weights (2 x hidden shorts,
+// side to move first) and the output bias (int).
+public class NnueNetwork {
+
+    public static final int MAGIC = 0x554E4E58;
+    public static final int VERSION = 1;
+    public static final int FEATURES = 12 * 64;
+
+    private static final int HEADER_BYTES = 6 * Integer.BYTES;
+
+    final int hidden;
+    final int clip;
+    final int scale;
+    final int divisor;
+    final short[] featureWeights;
+    final short[] featureBiases;
+    final short[] outputWeights;
+    final int outputBias;
+
+    public NnueNetwork(int hidden, int clip, int scale, int divisor, short[] featureWeights, short[] featureBiases,
+                       short[] outputWeights, int outputBias) {
+        if (hidden < 1 || clip < 1 || divisor == 0) throw new IllegalArgumentException("Invalid network dimensions");
+        if (featureWeights.length != FEATURES * hidden || featureBiases.length != hidden || outputWeights.length != 2 * hidden) {
+            throw new IllegalArgumentException("Weight arrays do not match " + hidden + " hidden units");
+        }
+        this.hidden = hidden;
+        this.clip = clip;
+        this.scale = scale;
+        this.divisor = divisor;
+        this.featureWeights = featureWeights;
+        this.featureBiases = featureBiases;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+    }
+
+    // Reads the whole file and copies the weights into the arrays the inference loops run over.
+    public static NnueNetwork load(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) throw new IOException("Not a network file: " + file);
+        int version = buffer.getInt();
+        if (version != VERSION) throw new IOException("Unsupported network version " + version + ": " + file);
+        int hidden = buffer.getInt();
+        int clip = buffer.getInt();
+        int scale = buffer.getInt();
+        int divisor = buffer.getInt();
+        if (hidden < 1 || buffer.remaining() != bytes(hidden) - HEADER_BYTES) throw new IOException("Truncated network file: " + file);
+        short[] featureWeights = new short[FEATURES * hidden];
+        short[] featureBiases = new short[hidden];
+        short[] outputWeights = new short[2 * hidden];
+        buffer.asShortBuffer().get(featureWeights);
+        buffer.position(buffer.position() + featureWeights.length * Short.BYTES);
+        buffer.asShortBuffer().get(featureBiases);
+        buffer.position(buffer.position() + featureBiases.length * Short.BYTES);
+        buffer.asShortBuffer().get(outputWeights);
+        buffer.position(buffer.position() + outputWeights.length * Short.BYTES);
+        return new NnueNetwork(hidden, clip, scale, divisor, featureWeights, featureBiases, outputWeights, buffer.getInt());
+    }
+
+    public void write(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) bytes(hidden)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(hidden).putInt(clip).putInt(scale).putInt(divisor);
+        buffer.asShortBuffer().put(featureWeights).put(featureBiases).put(outputWeights);
+        buffer.position(buffer.position() + (featureWeights.length + featureBiases.length + outputWeights.length) * Short.BYTES);
+        buffer.putInt(outputBias);
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+    }
+
+    private static long bytes(int hidden) {
+        return HEADER_BYTES + (long) (FEATURES + 3) * hidden * Short.BYTES + Integer.BYTES;
+    }
+
+    public int getHidden() {
+        return hidden;
+    }
+
+    // Input index of a piece (PositionState code) on a square, seen from perspective: the perspective's
+    // own pieces come first, and squares are mirrored for black so both sides see their pieces from below.
+    public static int feature(Color perspective, byte code, int square) {
+        boolean white = code <= 6;
+        int type = (code - 1) % 6;
+        boolean own = white == (perspective == Color.WHITE);
+        return ((own ? 0 : 6) + type) * 64 + ClassicalEvaluator.relativeSquare(perspective, square);
+    }
+
+    // A network that computes the classical material and piece-square score, using the middlegame king
+    // table throughout. Each side's pieces are spread over 32 hidden units, unit k holding
+    // floor((value + k) / 32) per piece, so the units sum back to the exact value while staying inside the
+    // clip range; a bias keeps them above zero and cancels out in the output. Useful as a drop-in network
+    // to check the pipeline and to measure inference cost; a trained network replaces it file for file.
+    public static NnueNetwork fromClassical(ClassicalEvaluator classical, int hidden) {
+        final int units = 32;
+        final int bias = 8;
+        if (hidden < 2 * units) throw new IllegalArgumentException("Need at least " + 2 * units + " hidden units");
+        int[] weights = classical.getWeights();
+        short[] featureWeights = new short[FEATURES * hidden];
+        short[] featureBiases = new short[hidden];
+        short[] outputWeights = new short[2 * hidden];
+        for (int feature = 0; feature < FEATURES; feature++) {
+            int type = feature / 64 % 6;
+            boolean own = feature < 6 * 64;
+            // Opponent pieces are stored from our perspective, so their table square is mirrored back.
+            int tableSquare = own ? feature % 64 : feature % 64 ^ 56;
+            int value = weights[ClassicalEvaluator.MATERIAL + type] + weights[ClassicalEvaluator.PIECE_SQUARE + type * 64 + tableSquare];
+            int first = own ? 0 : units;
+            for (int k = 0; k < units; k++) {
+                featureWeights[feature * hidden + first + k] = (short) Math.floorDiv(value + k, units);
+            }
+        }
+        for (int k = 0; k < 2 * units; k++) {
+            featureBiases[k] = bias;
+            outputWeights[k] = (short) (k < units ? 1 : -1);
+        }
+        return new NnueNetwork(hidden, 255, 1, 1, featureWeights, featureBiases, outputWeights, 0);
+    }
+}
@@ -0,0 +1,149 @@
+package engine;
+
+import chess.ChessMatch;
+import chess.Move;
+
+import java.util.function.Consumer;
+
+// Thinks on the opponent's time: after the engine moves, start() searches the position after the predicted
+// reply on a background thread until the engine is to move again. The ponder search runs on the engine's
+// own Search, and so fills its transposition table; when the opponent plays the predicted move through
+// performChessMove, search() finds that work in the table and reaches the pondered depths almost at once.
+// A hit saves the time the ponder search took to reach the deepest depth both searches completed, less
+// the time the real search needed to get there again.
+public class Ponderer implements AutoCloseable {
+
+    private final Search search;
+    private final long[] ponderReached = new long[Search.MAX_PLY + 1];
+    private final long[] searchReached = new long[Search.MAX_PLY + 1];
+    private Thread thread;
+    private long ponderHash;
+    private long ponderStart;
+    private volatile int ponderDepth;
+
+    private long hits;
+    private long misses;
+    private long ponderNanos;
+    private long savedNanos;
+
+    public Ponderer(Search search) {
+        this.search = search;
+    }
+
+    public Search getSearch() {
+        return search;
+    }
+
+    public boolean isPondering() {
+        return thread != null;
+    }
+
+    // Starts pondering on the predicted reply to the position of match, usually the second move of the
+    // last principal variation. hashes holds the game's position hashes up to and including the current
+    // one. Returns false, without pondering, when the predicted move is not legal. The match is not touched.
+    public boolean start(ChessMatch match, int predicted, long[] hashes, int count) {
+        stop();
+        if (predicted == Move.NONE) return false;
+        ChessMatch position = match.copy();
+        position.setMoveCache(match.getMoveCache());
+        if (!position.makeSearchMove(predicted)) return false;
+        ponderHash = position.getPositionHash();
+        ponderDepth = 0;
+        search.setGameHistory(hashes, count);
+        Consumer<SearchResult> listener = search.getListener();
+        ponderStart = System.nanoTime();
+        thread = new Thread(() -> {
+            search.setListener(result -> {
+                ponderReached[result.getDepth()] = System.nanoTime() - ponderStart;
+                ponderDepth = result.getDepth();
+            });
+            try {
+                search.search(position, SearchLimits.depth(Search.MAX_PLY));
+            } finally {
+                search.setListener(listener);
+            }
+        }, "ponder");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    // Stops pondering, if it is, and searches the engine's move. hashes holds the game's position hashes
+    // before the current one, as for Search.setGameHistory.
+    public SearchResult search(ChessMatch match, SearchLimits limits, long[] hashes, int count) {
+        boolean pondered = thread != null;
+        long pondering = stop();
+        boolean hit = pondered && ponderHash == match.getPositionHash();
+        if (pondered) {
+            if (hit) hits++;
+            else misses++;
+            ponderNanos += pondering;
+        }
+        search.setGameHistory(hashes, count);
+        Consumer<SearchResult> listener = search.getListener();
+        long start = System.nanoTime();
+        int[] depth = {0};
+        search.setListener(result -> {
+            searchReached[result.getDepth()] = System.nanoTime() - start;
+            depth[0] = result.getDepth();
+            if (listener != null) listener.accept(result);
+        });
+        try {
+            SearchResult result = search.search(match, limits);
+            int common = Math.min(depth[0], ponderDepth);
+            if (hit && common > 0) savedNanos += Math.max(0, ponderReached[common] - searchReached[common]);
+            return result;
+        } finally {
+            search.setListener(listener);
+        }
+    }
+
+    // Stops the ponder search and returns how long it ran, 0 when there was none. Search.stop() is
+    // repeated until the thread ends because a stop that lands before search() begins is reset by it.
+    public long stop() {
+        if (thread == null) return 0;
+        try {
+            while (thread.isAlive()) {
+                search.stop();
+                thread.join(1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+        return System.nanoTime() - ponderStart;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    // Time spent pondering, on hits and misses alike.
+    public long getPonderNanos() {
+        return ponderNanos;
+    }
+
+    public long getSavedNanos() {
+        return savedNanos;
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Ponderer[hits=%d, misses=%d, hitRate=%.3f, ponder=%d ms, saved=%d ms]",
+                hits, misses, getHitRate(), ponderNanos / 1_000_000, savedNanos / 1_000_000);
+    }
+}
@@ -0,0 +1,83 @@
+package engine;
+
+import java.util.Arrays;
+
+// Proof and disproof numbers of df-pn search, shared between threads with the same lockless scheme as
+// TranspositionTable: two longs per slot, the key stored XORed with the data. Slots are paired into
+// buckets and a solved entry is only replaced when both slots of its bucket are solved.
+public class ProofTable {
+
+    private final long[] slots;
+    private final int mask;
+
+    public ProofTable(int megabytes) {
+        long entries = Math.max(1024, (long) megabytes * 1024 * 1024 / 16);
+        int size = Integer.highestOneBit((int) Math.min(entries, 1 << 28));
+        slots = new long[size * 2];
+        mask = size - 2;
+    }
+
+    public int getCapacity() {
+        return mask + 2;
+    }
+
+    public long getBytes() {
+        return (long) slots.length * Long.BYTES;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, 0);
+    }
+
+    // Packed proof and disproof numbers for key, or 0 when there is no entry.
+    public long probe(long key) {
+        int index = (int) (key & mask) << 1;
+        for (int i = index; i < index + 4; i += 2) {
+            long data = slots[i + 1];
+            if ((slots[i] ^ data) == key) return data;
+        }
+        return 0;
+    }
+
+    public void store(long key, int proof, int disproof) {
+        int index = (int) (key & mask) << 1;
+        int slot = -1;
+        for (int i = index; i < index + 4; i += 2) {
+            long data = slots[i + 1];
+            if (data == 0 || (slots[i] ^ data) == key) {
+                slot = i;
+                break;
+            }
+        }
+        if (slot < 0) slot = !solved(slots[index + 3]) || solved(slots[index + 1]) ? index + 2 : index;
+        long data = pack(proof, disproof);
+        slots[slot] = key ^ data;
+        slots[slot + 1] = data;
+    }
+
+    // Permille of sampled slots in use.
+    public int hashfull() {
+        int used = 0;
+        int sample = Math.min(1000, getCapacity());
+        for (int i = 0; i < sample; i++) {
+            if (slots[i * 2 + 1] != 0) used++;
+        }
+        return used * 1000 / sample;
+    }
+
+    static long pack(int proof, int disproof) {
+        return proof | (long) disproof << 32;
+    }
+
+    public static int proof(long data) {
+        return (int) data;
+    }
+
+    public static int disproof(long data) {
+        return (int) (data >>> 32);
+    }
+
+    private static boolean solved(long data) {
+        return proof(data) == 0 || disproof(data) == 0;
+    }
+}
@@ -0,0 +1,27 @@
+package engine;
+
+// Plain counted loops, which C2 auto-vectorizes for add and subtract.
+final class ScalarNnueKernel implements NnueKernel {
+
+    @Override
+    public void add(short[] accumulator, short[] weights, int offset) {
+        for (int i = 0; i < accumulator.length; i++) accumulator[i] += weights[offset + i];
+    }
+
+    @Override
+    public void subtract(short[] accumulator, short[] weights, int offset) {
+        for (int i = 0; i < accumulator.length; i++) accumulator[i] -= weights[offset + i];
+    }
+
+    @Override
+    public int clippedDot(short[] values, int clip, short[] weights, int offset) {
+        int sum = 0;
+        for (int i = 0; i < values.length; i++) sum += Math.min(Math.max(values[i], 0), clip) * weights[offset + i];
+        return sum;
+    }
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+}
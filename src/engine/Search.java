@@ -0,0 +1,420 @@
+package engine;
+
+import chess.ChessMatch;
+import chess.Fen;
+import chess.Move;
+import chess.PieceLists;
+import chess.PositionState;
+import metrics.Metrics;
+import metrics.SearchIterationEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Iterative-deepening principal variation search on a ChessMatch, played with makeSearchMove and
+// undoSearchMove so the match is back in its original position when search() returns. Quiescence
+// search resolves captures (skipping those that lose material by static exchange) and check evasions.
+// One Search belongs to one thread; several may share a TranspositionTable. Under -Dxadrez.profile=true
+// each Search also fills a SearchProfile with tree statistics and phase times per iteration.
+public class Search {
+
+    public static final int MAX_PLY = 128;
+    public static final int INFINITY = 32000;
+    public static final int MATE = 31000;
+
+    private static final int MAX_MOVES = 256;
+    private static final int CHECK_INTERVAL = 1023;
+
+    private final Evaluator evaluator;
+    private final TranspositionTable table;
+    private final int[][] moves = new int[MAX_PLY + 1][MAX_MOVES];
+    private final int[][] orders = new int[MAX_PLY + 1][MAX_MOVES];
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+    private final int[] history = new int[64 * 64];
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    private final int[] excluded = new int[MAX_MOVES];
+    private int excludedCount;
+    private long[] path = new long[MAX_PLY * 2];
+    private int gamePlies;
+
+    private ChessMatch match;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private boolean aborted;
+    private volatile boolean stopped;
+    private Consumer<SearchResult> listener;
+    private final SearchProfile profile = Metrics.PROFILE ? new SearchProfile() : null;
+
+    public Search(Evaluator evaluator, TranspositionTable table) {
+        this.evaluator = evaluator;
+        this.table = table;
+    }
+
+    public Evaluator getEvaluator() {
+        return evaluator;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    // Statistics of the iterations this Search completed, null unless Metrics.PROFILE is on.
+    public SearchProfile getProfile() {
+        return profile;
+    }
+
+    public Consumer<SearchResult> getListener() {
+        return listener;
+    }
+
+    // Called after every completed iteration, on the searching thread.
+    public void setListener(Consumer<SearchResult> listener) {
+        this.listener = listener;
+    }
+
+    // Position hashes of the game so far, oldest first, so repetitions of earlier positions score as draws.
+    public void setGameHistory(long[] hashes, int count) {
+        if (path.length < count + MAX_PLY + 1) path = new long[count + MAX_PLY + 1];
+        System.arraycopy(hashes, 0, path, 0, count);
+        gamePlies = count;
+    }
+
+    // Safe to call from any thread; the search returns the best move of its last completed iteration.
+    public void stop() {
+        stopped = true;
+    }
+
+    public SearchResult search(ChessMatch match, SearchLimits limits) {
+        return searchMultiPv(match, limits, 1).get(0);
+    }
+
+    // The best `lines` root moves, best first, each with its own score and principal variation. Every
+    // iteration searches the root once per line, excluding the moves of the lines already found; the
+    // listener sees the best line of each completed iteration.
+    public List<SearchResult> searchMultiPv(ChessMatch match, SearchLimits limits, int lines) {
+        if (lines < 1) throw new IllegalArgumentException("Lines cannot be less than 1");
+        long start = System.nanoTime();
+        this.match = match;
+        nodes = 0;
+        nodeLimit = limits.getNodes();
+        deadline = limits.getTimeMillis() > 0 ? start + limits.getTimeMillis() * 1_000_000 : Long.MAX_VALUE;
+        aborted = false;
+        stopped = false;
+        excludedCount = 0;
+        table.newSearch();
+        if (Metrics.PROFILE) profile.startSearch();
+        for (int[] k : killers) Arrays.fill(k, Move.NONE);
+        Arrays.fill(history, 0);
+
+        int[] rootMoves = new int[MAX_MOVES];
+        int count = legalMoves(match, rootMoves);
+        if (count == 0 || match.getCheckMate()) {
+            return List.of(new SearchResult(Move.NONE, match.getCheck() ? -MATE : 0, 0, 0, System.nanoTime() - start, new int[0]));
+        }
+
+        List<SearchResult> results = List.of(new SearchResult(rootMoves[0], 0, 0, 0, 0, new int[]{rootMoves[0]}));
+        for (int depth = 1; depth <= limits.getDepth(); depth++) {
+            SearchIterationEvent event = new SearchIterationEvent();
+            event.begin();
+            long iterationStart = Metrics.PROFILE ? System.nanoTime() : 0;
+            long iterationNodes = nodes;
+            long checkNanos = Metrics.PROFILE ? match.getTestCheckNanos() : 0;
+            long checkCalls = Metrics.PROFILE ? match.getTestCheckCalls() : 0;
+            List<SearchResult> iteration = new ArrayList<>();
+            for (int line = 0; line < Math.min(lines, count); line++) {
+                int score = negamax(depth, -INFINITY, INFINITY, 0);
+                if (aborted) break;
+                iteration.add(new SearchResult(pv[0][0], score, depth, nodes, System.nanoTime() - start, Arrays.copyOf(pv[0], pvLength[0])));
+                excluded[excludedCount++] = pv[0][0];
+            }
+            excludedCount = 0;
+            if (aborted) {
+                if (Metrics.PROFILE) profile.discardIteration();
+                break;
+            }
+            if (Metrics.PROFILE) {
+                profile.completeIteration(depth, nodes - iterationNodes, System.nanoTime() - iterationStart,
+                        match.getTestCheckNanos() - checkNanos, match.getTestCheckCalls() - checkCalls, table.hashfull());
+            }
+            iteration.sort(Comparator.comparingInt(result -> -result.getScore()));
+            results = iteration;
+            SearchResult best = results.get(0);
+            if (event.shouldCommit()) {
+                event.fen = Fen.format(match.getState());
+                event.positionHash = match.getPositionHash();
+                event.depth = depth;
+                event.nodes = nodes;
+                event.score = best.getScore();
+                event.bestMove = Move.toUci(best.getBestMove());
+                event.commit();
+            }
+            if (listener != null) listener.accept(best);
+            if (best.isMate() && MATE - Math.abs(best.getScore()) <= depth) break;
+        }
+        return results;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    // Legal moves of the side to move; the match is left unchanged.
+    public static int legalMoves(ChessMatch match, int[] buffer) {
+        return match.generateLegalMoves(buffer);
+    }
+
+    private int negamax(int depth, int alpha, int beta, int ply) {
+        pvLength[ply] = 0;
+        long hash = match.getPositionHash();
+        if (ply > 0 && isRepetition(hash, ply)) return 0;
+        path[gamePlies + ply] = hash;
+
+        boolean inCheck = match.getCheck();
+        if (inCheck) depth++;
+        if (depth <= 0 || ply >= MAX_PLY) return quiesce(alpha, beta, ply);
+        if (++nodes % (CHECK_INTERVAL + 1) == 0) checkLimits();
+        if (aborted) return 0;
+
+        long entry = table.probe(hash);
+        if (Metrics.PROFILE) {
+            profile.count(SearchProfile.TT_PROBES);
+            if (entry != 0) profile.count(SearchProfile.TT_HITS);
+        }
+        int ttMove = TranspositionTable.move(entry);
+        if (entry != 0 && ply > 0 && TranspositionTable.depth(entry) >= depth) {
+            int score = fromTable(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT
+                    || bound == TranspositionTable.LOWER && score >= beta
+                    || bound == TranspositionTable.UPPER && score <= alpha) {
+                if (Metrics.PROFILE) profile.count(SearchProfile.TT_CUTOFFS);
+                return score;
+            }
+        }
+
+        int count = generateMoves(ply);
+        order(ply, count, ttMove);
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = Move.NONE;
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            int move = next(ply, i, count);
+            if (ply == 0 && isExcluded(move)) continue;
+            boolean quiet = isQuiet(move);
+            if (!makeMove(move)) continue;
+            legal++;
+            int score;
+            if (legal == 1) {
+                score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+            } else {
+                score = -negamax(depth - 1, -alpha - 1, -alpha, ply + 1);
+                if (score > alpha && score < beta) score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+            }
+            undoMove();
+            if (aborted) return 0;
+
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                }
+            }
+            if (alpha >= beta) {
+                if (Metrics.PROFILE) {
+                    profile.count(SearchProfile.CUTOFFS);
+                    if (legal == 1) profile.count(SearchProfile.FIRST_MOVE_CUTOFFS);
+                }
+                if (quiet) {
+                    if (killers[ply][0] != move) {
+                        killers[ply][1] = killers[ply][0];
+                        killers[ply][0] = move;
+                    }
+                    history[(move & 0xFFF)] += depth * depth;
+                }
+                break;
+            }
+        }
+
+        if (legal == 0) return inCheck ? -MATE + ply : 0;
+
+        // With root moves excluded the result is not the position's, so it stays out of the table.
+        if (ply > 0 || excludedCount == 0) {
+            int bound = best >= beta ? TranspositionTable.LOWER : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+            table.store(hash, bestMove, toTable(best, ply), depth, bound);
+            if (Metrics.PROFILE) profile.count(SearchProfile.TT_STORES);
+        }
+        return best;
+    }
+
+    private int quiesce(int alpha, int beta, int ply) {
+        pvLength[ply] = 0;
+        if (++nodes % (CHECK_INTERVAL + 1) == 0) checkLimits();
+        if (aborted) return 0;
+        if (Metrics.PROFILE) profile.count(SearchProfile.QUIESCENCE_NODES);
+
+        boolean inCheck = match.getCheck();
+        if (!inCheck) {
+            int standPat = evaluate();
+            if (standPat >= beta || ply >= MAX_PLY) return standPat;
+            if (standPat > alpha) alpha = standPat;
+        } else if (ply >= MAX_PLY) {
+            return evaluate();
+        }
+
+        int count = generateMoves(ply);
+        order(ply, count, Move.NONE);
+        int best = inCheck ? -INFINITY : alpha;
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            int move = next(ply, i, count);
+            if (!inCheck) {
+                if (isQuiet(move)) continue;
+                if (match.getPieceCode(Move.target(move)) != PositionState.EMPTY
+                        && match.staticExchangeEvaluation(Move.source(move), Move.target(move)) < 0) continue;
+            }
+            if (!makeMove(move)) continue;
+            legal++;
+            int score = -quiesce(-beta, -alpha, ply + 1);
+            undoMove();
+            if (aborted) return 0;
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                }
+            }
+            if (alpha >= beta) break;
+        }
+        if (inCheck && legal == 0) return -MATE + ply;
+        return best;
+    }
+
+    // The search's calls into the match and the evaluator, timed under Metrics.PROFILE.
+    private int generateMoves(int ply) {
+        long start = Metrics.PROFILE ? System.nanoTime() : 0;
+        int count = match.generateMoves(moves[ply]);
+        if (Metrics.PROFILE) profile.time(SearchProfile.MOVE_GENERATION, start);
+        return count;
+    }
+
+    private int evaluate() {
+        long start = Metrics.PROFILE ? System.nanoTime() : 0;
+        int score = evaluator.evaluate(match);
+        if (Metrics.PROFILE) profile.time(SearchProfile.EVALUATION, start);
+        return score;
+    }
+
+    private boolean makeMove(int move) {
+        long start = Metrics.PROFILE ? System.nanoTime() : 0;
+        boolean legal = match.makeSearchMove(move);
+        if (Metrics.PROFILE) profile.time(SearchProfile.MAKE_MOVE, start);
+        return legal;
+    }
+
+    private void undoMove() {
+        long start = Metrics.PROFILE ? System.nanoTime() : 0;
+        match.undoSearchMove();
+        if (Metrics.PROFILE) profile.time(SearchProfile.MAKE_MOVE, start);
+    }
+
+    private boolean isExcluded(int move) {
+        for (int i = 0; i < excludedCount; i++) {
+            if (excluded[i] == move) return true;
+        }
+        return false;
+    }
+
+    private boolean isRepetition(long hash, int ply) {
+        for (int i = gamePlies + ply - 2; i >= 0; i -= 2) {
+            if (path[i] == hash) return true;
+        }
+        return false;
+    }
+
+    private void checkLimits() {
+        if (stopped || nodes >= nodeLimit || deadline != Long.MAX_VALUE && System.nanoTime() >= deadline) aborted = true;
+    }
+
+    private boolean isQuiet(int move) {
+        if (Move.promotion(move) != 0) return false;
+        if (match.getPieceCode(Move.target(move)) != PositionState.EMPTY) return false;
+        // A pawn changing column onto an empty square captures en passant.
+        byte piece = match.getPieceCode(Move.source(move));
+        return PositionState.type(piece) != 'P' || Move.source(move) % 8 == Move.target(move) % 8;
+    }
+
+    // Scores moves for ordering: hash move, captures by most valuable victim and least valuable attacker,
+    // promotions, killers, then quiet moves by history.
+    private void order(int ply, int count, int ttMove) {
+        long start = Metrics.PROFILE ? System.nanoTime() : 0;
+        int[] list = moves[ply];
+        int[] scores = orders[ply];
+        for (int i = 0; i < count; i++) {
+            int move = list[i];
+            byte victim = match.getPieceCode(Move.target(move));
+            if (move == ttMove) scores[i] = 1 << 30;
+            else if (victim != PositionState.EMPTY) scores[i] = (1 << 24) + value(victim) * 8 - value(match.getPieceCode(Move.source(move))) / 100;
+            else if (Move.promotion(move) == PieceLists.QUEEN) scores[i] = 1 << 23;
+            else if (move == killers[ply][0]) scores[i] = 1 << 22;
+            else if (move == killers[ply][1]) scores[i] = (1 << 22) - 1;
+            else scores[i] = Math.min(history[move & 0xFFF], (1 << 21));
+        }
+        if (Metrics.PROFILE) profile.time(SearchProfile.ORDERING, start);
+    }
+
+    // Selection sort step: moves the best remaining move to index i.
+    private int next(int ply, int i, int count) {
+        int[] list = moves[ply];
+        int[] scores = orders[ply];
+        int best = i;
+        for (int j = i + 1; j < count; j++) {
+            if (scores[j] > scores[best]) best = j;
+        }
+        int move = list[best];
+        list[best] = list[i];
+        list[i] = move;
+        int score = scores[best];
+        scores[best] = scores[i];
+        scores[i] = score;
+        return move;
+    }
+
+    private static int value(byte code) {
+        switch (PositionState.type(code)) {
+            case 'P': return 100;
+            case 'N': return 300;
+            case 'B': return 300;
+            case 'R': return 500;
+            case 'Q': return 900;
+            default: return 2000;
+        }
+    }
+
+    private void updatePv(int ply, int move) {
+        pv[ply][0] = move;
+        System.arraycopy(pv[ply + 1], 0, pv[ply], 1, pvLength[ply + 1]);
+        pvLength[ply] = pvLength[ply + 1] + 1;
+    }
+
+    // Mate scores are stored relative to the node so they stay correct when reached at another ply.
+    private static int toTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) return score + ply;
+        if (score <= -MATE + MAX_PLY) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) return score - ply;
+        if (score <= -MATE + MAX_PLY) return score + ply;
+        return score;
+    }
+}
@@ -0,0 +1,50 @@
+package engine;
+
+// When a search stops: at a depth, a node count or a time budget, whichever comes first.
+public class SearchLimits {
+
+    private final int depth;
+    private final long nodes;
+    private final long timeMillis;
+
+    public SearchLimits(int depth, long nodes, long timeMillis) {
+        if (depth < 1) throw new IllegalArgumentException("Depth cannot be less than 1");
+        this.depth = Math.min(depth, Search.MAX_PLY - 1);
+        this.nodes = nodes <= 0 ? Long.MAX_VALUE : nodes;
+        this.timeMillis = timeMillis;
+    }
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, 0, 0);
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(Search.MAX_PLY, nodes, 0);
+    }
+
+    public static SearchLimits time(long millis) {
+        return new SearchLimits(Search.MAX_PLY, 0, millis);
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    // 0 when the search has no time limit.
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        if (depth < Search.MAX_PLY - 1) sb.append("depth ").append(depth);
+        if (nodes != Long.MAX_VALUE) sb.append(sb.length() > 0 ? ", " : "").append("nodes ").append(nodes);
+        if (timeMillis > 0) sb.append(sb.length() > 0 ? ", " : "").append(timeMillis).append(" ms");
+        return sb.length() == 0 ? "infinite" : sb.toString();
+    }
+}
@@ -0,0 +1,192 @@
+package engine;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+// Tree statistics and time per phase of search iterations, by depth. Search collects them only when
+// -Dxadrez.profile=true: every call site is guarded by the static final Metrics.PROFILE, so a normal run
+// compiles them away. A profile is owned by the thread of its Search and counts into plain fields; the
+// profiles of several threads are combined with merge once their searches are done. An iteration that is
+// stopped before it completes is left out, so every row describes whole iterations.
+public class SearchProfile {
+
+    static final int NODES = 0;
+    static final int QUIESCENCE_NODES = 1;
+    static final int CUTOFFS = 2;
+    static final int FIRST_MOVE_CUTOFFS = 3;
+    static final int TT_PROBES = 4;
+    static final int TT_HITS = 5;
+    static final int TT_CUTOFFS = 6;
+    static final int TT_STORES = 7;
+    static final int HASHFULL = 8;
+    static final int ITERATIONS = 9;
+    static final int ITERATION_NANOS = 10;
+    // Phases: time and calls. Make move covers makeSearchMove and undoSearchMove; check detection is
+    // ChessMatch.testCheck, which runs inside makeSearchMove, so make move is reported without it.
+    static final int MOVE_GENERATION = 11;
+    static final int ORDERING = 13;
+    static final int EVALUATION = 15;
+    static final int MAKE_MOVE = 17;
+    static final int CHECK_DETECTION = 19;
+    // Branching factor against the previous iteration of the same search: the sum of its logarithms in
+    // millionths and the number of iterations that had a previous one, for a geometric mean.
+    static final int BRANCHING_LOG = 21;
+    static final int BRANCHING_COUNT = 22;
+    private static final int FIELDS = 23;
+    private static final String[] PHASES = {"movegen", "ordering", "eval", "make", "check"};
+
+    private final long[][] depths = new long[Search.MAX_PLY + 1][FIELDS];
+    private final long[] current = new long[FIELDS];
+    private long previousNodes;
+
+    void count(int field) {
+        current[field]++;
+    }
+
+    void add(int field, long value) {
+        current[field] += value;
+    }
+
+    // Adds the nanoseconds since start and one call to a phase.
+    void time(int phase, long start) {
+        current[phase] += System.nanoTime() - start;
+        current[phase + 1]++;
+    }
+
+    void startSearch() {
+        previousNodes = 0;
+        discardIteration();
+    }
+
+    // Books the counts of the iteration just completed under its depth.
+    void completeIteration(int depth, long nodes, long nanos, long checkNanos, long checkCalls, int hashfull) {
+        current[NODES] = nodes;
+        current[ITERATION_NANOS] = nanos;
+        current[ITERATIONS] = 1;
+        current[HASHFULL] = hashfull;
+        current[CHECK_DETECTION] = checkNanos;
+        current[CHECK_DETECTION + 1] = checkCalls;
+        current[MAKE_MOVE] = Math.max(0, current[MAKE_MOVE] - checkNanos);
+        if (previousNodes > 0 && nodes > 0) {
+            current[BRANCHING_LOG] = Math.round(Math.log((double) nodes / previousNodes) * 1e6);
+            current[BRANCHING_COUNT] = 1;
+        }
+        previousNodes = nodes;
+        long[] row = depths[depth];
+        for (int i = 0; i < FIELDS; i++) row[i] += current[i];
+        discardIteration();
+    }
+
+    void discardIteration() {
+        Arrays.fill(current, 0);
+    }
+
+    public void merge(SearchProfile other) {
+        for (int depth = 0; depth < depths.length; depth++) {
+            for (int i = 0; i < FIELDS; i++) depths[depth][i] += other.depths[depth][i];
+        }
+    }
+
+    public void clear() {
+        for (long[] row : depths) Arrays.fill(row, 0);
+        discardIteration();
+    }
+
+    public long getIterations(int depth) {
+        return depths[depth][ITERATIONS];
+    }
+
+    public long getNodes(int depth) {
+        return depths[depth][NODES];
+    }
+
+    // Effective branching factor: the geometric mean over searches of an iteration's nodes over those of
+    // the iteration before it, 0 when no search reached this depth from the one before.
+    public double getBranchingFactor(int depth) {
+        return branchingFactor(depths[depth]);
+    }
+
+    private static double branchingFactor(long[] row) {
+        return row[BRANCHING_COUNT] == 0 ? 0 : Math.exp(row[BRANCHING_LOG] / 1e6 / row[BRANCHING_COUNT]);
+    }
+
+    // Share of beta cutoffs in the main search produced by the first move tried.
+    public double getFirstMoveCutoffRate(int depth) {
+        return ratio(depths[depth][FIRST_MOVE_CUTOFFS], depths[depth][CUTOFFS]);
+    }
+
+    public double getQuiescenceShare(int depth) {
+        return ratio(depths[depth][QUIESCENCE_NODES], depths[depth][NODES]);
+    }
+
+    public double getTableHitRate(int depth) {
+        return ratio(depths[depth][TT_HITS], depths[depth][TT_PROBES]);
+    }
+
+    public double getTableCutoffRate(int depth) {
+        return ratio(depths[depth][TT_CUTOFFS], depths[depth][TT_PROBES]);
+    }
+
+    // A table with a line per depth that has completed iterations and a total line; phases are shares of
+    // the iteration time, and other is what the phases leave, search bookkeeping and the timers themselves.
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%5s %5s %12s %6s %6s %7s %6s %6s %8s %5s %8s %8s %8s %8s %8s %8s %10s%n",
+                "depth", "iters", "nodes", "ebf", "qs%", "cut1st%", "tthit%", "ttcut%", "ttstore%", "full",
+                "movegen%", "order%", "eval%", "make%", "check%", "other%", "ms"));
+        long[] total = new long[FIELDS];
+        for (int depth = 1; depth < depths.length; depth++) {
+            long[] row = depths[depth];
+            if (row[ITERATIONS] == 0) continue;
+            for (int i = 0; i < FIELDS; i++) total[i] += row[i];
+            appendRow(sb, String.valueOf(depth), row);
+        }
+        appendRow(sb, "all", total);
+        sb.append(String.format(Locale.ROOT, "ns per call:%s%n", perCall(total)));
+        return sb.toString();
+    }
+
+    private static void appendRow(StringBuilder sb, String depth, long[] row) {
+        double nanos = row[ITERATION_NANOS];
+        long phases = row[MOVE_GENERATION] + row[ORDERING] + row[EVALUATION] + row[MAKE_MOVE] + row[CHECK_DETECTION];
+        sb.append(String.format(Locale.ROOT, "%5s %5d %12d %6.2f %6.1f %7.1f %6.1f %6.1f %8.1f %5d %8.1f %8.1f %8.1f %8.1f %8.1f %8.1f %10.1f%n",
+                depth, row[ITERATIONS], row[NODES], branchingFactor(row),
+                100 * ratio(row[QUIESCENCE_NODES], row[NODES]), 100 * ratio(row[FIRST_MOVE_CUTOFFS], row[CUTOFFS]),
+                100 * ratio(row[TT_HITS], row[TT_PROBES]), 100 * ratio(row[TT_CUTOFFS], row[TT_PROBES]),
+                100 * ratio(row[TT_STORES], row[NODES] - row[QUIESCENCE_NODES]), row[HASHFULL] / Math.max(1, row[ITERATIONS]),
+                100 * row[MOVE_GENERATION] / Math.max(1, nanos), 100 * row[ORDERING] / Math.max(1, nanos),
+                100 * row[EVALUATION] / Math.max(1, nanos), 100 * row[MAKE_MOVE] / Math.max(1, nanos),
+                100 * row[CHECK_DETECTION] / Math.max(1, nanos), 100 * Math.max(0, nanos - phases) / Math.max(1, nanos), nanos / 1e6));
+    }
+
+    private static String perCall(long[] row) {
+        StringBuilder sb = new StringBuilder();
+        for (int p = 0; p < PHASES.length; p++) {
+            int phase = MOVE_GENERATION + 2 * p;
+            sb.append(String.format(Locale.ROOT, " %s %.0f", PHASES[p], (double) row[phase] / Math.max(1, row[phase + 1])));
+        }
+        return sb.toString();
+    }
+
+    // The raw counts, one row per depth with completed iterations, for tracking runs over time.
+    public String toCsv() {
+        StringBuilder sb = new StringBuilder("depth,iterations,nodes,quiescence_nodes,cutoffs,first_move_cutoffs,tt_probes,tt_hits,tt_cutoffs,tt_stores,hashfull_sum,iteration_ns");
+        for (String phase : PHASES) sb.append(',').append(phase).append("_ns,").append(phase).append("_calls");
+        sb.append(",branching_factor\n");
+        int[] columns = {ITERATIONS, NODES, QUIESCENCE_NODES, CUTOFFS, FIRST_MOVE_CUTOFFS, TT_PROBES, TT_HITS, TT_CUTOFFS, TT_STORES, HASHFULL, ITERATION_NANOS};
+        for (int depth = 1; depth < depths.length; depth++) {
+            long[] row = depths[depth];
+            if (row[ITERATIONS] == 0) continue;
+            sb.append(depth);
+            for (int column : columns) sb.append(',').append(row[column]);
+            for (int phase = MOVE_GENERATION; phase < BRANCHING_LOG; phase++) sb.append(',').append(row[phase]);
+            sb.append(',').append(branchingFactor(row));
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static double ratio(long part, long whole) {
+        return whole == 0 ? 0 : (double) part / whole;
+    }
+}
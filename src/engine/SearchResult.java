@@ -0,0 +1,74 @@
+package engine;
+
+import chess.Move;
+
+public class SearchResult {
+
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long nanos;
+    private final int[] pv;
+
+    public SearchResult(int bestMove, int score, int depth, long nodes, long nanos, int[] pv) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.nanos = nanos;
+        this.pv = pv;
+    }
+
+    // Move.NONE when the side to move has no legal move.
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    // Centipawns for the side to move; mates are scored Search.MATE minus the distance in plies.
+    public int getScore() {
+        return score;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public int[] getPv() {
+        return pv.clone();
+    }
+
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+    }
+
+    // Moves to mate, positive when the side to move mates and negative when it is mated.
+    public int getMateIn() {
+        if (!isMate()) return 0;
+        int plies = Search.MATE - Math.abs(score);
+        return score > 0 ? (plies + 1) / 2 : -(plies / 2);
+    }
+
+    public String getPvString() {
+        StringBuilder sb = new StringBuilder();
+        for (int move : pv) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(Move.toUci(move));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        String value = isMate() ? "mate " + getMateIn() : "cp " + score;
+        return String.format("depth %d score %s nodes %d time %d pv %s", depth, value, nodes, nanos / 1_000_000, getPvString());
+    }
+}
@@ -0,0 +1,92 @@
+package engine;
+
+import java.util.Arrays;
+
+// Shared hash table of search results: two longs per slot, the key stored XORed with the data so a torn
+// write by another thread shows up as a key mismatch instead of a wrong entry (lockless hashing).
+// Data packs the move (16 bits), score (16), depth (8), bound (2) and search generation (8).
+public class TranspositionTable {
+
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;
+    public static final int UPPER = 3;
+
+    private final long[] slots;
+    private final int mask;
+    private volatile int generation;
+
+    public TranspositionTable(int megabytes) {
+        long entries = Math.max(1024, (long) megabytes * 1024 * 1024 / 16);
+        int size = Integer.highestOneBit((int) Math.min(entries, 1 << 28));
+        slots = new long[size * 2];
+        mask = size - 1;
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    public long getBytes() {
+        return (long) slots.length * Long.BYTES;
+    }
+
+    // Called once per search so entries of earlier searches are replaced first.
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, 0);
+        generation = 0;
+    }
+
+    // Packed data of the entry for key, or 0 when there is none.
+    public long probe(long key) {
+        int index = (int) (key & mask) << 1;
+        long data = slots[index + 1];
+        return (slots[index] ^ data) == key ? data : 0;
+    }
+
+    public void store(long key, int move, int score, int depth, int bound) {
+        int index = (int) (key & mask) << 1;
+        long old = slots[index + 1];
+        boolean sameKey = (slots[index] ^ old) == key;
+        if (old != 0 && !sameKey && generation(old) == generation && depth(old) > depth) return;
+        if (sameKey && move == 0) move = move(old);
+        long data = (move & 0xFFFFL) | (long) (score & 0xFFFF) << 16 | (long) (depth & 0xFF) << 32
+                | (long) bound << 40 | (long) generation << 42;
+        slots[index] = key ^ data;
+        slots[index + 1] = data;
+    }
+
+    // Permille of sampled slots written in the current search.
+    public int hashfull() {
+        int used = 0;
+        int sample = Math.min(1000, mask + 1);
+        for (int i = 0; i < sample; i++) {
+            long data = slots[i * 2 + 1];
+            if (data != 0 && generation(data) == generation) used++;
+        }
+        return used * 1000 / sample;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> 16);
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> 32 & 0xFF);
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> 40 & 3);
+    }
+
+    private static int generation(long data) {
+        return (int) (data >>> 42 & 0xFF);
+    }
+}
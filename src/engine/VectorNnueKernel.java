@@ -0,0 +1,58 @@
+package engine;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// The loops of ScalarNnueKernel on the platform's widest vectors. Only NnueKernel.load refers to this
+// class, by name, since it needs the jdk.incubator.vector module both to compile and to link.
+final class VectorNnueKernel implements NnueKernel {
+
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+    // As many bits as SHORTS, so each short vector widens into two of these.
+    private static final VectorSpecies<Integer> INTS = VectorSpecies.of(int.class, SHORTS.vectorShape());
+
+    @Override
+    public void add(short[] accumulator, short[] weights, int offset) {
+        int i = 0;
+        for (int bound = SHORTS.loopBound(accumulator.length); i < bound; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, accumulator, i).add(ShortVector.fromArray(SHORTS, weights, offset + i)).intoArray(accumulator, i);
+        }
+        for (; i < accumulator.length; i++) accumulator[i] += weights[offset + i];
+    }
+
+    @Override
+    public void subtract(short[] accumulator, short[] weights, int offset) {
+        int i = 0;
+        for (int bound = SHORTS.loopBound(accumulator.length); i < bound; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, accumulator, i).sub(ShortVector.fromArray(SHORTS, weights, offset + i)).intoArray(accumulator, i);
+        }
+        for (; i < accumulator.length; i++) accumulator[i] -= weights[offset + i];
+    }
+
+    @Override
+    public int clippedDot(short[] values, int clip, short[] weights, int offset) {
+        // A short never exceeds Short.MAX_VALUE, so a larger clip clips nothing.
+        short top = (short) Math.min(clip, Short.MAX_VALUE);
+        IntVector sum = IntVector.zero(INTS);
+        int i = 0;
+        for (int bound = SHORTS.loopBound(values.length); i < bound; i += SHORTS.length()) {
+            ShortVector clipped = ShortVector.fromArray(SHORTS, values, i).max((short) 0).min(top);
+            ShortVector weight = ShortVector.fromArray(SHORTS, weights, offset + i);
+            for (int part = 0; part < 2; part++) {
+                IntVector a = (IntVector) clipped.convertShape(VectorOperators.S2I, INTS, part);
+                IntVector b = (IntVector) weight.convertShape(VectorOperators.S2I, INTS, part);
+                sum = sum.add(a.mul(b));
+            }
+        }
+        int total = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < values.length; i++) total += Math.min(Math.max(values[i], 0), clip) * weights[offset + i];
+        return total;
+    }
+
+    @Override
+    public String getName() {
+        return "vector " + SHORTS.vectorBitSize() + "-bit";
+    }
+}
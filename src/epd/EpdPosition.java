@@ -0,0 +1,89 @@
+package epd;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// One EPD record: the position and the test operations the runner understands (bm, am, dm, id).
+public class EpdPosition {
+
+    private final String id;
+    private final String fen;
+    private final List<String> bestMoves;
+    private final List<String> avoidMoves;
+    private final int mateIn;
+
+    public EpdPosition(String id, String fen, List<String> bestMoves, List<String> avoidMoves, int mateIn) {
+        this.id = id;
+        this.fen = fen;
+        this.bestMoves = bestMoves;
+        this.avoidMoves = avoidMoves;
+        this.mateIn = mateIn;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFen() {
+        return fen;
+    }
+
+    // SAN moves of the bm operation; any of them solves the position.
+    public List<String> getBestMoves() {
+        return bestMoves;
+    }
+
+    // SAN moves of the am operation; playing any of them fails the position.
+    public List<String> getAvoidMoves() {
+        return avoidMoves;
+    }
+
+    // Full moves of the dm operation, 0 when absent.
+    public int getMateIn() {
+        return mateIn;
+    }
+
+    public static EpdPosition parse(String line, int lineNumber) {
+        String[] fields = line.trim().split("\\s+", 5);
+        if (fields.length < 4) throw new IllegalArgumentException("Line " + lineNumber + ": expected at least 4 FEN fields");
+        String fen = String.join(" ", fields[0], fields[1], fields[2], fields[3]);
+        String id = "line " + lineNumber;
+        List<String> bm = List.of();
+        List<String> am = List.of();
+        int dm = 0;
+        if (fields.length == 5) {
+            for (String operation : splitOperations(fields[4])) {
+                String[] parts = operation.trim().split("\\s+", 2);
+                if (parts[0].isEmpty()) continue;
+                String operands = parts.length > 1 ? parts[1].trim() : "";
+                switch (parts[0]) {
+                    case "bm": bm = List.of(operands.split("\\s+")); break;
+                    case "am": am = List.of(operands.split("\\s+")); break;
+                    case "dm": dm = Integer.parseInt(operands); break;
+                    case "id": id = operands.replace("\"", ""); break;
+                    default: break;
+                }
+            }
+        }
+        return new EpdPosition(id, fen, bm, am, dm);
+    }
+
+    // Operations end with ';' outside quoted strings.
+    private static List<String> splitOperations(String operations) {
+        List<String> list = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (char c : operations.toCharArray()) {
+            if (c == '"') quoted = !quoted;
+            if (c == ';' && !quoted) {
+                list.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (current.toString().isBlank()) return list;
+        list.add(current.toString());
+        return list;
+    }
+}
@@ -0,0 +1,303 @@
+package epd;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Fen;
+import chess.LegalMoveCache;
+import chess.Move;
+import chess.San;
+import engine.ClassicalEvaluator;
+import engine.Search;
+import engine.SearchLimits;
+import engine.SearchProfile;
+import engine.SearchResult;
+import engine.TranspositionTable;
+import metrics.Metrics;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs an EPD suite on a pool of threads, each with its own Search and transposition table and a fresh
+// ChessMatch per position. A position is solved when the final best move satisfies bm and am and the
+// score is a mate within dm; its time to solution is when the best move last started satisfying them.
+// Results go to stdout as a summary and, optionally, to a JSON lines file (one object per position plus
+// a final summary object) for tracking runs over time.
+public class EpdRunner {
+
+    private final List<EpdPosition> positions;
+    private final SearchLimits limits;
+    private final int threads;
+    private final int hashMegabytes;
+    private final Result[] results;
+    private final AtomicInteger next = new AtomicInteger();
+    private final SearchProfile profile = new SearchProfile();
+
+    public EpdRunner(List<EpdPosition> positions, SearchLimits limits, int threads, int hashMegabytes) {
+        this.positions = positions;
+        this.limits = limits;
+        this.threads = threads;
+        this.hashMegabytes = hashMegabytes;
+        results = new Result[positions.size()];
+    }
+
+    public static List<EpdPosition> load(Path file) throws IOException {
+        List<EpdPosition> positions = new ArrayList<>();
+        List<String> lines = Files.readAllLines(file);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            positions.add(EpdPosition.parse(line, i + 1));
+        }
+        return positions;
+    }
+
+    public Result[] run() throws InterruptedException {
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(this::work, "epd-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) worker.join();
+        return results;
+    }
+
+    private void work() {
+        Search search = new Search(new ClassicalEvaluator(), new TranspositionTable(hashMegabytes));
+        LegalMoveCache moveCache = new LegalMoveCache(1024);
+        int index;
+        while ((index = next.getAndIncrement()) < positions.size()) {
+            search.getTable().clear();
+            results[index] = solve(search, moveCache, positions.get(index));
+        }
+        if (Metrics.PROFILE) {
+            synchronized (profile) {
+                profile.merge(search.getProfile());
+            }
+        }
+    }
+
+    // The search profiles of all threads merged once run() returns; empty unless Metrics.PROFILE is on.
+    public SearchProfile getProfile() {
+        return profile;
+    }
+
+    private Result solve(Search search, LegalMoveCache moveCache, EpdPosition position) {
+        ChessMatch match;
+        int[] best;
+        int[] avoid;
+        try {
+            match = new ChessMatch(Fen.parse(position.getFen()));
+            match.setMoveCache(moveCache);
+            best = resolve(match, position.getBestMoves());
+            avoid = resolve(match, position.getAvoidMoves());
+        } catch (ChessException | IllegalStateException | IllegalArgumentException e) {
+            return Result.error(position, e.getMessage());
+        }
+
+        long[] solvedAt = {-1};
+        search.setListener(iteration -> {
+            if (!satisfies(iteration, position, best, avoid)) solvedAt[0] = -1;
+            else if (solvedAt[0] < 0) solvedAt[0] = iteration.getNanos();
+        });
+        SearchResult result = search.search(match, limits);
+        search.setListener(null);
+        boolean solved = satisfies(result, position, best, avoid);
+        String move = result.getBestMove() == Move.NONE ? "-" : San.format(match, result.getBestMove());
+        return new Result(position, solved, null, move, result, solved ? Math.max(0, solvedAt[0]) : -1);
+    }
+
+    private static boolean satisfies(SearchResult result, EpdPosition position, int[] best, int[] avoid) {
+        int move = result.getBestMove();
+        if (best.length > 0 && !contains(best, move)) return false;
+        if (contains(avoid, move)) return false;
+        return position.getMateIn() == 0 || result.getMateIn() > 0 && result.getMateIn() <= position.getMateIn();
+    }
+
+    private static boolean contains(int[] moves, int move) {
+        for (int m : moves) {
+            if (m == move) return true;
+        }
+        return false;
+    }
+
+    private static int[] resolve(ChessMatch match, List<String> sans) {
+        int[] moves = new int[sans.size()];
+        for (int i = 0; i < moves.length; i++) moves[i] = San.parse(match, sans.get(i));
+        return moves;
+    }
+
+    public static class Result {
+
+        private final EpdPosition position;
+        private final boolean solved;
+        private final String error;
+        private final String move;
+        private final SearchResult search;
+        private final long solvedNanos;
+
+        Result(EpdPosition position, boolean solved, String error, String move, SearchResult search, long solvedNanos) {
+            this.position = position;
+            this.solved = solved;
+            this.error = error;
+            this.move = move;
+            this.search = search;
+            this.solvedNanos = solvedNanos;
+        }
+
+        static Result error(EpdPosition position, String error) {
+            return new Result(position, false, error, "-", null, -1);
+        }
+
+        public EpdPosition getPosition() {
+            return position;
+        }
+
+        public boolean isSolved() {
+            return solved;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public String getMove() {
+            return move;
+        }
+
+        public SearchResult getSearch() {
+            return search;
+        }
+
+        // Nanoseconds until the final answer was first found and kept, -1 when unsolved.
+        public long getSolvedNanos() {
+            return solvedNanos;
+        }
+
+        String toJson() {
+            StringBuilder sb = new StringBuilder("{");
+            field(sb, "id", position.getId()).append(',');
+            sb.append("\"solved\":").append(solved).append(',');
+            if (error != null) return field(sb, "error", error).append('}').toString();
+            field(sb, "move", move).append(',');
+            sb.append("\"score\":").append(search.getScore()).append(',');
+            sb.append("\"mate\":").append(search.getMateIn()).append(',');
+            sb.append("\"depth\":").append(search.getDepth()).append(',');
+            sb.append("\"nodes\":").append(search.getNodes()).append(',');
+            sb.append("\"timeMs\":").append(search.getNanos() / 1_000_000.0).append(',');
+            sb.append("\"solvedMs\":").append(solvedNanos < 0 ? "null" : String.valueOf(solvedNanos / 1_000_000.0));
+            return sb.append('}').toString();
+        }
+    }
+
+    static StringBuilder field(StringBuilder sb, String name, String value) {
+        sb.append('"').append(name).append("\":\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') sb.append('\\');
+            if (c >= 0x20) sb.append(c);
+        }
+        return sb.append('"');
+    }
+
+    // Arguments: <suite.epd> then key=value options: time (ms per position), depth, nodes, threads,
+    // hash (MB per thread), json (output file) and, with -Dxadrez.profile=true, profile (a CSV file for the
+    // search profile, which is printed in any case).
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.out.println("usage: EpdRunner <suite.epd> [time=1000] [depth=] [nodes=] [threads=] [hash=16] [json=results.jsonl] [profile=profile.csv]");
+            return;
+        }
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            int eq = args[i].indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Expected key=value: " + args[i]);
+            options.put(args[i].substring(0, eq), args[i].substring(eq + 1));
+        }
+        boolean bounded = options.containsKey("depth") || options.containsKey("nodes");
+        SearchLimits limits = new SearchLimits(Integer.parseInt(options.getOrDefault("depth", String.valueOf(Search.MAX_PLY))),
+                Long.parseLong(options.getOrDefault("nodes", "0")), Long.parseLong(options.getOrDefault("time", bounded ? "0" : "1000")));
+        int threads = Integer.parseInt(options.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int hash = Integer.parseInt(options.getOrDefault("hash", "16"));
+        Path suite = Path.of(args[0]);
+        List<EpdPosition> positions = load(suite);
+
+        long start = System.nanoTime();
+        EpdRunner runner = new EpdRunner(positions, limits, threads, hash);
+        Result[] results = runner.run();
+        long elapsed = System.nanoTime() - start;
+
+        int solved = 0;
+        int errors = 0;
+        long nodes = 0;
+        List<Long> solveTimes = new ArrayList<>();
+        for (Result result : results) {
+            if (result.getError() != null) {
+                errors++;
+                System.out.printf("%-20s error: %s%n", result.getPosition().getId(), result.getError());
+                continue;
+            }
+            nodes += result.getSearch().getNodes();
+            if (result.isSolved()) {
+                solved++;
+                solveTimes.add(result.getSolvedNanos());
+            }
+            System.out.printf("%-20s %-8s %-7s %s%n", result.getPosition().getId(), result.isSolved() ? "solved" : "FAILED", result.getMove(), result.getSearch());
+        }
+        long[] times = solveTimes.stream().mapToLong(Long::longValue).sorted().toArray();
+        double seconds = elapsed / 1e9;
+        System.out.printf("%nsolved %d of %d (%d errors) with %s on %d threads in %.1f s, %d nodes (%.0f nodes/s)%n",
+                solved, positions.size(), errors, limits, threads, seconds, nodes, nodes / seconds);
+        System.out.printf("time to solution: p50 %.1f ms, p90 %.1f ms, max %.1f ms%n",
+                percentile(times, 0.5) / 1e6, percentile(times, 0.9) / 1e6, percentile(times, 1.0) / 1e6);
+        long[] bounds = {10_000_000L, 100_000_000L, 1_000_000_000L, 10_000_000_000L, Long.MAX_VALUE};
+        String[] labels = {"<10ms", "<100ms", "<1s", "<10s", ">=10s"};
+        StringBuilder histogram = new StringBuilder("distribution:");
+        for (int b = 0, i = 0; b < bounds.length; b++) {
+            int count = 0;
+            while (i < times.length && times[i] < bounds[b]) {
+                i++;
+                count++;
+            }
+            histogram.append(' ').append(labels[b]).append('=').append(count);
+        }
+        System.out.println(histogram);
+        if (Metrics.PROFILE) {
+            System.out.print(System.lineSeparator() + runner.getProfile().report());
+            if (options.containsKey("profile")) Files.writeString(Path.of(options.get("profile")), runner.getProfile().toCsv());
+        }
+
+        if (options.containsKey("json")) {
+            try (Writer file = Files.newBufferedWriter(Path.of(options.get("json"))); PrintWriter out = new PrintWriter(file)) {
+                for (Result result : results) out.println(result.toJson());
+                StringBuilder summary = new StringBuilder("{");
+                field(summary, "suite", suite.getFileName().toString()).append(',');
+                field(summary, "limits", limits.toString()).append(',');
+                summary.append("\"threads\":").append(threads).append(',');
+                summary.append("\"positions\":").append(positions.size()).append(',');
+                summary.append("\"solved\":").append(solved).append(',');
+                summary.append("\"errors\":").append(errors).append(',');
+                summary.append("\"nodes\":").append(nodes).append(',');
+                summary.append("\"seconds\":").append(seconds).append(',');
+                summary.append("\"nps\":").append(Math.round(nodes / seconds)).append(',');
+                summary.append("\"solvedP50Ms\":").append(percentile(times, 0.5) / 1e6).append(',');
+                summary.append("\"solvedP90Ms\":").append(percentile(times, 0.9) / 1e6).append('}');
+                out.println(summary);
+            }
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+    }
+}
@@ -0,0 +1,43 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("xadrez.ChessMove")
+@Label("Chess Move")
+@Category({"Xadrez", "Rules"})
+@Description("A move performed through ChessMatch.performChessMove")
+@StackTrace(false)
+public class ChessMoveEvent extends jdk.jfr.Event {
+
+    @Label("FEN")
+    @Description("Position after the move, or the unchanged position when the move was rejected; built only for committed events")
+    public String fen;
+
+    @Label("Position Hash")
+    @Description("Zobrist hash of the position before the move")
+    public long positionHash;
+
+    @Label("Move")
+    public String move;
+
+    @Label("Legal")
+    public boolean legal;
+
+    @Label("Check Detection")
+    @Description("Whether testCheck ran for the opponent after the move")
+    public boolean checkDetection;
+
+    @Label("Mate Detection")
+    @Description("Whether testCheckMate had to search the replies because the opponent was in check")
+    public boolean mateDetection;
+
+    @Label("Check")
+    public boolean check;
+
+    @Label("Checkmate")
+    public boolean checkMate;
+}
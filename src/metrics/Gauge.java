@@ -0,0 +1,36 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// A value that goes up and down, such as the number of matches currently held in some form.
+public class Gauge {
+
+    private final String name;
+    private final String help;
+    private final AtomicLong value = new AtomicLong();
+
+    Gauge(String name, String help) {
+        this.name = name;
+        this.help = help;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getHelp() {
+        return help;
+    }
+
+    public void set(long value) {
+        this.value.set(value);
+    }
+
+    public void add(long delta) {
+        value.addAndGet(delta);
+    }
+
+    public long get() {
+        return value.get();
+    }
+}
@@ -0,0 +1,82 @@
+package metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Metrics of the rules engine. ENABLED is read once at startup (-Dxadrez.metrics=true) and is a
+// static final constant, so the JIT removes every guarded call site when metrics are turned off.
+// PROFILE (-Dxadrez.profile=true) works the same way for the per-thread search profile (engine.SearchProfile).
+public class Metrics {
+
+    public static final boolean ENABLED = Boolean.getBoolean("xadrez.metrics");
+    public static final boolean PROFILE = Boolean.getBoolean("xadrez.profile");
+
+    private static final List<Counter> COUNTERS = Collections.synchronizedList(new ArrayList<>());
+    private static final List<Gauge> GAUGES = Collections.synchronizedList(new ArrayList<>());
+    private static final List<LatencyHistogram> HISTOGRAMS = Collections.synchronizedList(new ArrayList<>());
+
+    public static final LatencyHistogram PERFORM_CHESS_MOVE = histogram("xadrez_perform_chess_move_seconds", "Latency of ChessMatch.performChessMove");
+    public static final LatencyHistogram TEST_CHECK = histogram("xadrez_test_check_seconds", "Latency of ChessMatch.testCheck");
+    public static final LatencyHistogram TEST_CHECK_MATE = histogram("xadrez_test_check_mate_seconds", "Latency of ChessMatch.testCheckMate");
+    public static final LatencyHistogram POSSIBLE_MOVES = histogram("xadrez_possible_moves_seconds", "Latency of ChessMatch.possibleMoves");
+    public static final LatencyHistogram CLOCK_FLAG_LATENESS = histogram("xadrez_clock_flag_lateness_seconds", "Delay between a flag deadline and its detection");
+    public static final LatencyHistogram REHYDRATE = histogram("xadrez_server_rehydrate_seconds", "Time to rebuild a hibernated match on its next move");
+    public static final Counter HIBERNATIONS = counter("xadrez_server_hibernations_total", "Idle matches hibernated to their compact form");
+    public static final Counter REHYDRATIONS = counter("xadrez_server_rehydrations_total", "Hibernated matches rebuilt on access");
+    public static final Gauge HIBERNATED_MATCHES = gauge("xadrez_server_hibernated_matches", "Matches currently held in compact form");
+    public static final Gauge HIBERNATED_BYTES = gauge("xadrez_server_hibernated_bytes", "Bytes of compact state held for hibernated matches");
+    public static final Gauge HIBERNATE_AFTER = gauge("xadrez_server_hibernate_after_milliseconds", "Idle time after which a match is hibernated, 0 when hibernation is off");
+    public static final Counter PLACE_PIECE = counter("xadrez_board_place_piece_total", "Calls to Board.placePiece");
+    public static final Counter REMOVE_PIECE = counter("xadrez_board_remove_piece_total", "Calls to Board.removePiece");
+
+    private Metrics() {
+    }
+
+    public static Counter counter(String name, String help) {
+        Counter counter = new Counter(name, help);
+        COUNTERS.add(counter);
+        return counter;
+    }
+
+    public static LatencyHistogram histogram(String name, String help) {
+        LatencyHistogram histogram = new LatencyHistogram(name, help);
+        HISTOGRAMS.add(histogram);
+        return histogram;
+    }
+
+    public static Gauge gauge(String name, String help) {
+        Gauge gauge = new Gauge(name, help);
+        GAUGES.add(gauge);
+        return gauge;
+    }
+
+    // A histogram of plain values such as queue depths, exported without conversion to seconds.
+    public static LatencyHistogram valueHistogram(String name, String help) {
+        LatencyHistogram histogram = new LatencyHistogram(name, help, 1);
+        HISTOGRAMS.add(histogram);
+        return histogram;
+    }
+
+    public static MetricsSnapshot snapshot() {
+        List<MetricsSnapshot.CounterValue> counters = new ArrayList<>();
+        List<MetricsSnapshot.CounterValue> gauges = new ArrayList<>();
+        List<LatencyHistogram.Snapshot> histograms = new ArrayList<>();
+        synchronized (COUNTERS) {
+            for (Counter c : COUNTERS) {
+                counters.add(new MetricsSnapshot.CounterValue(c.getName(), c.getHelp(), c.get()));
+            }
+        }
+        synchronized (GAUGES) {
+            for (Gauge g : GAUGES) {
+                gauges.add(new MetricsSnapshot.CounterValue(g.getName(), g.getHelp(), g.get()));
+            }
+        }
+        synchronized (HISTOGRAMS) {
+            for (LatencyHistogram h : HISTOGRAMS) {
+                histograms.add(h.snapshot());
+            }
+        }
+        return new MetricsSnapshot(System.currentTimeMillis(), counters, gauges, histograms);
+    }
+}
@@ -0,0 +1,93 @@
+package metrics;
+
+import java.util.List;
+import java.util.Locale;
+
+public class MetricsSnapshot {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final long timestamp;
+    private final List<CounterValue> counters;
+    private final List<CounterValue> gauges;
+    private final List<LatencyHistogram.Snapshot> histograms;
+
+    MetricsSnapshot(long timestamp, List<CounterValue> counters, List<CounterValue> gauges, List<LatencyHistogram.Snapshot> histograms) {
+        this.timestamp = timestamp;
+        this.counters = List.copyOf(counters);
+        this.gauges = List.copyOf(gauges);
+        this.histograms = List.copyOf(histograms);
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public List<CounterValue> getCounters() {
+        return counters;
+    }
+
+    public List<CounterValue> getGauges() {
+        return gauges;
+    }
+
+    public List<LatencyHistogram.Snapshot> getHistograms() {
+        return histograms;
+    }
+
+    // Prometheus text exposition format; histograms are exported as summaries with latencies in seconds
+    // and value histograms as recorded.
+    public String toPrometheus() {
+        StringBuilder sb = new StringBuilder();
+        for (CounterValue c : counters) {
+            sb.append("# HELP ").append(c.getName()).append(' ').append(c.getHelp()).append('\n');
+            sb.append("# TYPE ").append(c.getName()).append(" counter\n");
+            sb.append(c.getName()).append(' ').append(c.getValue()).append('\n');
+        }
+        for (CounterValue g : gauges) {
+            sb.append("# HELP ").append(g.getName()).append(' ').append(g.getHelp()).append('\n');
+            sb.append("# TYPE ").append(g.getName()).append(" gauge\n");
+            sb.append(g.getName()).append(' ').append(g.getValue()).append('\n');
+        }
+        for (LatencyHistogram.Snapshot h : histograms) {
+            sb.append("# HELP ").append(h.getName()).append(' ').append(h.getHelp()).append('\n');
+            sb.append("# TYPE ").append(h.getName()).append(" summary\n");
+            for (double q : QUANTILES) {
+                sb.append(h.getName()).append("{quantile=\"").append(q).append("\"} ")
+                        .append(format(h.percentile(q * 100), h.getUnit())).append('\n');
+            }
+            sb.append(h.getName()).append("_sum ").append(format(h.getSum(), h.getUnit())).append('\n');
+            sb.append(h.getName()).append("_count ").append(h.getCount()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String format(long value, double unit) {
+        return unit == 1 ? String.valueOf(value) : String.format(Locale.ROOT, "%.9f", value / unit);
+    }
+
+    public static class CounterValue {
+
+        private final String name;
+        private final String help;
+        private final long value;
+
+        CounterValue(String name, String help, long value) {
+            this.name = name;
+            this.help = help;
+            this.value = value;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getHelp() {
+            return help;
+        }
+
+        public long getValue() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Periodically writes a metrics snapshot to a file, e.g. for the node_exporter textfile collector.
+// The file is replaced atomically so scrapers never read a partial dump.
+public class PrometheusFileExporter implements AutoCloseable {
+
+    private final Path file;
+    private final ScheduledExecutorService executor;
+
+    public PrometheusFileExporter(Path file, long period, TimeUnit unit) {
+        this.file = file;
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::dumpQuietly, period, period, unit);
+    }
+
+    public static PrometheusFileExporter fromSystemProperties() {
+        String file = System.getProperty("xadrez.metrics.file");
+        if (!Metrics.ENABLED || file == null) return null;
+        long period = Long.getLong("xadrez.metrics.periodSeconds", 10);
+        return new PrometheusFileExporter(Path.of(file), period, TimeUnit.SECONDS);
+    }
+
+    public void dump() {
+        try {
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(tmp, Metrics.snapshot().toPrometheus().getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void dumpQuietly() {
+        try {
+            dump();
+        } catch (UncheckedIOException e) {
+            System.err.println("Error writing metrics to " + file + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        dumpQuietly();
+    }
+}
@@ -0,0 +1,81 @@
+package puzzles;
+
+import chess.ChessMatch;
+import chess.Fen;
+import chess.Move;
+import chess.PositionState;
+import chess.San;
+
+// A verified puzzle: the position, the winning line found by the deep search, and why it was flagged.
+public class Puzzle {
+
+    public enum Kind {
+        // The move played into the position threw away a large part of the evaluation.
+        BLUNDER,
+        // The side to move has exactly one move that keeps a winning advantage.
+        UNIQUE_WIN
+    }
+
+    private final long gameId;
+    private final int ply;
+    private final PositionState position;
+    private final Kind kind;
+    private final int score;
+    private final int mateIn;
+    private final int[] solution;
+
+    public Puzzle(long gameId, int ply, PositionState position, Kind kind, int score, int mateIn, int[] solution) {
+        this.gameId = gameId;
+        this.ply = ply;
+        this.position = position;
+        this.kind = kind;
+        this.score = score;
+        this.mateIn = mateIn;
+        this.solution = solution;
+    }
+
+    public long getGameId() {
+        return gameId;
+    }
+
+    // Plies played in the game before the puzzle position.
+    public int getPly() {
+        return ply;
+    }
+
+    public PositionState getPosition() {
+        return position.copy();
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    // Deep search score for the side to move, in centipawns.
+    public int getScore() {
+        return score;
+    }
+
+    public int getMateIn() {
+        return mateIn;
+    }
+
+    public int[] getSolution() {
+        return solution.clone();
+    }
+
+    // One EPD line that EpdRunner can check: bm (and dm for mates), id, the kind as c0, the score as ce
+    // and the solution line in UCI as c1.
+    public String toEpd() {
+        String[] fen = Fen.format(position).split(" ");
+        StringBuilder sb = new StringBuilder(String.join(" ", fen[0], fen[1], fen[2], fen[3]));
+        sb.append(" bm ").append(San.format(new ChessMatch(position), solution[0])).append(';');
+        if (mateIn > 0) sb.append(" dm ").append(mateIn).append(';');
+        sb.append(" id \"game ").append(gameId).append(" ply ").append(ply).append("\";");
+        sb.append(" c0 \"").append(kind.name().toLowerCase()).append("\";");
+        sb.append(" ce ").append(score).append(';');
+        sb.append(" c1 \"");
+        for (int i = 0; i < solution.length; i++) sb.append(i > 0 ? " " : "").append(Move.toUci(solution[i]));
+        return sb.append("\";").toString();
+    }
+}
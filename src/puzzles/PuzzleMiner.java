@@ -0,0 +1,248 @@
+package puzzles;
+
+import archive.GameArchive;
+import archive.GameRecord;
+import archive.GameReplay;
+import chess.ChessMatch;
+import chess.LegalMoveCache;
+import chess.Move;
+import chess.PositionState;
+import chess.Zobrist;
+import engine.ClassicalEvaluator;
+import engine.Search;
+import engine.SearchLimits;
+import engine.SearchResult;
+import engine.TranspositionTable;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Mines tactical puzzles from a game archive in four concurrent stages joined by bounded queues:
+//   parse   reads archive lines into games (one thread)
+//   replay  plays each game through ChessMatch.performChessMove and snapshots every position
+//   shallow searches every position of a game with two principal variations at a low depth and flags
+//           positions where the side to move has a winning move and either the move that led there lost
+//           a large part of the evaluation (BLUNDER) or the second best move is far behind (UNIQUE_WIN)
+//   verify  repeats the two-line search deeper and keeps candidates whose winning move is still unique
+// Verification dominates the cost, so it gets most threads and the queues in front of it are sized to
+// keep it fed; the per-stage report shows how much of each stage's thread time was busy or starved.
+public class PuzzleMiner {
+
+    // Thresholds in centipawns for the side to move.
+    public static final int WIN = 200;
+    public static final int UNIQUE_GAP = 150;
+    public static final int BLUNDER_LOSS = 200;
+
+    private static final GameRecord END_GAME = new GameRecord(-1, "", "", List.of());
+    private static final Replayed END_REPLAYED = new Replayed(null, null, null);
+    private static final Candidate END_CANDIDATE = new Candidate(null, 0, null, null);
+    private static final Puzzle END_PUZZLE = new Puzzle(-1, 0, null, null, 0, 0, null);
+
+    private final int shallowDepth;
+    private final int deepDepth;
+    private final int skipPlies;
+    private final LongAdder games = new LongAdder();
+    private final LongAdder positions = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    // Fen hashes of positions already sent to verification; games often share positions.
+    private final Set<Long> flagged = ConcurrentHashMap.newKeySet();
+
+    public PuzzleMiner(int shallowDepth, int deepDepth, int skipPlies) {
+        this.shallowDepth = shallowDepth;
+        this.deepDepth = deepDepth;
+        this.skipPlies = skipPlies;
+    }
+
+    // A replayed game: the position before every ply and the move played from it.
+    static final class Replayed {
+        final GameRecord game;
+        final PositionState[] positions;
+        final int[] moves;
+
+        Replayed(GameRecord game, PositionState[] positions, int[] moves) {
+            this.game = game;
+            this.positions = positions;
+            this.moves = moves;
+        }
+    }
+
+    static final class Candidate {
+        final GameRecord game;
+        final int ply;
+        final PositionState position;
+        final Puzzle.Kind kind;
+
+        Candidate(GameRecord game, int ply, PositionState position, Puzzle.Kind kind) {
+            this.game = game;
+            this.ply = ply;
+            this.position = position;
+            this.kind = kind;
+        }
+    }
+
+    // Runs the pipeline over the archive, handing every verified puzzle to the sink on the calling thread.
+    public void mine(Path archive, int replayThreads, int shallowThreads, int verifyThreads,
+                     Consumer<Puzzle> sink) throws InterruptedException {
+        BlockingQueue<GameRecord> parsed = new ArrayBlockingQueue<>(256);
+        BlockingQueue<Replayed> replayed = new ArrayBlockingQueue<>(Math.max(16, shallowThreads * 4));
+        BlockingQueue<Candidate> candidates = new ArrayBlockingQueue<>(Math.max(64, verifyThreads * 16));
+        BlockingQueue<Puzzle> puzzles = new ArrayBlockingQueue<>(256);
+
+        Stage<GameRecord, Replayed> replay = new Stage<>("replay", replayThreads, this::replayWorker, parsed, END_GAME, replayed, END_REPLAYED);
+        Stage<Replayed, Candidate> shallow = new Stage<>("shallow", shallowThreads, this::shallowWorker, replayed, END_REPLAYED, candidates, END_CANDIDATE);
+        Stage<Candidate, Puzzle> verify = new Stage<>("verify", verifyThreads, this::verifyWorker, candidates, END_CANDIDATE, puzzles, END_PUZZLE);
+        List<Stage<?, ?>> stages = List.of(replay, shallow, verify);
+
+        long start = System.nanoTime();
+        long[] parseNanos = new long[1];
+        RuntimeException[] parseFailure = new RuntimeException[1];
+        Thread parser = new Thread(() -> {
+            long parseStart = System.nanoTime();
+            try {
+                GameArchive.read(archive, game -> {
+                    try {
+                        parsed.put(game);
+                        games.increment();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException(e);
+                    }
+                });
+            } catch (RuntimeException e) {
+                parseFailure[0] = e;
+            } finally {
+                // Always end the pipeline, or its stages and the caller wait for games that never come.
+                try {
+                    parsed.put(END_GAME);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                parseNanos[0] = System.nanoTime() - parseStart;
+            }
+        }, "parse");
+        parser.start();
+        for (Stage<?, ?> stage : stages) stage.start();
+
+        Puzzle puzzle;
+        while ((puzzle = puzzles.take()) != END_PUZZLE) sink.accept(puzzle);
+        parser.join();
+        for (Stage<?, ?> stage : stages) stage.join();
+        if (parseFailure[0] != null) throw new IllegalStateException("Reading " + archive + " failed after " + games.sum() + " games", parseFailure[0]);
+
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%d games (%d rejected), %d positions in %.1f s%n", games.sum(), rejected.sum(), positions.sum(), elapsed / 1e9);
+        System.out.printf("%-8s %2d threads %8d games read in %.1f s (%.0f/s while reading)%n", "parse", 1, games.sum(),
+                parseNanos[0] / 1e9, games.sum() / (parseNanos[0] / 1e9));
+        for (Stage<?, ?> stage : stages) System.out.println(stage.report(elapsed));
+    }
+
+    private Stage.Worker<GameRecord, Replayed> replayWorker() {
+        GameReplay replay = new GameReplay();
+        return (game, emit) -> {
+            int plies = game.getMoves().size();
+            PositionState[] states = new PositionState[plies + 1];
+            int[] moves = new int[plies];
+            try {
+                ChessMatch match = replay.start(game);
+                states[0] = match.getState();
+                for (int ply = 0; ply < plies; ply++) {
+                    moves[ply] = Move.fromUci(game.getMoves().get(ply));
+                    GameReplay.play(match, moves[ply]);
+                    states[ply + 1] = match.getState();
+                }
+            } catch (RuntimeException e) {
+                // A bad FEN, UCI token or illegal move rejects the game, not the replay thread.
+                rejected.increment();
+                return;
+            }
+            positions.add(plies + 1);
+            emit.accept(new Replayed(game, states, moves));
+        };
+    }
+
+    private Stage.Worker<Replayed, Candidate> shallowWorker() {
+        Search search = new Search(new ClassicalEvaluator(), new TranspositionTable(16));
+        LegalMoveCache moveCache = new LegalMoveCache(1024);
+        SearchLimits limits = SearchLimits.depth(shallowDepth);
+        return (game, emit) -> {
+            search.getTable().clear();
+            long[] hashes = new long[game.positions.length];
+            int previousBest = Integer.MIN_VALUE;
+            for (int ply = 0; ply < game.positions.length; ply++) {
+                ChessMatch match = new ChessMatch(game.positions[ply]);
+                match.setMoveCache(moveCache);
+                hashes[ply] = match.getPositionHash();
+                if (ply < skipPlies || match.getCheckMate()) {
+                    previousBest = Integer.MIN_VALUE;
+                    continue;
+                }
+                search.setGameHistory(hashes, ply);
+                List<SearchResult> lines = search.searchMultiPv(match, limits, 2);
+                int best = lines.get(0).getScore();
+                // The mover's loss: what it could have had before the move against what it has after it.
+                boolean blunder = previousBest != Integer.MIN_VALUE && previousBest + best >= BLUNDER_LOSS;
+                previousBest = best;
+                if (lines.size() < 2 || best < WIN) continue;
+                boolean unique = best - lines.get(1).getScore() >= UNIQUE_GAP;
+                if ((blunder || unique) && !flagged.add(Zobrist.fenHash(game.positions[ply]))) continue;
+                if (blunder) emit.accept(new Candidate(game.game, ply, game.positions[ply], Puzzle.Kind.BLUNDER));
+                else if (unique) emit.accept(new Candidate(game.game, ply, game.positions[ply], Puzzle.Kind.UNIQUE_WIN));
+            }
+        };
+    }
+
+    private Stage.Worker<Candidate, Puzzle> verifyWorker() {
+        Search search = new Search(new ClassicalEvaluator(), new TranspositionTable(64));
+        LegalMoveCache moveCache = new LegalMoveCache(4096);
+        SearchLimits limits = SearchLimits.depth(deepDepth);
+        return (candidate, emit) -> {
+            search.getTable().clear();
+            ChessMatch match = new ChessMatch(candidate.position);
+            match.setMoveCache(moveCache);
+            List<SearchResult> lines = search.searchMultiPv(match, limits, 2);
+            SearchResult best = lines.get(0);
+            if (lines.size() < 2 || best.getScore() < WIN || best.getScore() - lines.get(1).getScore() < UNIQUE_GAP) return;
+            emit.accept(new Puzzle(candidate.game.getId(), candidate.ply, candidate.position, candidate.kind,
+                    best.getScore(), Math.max(0, best.getMateIn()), best.getPv()));
+        };
+    }
+
+    // Arguments: <archive> <puzzles.epd> then key=value options: shallow (depth), deep (depth), skip
+    // (opening plies), replay, filter and verify (threads per stage).
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.out.println("usage: PuzzleMiner <archive> <puzzles.epd> [shallow=2] [deep=5] [skip=8] [replay=1] [filter=] [verify=]");
+            return;
+        }
+        Map<String, String> options = new HashMap<>();
+        for (int i = 2; i < args.length; i++) {
+            int eq = args[i].indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Expected key=value: " + args[i]);
+            options.put(args[i].substring(0, eq), args[i].substring(eq + 1));
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        int verify = Integer.parseInt(options.getOrDefault("verify", String.valueOf(Math.max(1, cores * 2 / 3))));
+        int filter = Integer.parseInt(options.getOrDefault("filter", String.valueOf(Math.max(1, cores - verify))));
+        PuzzleMiner miner = new PuzzleMiner(Integer.parseInt(options.getOrDefault("shallow", "2")),
+                Integer.parseInt(options.getOrDefault("deep", "5")), Integer.parseInt(options.getOrDefault("skip", "8")));
+        Map<Puzzle.Kind, Integer> kinds = new HashMap<>();
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Path.of(args[1])))) {
+            miner.mine(Path.of(args[0]), Integer.parseInt(options.getOrDefault("replay", "1")), filter, verify, puzzle -> {
+                out.println(puzzle.toEpd());
+                kinds.merge(puzzle.getKind(), 1, Integer::sum);
+            });
+        }
+        System.out.printf("%d puzzles %s written to %s%n", kinds.values().stream().mapToInt(Integer::intValue).sum(), kinds, args[1]);
+    }
+}
@@ -0,0 +1,124 @@
+package puzzles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// One pipeline stage: a fixed number of threads taking items from a bounded input queue and putting
+// results on a bounded output queue. The end marker is passed on by the last thread to see it, after
+// every sibling has finished. Time is split into busy, waiting for input and blocked on a full output.
+class Stage<I, O> {
+
+    interface Worker<I, O> {
+        void process(I item, Consumer<O> emit) throws Exception;
+    }
+
+    private final String name;
+    private final int threads;
+    private final Supplier<Worker<I, O>> workers;
+    private final BlockingQueue<I> input;
+    private final I inputEnd;
+    private final BlockingQueue<O> output;
+    private final O outputEnd;
+    private final AtomicInteger running = new AtomicInteger();
+    private final List<Thread> started = new ArrayList<>();
+
+    final LongAdder items = new LongAdder();
+    final LongAdder emitted = new LongAdder();
+    final LongAdder failed = new LongAdder();
+    final LongAdder busyNanos = new LongAdder();
+    final LongAdder waitingNanos = new LongAdder();
+    final LongAdder blockedNanos = new LongAdder();
+
+    Stage(String name, int threads, Supplier<Worker<I, O>> workers, BlockingQueue<I> input, I inputEnd,
+          BlockingQueue<O> output, O outputEnd) {
+        if (threads < 1) throw new IllegalArgumentException("Stage " + name + " needs at least one thread");
+        this.name = name;
+        this.threads = threads;
+        this.workers = workers;
+        this.input = input;
+        this.inputEnd = inputEnd;
+        this.output = output;
+        this.outputEnd = outputEnd;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getThreads() {
+        return threads;
+    }
+
+    void start() {
+        running.set(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(this::run, name + "-" + t);
+            started.add(thread);
+            thread.start();
+        }
+    }
+
+    void join() throws InterruptedException {
+        for (Thread thread : started) thread.join();
+    }
+
+    private void run() {
+        Worker<I, O> worker = workers.get();
+        long[] blocked = {0};
+        Consumer<O> emit = item -> {
+            long start = System.nanoTime();
+            put(output, item);
+            long nanos = System.nanoTime() - start;
+            blocked[0] += nanos;
+            blockedNanos.add(nanos);
+            emitted.increment();
+        };
+        try {
+            while (true) {
+                long start = System.nanoTime();
+                I item = input.take();
+                waitingNanos.add(System.nanoTime() - start);
+                if (item == inputEnd) {
+                    // Leave the marker for the siblings still waiting on the queue.
+                    input.put(inputEnd);
+                    break;
+                }
+                start = System.nanoTime();
+                long blockedBefore = blocked[0];
+                try {
+                    worker.process(item, emit);
+                } catch (Exception e) {
+                    failed.increment();
+                }
+                items.increment();
+                // Time blocked on the output queue is counted separately, not as busy time.
+                busyNanos.add(System.nanoTime() - start - (blocked[0] - blockedBefore));
+            }
+            if (running.decrementAndGet() == 0) output.put(outputEnd);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static <T> void put(BlockingQueue<T> queue, T item) {
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Items per second and how the stage's thread time was spent over a run of the given length.
+    String report(long elapsedNanos) {
+        double threadNanos = (double) elapsedNanos * threads;
+        return String.format("%-8s %2d threads %8d in %8d out %6d failed %9.1f/s  busy %5.1f%%  starved %5.1f%%  blocked %5.1f%%",
+                name, threads, items.sum(), emitted.sum(), failed.sum(), items.sum() / (elapsedNanos / 1e9),
+                100 * busyNanos.sum() / threadNanos, 100 * waitingNanos.sum() / threadNanos, 100 * blockedNanos.sum() / threadNanos);
+    }
+}
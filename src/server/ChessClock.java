@@ -0,0 +1,106 @@
+package server;
+
+import chess.ChessException;
+import chess.Color;
+
+import java.util.concurrent.TimeUnit;
+
+// Two-sided game clock on System.nanoTime. INCREMENT adds a fixed bonus after every move (Fischer);
+// DELAY does not start consuming a player's time until the delay has passed on each move (US delay).
+public class ChessClock {
+
+    public enum Mode {
+        INCREMENT,
+        DELAY
+    }
+
+    private final Mode mode;
+    private final long bonusNanos;
+    private final long[] remaining = new long[2];
+    private Color running;
+    private long turnStart;
+    private boolean flagged;
+
+    public ChessClock(Mode mode, long initial, long bonus, TimeUnit unit) {
+        if (initial <= 0) throw new IllegalArgumentException("Initial time must be positive");
+        if (bonus < 0) throw new IllegalArgumentException("Bonus cannot be negative");
+        this.mode = mode;
+        this.bonusNanos = unit.toNanos(bonus);
+        remaining[0] = remaining[1] = unit.toNanos(initial);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public synchronized Color getRunning() {
+        return running;
+    }
+
+    public synchronized void start(Color player, long nowNanos) {
+        if (running != null) throw new ChessException("Clock is already running");
+        running = player;
+        turnStart = nowNanos;
+    }
+
+    // Stops the mover's time at nowNanos and starts the opponent's; compensationNanos is refunded from
+    // this move. A flag raised by checkFlag after nowNanos is lowered again, since the move arrived in time.
+    // Returns the mover's remaining time, or throws if it had run out.
+    public synchronized long press(Color player, long nowNanos, long compensationNanos) {
+        if (running != player) throw new ChessException("It is not " + player + "'s clock");
+        long elapsed = Math.max(0, nowNanos - turnStart);
+        long charged = Math.max(0, elapsed - Math.max(0, Math.min(compensationNanos, elapsed)));
+        if (mode == Mode.DELAY) charged = Math.max(0, charged - bonusNanos);
+        int side = player.ordinal();
+        if (charged >= remaining[side]) {
+            flagged = true;
+            throw new ChessException(player + " has run out of time");
+        }
+        flagged = false;
+        remaining[side] -= charged;
+        if (mode == Mode.INCREMENT) remaining[side] += bonusNanos;
+        running = opponent(player);
+        turnStart = nowNanos;
+        return remaining[side];
+    }
+
+    // Stops the running player's time at nowNanos without passing the turn; start resumes it.
+    public synchronized void pause(long nowNanos) {
+        if (running == null) return;
+        remaining[running.ordinal()] = getRemaining(running, nowNanos);
+        running = null;
+    }
+
+    public synchronized long getRemaining(Color player, long nowNanos) {
+        int side = player.ordinal();
+        if (player != running) return remaining[side];
+        long elapsed = Math.max(0, nowNanos - turnStart);
+        if (mode == Mode.DELAY) elapsed = Math.max(0, elapsed - bonusNanos);
+        return Math.max(0, remaining[side] - elapsed);
+    }
+
+    public synchronized long getTurnElapsed(long nowNanos) {
+        return running == null ? 0 : Math.max(0, nowNanos - turnStart);
+    }
+
+    // The System.nanoTime at which the running player's flag falls, or Long.MAX_VALUE when stopped.
+    public synchronized long getFlagDeadline() {
+        if (running == null || flagged) return Long.MAX_VALUE;
+        long deadline = turnStart + remaining[running.ordinal()];
+        return mode == Mode.DELAY ? deadline + bonusNanos : deadline;
+    }
+
+    // Marks the flag as fallen when the deadline has passed; returns whether it has fallen.
+    public synchronized boolean checkFlag(long nowNanos) {
+        if (!flagged && running != null && nowNanos >= getFlagDeadline()) flagged = true;
+        return flagged;
+    }
+
+    public synchronized boolean isFlagged() {
+        return flagged;
+    }
+
+    private static Color opponent(Color color) {
+        return color == Color.WHITE ? Color.BLACK : Color.WHITE;
+    }
+}
@@ -0,0 +1,161 @@
+package server;
+
+import chess.ChessException;
+import chess.Color;
+import metrics.Metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+// Clocks for every live match sharing one timing wheel: each running clock has exactly one pending
+// timeout at its flag deadline, replaced on every press, so flag fall needs no polling.
+public class ClockService implements AutoCloseable {
+
+    private final TimingWheel wheel;
+    private final Map<Long, Entry> clocks = new ConcurrentHashMap<>();
+    private volatile LagCompensator lagCompensator = LagCompensator.NONE;
+    private volatile BiConsumer<Long, Color> flagListener = (id, player) -> { };
+
+    public ClockService() {
+        this(1, TimeUnit.MILLISECONDS);
+    }
+
+    public ClockService(long tick, TimeUnit unit) {
+        wheel = new TimingWheel(tick, unit);
+    }
+
+    public void setLagCompensator(LagCompensator lagCompensator) {
+        this.lagCompensator = lagCompensator;
+    }
+
+    // Called from the wheel thread with the match id and the player whose flag fell.
+    public void setFlagListener(BiConsumer<Long, Color> flagListener) {
+        this.flagListener = flagListener;
+    }
+
+    public void start(long matchId, ChessClock clock, Color first) {
+        Entry entry = new Entry(matchId, clock);
+        if (clocks.putIfAbsent(matchId, entry) != null) throw new ChessException("Match " + matchId + " already has a clock");
+        synchronized (entry) {
+            clock.start(first, System.nanoTime());
+            schedule(entry);
+        }
+    }
+
+    public ChessClock getClock(long matchId) {
+        Entry entry = clocks.get(matchId);
+        return entry == null ? null : entry.clock;
+    }
+
+    public long press(long matchId, Color player) {
+        return press(matchId, player, System.nanoTime());
+    }
+
+    // Stops the mover's clock at nowNanos, normally the time the move was received; throws when the mover
+    // has run out of time.
+    public long press(long matchId, Color player, long nowNanos) {
+        Entry entry = entry(matchId);
+        synchronized (entry) {
+            if (entry.timeout != null) entry.timeout.cancel();
+            try {
+                long elapsed = entry.clock.getTurnElapsed(nowNanos);
+                return entry.clock.press(player, nowNanos, lagCompensator.compensate(matchId, player, elapsed));
+            } finally {
+                schedule(entry);
+            }
+        }
+    }
+
+    // Throws when the player has no time left at nowNanos, without pressing the clock.
+    public void checkTime(long matchId, Color player, long nowNanos) {
+        ChessClock clock = entry(matchId).clock;
+        if (clock.getRunning() == player && clock.getRemaining(player, nowNanos) == 0) {
+            throw new ChessException(player + " has run out of time");
+        }
+    }
+
+    // Stops the clock but keeps it, for a position that is not final yet; resume restarts it for player.
+    public void pause(long matchId) {
+        Entry entry = entry(matchId);
+        synchronized (entry) {
+            if (entry.timeout != null) entry.timeout.cancel();
+            entry.timeout = null;
+            entry.clock.pause(System.nanoTime());
+        }
+    }
+
+    public void resume(long matchId, Color player) {
+        Entry entry = entry(matchId);
+        synchronized (entry) {
+            entry.clock.start(player, System.nanoTime());
+            schedule(entry);
+        }
+    }
+
+    public void stop(long matchId) {
+        Entry entry = clocks.remove(matchId);
+        if (entry == null) return;
+        synchronized (entry) {
+            if (entry.timeout != null) entry.timeout.cancel();
+        }
+    }
+
+    private Entry entry(long matchId) {
+        Entry entry = clocks.get(matchId);
+        if (entry == null) throw new ChessException("Match " + matchId + " has no clock");
+        return entry;
+    }
+
+    public int getClockCount() {
+        return clocks.size();
+    }
+
+    public int getPendingTimeouts() {
+        return wheel.getPending();
+    }
+
+    public TimingWheel getWheel() {
+        return wheel;
+    }
+
+    private void schedule(Entry entry) {
+        long deadline = entry.clock.getFlagDeadline();
+        entry.timeout = deadline == Long.MAX_VALUE ? null : wheel.schedule(deadline, () -> expire(entry));
+    }
+
+    private void expire(Entry entry) {
+        Color player;
+        synchronized (entry) {
+            player = entry.clock.getRunning();
+            long deadline = entry.clock.getFlagDeadline();
+            long now = System.nanoTime();
+            if (!entry.clock.checkFlag(now)) {
+                // The wheel rounds deadlines to ticks; try again at the exact deadline.
+                schedule(entry);
+                return;
+            }
+            entry.timeout = null;
+            if (Metrics.ENABLED) Metrics.CLOCK_FLAG_LATENESS.record(now - deadline);
+        }
+        flagListener.accept(entry.matchId, player);
+    }
+
+    @Override
+    public void close() {
+        wheel.close();
+    }
+
+    private static class Entry {
+
+        private final long matchId;
+        private final ChessClock clock;
+        private TimingWheel.Timeout timeout;
+
+        Entry(long matchId, ChessClock clock) {
+            this.matchId = matchId;
+            this.clock = clock;
+        }
+    }
+}
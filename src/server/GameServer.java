@@ -0,0 +1,311 @@
+package server;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.Color;
+import chess.PositionState;
+import metrics.Metrics;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Hosts live matches by id. With a journal every accepted move is durable before move() returns or
+// spectators see it; a match whose move cannot be journaled fails and takes no further moves. open()
+// rebuilds all matches in progress from the journal directory. With hibernation on, matches nobody has
+// touched for a while are held in compact form and rebuilt on their next move.
+public class GameServer implements AutoCloseable {
+
+    private static final int SPECTATOR_RING = 1024;
+
+    private final Map<Long, HostedMatch> matches = new ConcurrentHashMap<>();
+    private final Map<Long, SpectatorFeed> feeds = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final MatchJournal journal;
+    // Moves hold the read lock while journaling; a snapshot takes the write lock to see a quiescent server.
+    private final ReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    private ScheduledExecutorService snapshots;
+    private ScheduledExecutorService hibernation;
+    private volatile ClockService clocks;
+
+    public GameServer() {
+        journal = null;
+    }
+
+    private GameServer(MatchJournal journal, MatchJournal.Recovery recovery) {
+        this.journal = journal;
+        for (Map.Entry<Long, ChessMatch> entry : recovery.getMatches().entrySet()) {
+            matches.put(entry.getKey(), new HostedMatch(entry.getValue()));
+            if (entry.getKey() >= nextId.get()) nextId.set(entry.getKey() + 1);
+        }
+        // A match the journal could not replay is held at its last good position and takes no moves.
+        for (long id : recovery.getFailed()) {
+            HostedMatch hosted = matches.get(id);
+            if (hosted != null) hosted.fail();
+            if (id >= nextId.get()) nextId.set(id + 1);
+            System.err.println("Match " + id + " could not be recovered from the journal");
+        }
+    }
+
+    public static GameServer open(Path directory) {
+        MatchJournal.Recovery recovery = MatchJournal.recover(directory);
+        GameServer server = new GameServer(new MatchJournal(directory, recovery.getGeneration() + 1), recovery);
+        // Start from a fresh snapshot so a torn journal tail is never replayed twice.
+        server.snapshot();
+        return server;
+    }
+
+    public void startSnapshots(long period, TimeUnit unit) {
+        if (journal == null) throw new IllegalStateException("Server has no journal");
+        snapshots = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "match-snapshots");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshots.scheduleWithFixedDelay(this::snapshot, period, period, unit);
+    }
+
+    public long createMatch() {
+        long id = nextId.getAndIncrement();
+        CompletableFuture<Void> durable = null;
+        snapshotLock.readLock().lock();
+        try {
+            matches.put(id, new HostedMatch(new ChessMatch()));
+            if (journal != null) durable = journal.appendCreate(id);
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+        if (durable != null) durable.join();
+        return id;
+    }
+
+    // Creates a match whose clock starts running for white immediately. Clocks are not journaled.
+    public long createMatch(ChessClock clock) {
+        long id = createMatch();
+        getClocks().start(id, clock, Color.WHITE);
+        return id;
+    }
+
+    public ClockService getClocks() {
+        ClockService service = clocks;
+        if (service == null) {
+            synchronized (this) {
+                if (clocks == null) clocks = new ClockService();
+                service = clocks;
+            }
+        }
+        return service;
+    }
+
+    // Wakes a hibernated match. The match may hibernate again once idle, after which the returned object
+    // no longer follows the game, so hold on to it only briefly.
+    public ChessMatch getMatch(long id) {
+        HostedMatch hosted = hosted(id);
+        synchronized (hosted) {
+            return hosted.wake();
+        }
+    }
+
+    public PositionState getState(long id) {
+        HostedMatch hosted = hosted(id);
+        synchronized (hosted) {
+            return hosted.getState();
+        }
+    }
+
+    private HostedMatch hosted(long id) {
+        HostedMatch hosted = matches.get(id);
+        if (hosted == null) throw new ChessException("There is no match with id " + id);
+        return hosted;
+    }
+
+    public int getMatchCount() {
+        return matches.size();
+    }
+
+    // Sweeps every period of a quarter of idle, so a match hibernates between idle and 1.25 idle after
+    // its last use.
+    public void startHibernation(long idle, TimeUnit unit) {
+        long idleNanos = unit.toNanos(idle);
+        if (idleNanos <= 0) throw new IllegalArgumentException("The idle time must be positive");
+        hibernation = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "match-hibernation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, idleNanos / 4);
+        hibernation.scheduleWithFixedDelay(() -> hibernateIdle(idleNanos, TimeUnit.NANOSECONDS), period, period, TimeUnit.NANOSECONDS);
+        if (Metrics.ENABLED) Metrics.HIBERNATE_AFTER.set(unit.toMillis(idle));
+    }
+
+    // Hibernates every match not used for idle and returns how many were hibernated.
+    public int hibernateIdle(long idle, TimeUnit unit) {
+        long idleSince = System.nanoTime() - unit.toNanos(idle);
+        int hibernated = 0;
+        for (HostedMatch hosted : matches.values()) {
+            synchronized (hosted) {
+                if (hosted.hibernateIfIdle(idleSince) > 0) hibernated++;
+            }
+        }
+        return hibernated;
+    }
+
+    // Counts by walking every match.
+    public int getHibernatedCount() {
+        int count = 0;
+        for (HostedMatch hosted : matches.values()) {
+            synchronized (hosted) {
+                if (hosted.isHibernated()) count++;
+            }
+        }
+        return count;
+    }
+
+    public long getHibernatedBytes() {
+        long bytes = 0;
+        for (HostedMatch hosted : matches.values()) {
+            synchronized (hosted) {
+                bytes += hosted.getHibernatedBytes();
+            }
+        }
+        return bytes;
+    }
+
+    public ChessPiece move(long id, ChessPosition source, ChessPosition target) {
+        long received = System.nanoTime();
+        HostedMatch hosted = hosted(id);
+        ChessPiece captured;
+        snapshotLock.readLock().lock();
+        try {
+            synchronized (hosted) {
+                ChessMatch match = live(id, hosted);
+                ClockService clockService = clocks;
+                boolean timed = clockService != null && clockService.getClock(id) != null;
+                Color mover = match.getCurrentPlayer();
+                if (timed) clockService.checkTime(id, mover, received);
+                captured = match.performChessMove(source, target);
+                if (timed) {
+                    clockService.press(id, mover, received);
+                    // A mate ends the game, so the loser's clock must not run on to a flag. A mate given by
+                    // the default queen only pauses it, since promote() may choose a piece that does not mate.
+                    if (match.getCheckMate()) {
+                        if (match.getPromoted() == null) clockService.stop(id);
+                        else clockService.pause(id);
+                    }
+                }
+                if (journal != null) {
+                    try {
+                        journal.appendMove(id, source, target).join();
+                    } catch (RuntimeException e) {
+                        throw fail(id, hosted, e);
+                    }
+                }
+                SpectatorFeed feed = feeds.get(id);
+                if (feed != null) {
+                    ChessPiece promoted = match.getPromoted();
+                    feed.publish(MoveDelta.encode(MoveDelta.MOVE, MatchJournal.square(source), MatchJournal.square(target),
+                            PositionState.code(captured), PositionState.code(promoted), match.getCheck(), match.getCheckMate()), match.getState());
+                }
+            }
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+        return captured;
+    }
+
+    public ChessPiece promote(long id, String type) {
+        HostedMatch hosted = hosted(id);
+        ChessPiece piece;
+        snapshotLock.readLock().lock();
+        try {
+            synchronized (hosted) {
+                ChessMatch match = live(id, hosted);
+                piece = match.replacePromotedPiece(type);
+                ClockService clockService = clocks;
+                ChessClock clock = clockService == null ? null : clockService.getClock(id);
+                if (clock != null) {
+                    if (match.getCheckMate()) clockService.stop(id);
+                    else if (clock.getRunning() == null) clockService.resume(id, match.getCurrentPlayer());
+                }
+                if (journal != null) {
+                    try {
+                        journal.appendPromotion(id, type).join();
+                    } catch (RuntimeException e) {
+                        throw fail(id, hosted, e);
+                    }
+                }
+                SpectatorFeed feed = feeds.get(id);
+                if (feed != null) {
+                    int square = MatchJournal.square(piece.getChessPosition());
+                    feed.publish(MoveDelta.encode(MoveDelta.PROMOTION, square, square, 0, PositionState.code(piece),
+                            match.getCheck(), match.getCheckMate()), match.getState());
+                }
+            }
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+        return piece;
+    }
+
+    private ChessMatch live(long id, HostedMatch hosted) {
+        if (hosted.isFailed()) throw new IllegalStateException("Match " + id + " has failed and takes no further moves");
+        return hosted.wake();
+    }
+
+    // Moves wait for the journal under the match lock, so spectators never see a move that a restart would
+    // lose. The move already stands in memory, so when it cannot be journaled the match fails instead.
+    private IllegalStateException fail(long id, HostedMatch hosted, RuntimeException e) {
+        hosted.fail();
+        ClockService clockService = clocks;
+        if (clockService != null) clockService.stop(id);
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return new IllegalStateException("Match " + id + " has failed: a move could not be journaled", cause);
+    }
+
+    public SpectatorFeed.Subscription spectate(long id, Spectator spectator) {
+        HostedMatch hosted = hosted(id);
+        SpectatorFeed feed;
+        synchronized (hosted) {
+            feed = feeds.computeIfAbsent(id, k -> new SpectatorFeed(SPECTATOR_RING, hosted.getState()));
+        }
+        return feed.subscribe(spectator);
+    }
+
+    // Rotates the journal and writes every match state, which bounds replay to the journal written since.
+    public void snapshot() {
+        if (journal == null) return;
+        snapshotLock.writeLock().lock();
+        try {
+            long generation = journal.getGeneration() + 1;
+            journal.rotate(generation).join();
+            Map<Long, PositionState> states = new HashMap<>();
+            for (Map.Entry<Long, HostedMatch> entry : matches.entrySet()) {
+                synchronized (entry.getValue()) {
+                    states.put(entry.getKey(), entry.getValue().getState());
+                }
+            }
+            journal.writeSnapshot(generation, states);
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (snapshots != null) snapshots.shutdownNow();
+        if (hibernation != null) hibernation.shutdownNow();
+        if (clocks != null) clocks.close();
+        if (journal != null) journal.close();
+    }
+}
@@ -0,0 +1,75 @@
+package server;
+
+import chess.ChessMatch;
+import chess.PositionState;
+import metrics.Metrics;
+
+// A match held by the server, either live or hibernated: an idle match gives up its ChessMatch, with its
+// board, piece objects and lists, and keeps only PositionState.toCompactBytes() until it is next used.
+// Callers synchronize on the HostedMatch around wake() and every use of the match it returns.
+final class HostedMatch {
+
+    private ChessMatch match;
+    private byte[] hibernated;
+    private long lastActive;
+    private boolean failed;
+
+    HostedMatch(ChessMatch match) {
+        this.match = match;
+        this.lastActive = System.nanoTime();
+    }
+
+    // The live match, rebuilt first when hibernated; marks the match as active.
+    ChessMatch wake() {
+        if (match == null) {
+            long start = System.nanoTime();
+            match = new ChessMatch(PositionState.fromCompactBytes(hibernated));
+            if (Metrics.ENABLED) {
+                Metrics.REHYDRATE.recordSince(start);
+                Metrics.REHYDRATIONS.increment();
+                Metrics.HIBERNATED_MATCHES.add(-1);
+                Metrics.HIBERNATED_BYTES.add(-hibernated.length);
+            }
+            hibernated = null;
+        }
+        lastActive = System.nanoTime();
+        return match;
+    }
+
+    // The current position without waking the match.
+    PositionState getState() {
+        return match != null ? match.getState() : PositionState.fromCompactBytes(hibernated);
+    }
+
+    // Set once a move of the match could not be journaled; the match then takes no further moves.
+    void fail() {
+        failed = true;
+    }
+
+    boolean isFailed() {
+        return failed;
+    }
+
+    boolean isHibernated() {
+        return match == null;
+    }
+
+    // Bytes of compact state while hibernated, otherwise 0.
+    int getHibernatedBytes() {
+        return hibernated == null ? 0 : hibernated.length;
+    }
+
+    // Hibernates the match if it has not been used since idleSince; returns the bytes it now occupies,
+    // or 0 when it stays live.
+    int hibernateIfIdle(long idleSince) {
+        if (match == null || lastActive - idleSince > 0) return 0;
+        hibernated = match.getState().toCompactBytes();
+        match = null;
+        if (Metrics.ENABLED) {
+            Metrics.HIBERNATIONS.increment();
+            Metrics.HIBERNATED_MATCHES.add(1);
+            Metrics.HIBERNATED_BYTES.add(hibernated.length);
+        }
+        return hibernated.length;
+    }
+}
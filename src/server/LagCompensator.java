@@ -0,0 +1,12 @@
+package server;
+
+import chess.Color;
+
+// Hook for crediting back network transit time. Given the time a move spent on a player's clock, return
+// the nanoseconds to refund; the clock caps the refund at the elapsed time.
+public interface LagCompensator {
+
+    LagCompensator NONE = (matchId, player, elapsedNanos) -> 0;
+
+    long compensate(long matchId, Color player, long elapsedNanos);
+}
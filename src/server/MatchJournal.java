@@ -0,0 +1,439 @@
+package server;
+
+import chess.ChessMatch;
+import chess.ChessPosition;
+import chess.PositionState;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Append-only journal of match operations. Records are fixed 16-byte entries
+// (match id, type, three operands, CRC32) written by a single thread: every waiting append is drained
+// into one batch, written with one FileChannel write and made durable with one force (group commit).
+// Journals are split in generations; snapshot-N holds every match as of the start of journal-N, so
+// recovery loads the newest snapshot and replays only the journals from that generation on. A failed
+// write cuts the file back to its last durable record before anything else is written; if even that
+// fails, the journal fails every later append.
+public class MatchJournal implements AutoCloseable {
+
+    public static final byte CREATE = 0;
+    public static final byte MOVE = 1;
+    public static final byte PROMOTION = 2;
+
+    private static final int RECORD_BYTES = 16;
+    private static final int SNAPSHOT_MAGIC = 0x58534E50;
+    private static final int MAX_BATCH = 4096;
+    private static final long STOP = -2;
+
+    private final Path directory;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_BATCH * RECORD_BYTES);
+    private final CRC32 crc = new CRC32();
+    private final LongAdder records = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    private FileChannel channel;
+    // Size of the current file up to its last durable record.
+    private long committed;
+    private volatile IOException failure;
+    private volatile long generation;
+    private volatile boolean closed;
+
+    public MatchJournal(Path directory, long generation) {
+        this.directory = directory;
+        this.generation = generation;
+        try {
+            Files.createDirectories(directory);
+            channel = open(generation);
+            committed = channel.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        writer = new Thread(this::writeLoop, "match-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public long getRecords() {
+        return records.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    // Completes once the record is durable on disk.
+    public CompletableFuture<Void> append(long matchId, byte type, int a, int b, int c) {
+        if (closed) throw new IllegalStateException("Journal is closed");
+        if (failure != null) throw new IllegalStateException("Journal has failed", failure);
+        Pending pending = new Pending(matchId, type, a, b, c, -1);
+        queue.add(pending);
+        return pending.future;
+    }
+
+    public CompletableFuture<Void> appendCreate(long matchId) {
+        return append(matchId, CREATE, 0, 0, 0);
+    }
+
+    public CompletableFuture<Void> appendMove(long matchId, ChessPosition source, ChessPosition target) {
+        return append(matchId, MOVE, square(source), square(target), 0);
+    }
+
+    public CompletableFuture<Void> appendPromotion(long matchId, String type) {
+        return append(matchId, PROMOTION, type.charAt(0), 0, 0);
+    }
+
+    // Switches to the next generation after everything queued before it has been flushed.
+    public CompletableFuture<Void> rotate(long nextGeneration) {
+        Pending pending = new Pending(0, (byte) -1, 0, 0, 0, nextGeneration);
+        queue.add(pending);
+        return pending.future;
+    }
+
+    public void writeSnapshot(long snapshotGeneration, Map<Long, PositionState> states) {
+        ByteBuffer data = ByteBuffer.allocate(16 + states.size() * (Long.BYTES + PositionState.BYTES) + Long.BYTES);
+        data.putInt(SNAPSHOT_MAGIC).putLong(snapshotGeneration).putInt(states.size());
+        for (Map.Entry<Long, PositionState> entry : states.entrySet()) {
+            data.putLong(entry.getKey());
+            entry.getValue().writeTo(data);
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(data.array(), 0, data.position());
+        data.putLong(checksum.getValue());
+        data.flip();
+        try {
+            Path tmp = directory.resolve("snapshot-" + snapshotGeneration + ".tmp");
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (data.hasRemaining()) out.write(data);
+                out.force(true);
+            }
+            Files.move(tmp, snapshotFile(directory, snapshotGeneration), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    long g = generationOf(file);
+                    if (g >= 0 && g < snapshotGeneration) Files.delete(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        queue.add(new Pending(0, (byte) -1, 0, 0, 0, STOP));
+        try {
+            writer.join();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(MAX_BATCH);
+        boolean stopped = false;
+        while (!stopped) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            stopped = flush(batch);
+            batch.clear();
+        }
+        Pending p;
+        while ((p = queue.poll()) != null) p.future.completeExceptionally(new IllegalStateException("Journal is closed"));
+    }
+
+    // Returns true when the batch contained the close marker. Entries complete as soon as their records
+    // are durable, so a failure fails only the entries not yet written.
+    private boolean flush(List<Pending> batch) {
+        buffer.clear();
+        int done = 0;
+        boolean stopped = false;
+        for (Pending p : batch) stopped |= p.rotateTo == STOP;
+        try {
+            if (failure != null) throw new IOException("Journal has failed", failure);
+            for (int i = 0; i < batch.size(); i++) {
+                Pending p = batch.get(i);
+                if (p.rotateTo == STOP) continue;
+                if (p.rotateTo >= 0) {
+                    writeBuffer();
+                    done = complete(batch, done, i);
+                    channel.close();
+                    channel = open(p.rotateTo);
+                    committed = channel.size();
+                    generation = p.rotateTo;
+                    continue;
+                }
+                int start = buffer.position();
+                buffer.putLong(p.matchId).put(p.type).put((byte) p.a).put((byte) p.b).put((byte) p.c);
+                crc.reset();
+                crc.update(buffer.duplicate().position(start).limit(start + 12));
+                buffer.putInt((int) crc.getValue());
+            }
+            writeBuffer();
+            complete(batch, done, batch.size());
+        } catch (IOException | RuntimeException e) {
+            for (int i = done; i < batch.size(); i++) batch.get(i).future.completeExceptionally(e);
+            discardTornTail(e);
+        }
+        return stopped;
+    }
+
+    // Completes the entries from index from up to to, and returns to.
+    private static int complete(List<Pending> batch, int from, int to) {
+        for (int i = from; i < to; i++) batch.get(i).future.complete(null);
+        return to;
+    }
+
+    private void writeBuffer() throws IOException {
+        int written = buffer.position() / RECORD_BYTES;
+        if (written == 0) return;
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        channel.force(false);
+        committed = channel.size();
+        buffer.clear();
+        records.add(written);
+        batches.increment();
+    }
+
+    // A write or force that failed partway may have left part of the batch in the file, and the next batch
+    // would land behind it, where replay never reaches. Cuts the file back to its last durable record.
+    private void discardTornTail(Exception cause) {
+        buffer.clear();
+        if (failure != null) return;
+        try {
+            channel.truncate(committed);
+            channel.force(false);
+        } catch (IOException e) {
+            e.addSuppressed(cause);
+            failure = e;
+        }
+    }
+
+    private FileChannel open(long generation) throws IOException {
+        return FileChannel.open(journalFile(directory, generation), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    public static Recovery recover(Path directory) {
+        long start = System.nanoTime();
+        Map<Long, ChessMatch> matches = new TreeMap<>();
+        Set<Long> failed = new TreeSet<>();
+        long snapshotGeneration = -1;
+        long lastGeneration = 0;
+        long replayed = 0;
+        try {
+            if (!Files.isDirectory(directory)) return new Recovery(matches, failed, 0, 0, System.nanoTime() - start);
+            List<Long> snapshots = new ArrayList<>();
+            List<Long> journals = new ArrayList<>();
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    long g = generationOf(file);
+                    if (g < 0) continue;
+                    if (file.getFileName().toString().startsWith("snapshot-")) snapshots.add(g);
+                    else journals.add(g);
+                }
+            }
+            snapshots.sort(null);
+            journals.sort(null);
+            for (int i = snapshots.size() - 1; i >= 0 && snapshotGeneration < 0; i--) {
+                if (readSnapshot(snapshotFile(directory, snapshots.get(i)), matches)) snapshotGeneration = snapshots.get(i);
+            }
+            lastGeneration = Math.max(snapshotGeneration, 0);
+            boolean torn = false;
+            for (long g : journals) {
+                if (g < snapshotGeneration) continue;
+                // Later generations still count, so the next journal does not reuse one of their files.
+                lastGeneration = Math.max(lastGeneration, g);
+                if (torn) continue;
+                Path file = journalFile(directory, g);
+                long read = replay(file, matches, failed);
+                replayed += read;
+                // Records after a torn or corrupt one, here or in a later generation, would apply across a gap.
+                torn = Files.size(file) != read * RECORD_BYTES;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Recovery(matches, failed, lastGeneration, replayed, System.nanoTime() - start);
+    }
+
+    private static boolean readSnapshot(Path file, Map<Long, ChessMatch> matches) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (data.remaining() < 16 + Long.BYTES || data.getInt() != SNAPSHOT_MAGIC) return false;
+        CRC32 checksum = new CRC32();
+        checksum.update(data.array(), 0, data.limit() - Long.BYTES);
+        if (checksum.getValue() != data.getLong(data.limit() - Long.BYTES)) return false;
+        data.getLong();
+        int count = data.getInt();
+        matches.clear();
+        for (int i = 0; i < count; i++) {
+            long id = data.getLong();
+            matches.put(id, new ChessMatch(PositionState.readFrom(data)));
+        }
+        return true;
+    }
+
+    // Replays records until the end of file or the first torn or corrupt record, and returns how many it read.
+    // A record that cannot be applied fails only its match: the match keeps its last good position, its id
+    // goes into failed, and its later records are skipped.
+    private static long replay(Path file, Map<Long, ChessMatch> matches, Set<Long> failed) throws IOException {
+        long count = 0;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+        CRC32 checksum = new CRC32();
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer chunk = ByteBuffer.allocate(RECORD_BYTES * 8192);
+            while (in.read(chunk) > 0 || chunk.position() > 0) {
+                chunk.flip();
+                if (chunk.remaining() < RECORD_BYTES) break;
+                while (chunk.remaining() >= RECORD_BYTES) {
+                    record.clear();
+                    chunk.get(record.array());
+                    checksum.reset();
+                    checksum.update(record.array(), 0, 12);
+                    if ((int) checksum.getValue() != record.getInt(12)) return count;
+                    long id = record.getLong(0);
+                    count++;
+                    if (failed.contains(id)) continue;
+                    try {
+                        apply(matches, id, record.get(8), record.get(9), record.get(10), record.get(11));
+                    } catch (RuntimeException e) {
+                        failed.add(id);
+                    }
+                }
+                chunk.compact();
+            }
+        }
+        return count;
+    }
+
+    private static void apply(Map<Long, ChessMatch> matches, long id, byte type, int a, int b, int c) {
+        if (type == CREATE) {
+            matches.put(id, new ChessMatch());
+            return;
+        }
+        ChessMatch match = matches.get(id);
+        if (match == null) throw new IllegalStateException("Journal references unknown match " + id);
+        if (type == MOVE) match.performChessMove(position(a), position(b));
+        else if (type == PROMOTION) match.replacePromotedPiece(String.valueOf((char) a));
+        else throw new IllegalStateException("Unknown journal record type " + type);
+    }
+
+    static int square(ChessPosition position) {
+        return PositionState.square(8 - position.getRow(), position.getColumn() - 'a');
+    }
+
+    static ChessPosition position(int square) {
+        return new ChessPosition((char) ('a' + square % 8), 8 - square / 8);
+    }
+
+    private static Path journalFile(Path directory, long generation) {
+        return directory.resolve("journal-" + generation + ".log");
+    }
+
+    private static Path snapshotFile(Path directory, long generation) {
+        return directory.resolve("snapshot-" + generation + ".bin");
+    }
+
+    private static long generationOf(Path file) {
+        String name = file.getFileName().toString();
+        int dash = name.indexOf('-');
+        int dot = name.lastIndexOf('.');
+        if (dash < 0 || dot < dash || !(name.endsWith(".log") || name.endsWith(".bin"))) return -1;
+        try {
+            return Long.parseLong(name.substring(dash + 1, dot));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static class Pending {
+
+        final long matchId;
+        final byte type;
+        final int a;
+        final int b;
+        final int c;
+        final long rotateTo;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Pending(long matchId, byte type, int a, int b, int c, long rotateTo) {
+            this.matchId = matchId;
+            this.type = type;
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.rotateTo = rotateTo;
+        }
+    }
+
+    public static class Recovery {
+
+        private final Map<Long, ChessMatch> matches;
+        private final Set<Long> failed;
+        private final long generation;
+        private final long records;
+        private final long nanos;
+
+        Recovery(Map<Long, ChessMatch> matches, Set<Long> failed, long generation, long records, long nanos) {
+            this.matches = matches;
+            this.failed = failed;
+            this.generation = generation;
+            this.records = records;
+            this.nanos = nanos;
+        }
+
+        public Map<Long, ChessMatch> getMatches() {
+            return matches;
+        }
+
+        // Ids of matches with a journal record that could not be applied; those still in getMatches() hold
+        // the position before that record.
+        public Set<Long> getFailed() {
+            return failed;
+        }
+
+        public long getGeneration() {
+            return generation;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+}
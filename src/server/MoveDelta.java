@@ -0,0 +1,52 @@
+package server;
+
+// A board change packed in a long, as broadcast to spectators:
+// bits 0-5 source square, 6-11 target square, 12-15 captured piece code, 16-19 promotion piece code,
+// bit 20 check, bit 21 checkmate, bits 22-23 kind. Squares and codes follow PositionState.
+public final class MoveDelta {
+
+    public static final int MOVE = 0;
+    // The piece on the target square was replaced through replacePromotedPiece.
+    public static final int PROMOTION = 1;
+
+    private MoveDelta() {
+    }
+
+    public static long encode(int kind, int source, int target, int captured, int promotion, boolean check, boolean checkMate) {
+        return (source & 63)
+                | (target & 63) << 6
+                | (captured & 15) << 12
+                | (promotion & 15) << 16
+                | (check ? 1 << 20 : 0)
+                | (checkMate ? 1 << 21 : 0)
+                | (long) (kind & 3) << 22;
+    }
+
+    public static int source(long delta) {
+        return (int) (delta & 63);
+    }
+
+    public static int target(long delta) {
+        return (int) (delta >>> 6 & 63);
+    }
+
+    public static byte captured(long delta) {
+        return (byte) (delta >>> 12 & 15);
+    }
+
+    public static byte promotion(long delta) {
+        return (byte) (delta >>> 16 & 15);
+    }
+
+    public static boolean check(long delta) {
+        return (delta >>> 20 & 1) != 0;
+    }
+
+    public static boolean checkMate(long delta) {
+        return (delta >>> 21 & 1) != 0;
+    }
+
+    public static int kind(long delta) {
+        return (int) (delta >>> 22 & 3);
+    }
+}
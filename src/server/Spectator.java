@@ -0,0 +1,12 @@
+package server;
+
+import chess.PositionState;
+
+public interface Spectator {
+
+    // A batch of MoveDelta values, oldest first.
+    void onMoves(long[] deltas, int offset, int count);
+
+    // Sent on the first poll and whenever the spectator fell too far behind; the state is shared and must not be modified.
+    void onSnapshot(PositionState state);
+}
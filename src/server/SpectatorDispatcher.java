@@ -0,0 +1,65 @@
+package server;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// A few threads that poll many subscriptions in batches, so thousands of spectators cost a handful of
+// threads instead of one each. Subscriptions are spread round robin; a spectator that throws is dropped.
+public class SpectatorDispatcher implements AutoCloseable {
+
+    private static final int BATCH = 64;
+    private static final long IDLE_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    private final List<List<SpectatorFeed.Subscription>> shards;
+    private final Thread[] threads;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile boolean running = true;
+
+    public SpectatorDispatcher(int threadCount) {
+        shards = new CopyOnWriteArrayList<>();
+        threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            List<SpectatorFeed.Subscription> shard = new CopyOnWriteArrayList<>();
+            shards.add(shard);
+            threads[i] = new Thread(() -> run(shard), "spectators-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+    }
+
+    public void add(SpectatorFeed.Subscription subscription) {
+        shards.get(Math.floorMod(next.getAndIncrement(), shards.size())).add(subscription);
+    }
+
+    public void remove(SpectatorFeed.Subscription subscription) {
+        for (List<SpectatorFeed.Subscription> shard : shards) {
+            shard.remove(subscription);
+        }
+    }
+
+    private void run(List<SpectatorFeed.Subscription> shard) {
+        long[] batch = new long[BATCH];
+        while (running) {
+            int delivered = 0;
+            for (SpectatorFeed.Subscription subscription : shard) {
+                try {
+                    delivered += subscription.poll(batch);
+                } catch (RuntimeException e) {
+                    shard.remove(subscription);
+                }
+            }
+            if (delivered == 0) LockSupport.parkNanos(IDLE_NANOS);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        for (Thread thread : threads) {
+            LockSupport.unpark(thread);
+        }
+    }
+}
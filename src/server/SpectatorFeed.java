@@ -0,0 +1,108 @@
+package server;
+
+import chess.PositionState;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Single-publisher broadcast of the move deltas of one match. Deltas go into a fixed ring that every
+// subscription reads with its own cursor, so subscribers never block the game or each other. A subscriber
+// that falls more than a ring behind is moved to the latest snapshot instead of replaying what it missed.
+public class SpectatorFeed {
+
+    private final AtomicLongArray ring;
+    private final int mask;
+    private final AtomicLong published = new AtomicLong();
+    private volatile Snapshot latest;
+
+    public SpectatorFeed(int capacity, PositionState initial) {
+        if (Integer.bitCount(capacity) != 1) throw new IllegalArgumentException("Capacity must be a power of two");
+        ring = new AtomicLongArray(capacity);
+        mask = capacity - 1;
+        latest = new Snapshot(initial, 0);
+    }
+
+    // Called by the match owner only, after the move has been applied.
+    public void publish(long delta, PositionState state) {
+        long sequence = published.get();
+        ring.lazySet((int) (sequence & mask), delta);
+        published.set(sequence + 1);
+        latest = new Snapshot(state, sequence + 1);
+    }
+
+    public long getPublished() {
+        return published.get();
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    public Subscription subscribe(Spectator spectator) {
+        return new Subscription(spectator);
+    }
+
+    public class Subscription {
+
+        private final Spectator spectator;
+        private long cursor;
+        private boolean needsSnapshot = true;
+        private boolean joined;
+        private long skipped;
+
+        Subscription(Spectator spectator) {
+            this.spectator = spectator;
+        }
+
+        public Spectator getSpectator() {
+            return spectator;
+        }
+
+        public long getSkipped() {
+            return skipped;
+        }
+
+        public long getLag() {
+            return published.get() - cursor;
+        }
+
+        // Delivers at most batch.length pending deltas to the spectator and returns how many were delivered.
+        public int poll(long[] batch) {
+            long available = published.get();
+            if (needsSnapshot || available - cursor >= ring.length()) {
+                Snapshot snapshot = latest;
+                if (joined) skipped += Math.max(0, snapshot.sequence - cursor);
+                joined = true;
+                spectator.onSnapshot(snapshot.state);
+                cursor = snapshot.sequence;
+                needsSnapshot = false;
+                available = published.get();
+            }
+            int count = (int) Math.min(available - cursor, batch.length);
+            if (count <= 0) return 0;
+            for (int i = 0; i < count; i++) {
+                batch[i] = ring.get((int) ((cursor + i) & mask));
+            }
+            // The publisher may have lapped us while we were copying. It writes sequence cursor + capacity
+            // over slot cursor while published still reads cursor + capacity, so that count already means lost.
+            if (published.get() - cursor >= ring.length()) {
+                needsSnapshot = true;
+                return 0;
+            }
+            cursor += count;
+            spectator.onMoves(batch, 0, count);
+            return count;
+        }
+    }
+
+    private static class Snapshot {
+
+        final PositionState state;
+        final long sequence;
+
+        Snapshot(PositionState state, long sequence) {
+            this.state = state;
+            this.sequence = sequence;
+        }
+    }
+}
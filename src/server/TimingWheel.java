@@ -0,0 +1,207 @@
+package server;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Hierarchical timing wheel driven by one thread: four levels of 64 slots, each level ticking 64 times
+// slower than the one below, so scheduling and cancelling are O(1) however many timers are pending.
+// Slots are intrusive doubly linked lists owned by the wheel thread; other threads hand over new and
+// cancelled timeouts through queues. Deadlines use System.nanoTime, and with nothing pending the thread
+// parks until the next schedule call.
+public class TimingWheel implements AutoCloseable {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int LEVELS = 4;
+
+    private final long tickNanos;
+    private final long startNanos;
+    private final Timeout[] slots = new Timeout[LEVELS * SLOTS];
+    // Due beyond the last level; re-placed every time the top level wraps.
+    private final Timeout overflow = new Timeout(0, null, null);
+    private final Timeout expired = new Timeout(0, null, null);
+    private final ConcurrentLinkedQueue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Thread thread;
+    private volatile boolean idle;
+    private volatile boolean running = true;
+    private long currentTick;
+
+    public TimingWheel(long tick, TimeUnit unit) {
+        tickNanos = unit.toNanos(tick);
+        if (tickNanos <= 0) throw new IllegalArgumentException("Tick must be positive");
+        for (int i = 0; i < slots.length; i++) slots[i] = new Timeout(0, null, null);
+        startNanos = System.nanoTime();
+        thread = new Thread(this::run, "timing-wheel");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public Timeout schedule(long deadlineNanos, Runnable task) {
+        if (!running) throw new IllegalStateException("Timing wheel is closed");
+        Timeout timeout = new Timeout(deadlineNanos, task, this);
+        pending.incrementAndGet();
+        scheduled.add(timeout);
+        if (idle) LockSupport.unpark(thread);
+        return timeout;
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    public Thread getThread() {
+        return thread;
+    }
+
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    private void run() {
+        while (running) {
+            Timeout timeout;
+            while ((timeout = scheduled.poll()) != null) {
+                if (timeout.cancelled) pending.decrementAndGet();
+                else place(timeout);
+            }
+            while ((timeout = cancelled.poll()) != null) {
+                if (timeout.prev != null) {
+                    unlink(timeout);
+                    pending.decrementAndGet();
+                }
+            }
+            long elapsedTicks = (System.nanoTime() - startNanos) / tickNanos;
+            while (currentTick < elapsedTicks) tick();
+            fire();
+
+            if (pending.get() == 0) {
+                idle = true;
+                if (scheduled.isEmpty()) LockSupport.park(this);
+                idle = false;
+            } else {
+                long next = startNanos + (currentTick + 1) * tickNanos;
+                LockSupport.parkNanos(this, next - System.nanoTime());
+            }
+        }
+    }
+
+    private void tick() {
+        currentTick++;
+        int top = 0;
+        while (top < LEVELS && (currentTick & ((1L << (BITS * (top + 1))) - 1)) == 0) top++;
+        if (top == LEVELS) {
+            replace(overflow);
+            top = LEVELS - 1;
+        }
+        for (int level = top; level >= 1; level--) {
+            replace(slot(level, (int) ((currentTick >>> (BITS * level)) & (SLOTS - 1))));
+        }
+        Timeout due = slot(0, (int) (currentTick & (SLOTS - 1)));
+        while (due.next != due) {
+            Timeout timeout = due.next;
+            unlink(timeout);
+            link(expired, timeout);
+        }
+    }
+
+    // Moves every timeout of a higher-level slot down to where its remaining time now fits.
+    private void replace(Timeout head) {
+        Timeout timeout = head.next;
+        head.next = head.prev = head;
+        while (timeout != head) {
+            Timeout next = timeout.next;
+            timeout.prev = timeout.next = null;
+            place(timeout);
+            timeout = next;
+        }
+    }
+
+    private void place(Timeout timeout) {
+        long deadlineTick = Math.max(0, -Math.floorDiv(startNanos - timeout.deadlineNanos, tickNanos));
+        long delta = deadlineTick - currentTick;
+        if (delta <= 0) {
+            link(expired, timeout);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (BITS * (level + 1))) {
+                link(slot(level, (int) ((deadlineTick >>> (BITS * level)) & (SLOTS - 1))), timeout);
+                return;
+            }
+        }
+        link(overflow, timeout);
+    }
+
+    private void fire() {
+        while (expired.next != expired) {
+            Timeout timeout = expired.next;
+            unlink(timeout);
+            pending.decrementAndGet();
+            if (timeout.cancelled) continue;
+            try {
+                timeout.task.run();
+            } catch (RuntimeException e) {
+                System.err.println("Timer task failed: " + e);
+            }
+        }
+    }
+
+    private Timeout slot(int level, int index) {
+        return slots[level * SLOTS + index];
+    }
+
+    private static void link(Timeout head, Timeout timeout) {
+        timeout.prev = head.prev;
+        timeout.next = head;
+        head.prev.next = timeout;
+        head.prev = timeout;
+    }
+
+    private static void unlink(Timeout timeout) {
+        timeout.prev.next = timeout.next;
+        timeout.next.prev = timeout.prev;
+        timeout.prev = timeout.next = null;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    public static class Timeout {
+
+        private final long deadlineNanos;
+        private final Runnable task;
+        private final TimingWheel wheel;
+        private volatile boolean cancelled;
+        // Only touched by the wheel thread; a slot head links to itself when empty.
+        private Timeout prev = this;
+        private Timeout next = this;
+
+        Timeout(long deadlineNanos, Runnable task, TimingWheel wheel) {
+            this.deadlineNanos = deadlineNanos;
+            this.task = task;
+            this.wheel = wheel;
+            if (wheel != null) prev = next = null;
+        }
+
+        public long getDeadlineNanos() {
+            return deadlineNanos;
+        }
+
+        public void cancel() {
+            if (cancelled) return;
+            cancelled = true;
+            wheel.cancelled.add(this);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
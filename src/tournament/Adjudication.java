@@ -0,0 +1,50 @@
+package tournament;
+
+// When a game is stopped before mate: a win once both engines agree on a decisive score for several
+// plies in a row, a draw once scores stay near zero late in the game, and a draw at the ply limit.
+public class Adjudication {
+
+    private final int winScore;
+    private final int winPlies;
+    private final int drawScore;
+    private final int drawPlies;
+    private final int drawAfterPly;
+    private final int maxPlies;
+
+    public Adjudication(int winScore, int winPlies, int drawScore, int drawPlies, int drawAfterPly, int maxPlies) {
+        this.winScore = winScore;
+        this.winPlies = winPlies;
+        this.drawScore = drawScore;
+        this.drawPlies = drawPlies;
+        this.drawAfterPly = drawAfterPly;
+        this.maxPlies = maxPlies;
+    }
+
+    public static Adjudication standard() {
+        return new Adjudication(1000, 6, 10, 10, 80, 400);
+    }
+
+    public int getWinScore() {
+        return winScore;
+    }
+
+    public int getWinPlies() {
+        return winPlies;
+    }
+
+    public int getDrawScore() {
+        return drawScore;
+    }
+
+    public int getDrawPlies() {
+        return drawPlies;
+    }
+
+    public int getDrawAfterPly() {
+        return drawAfterPly;
+    }
+
+    public int getMaxPlies() {
+        return maxPlies;
+    }
+}
@@ -0,0 +1,60 @@
+package tournament;
+
+// Elo difference implied by a win/draw/loss record, with a 95% confidence interval from the
+// standard error of the mean game score.
+public class Elo {
+
+    private static final double Z95 = 1.959964;
+
+    private final double difference;
+    private final double lower;
+    private final double upper;
+
+    private Elo(double difference, double lower, double upper) {
+        this.difference = difference;
+        this.lower = lower;
+        this.upper = upper;
+    }
+
+    public static Elo of(long wins, long draws, long losses) {
+        long games = wins + draws + losses;
+        if (games == 0) return new Elo(0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        double mean = (wins + 0.5 * draws) / games;
+        double variance = (wins * Math.pow(1 - mean, 2) + draws * Math.pow(0.5 - mean, 2) + losses * Math.pow(mean, 2)) / games;
+        double error = Math.sqrt(variance / games);
+        return new Elo(fromScore(mean), fromScore(mean - Z95 * error), fromScore(mean + Z95 * error));
+    }
+
+    public static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    public static double fromScore(double score) {
+        if (score <= 0) return Double.NEGATIVE_INFINITY;
+        if (score >= 1) return Double.POSITIVE_INFINITY;
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    public double getDifference() {
+        return difference;
+    }
+
+    public double getLower() {
+        return lower;
+    }
+
+    public double getUpper() {
+        return upper;
+    }
+
+    // Half the width of the confidence interval.
+    public double getErrorMargin() {
+        return (upper - lower) / 2;
+    }
+
+    @Override
+    public String toString() {
+        if (Double.isInfinite(lower) || Double.isInfinite(upper)) return String.format("%+.1f (95%% %+.0f..%+.0f)", difference, lower, upper);
+        return String.format("%+.1f +/- %.1f", difference, getErrorMargin());
+    }
+}
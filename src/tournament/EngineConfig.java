@@ -0,0 +1,48 @@
+package tournament;
+
+import engine.ClassicalEvaluator;
+import engine.Evaluator;
+import engine.SearchLimits;
+
+import java.util.function.Supplier;
+
+// One side of a tournament: how to build its evaluator and how long it may search each move.
+public class EngineConfig {
+
+    private final String name;
+    private final Supplier<Evaluator> evaluator;
+    private final SearchLimits limits;
+    private final int hashMegabytes;
+
+    public EngineConfig(String name, Supplier<Evaluator> evaluator, SearchLimits limits, int hashMegabytes) {
+        this.name = name;
+        this.evaluator = evaluator;
+        this.limits = limits;
+        this.hashMegabytes = hashMegabytes;
+    }
+
+    public static EngineConfig classical(String name, SearchLimits limits) {
+        return new EngineConfig(name, ClassicalEvaluator::new, limits, 16);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Evaluator newEvaluator() {
+        return evaluator.get();
+    }
+
+    public SearchLimits getLimits() {
+        return limits;
+    }
+
+    public int getHashMegabytes() {
+        return hashMegabytes;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + limits + ")";
+    }
+}
@@ -0,0 +1,123 @@
+package tournament;
+
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.Color;
+import chess.Fen;
+import chess.LegalMoveCache;
+import chess.Move;
+import chess.PieceLists;
+import chess.PositionState;
+import engine.Search;
+import engine.SearchResult;
+import engine.TranspositionTable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Plays games between two engines on one thread. Each game runs on a fresh ChessMatch built from the
+// opening FEN and every move goes through performChessMove, so games obey exactly the rules users play by.
+public class GamePlayer {
+
+    private final EngineConfig first;
+    private final EngineConfig second;
+    private final Search firstSearch;
+    private final Search secondSearch;
+    private final Adjudication adjudication;
+    // Per-thread, so parallel games do not contend on the shared cache.
+    private final LegalMoveCache moveCache = new LegalMoveCache(4096);
+
+    public GamePlayer(EngineConfig first, EngineConfig second, Adjudication adjudication) {
+        this.first = first;
+        this.second = second;
+        this.adjudication = adjudication;
+        firstSearch = new Search(first.newEvaluator(), new TranspositionTable(first.getHashMegabytes()));
+        secondSearch = new Search(second.newEvaluator(), new TranspositionTable(second.getHashMegabytes()));
+    }
+
+    // Plays one game with the first engine as white when firstIsWhite.
+    public GameResult play(String openingFen, boolean firstIsWhite) {
+        long start = System.nanoTime();
+        ChessMatch match = new ChessMatch(Fen.parse(openingFen));
+        match.setMoveCache(moveCache);
+        firstSearch.getTable().clear();
+        secondSearch.getTable().clear();
+
+        List<String> moves = new ArrayList<>();
+        long[] hashes = new long[adjudication.getMaxPlies() + 1];
+        hashes[0] = match.getPositionHash();
+        int plies = 0;
+        int halfmoveClock = 0;
+        int winStreak = 0;
+        int drawStreak = 0;
+        long nodes = 0;
+
+        while (true) {
+            boolean whiteToMove = match.getCurrentPlayer() == Color.WHITE;
+            boolean firstToMove = whiteToMove == firstIsWhite;
+            Search search = firstToMove ? firstSearch : secondSearch;
+            search.setGameHistory(hashes, plies);
+            SearchResult result = search.search(match, (firstToMove ? first : second).getLimits());
+            nodes += result.getNodes();
+
+            int move = result.getBestMove();
+            if (move == Move.NONE) {
+                if (!match.getCheck()) return finish(openingFen, GameResult.Outcome.DRAW, "stalemate", moves, nodes, start);
+                return finish(openingFen, whiteToMove ? GameResult.Outcome.BLACK_WINS : GameResult.Outcome.WHITE_WINS, "checkmate", moves, nodes, start);
+            }
+
+            int whiteScore = whiteToMove ? result.getScore() : -result.getScore();
+            winStreak = Math.abs(whiteScore) >= adjudication.getWinScore() && (winStreak == 0 || Integer.signum(winStreak) == Integer.signum(whiteScore))
+                    ? winStreak + Integer.signum(whiteScore) : 0;
+            if (Math.abs(winStreak) >= adjudication.getWinPlies()) {
+                return finish(openingFen, winStreak > 0 ? GameResult.Outcome.WHITE_WINS : GameResult.Outcome.BLACK_WINS, "adjudicated win", moves, nodes, start);
+            }
+            drawStreak = plies >= adjudication.getDrawAfterPly() && Math.abs(whiteScore) <= adjudication.getDrawScore() ? drawStreak + 1 : 0;
+            if (drawStreak >= adjudication.getDrawPlies()) {
+                return finish(openingFen, GameResult.Outcome.DRAW, "adjudicated draw", moves, nodes, start);
+            }
+
+            boolean pawnMove = PositionState.type(match.getPieceCode(Move.source(move))) == 'P';
+            ChessPiece captured = match.performChessMove(Move.position(Move.source(move)), Move.position(Move.target(move)));
+            byte promotion = Move.promotion(move);
+            if (promotion != 0 && promotion != PieceLists.QUEEN) {
+                match.replacePromotedPiece(String.valueOf(PositionState.TYPES.charAt(promotion - 1)));
+            }
+            moves.add(Move.toUci(move));
+            plies++;
+            hashes[plies] = match.getPositionHash();
+            halfmoveClock = pawnMove || captured != null ? 0 : halfmoveClock + 1;
+
+            if (match.getCheckMate()) {
+                return finish(openingFen, whiteToMove ? GameResult.Outcome.WHITE_WINS : GameResult.Outcome.BLACK_WINS, "checkmate", moves, nodes, start);
+            }
+            if (halfmoveClock >= 100) return finish(openingFen, GameResult.Outcome.DRAW, "fifty-move rule", moves, nodes, start);
+            if (repetitions(hashes, plies) >= 3) return finish(openingFen, GameResult.Outcome.DRAW, "threefold repetition", moves, nodes, start);
+            if (insufficientMaterial(match)) return finish(openingFen, GameResult.Outcome.DRAW, "insufficient material", moves, nodes, start);
+            if (plies >= adjudication.getMaxPlies()) return finish(openingFen, GameResult.Outcome.DRAW, "ply limit", moves, nodes, start);
+        }
+    }
+
+    private static int repetitions(long[] hashes, int plies) {
+        int count = 0;
+        for (int i = plies; i >= 0; i -= 2) {
+            if (hashes[i] == hashes[plies]) count++;
+        }
+        return count;
+    }
+
+    private static boolean insufficientMaterial(ChessMatch match) {
+        PieceLists pieces = match.getPiecesOnTheBoard();
+        int minors = 0;
+        for (Color color : Color.values()) {
+            if (pieces.get(color, PieceLists.PAWN).size() > 0 || pieces.get(color, PieceLists.ROOK).size() > 0
+                    || pieces.get(color, PieceLists.QUEEN).size() > 0) return false;
+            minors += pieces.get(color, PieceLists.KNIGHT).size() + pieces.get(color, PieceLists.BISHOP).size();
+        }
+        return minors <= 1;
+    }
+
+    private static GameResult finish(String openingFen, GameResult.Outcome outcome, String reason, List<String> moves, long nodes, long start) {
+        return new GameResult(openingFen, outcome, reason, moves, nodes, System.nanoTime() - start);
+    }
+}
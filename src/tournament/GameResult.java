@@ -0,0 +1,72 @@
+package tournament;
+
+import java.util.List;
+
+public class GameResult {
+
+    public enum Outcome {
+        WHITE_WINS("1-0"),
+        BLACK_WINS("0-1"),
+        DRAW("1/2-1/2");
+
+        private final String notation;
+
+        Outcome(String notation) {
+            this.notation = notation;
+        }
+
+        public String getNotation() {
+            return notation;
+        }
+    }
+
+    private final String openingFen;
+    private final Outcome outcome;
+    private final String reason;
+    private final List<String> moves;
+    private final long nodes;
+    private final long nanos;
+
+    public GameResult(String openingFen, Outcome outcome, String reason, List<String> moves, long nodes, long nanos) {
+        this.openingFen = openingFen;
+        this.outcome = outcome;
+        this.reason = reason;
+        this.moves = moves;
+        this.nodes = nodes;
+        this.nanos = nanos;
+    }
+
+    public String getOpeningFen() {
+        return openingFen;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    // UCI moves played from the opening position.
+    public List<String> getMoves() {
+        return moves;
+    }
+
+    public int getPlies() {
+        return moves.size();
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        return outcome.getNotation() + " {" + reason + "} " + moves.size() + " plies";
+    }
+}
@@ -0,0 +1,59 @@
+package tournament;
+
+// Sequential probability ratio test between H0: elo = elo0 and H1: elo = elo1, using the normal
+// approximation of the log-likelihood ratio from the mean and variance of the game scores.
+public class Sprt {
+
+    public enum Decision {
+        CONTINUE,
+        ACCEPT_H0,
+        ACCEPT_H1
+    }
+
+    private final double elo0;
+    private final double elo1;
+    private final double lowerBound;
+    private final double upperBound;
+
+    public Sprt(double elo0, double elo1, double alpha, double beta) {
+        if (elo1 <= elo0) throw new IllegalArgumentException("elo1 must be greater than elo0");
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        lowerBound = Math.log(beta / (1 - alpha));
+        upperBound = Math.log((1 - beta) / alpha);
+    }
+
+    public double getElo0() {
+        return elo0;
+    }
+
+    public double getElo1() {
+        return elo1;
+    }
+
+    public double getLowerBound() {
+        return lowerBound;
+    }
+
+    public double getUpperBound() {
+        return upperBound;
+    }
+
+    public double llr(long wins, long draws, long losses) {
+        long games = wins + draws + losses;
+        if (games == 0 || wins + losses == 0) return 0;
+        double mean = (wins + 0.5 * draws) / games;
+        double variance = (wins * Math.pow(1 - mean, 2) + draws * Math.pow(0.5 - mean, 2) + losses * Math.pow(mean, 2)) / games;
+        if (variance == 0) return 0;
+        double s0 = Elo.expectedScore(elo0);
+        double s1 = Elo.expectedScore(elo1);
+        return (s1 - s0) * (2 * mean - s0 - s1) * games / (2 * variance);
+    }
+
+    public Decision decide(long wins, long draws, long losses) {
+        double llr = llr(wins, draws, losses);
+        if (llr >= upperBound) return Decision.ACCEPT_H1;
+        if (llr <= lowerBound) return Decision.ACCEPT_H0;
+        return Decision.CONTINUE;
+    }
+}
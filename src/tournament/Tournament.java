@@ -0,0 +1,211 @@
+package tournament;
+
+import archive.GameArchive;
+import archive.GameRecord;
+import engine.ClassicalEvaluator;
+import engine.NnueEvaluator;
+import engine.NnueNetwork;
+import engine.SearchLimits;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Plays engine A against engine B on all cores. Every opening is played twice with colours reversed,
+// games are handed out from a shared counter, and the match stops early once the SPRT reaches a decision.
+public class Tournament {
+
+    private final EngineConfig a;
+    private final EngineConfig b;
+    private final List<String> openings;
+    private final int maxGames;
+    private final int threads;
+    private final Sprt sprt;
+    private final Adjudication adjudication;
+    private final int reportEvery;
+
+    private final AtomicInteger nextGame = new AtomicInteger();
+    private final AtomicBoolean stopped = new AtomicBoolean();
+    private long wins;
+    private long draws;
+    private long losses;
+    private long plies;
+    private long nodes;
+    private long searchNanos;
+    private final Map<String, Integer> reasons = new HashMap<>();
+    private Sprt.Decision decision = Sprt.Decision.CONTINUE;
+    private Writer games;
+
+    public Tournament(EngineConfig a, EngineConfig b, List<String> openings, int maxGames, int threads, Sprt sprt,
+                      Adjudication adjudication, int reportEvery) {
+        if (openings.isEmpty()) throw new IllegalArgumentException("The opening suite is empty");
+        this.a = a;
+        this.b = b;
+        this.openings = openings;
+        this.maxGames = maxGames;
+        this.threads = threads;
+        this.sprt = sprt;
+        this.adjudication = adjudication;
+        this.reportEvery = reportEvery;
+    }
+
+    // Appends every finished game to a game archive, with the game number as its id.
+    public void setGameWriter(Writer games) {
+        this.games = games;
+    }
+
+    // One FEN per line; blank lines and lines starting with # are skipped, and EPD operations after the
+    // fourth field are dropped.
+    public static List<String> loadOpenings(Path file) throws IOException {
+        List<String> openings = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] fields = line.split("\\s+");
+            if (fields.length > 6 || fields.length > 4 && fields[4].contains(";")) {
+                line = String.join(" ", fields[0], fields[1], fields[2], fields[3]);
+            }
+            openings.add(line);
+        }
+        return openings;
+    }
+
+    public void run() throws InterruptedException {
+        long start = System.nanoTime();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(this::work, "tournament-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) worker.join();
+        long elapsed = System.nanoTime() - start;
+
+        synchronized (this) {
+            long games = wins + draws + losses;
+            System.out.println();
+            System.out.println(a + " vs " + b);
+            report();
+            System.out.printf("SPRT [%.1f, %.1f]: %s%n", sprt.getElo0(), sprt.getElo1(),
+                    decision == Sprt.Decision.ACCEPT_H1 ? "H1 accepted" : decision == Sprt.Decision.ACCEPT_H0 ? "H0 accepted" : "inconclusive");
+            System.out.println("Endings: " + reasons);
+            System.out.printf("%d games in %.1f s on %d threads: %.0f games/hour, %.1f plies/game, %.0f nodes/s per thread%n",
+                    games, elapsed / 1e9, threads, games / (elapsed / 3.6e12), (double) plies / Math.max(1, games),
+                    nodes / (searchNanos / 1e9));
+        }
+    }
+
+    private void work() {
+        GamePlayer player = new GamePlayer(a, b, adjudication);
+        while (!stopped.get()) {
+            int game = nextGame.getAndIncrement();
+            if (game >= maxGames) break;
+            String opening = openings.get((game / 2) % openings.size());
+            boolean aIsWhite = game % 2 == 0;
+            GameResult result = player.play(opening, aIsWhite);
+            record(game, result, aIsWhite);
+        }
+    }
+
+    private synchronized void record(int game, GameResult result, boolean aIsWhite) {
+        if (games != null) {
+            try {
+                GameArchive.write(games, new GameRecord(game, result.getOutcome().getNotation(), result.getOpeningFen(), result.getMoves()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (result.getOutcome() == GameResult.Outcome.DRAW) draws++;
+        else if ((result.getOutcome() == GameResult.Outcome.WHITE_WINS) == aIsWhite) wins++;
+        else losses++;
+        plies += result.getPlies();
+        nodes += result.getNodes();
+        searchNanos += result.getNanos();
+        reasons.merge(result.getReason(), 1, Integer::sum);
+
+        long games = wins + draws + losses;
+        if (reportEvery > 0 && games % reportEvery == 0) report();
+        if (decision == Sprt.Decision.CONTINUE) {
+            decision = sprt.decide(wins, draws, losses);
+            if (decision != Sprt.Decision.CONTINUE) stopped.set(true);
+        }
+    }
+
+    private void report() {
+        System.out.printf("Games %d: +%d =%d -%d  Elo %s  LLR %.2f [%.2f, %.2f]%n", wins + draws + losses, wins, draws, losses,
+                Elo.of(wins, draws, losses), sprt.llr(wins, draws, losses), sprt.getLowerBound(), sprt.getUpperBound());
+    }
+
+    public synchronized long getWins() {
+        return wins;
+    }
+
+    public synchronized long getDraws() {
+        return draws;
+    }
+
+    public synchronized long getLosses() {
+        return losses;
+    }
+
+    public synchronized Sprt.Decision getDecision() {
+        return decision;
+    }
+
+    // Arguments are key=value pairs, for example: a.depth=4 b.depth=3 games=2000 threads=8 elo0=0 elo1=20
+    // openings=openings/balanced.fen out=games.txt. Per-engine limits are depth, nodes and time (ms per move);
+    // a.nnue=<file> makes an engine evaluate with that network and a.weights=<file> with those classical weights.
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Expected key=value: " + arg);
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        EngineConfig a = engine(options, "a", 4);
+        EngineConfig b = engine(options, "b", 3);
+        List<String> openings = loadOpenings(Path.of(options.getOrDefault("openings", "openings/balanced.fen")));
+        int games = Integer.parseInt(options.getOrDefault("games", "1000"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        Sprt sprt = new Sprt(Double.parseDouble(options.getOrDefault("elo0", "0")), Double.parseDouble(options.getOrDefault("elo1", "10")),
+                Double.parseDouble(options.getOrDefault("alpha", "0.05")), Double.parseDouble(options.getOrDefault("beta", "0.05")));
+        int maxPlies = Integer.parseInt(options.getOrDefault("maxplies", "400"));
+        Adjudication adjudication = new Adjudication(1000, 6, 10, 10, 80, maxPlies);
+
+        Tournament tournament = new Tournament(a, b, openings, games, threads, sprt, adjudication, Integer.parseInt(options.getOrDefault("report", "20")));
+        if (options.containsKey("out")) {
+            try (Writer out = Files.newBufferedWriter(Path.of(options.get("out")))) {
+                tournament.setGameWriter(out);
+                tournament.run();
+            }
+        } else {
+            tournament.run();
+        }
+    }
+
+    private static EngineConfig engine(Map<String, String> options, String engine, int defaultDepth) throws IOException {
+        String name = engine.toUpperCase();
+        if (options.containsKey(engine + ".weights")) {
+            int[] weights = ClassicalEvaluator.readWeights(Path.of(options.get(engine + ".weights")));
+            return new EngineConfig(name + " tuned", () -> new ClassicalEvaluator(weights), limits(options, engine, defaultDepth), 16);
+        }
+        if (!options.containsKey(engine + ".nnue")) return EngineConfig.classical(name, limits(options, engine, defaultDepth));
+        NnueNetwork network = NnueNetwork.load(Path.of(options.get(engine + ".nnue")));
+        return new EngineConfig(name + " nnue", () -> new NnueEvaluator(network), limits(options, engine, defaultDepth), 16);
+    }
+
+    private static SearchLimits limits(Map<String, String> options, String engine, int defaultDepth) {
+        int depth = Integer.parseInt(options.getOrDefault(engine + ".depth", String.valueOf(defaultDepth)));
+        long nodes = Long.parseLong(options.getOrDefault(engine + ".nodes", "0"));
+        long time = Long.parseLong(options.getOrDefault(engine + ".time", "0"));
+        return new SearchLimits(depth, nodes, time);
+    }
+}
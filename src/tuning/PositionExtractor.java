@@ -0,0 +1,122 @@
+package tuning;
+
+import archive.GameArchive;
+import archive.GameRecord;
+import archive.GameReplay;
+import chess.ChessMatch;
+import chess.Move;
+import chess.PositionState;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Replays an archive through ChessMatch on several threads and keeps the quiet positions of decided and
+// drawn games: past the opening, not in check, and with no capture or promotion available that gains
+// material by static exchange, so the static score is a fair prediction of the position.
+public class PositionExtractor {
+
+    private static final GameRecord END = new GameRecord(-1, "", "", List.of());
+
+    private final int skipPlies;
+    private final AtomicLong games = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong seen = new AtomicLong();
+
+    public PositionExtractor(int skipPlies) {
+        this.skipPlies = skipPlies;
+    }
+
+    public long getGames() {
+        return games.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    // Positions replayed, quiet or not.
+    public long getSeen() {
+        return seen.get();
+    }
+
+    public TuningSet extract(Path archive, int threads) throws InterruptedException {
+        BlockingQueue<GameRecord> queue = new ArrayBlockingQueue<>(1024);
+        List<TuningSet> sets = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            TuningSet set = new TuningSet();
+            sets.add(set);
+            Thread worker = new Thread(() -> {
+                GameReplay replay = new GameReplay();
+                int[] moves = new int[256];
+                try {
+                    GameRecord game;
+                    while ((game = queue.take()) != END) {
+                        double result = result(game.getResult());
+                        if (Double.isNaN(result)) continue;
+                        try {
+                            ChessMatch match = replay.start(game);
+                            for (int ply = 0; ply < game.getMoves().size(); ply++) {
+                                GameReplay.play(match, Move.fromUci(game.getMoves().get(ply)));
+                                seen.incrementAndGet();
+                                if (ply + 1 >= skipPlies && !match.getCheckMate() && isQuiet(match, moves)) set.add(match, result);
+                            }
+                            games.incrementAndGet();
+                        } catch (RuntimeException e) {
+                            // An illegal move, bad FEN or bad UCI token rejects the game, not the worker.
+                            rejected.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "extractor-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        try {
+            GameArchive.read(archive, game -> {
+                try {
+                    queue.put(game);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+            });
+        } finally {
+            // Stop the workers even when reading fails, or they wait on the queue forever.
+            for (int t = 0; t < threads; t++) queue.put(END);
+            for (Thread worker : workers) worker.join();
+        }
+
+        TuningSet all = new TuningSet();
+        for (TuningSet set : sets) all.addAll(set);
+        return all;
+    }
+
+    static boolean isQuiet(ChessMatch match, int[] moves) {
+        if (match.getCheck()) return false;
+        int count = match.generateMoves(moves);
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (Move.promotion(move) != 0) return false;
+            if (match.getPieceCode(Move.target(move)) != PositionState.EMPTY
+                    && match.staticExchangeEvaluation(Move.source(move), Move.target(move)) > 0) return false;
+        }
+        return true;
+    }
+
+    // White's score in a game result, NaN for unfinished games.
+    static double result(String result) {
+        switch (result) {
+            case "1-0": return 1;
+            case "0-1": return 0;
+            case "1/2-1/2": return 0.5;
+            default: return Double.NaN;
+        }
+    }
+}
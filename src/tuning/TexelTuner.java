@@ -0,0 +1,291 @@
+package tuning;
+
+import engine.ClassicalEvaluator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Texel tuning of the ClassicalEvaluator weights: minimises the mean squared difference between game
+// results and sigmoid(k * score), where k is first fitted to the starting weights and then held fixed.
+// Every epoch computes the full gradient with the positions split into one slice per thread and takes
+// one Adam step. Progress is checkpointed (weights and Adam moments) so a run can be resumed.
+public class TexelTuner implements AutoCloseable {
+
+    private static final double BETA1 = 0.9;
+    private static final double BETA2 = 0.999;
+    private static final double EPSILON = 1e-8;
+
+    private final TuningSet set;
+    private final int threads;
+    private final ExecutorService pool;
+    private double k = 1;
+    private long busyNanos;
+    private long processed;
+
+    public TexelTuner(TuningSet set, int threads) {
+        this.set = set;
+        this.threads = threads;
+        pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "texel");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public double getK() {
+        return k;
+    }
+
+    public void setK(double k) {
+        this.k = k;
+    }
+
+    // Positions per second of thread time, over every error and gradient pass so far.
+    public double getPositionsPerThreadSecond() {
+        return busyNanos == 0 ? 0 : processed / (busyNanos / 1e9);
+    }
+
+    // Golden-section search for the k that minimises the error of the given weights.
+    public double fitK(double[] weights) throws InterruptedException {
+        double low = 0.1;
+        double high = 4;
+        double ratio = (Math.sqrt(5) - 1) / 2;
+        for (int i = 0; i < 30; i++) {
+            double a = high - ratio * (high - low);
+            double b = low + ratio * (high - low);
+            k = a;
+            double errorA = error(weights);
+            k = b;
+            double errorB = error(weights);
+            if (errorA < errorB) high = b;
+            else low = a;
+        }
+        k = (low + high) / 2;
+        return k;
+    }
+
+    public double error(double[] weights) throws InterruptedException {
+        return run(weights, null);
+    }
+
+    // Mean squared error of weights, writing its gradient into gradient.
+    public double gradient(double[] weights, double[] gradient) throws InterruptedException {
+        return run(weights, gradient);
+    }
+
+    private double run(double[] weights, double[] gradient) throws InterruptedException {
+        int size = set.size();
+        List<Callable<double[]>> slices = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int from = (int) ((long) size * t / threads);
+            int to = (int) ((long) size * (t + 1) / threads);
+            slices.add(() -> slice(weights, from, to, gradient != null));
+        }
+        double error = 0;
+        if (gradient != null) Arrays.fill(gradient, 0);
+        try {
+            for (Future<double[]> future : pool.invokeAll(slices)) {
+                double[] partial = future.get();
+                error += partial[0];
+                busyNanos += (long) partial[1];
+                if (gradient != null) {
+                    for (int i = 0; i < gradient.length; i++) gradient[i] += partial[i + 2];
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        processed += size;
+        if (gradient != null) {
+            for (int i = 0; i < gradient.length; i++) gradient[i] /= size;
+        }
+        return error / size;
+    }
+
+    // Squared error sum, thread time and (when asked) the gradient sum of positions [from, to).
+    private double[] slice(double[] weights, int from, int to, boolean withGradient) {
+        long start = System.nanoTime();
+        double[] result = new double[withGradient ? weights.length + 2 : 2];
+        double[] gradient = withGradient ? new double[weights.length] : null;
+        double scale = k * Math.log(10) / 400;
+        double error = 0;
+        for (int i = from; i < to; i++) {
+            double predicted = 1 / (1 + Math.exp(-scale * set.evaluate(i, weights)));
+            double difference = predicted - set.result(i);
+            error += difference * difference;
+            if (withGradient) set.accumulateGradient(i, 2 * difference * predicted * (1 - predicted) * scale, gradient);
+        }
+        result[0] = error;
+        result[1] = System.nanoTime() - start;
+        if (withGradient) System.arraycopy(gradient, 0, result, 2, gradient.length);
+        return result;
+    }
+
+    // Runs Adam from the checkpoint when it exists, else from weights, writing a checkpoint every
+    // checkpointEvery epochs and at the end. Returns the tuned weights.
+    public double[] tune(double[] weights, int epochs, double learningRate, Path checkpoint, int checkpointEvery) throws IOException, InterruptedException {
+        Checkpoint state = checkpoint != null && Files.exists(checkpoint) ? Checkpoint.read(checkpoint) : new Checkpoint(weights.clone(), k);
+        k = state.k;
+        double[] gradient = new double[weights.length];
+        long start = System.nanoTime();
+        for (int epoch = state.epoch + 1; epoch <= epochs; epoch++) {
+            double error = gradient(state.weights, gradient);
+            for (int i = 0; i < gradient.length; i++) {
+                state.m[i] = BETA1 * state.m[i] + (1 - BETA1) * gradient[i];
+                state.v[i] = BETA2 * state.v[i] + (1 - BETA2) * gradient[i] * gradient[i];
+                double m = state.m[i] / (1 - Math.pow(BETA1, epoch));
+                double v = state.v[i] / (1 - Math.pow(BETA2, epoch));
+                state.weights[i] -= learningRate * m / (Math.sqrt(v) + EPSILON);
+            }
+            state.epoch = epoch;
+            state.error = error;
+            boolean save = checkpoint != null && (epoch % checkpointEvery == 0 || epoch == epochs);
+            if (save) state.write(checkpoint);
+            if (epoch % checkpointEvery == 0 || epoch == epochs) {
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("epoch %d: error %.6f, %.0f positions/s per thread, %.1f s%s%n", epoch, error,
+                        getPositionsPerThreadSecond(), seconds, save ? ", checkpoint written" : "");
+            }
+        }
+        return state.weights;
+    }
+
+    public static int[] round(double[] weights) {
+        int[] rounded = new int[weights.length];
+        for (int i = 0; i < weights.length; i++) rounded[i] = (int) Math.round(weights[i]);
+        return rounded;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    // Weights, Adam moments, k and the last completed epoch, as text so a run can be inspected.
+    static class Checkpoint {
+
+        final double[] weights;
+        final double[] m;
+        final double[] v;
+        double k;
+        int epoch;
+        double error;
+
+        Checkpoint(double[] weights, double k) {
+            this.weights = weights;
+            this.k = k;
+            m = new double[weights.length];
+            v = new double[weights.length];
+        }
+
+        void write(Path file) throws IOException {
+            StringBuilder sb = new StringBuilder();
+            sb.append("epoch ").append(epoch).append('\n');
+            sb.append("k ").append(k).append('\n');
+            sb.append("error ").append(error).append('\n');
+            line(sb, "weights", weights);
+            line(sb, "m", m);
+            line(sb, "v", v);
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(temp, sb);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        private static void line(StringBuilder sb, String name, double[] values) {
+            sb.append(name);
+            for (double value : values) sb.append(' ').append(value);
+            sb.append('\n');
+        }
+
+        static Checkpoint read(Path file) throws IOException {
+            Map<String, String[]> lines = new HashMap<>();
+            for (String line : Files.readAllLines(file)) {
+                String[] fields = line.trim().split(" ");
+                if (fields.length > 1) lines.put(fields[0], fields);
+            }
+            Checkpoint checkpoint = new Checkpoint(values(lines, "weights", file), Double.parseDouble(value(lines, "k", file)));
+            System.arraycopy(values(lines, "m", file), 0, checkpoint.m, 0, checkpoint.m.length);
+            System.arraycopy(values(lines, "v", file), 0, checkpoint.v, 0, checkpoint.v.length);
+            checkpoint.epoch = Integer.parseInt(value(lines, "epoch", file));
+            checkpoint.error = Double.parseDouble(value(lines, "error", file));
+            return checkpoint;
+        }
+
+        private static String value(Map<String, String[]> lines, String name, Path file) throws IOException {
+            String[] fields = lines.get(name);
+            if (fields == null) throw new IOException("Checkpoint " + file + " has no " + name);
+            return fields[1];
+        }
+
+        private static double[] values(Map<String, String[]> lines, String name, Path file) throws IOException {
+            String[] fields = lines.get(name);
+            if (fields == null || fields.length != ClassicalEvaluator.WEIGHTS + 1) throw new IOException("Checkpoint " + file + " has no complete " + name);
+            double[] values = new double[ClassicalEvaluator.WEIGHTS];
+            for (int i = 0; i < values.length; i++) values[i] = Double.parseDouble(fields[i + 1]);
+            return values;
+        }
+    }
+
+    // Command line:
+    //   extract <archive> <set file> [threads] [skip=8]   replays games and saves their quiet positions
+    //   tune <set file> <weights out> [epochs=500] [lr=1] [threads=] [checkpoint=<file>] [every=10]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 3) {
+            System.out.println("usage: extract <archive> <set> [threads] | tune <set> <weights> [epochs=] [lr=] [threads=] [checkpoint=] [every=]");
+            return;
+        }
+        Map<String, String> options = new HashMap<>();
+        List<String> positional = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            int eq = args[i].indexOf('=');
+            if (eq < 0) positional.add(args[i]);
+            else options.put(args[i].substring(0, eq), args[i].substring(eq + 1));
+        }
+        int threads = Integer.parseInt(options.getOrDefault("threads", positional.size() > 2 ? positional.get(2)
+                : String.valueOf(Runtime.getRuntime().availableProcessors())));
+        long start = System.nanoTime();
+        switch (args[0]) {
+            case "extract": {
+                PositionExtractor extractor = new PositionExtractor(Integer.parseInt(options.getOrDefault("skip", "8")));
+                TuningSet set = extractor.extract(Path.of(positional.get(0)), threads);
+                set.save(Path.of(positional.get(1)));
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%d games (%d rejected), %d of %d positions quiet, %.1f MB in memory, %.1f s (%.0f positions/s per thread)%n",
+                        extractor.getGames(), extractor.getRejected(), set.size(), extractor.getSeen(), set.getBytes() / 1e6,
+                        seconds, extractor.getSeen() / seconds / threads);
+                break;
+            }
+            case "tune": {
+                TuningSet set = TuningSet.load(Path.of(positional.get(0)));
+                System.out.printf("loaded %d positions (%.1f MB) in %.1f s%n", set.size(), set.getBytes() / 1e6, (System.nanoTime() - start) / 1e9);
+                double[] weights = Arrays.stream(ClassicalEvaluator.defaultWeights()).asDoubleStream().toArray();
+                Path checkpoint = options.containsKey("checkpoint") ? Path.of(options.get("checkpoint")) : null;
+                try (TexelTuner tuner = new TexelTuner(set, threads)) {
+                    if (checkpoint == null || !Files.exists(checkpoint)) {
+                        System.out.printf("k %.4f, starting error %.6f%n", tuner.fitK(weights), tuner.error(weights));
+                    }
+                    double[] tuned = tuner.tune(weights, Integer.parseInt(options.getOrDefault("epochs", "500")),
+                            Double.parseDouble(options.getOrDefault("lr", "1")), checkpoint, Integer.parseInt(options.getOrDefault("every", "10")));
+                    ClassicalEvaluator.writeWeights(Path.of(positional.get(1)), round(tuned));
+                    System.out.printf("final error %.6f with rounded weights, %.0f positions/s per thread on %d threads%n",
+                            tuner.error(Arrays.stream(round(tuned)).asDoubleStream().toArray()), tuner.getPositionsPerThreadSecond(), threads);
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown command: " + args[0]);
+        }
+    }
+}
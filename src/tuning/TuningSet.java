@@ -0,0 +1,149 @@
+package tuning;
+
+import chess.ChessMatch;
+import chess.Color;
+import chess.PositionState;
+import engine.ClassicalEvaluator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Positions with game outcomes in flat primitive arrays: per position a result (0 black won, 1 draw,
+// 2 white won), the game phase and an offset into one shared array of pieces, each piece one short
+// holding its type and relative square (type * 64 + square, as in the piece-square tables) with the
+// sign bit set for black. About 70 bytes per middlegame position and no objects per position.
+public class TuningSet {
+
+    private static final int MAGIC = 0x54554E45;
+    private static final int BLACK = 0x8000;
+
+    private int size;
+    private byte[] results = new byte[1024];
+    private byte[] phases = new byte[1024];
+    private int[] offsets = new int[1025];
+    private short[] pieces = new short[1024 * 32];
+
+    public int size() {
+        return size;
+    }
+
+    public long getBytes() {
+        return results.length + phases.length + (long) offsets.length * Integer.BYTES + (long) pieces.length * Short.BYTES;
+    }
+
+    // result is the game's outcome for white: 0, 0.5 or 1.
+    public void add(ChessMatch match, double result) {
+        ensureCapacity(size + 1, offsets[size] + 32);
+        int offset = offsets[size];
+        for (int square = 0; square < PositionState.SQUARES; square++) {
+            byte code = match.getPieceCode(square);
+            if (code == PositionState.EMPTY) continue;
+            Color color = PositionState.color(code);
+            int type = (code - 1) % 6;
+            int entry = type * 64 + ClassicalEvaluator.relativeSquare(color, square);
+            pieces[offset++] = (short) (color == Color.WHITE ? entry : entry | BLACK);
+        }
+        results[size] = (byte) Math.round(result * 2);
+        phases[size] = (byte) ClassicalEvaluator.phase(match.getPiecesOnTheBoard());
+        offsets[++size] = offset;
+    }
+
+    public void addAll(TuningSet other) {
+        ensureCapacity(size + other.size, offsets[size] + other.offsets[other.size]);
+        System.arraycopy(other.results, 0, results, size, other.size);
+        System.arraycopy(other.phases, 0, phases, size, other.size);
+        int base = offsets[size];
+        System.arraycopy(other.pieces, 0, pieces, base, other.offsets[other.size]);
+        for (int i = 1; i <= other.size; i++) offsets[size + i] = base + other.offsets[i];
+        size += other.size;
+    }
+
+    private void ensureCapacity(int positions, int entries) {
+        if (positions >= results.length) {
+            int capacity = Math.max(positions + 1, results.length * 2);
+            results = Arrays.copyOf(results, capacity);
+            phases = Arrays.copyOf(phases, capacity);
+            offsets = Arrays.copyOf(offsets, capacity + 1);
+        }
+        if (entries > pieces.length) pieces = Arrays.copyOf(pieces, Math.max(entries, pieces.length * 2));
+    }
+
+    // Result for white: 0, 0.5 or 1.
+    public double result(int index) {
+        return results[index] / 2.0;
+    }
+
+    // The classical score from white's point of view under real-valued weights. The king's table is
+    // blended by phase without the integer rounding of ClassicalEvaluator.
+    public double evaluate(int index, double[] weights) {
+        int phase = phases[index];
+        double score = 0;
+        for (int e = offsets[index]; e < offsets[index + 1]; e++) {
+            int entry = pieces[e] & 0xFFFF;
+            double sign = (entry & BLACK) != 0 ? -1 : 1;
+            int table = entry & ~BLACK;
+            int type = table >>> 6;
+            if (type == 5) {
+                score += sign * (weights[ClassicalEvaluator.PIECE_SQUARE + table] * phase
+                        + weights[ClassicalEvaluator.KING_ENDGAME + (table & 63)] * (ClassicalEvaluator.MAX_PHASE - phase)) / ClassicalEvaluator.MAX_PHASE;
+            } else {
+                score += sign * (weights[ClassicalEvaluator.MATERIAL + type] + weights[ClassicalEvaluator.PIECE_SQUARE + table]);
+            }
+        }
+        return score;
+    }
+
+    // Adds factor times the derivative of evaluate(index) with respect to each weight into gradient.
+    public void accumulateGradient(int index, double factor, double[] gradient) {
+        int phase = phases[index];
+        double middlegame = factor * phase / ClassicalEvaluator.MAX_PHASE;
+        double endgame = factor - middlegame;
+        for (int e = offsets[index]; e < offsets[index + 1]; e++) {
+            int entry = pieces[e] & 0xFFFF;
+            boolean black = (entry & BLACK) != 0;
+            int table = entry & ~BLACK;
+            int type = table >>> 6;
+            if (type == 5) {
+                gradient[ClassicalEvaluator.PIECE_SQUARE + table] += black ? -middlegame : middlegame;
+                gradient[ClassicalEvaluator.KING_ENDGAME + (table & 63)] += black ? -endgame : endgame;
+            } else {
+                gradient[ClassicalEvaluator.MATERIAL + type] += black ? -factor : factor;
+                gradient[ClassicalEvaluator.PIECE_SQUARE + table] += black ? -factor : factor;
+            }
+        }
+    }
+
+    public void save(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(size);
+            out.writeInt(offsets[size]);
+            out.write(results, 0, size);
+            out.write(phases, 0, size);
+            for (int i = 1; i <= size; i++) out.writeByte(offsets[i] - offsets[i - 1]);
+            for (int e = 0; e < offsets[size]; e++) out.writeShort(pieces[e]);
+        }
+    }
+
+    public static TuningSet load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a tuning set: " + file);
+            int size = in.readInt();
+            int entries = in.readInt();
+            TuningSet set = new TuningSet();
+            set.ensureCapacity(size, entries);
+            in.readFully(set.results, 0, size);
+            in.readFully(set.phases, 0, size);
+            for (int i = 1; i <= size; i++) set.offsets[i] = set.offsets[i - 1] + in.readUnsignedByte();
+            for (int e = 0; e < entries; e++) set.pieces[e] = in.readShort();
+            set.size = size;
+            return set;
+        }
+    }
+}